@@ -0,0 +1,27 @@
+package io.github.vmzakharov.ecdataframe.dataframe;
+
+/**
+ * Accumulates the result of an aggregate function one value at a time, so that all aggregate functions applied to the
+ * same column can be calculated in a single pass over the column values. The result is expected to be the same as that
+ * of applying the aggregate function to the entire column. Null values are not passed to the long and double
+ * accumulators: if a long or a double column contains a null value, the result of aggregation is null.
+ */
+public interface AggregateAccumulator
+{
+    default void accumulateLong(long value)
+    {
+        ErrorReporter.unsupported("Accumulating long values is not supported");
+    }
+
+    default void accumulateDouble(double value)
+    {
+        ErrorReporter.unsupported("Accumulating double values is not supported");
+    }
+
+    default void accumulateObject(Object value)
+    {
+        ErrorReporter.unsupported("Accumulating non-numeric values is not supported");
+    }
+
+    Object getResult();
+}
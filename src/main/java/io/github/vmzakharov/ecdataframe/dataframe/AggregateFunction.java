@@ -1,12 +1,29 @@
 package io.github.vmzakharov.ecdataframe.dataframe;
 
 import io.github.vmzakharov.ecdataframe.dsl.value.ValueType;
+import org.eclipse.collections.api.block.function.Function0;
 import org.eclipse.collections.api.list.ListIterable;
+import org.eclipse.collections.api.list.MutableList;
+import org.eclipse.collections.api.list.primitive.MutableDoubleList;
+import org.eclipse.collections.api.list.primitive.MutableLongList;
+import org.eclipse.collections.api.set.MutableSet;
+import org.eclipse.collections.api.set.primitive.MutableDoubleSet;
+import org.eclipse.collections.api.set.primitive.MutableLongSet;
+import org.eclipse.collections.impl.factory.Lists;
+import org.eclipse.collections.impl.factory.Sets;
+import org.eclipse.collections.impl.factory.primitive.DoubleLists;
+import org.eclipse.collections.impl.factory.primitive.DoubleSets;
+import org.eclipse.collections.impl.factory.primitive.LongLists;
+import org.eclipse.collections.impl.factory.primitive.LongSets;
+
+import java.util.Arrays;
+import java.util.BitSet;
 
 public abstract class AggregateFunction
 {
     private final String columnName;
     private final String targetColumnName;
+    private final String filter;
 
     public AggregateFunction(String newColumnName)
     {
@@ -14,9 +31,15 @@ public abstract class AggregateFunction
     }
 
     public AggregateFunction(String newColumnName, String newTargetColumnName)
+    {
+        this(newColumnName, newTargetColumnName, null);
+    }
+
+    private AggregateFunction(String newColumnName, String newTargetColumnName, String newFilter)
     {
         this.columnName = newColumnName;
         this.targetColumnName = newTargetColumnName;
+        this.filter = newFilter;
     }
 
     public static AggregateFunction sum(String newColumnName)
@@ -79,6 +102,101 @@ public abstract class AggregateFunction
         return new Same(newColumnName, newTargetColumnName);
     }
 
+    public static AggregateFunction countDistinct(String newColumnName)
+    {
+        return new CountDistinct(newColumnName);
+    }
+
+    public static AggregateFunction countDistinct(String newColumnName, String newTargetColumnName)
+    {
+        return new CountDistinct(newColumnName, newTargetColumnName);
+    }
+
+    public static AggregateFunction approxCountDistinct(String newColumnName)
+    {
+        return new ApproxCountDistinct(newColumnName, ApproxCountDistinct.DEFAULT_PRECISION);
+    }
+
+    public static AggregateFunction approxCountDistinct(String newColumnName, int precision)
+    {
+        return new ApproxCountDistinct(newColumnName, precision);
+    }
+
+    public static AggregateFunction approxCountDistinct(String newColumnName, String newTargetColumnName, int precision)
+    {
+        return new ApproxCountDistinct(newColumnName, newTargetColumnName, precision);
+    }
+
+    public static AggregateFunction variance(String newColumnName)
+    {
+        return new Variance(newColumnName);
+    }
+
+    public static AggregateFunction variance(String newColumnName, String newTargetColumnName)
+    {
+        return new Variance(newColumnName, newTargetColumnName);
+    }
+
+    public static AggregateFunction stdDev(String newColumnName)
+    {
+        return new StandardDeviation(newColumnName);
+    }
+
+    public static AggregateFunction stdDev(String newColumnName, String newTargetColumnName)
+    {
+        return new StandardDeviation(newColumnName, newTargetColumnName);
+    }
+
+    public static AggregateFunction covariance(String newColumnName, String newOtherColumnName, String newTargetColumnName)
+    {
+        return new Covariance(newColumnName, newOtherColumnName, newTargetColumnName);
+    }
+
+    public static AggregateFunction correlation(String newColumnName, String newOtherColumnName, String newTargetColumnName)
+    {
+        return new Correlation(newColumnName, newOtherColumnName, newTargetColumnName);
+    }
+
+    public static AggregateFunction percentile(String newColumnName, double percentile)
+    {
+        return new Percentile(newColumnName, percentile);
+    }
+
+    public static AggregateFunction percentile(String newColumnName, String newTargetColumnName, double percentile)
+    {
+        return new Percentile(newColumnName, newTargetColumnName, percentile);
+    }
+
+    public static AggregateFunction median(String newColumnName)
+    {
+        return new Percentile(newColumnName, Percentile.MEDIAN);
+    }
+
+    public static AggregateFunction median(String newColumnName, String newTargetColumnName)
+    {
+        return new Percentile(newColumnName, newTargetColumnName, Percentile.MEDIAN);
+    }
+
+    public static AggregateFunction approxPercentile(String newColumnName, double percentile)
+    {
+        return new ApproxPercentile(newColumnName, percentile);
+    }
+
+    public static AggregateFunction approxPercentile(String newColumnName, String newTargetColumnName, double percentile)
+    {
+        return new ApproxPercentile(newColumnName, newTargetColumnName, percentile, TDigest.DEFAULT_COMPRESSION);
+    }
+
+    public static AggregateFunction approxMedian(String newColumnName)
+    {
+        return new ApproxPercentile(newColumnName, Percentile.MEDIAN);
+    }
+
+    public static AggregateFunction approxMedian(String newColumnName, String newTargetColumnName)
+    {
+        return new ApproxPercentile(newColumnName, newTargetColumnName, Percentile.MEDIAN, TDigest.DEFAULT_COMPRESSION);
+    }
+
     public String getColumnName()
     {
         return this.columnName;
@@ -89,6 +207,38 @@ public abstract class AggregateFunction
         return this.targetColumnName;
     }
 
+    /**
+     * Creates a conditional version of this aggregation: only the values in the rows matching the filter are
+     * aggregated. The filter is evaluated during the same pass over the data frame as the aggregation, so different
+     * aggregations of the same data frame can have different filters. This aggregate function is not modified.
+     *
+     * @param newFilter a boolean expression in terms of the columns of the data frame being aggregated
+     * @return a new aggregate function, which is this function applied to the rows matching the filter
+     */
+    public AggregateFunction where(String newFilter)
+    {
+        return new Filtered(this, newFilter);
+    }
+
+    /**
+     * @return the filter expression of a conditional aggregation or <code>null</code> if all values are aggregated
+     */
+    public String getFilter()
+    {
+        return this.filter;
+    }
+
+    /**
+     * The result of this function for a group where none of the rows match the filter of a conditional aggregation
+     *
+     * @param targetColumnType the type of the aggregated column
+     * @return the result of aggregating no values, <code>null</code> unless overridden
+     */
+    public Object emptyGroupValue(ValueType targetColumnType)
+    {
+        return null;
+    }
+
     public ValueType targetColumnType(ValueType sourceColumnType)
     {
         return sourceColumnType;
@@ -96,18 +246,51 @@ public abstract class AggregateFunction
 
     public Object applyToDoubleColumn(DfDoubleColumn doubleColumn)
     {
-        ErrorReporter.unsupported("Operation " + this.getDescription() + " cannot be applied to a double column");
-        return 0.0;
+        AggregateAccumulator accumulator = this.doubleColumnAccumulator();
+        if (accumulator == null)
+        {
+            ErrorReporter.unsupported("Operation " + this.getDescription() + " cannot be applied to a double column");
+            return 0.0;
+        }
+
+        int columnSize = doubleColumn.getSize();
+        for (int rowIndex = 0; rowIndex < columnSize; rowIndex++)
+        {
+            accumulator.accumulateDouble(doubleColumn.getDouble(rowIndex));
+        }
+        return accumulator.getResult();
     }
 
     public Object applyToLongColumn(DfLongColumn longColumn)
     {
-        ErrorReporter.unsupported("Operation " + this.getDescription() + " cannot be applied to a long column");
-        return 0;
+        AggregateAccumulator accumulator = this.longColumnAccumulator();
+        if (accumulator == null)
+        {
+            ErrorReporter.unsupported("Operation " + this.getDescription() + " cannot be applied to a long column");
+            return 0;
+        }
+
+        int columnSize = longColumn.getSize();
+        for (int rowIndex = 0; rowIndex < columnSize; rowIndex++)
+        {
+            accumulator.accumulateLong(longColumn.getLong(rowIndex));
+        }
+        return accumulator.getResult();
     }
 
     public Object applyToObjectColumn(DfObjectColumn<?> objectColumn)
     {
+        AggregateAccumulator accumulator = this.objectColumnAccumulator();
+        if (accumulator != null)
+        {
+            int columnSize = objectColumn.getSize();
+            for (int rowIndex = 0; rowIndex < columnSize; rowIndex++)
+            {
+                accumulator.accumulateObject(objectColumn.getObject(rowIndex));
+            }
+            return accumulator.getResult();
+        }
+
         if (this.handlesObjectIterables())
         {
             this.applyIterable(objectColumn.toList());
@@ -241,6 +424,135 @@ public abstract class AggregateFunction
         return false;
     }
 
+    /**
+     * Creates an accumulator calculating the same result as {@link #applyToLongColumn(DfLongColumn)} one value at a
+     * time, so that this function can be calculated in the same pass over a column as other functions.
+     *
+     * By default, the accumulator for the function's {@link #groupAccumulator()}, if it has one, is used.
+     *
+     * @return a new accumulator or {@code null} if this function can only be applied to an entire column
+     */
+    public AggregateAccumulator longColumnAccumulator()
+    {
+        return singleGroupAccumulator(this.groupAccumulator());
+    }
+
+    /**
+     * Creates an accumulator calculating the same result as {@link #applyToDoubleColumn(DfDoubleColumn)} one value at
+     * a time, so that this function can be calculated in the same pass over a column as other functions.
+     *
+     * By default, the accumulator for the function's {@link #groupAccumulator()}, if it has one, is used.
+     *
+     * @return a new accumulator or {@code null} if this function can only be applied to an entire column
+     */
+    public AggregateAccumulator doubleColumnAccumulator()
+    {
+        return singleGroupAccumulator(this.groupAccumulator());
+    }
+
+    /**
+     * Creates an accumulator calculating the same result as {@link #applyToObjectColumn(DfObjectColumn)} one value at
+     * a time, so that this function can be calculated in the same pass over a column as other functions.
+     *
+     * By default, the accumulator for the function's {@link #groupAccumulator()}, if it has one, is used.
+     *
+     * @return a new accumulator or {@code null} if this function can only be applied to an entire column
+     */
+    public AggregateAccumulator objectColumnAccumulator()
+    {
+        return singleGroupAccumulator(this.groupAccumulator());
+    }
+
+    /**
+     * Creates an accumulator keeping the state of this function for each group when aggregating with grouping. This is
+     * needed for the functions whose intermediate results do not fit in a single value of the aggregated column, the
+     * other functions accumulate their results directly in the aggregated column (see {@link
+     * #aggregateValueIntoLong(DfLongColumnStored, int, DfColumn, int)}).
+     *
+     * @return a new accumulator or {@code null} if this function accumulates its results in the aggregated column
+     */
+    public GroupAccumulator groupAccumulator()
+    {
+        return null;
+    }
+
+    /**
+     * Creates an accumulator keeping the state of this function for each group when aggregating the specified data
+     * frame. The functions that need other columns of the data frame, not just the aggregated column, override this
+     * method, the rest rely on {@link #groupAccumulator()}.
+     *
+     * @param sourceDataFrame the data frame being aggregated
+     * @return a new accumulator or {@code null} if this function accumulates its results in the aggregated column
+     */
+    public GroupAccumulator groupAccumulator(DataFrame sourceDataFrame)
+    {
+        return this.groupAccumulator();
+    }
+
+    static private AggregateAccumulator singleGroupAccumulator(GroupAccumulator groupAccumulator)
+    {
+        if (groupAccumulator == null)
+        {
+            return null;
+        }
+
+        return new AggregateAccumulator()
+        {
+            private boolean nullValue = false;
+
+            @Override
+            public void accumulateLong(long value)
+            {
+                groupAccumulator.accumulateLong(0, value);
+            }
+
+            @Override
+            public void accumulateDouble(double value)
+            {
+                groupAccumulator.accumulateDouble(0, value);
+            }
+
+            @Override
+            public void accumulateObject(Object value)
+            {
+                if (value == null)
+                {
+                    this.nullValue = true;
+                }
+                else
+                {
+                    groupAccumulator.accumulateObject(0, value);
+                }
+            }
+
+            @Override
+            public Object getResult()
+            {
+                return this.nullValue ? null : groupAccumulator.getResult(0);
+            }
+        };
+    }
+
+    static private <T> T groupState(MutableList<T> states, int groupIndex, Function0<? extends T> newState)
+    {
+        while (states.size() <= groupIndex)
+        {
+            states.add(newState.value());
+        }
+
+        return states.get(groupIndex);
+    }
+
+    static private double validPercentile(double percentile)
+    {
+        if (!(percentile >= 0.0 && percentile <= 100.0))
+        {
+            ErrorReporter.reportAndThrow("Percentile must be between 0 and 100, was " + percentile);
+        }
+
+        return percentile;
+    }
+
     public static class Sum
     extends AggregateFunction
     {
@@ -254,6 +566,17 @@ public abstract class AggregateFunction
             super(newColumnName, newTargetColumnName);
         }
 
+        @Override
+        public Object emptyGroupValue(ValueType targetColumnType)
+        {
+            if (targetColumnType.isLong())
+            {
+                return 0L;
+            }
+
+            return 0.0;
+        }
+
         @Override
         public String getDescription()
         {
@@ -272,6 +595,33 @@ public abstract class AggregateFunction
             return longColumn.toLongList().sum();
         }
 
+        @Override
+        public AggregateAccumulator longColumnAccumulator()
+        {
+            return new AggregateAccumulator()
+            {
+                private long sum = 0L;
+
+                @Override
+                public void accumulateLong(long value)
+                {
+                    this.sum += value;
+                }
+
+                @Override
+                public Object getResult()
+                {
+                    return this.sum;
+                }
+            };
+        }
+
+        @Override
+        public AggregateAccumulator doubleColumnAccumulator()
+        {
+            return new CompensatedSum(false);
+        }
+
         @Override
         long longInitialValue()
         {
@@ -340,6 +690,54 @@ public abstract class AggregateFunction
             return longColumn.toLongList().max();
         }
 
+        @Override
+        public AggregateAccumulator longColumnAccumulator()
+        {
+            return new AggregateAccumulator()
+            {
+                private long max = Long.MIN_VALUE;
+
+                @Override
+                public void accumulateLong(long value)
+                {
+                    this.max = Math.max(this.max, value);
+                }
+
+                @Override
+                public Object getResult()
+                {
+                    return this.max;
+                }
+            };
+        }
+
+        @Override
+        public AggregateAccumulator doubleColumnAccumulator()
+        {
+            return new AggregateAccumulator()
+            {
+                private boolean empty = true;
+                private double max;
+
+                @Override
+                public void accumulateDouble(double value)
+                {
+                    // the same comparison as in primitive lists, so that NaN and negative zero are handled the same way
+                    if (this.empty || Double.compare(this.max, value) < 0)
+                    {
+                        this.max = value;
+                        this.empty = false;
+                    }
+                }
+
+                @Override
+                public Object getResult()
+                {
+                    return this.max;
+                }
+            };
+        }
+
         @Override
         long longInitialValue()
         {
@@ -396,6 +794,54 @@ public abstract class AggregateFunction
             return longColumn.toLongList().min();
         }
 
+        @Override
+        public AggregateAccumulator longColumnAccumulator()
+        {
+            return new AggregateAccumulator()
+            {
+                private long min = Long.MAX_VALUE;
+
+                @Override
+                public void accumulateLong(long value)
+                {
+                    this.min = Math.min(this.min, value);
+                }
+
+                @Override
+                public Object getResult()
+                {
+                    return this.min;
+                }
+            };
+        }
+
+        @Override
+        public AggregateAccumulator doubleColumnAccumulator()
+        {
+            return new AggregateAccumulator()
+            {
+                private boolean empty = true;
+                private double min;
+
+                @Override
+                public void accumulateDouble(double value)
+                {
+                    // the same comparison as in primitive lists, so that NaN and negative zero are handled the same way
+                    if (this.empty || Double.compare(this.min, value) > 0)
+                    {
+                        this.min = value;
+                        this.empty = false;
+                    }
+                }
+
+                @Override
+                public Object getResult()
+                {
+                    return this.min;
+                }
+            };
+        }
+
         @Override
         long longInitialValue()
         {
@@ -452,6 +898,35 @@ public abstract class AggregateFunction
             return Math.round(longColumn.toLongList().average());
         }
 
+        @Override
+        public AggregateAccumulator longColumnAccumulator()
+        {
+            return new AggregateAccumulator()
+            {
+                private long sum = 0L;
+                private int count = 0;
+
+                @Override
+                public void accumulateLong(long value)
+                {
+                    this.sum += value;
+                    this.count++;
+                }
+
+                @Override
+                public Object getResult()
+                {
+                    return Math.round((double) this.sum / this.count);
+                }
+            };
+        }
+
+        @Override
+        public AggregateAccumulator doubleColumnAccumulator()
+        {
+            return new CompensatedSum(true);
+        }
+
         @Override
         protected long longAccumulator(long currentAggregate, long newValue)
         {
@@ -519,6 +994,12 @@ public abstract class AggregateFunction
             super(newColumnName, newTargetColumnName);
         }
 
+        @Override
+        public Object emptyGroupValue(ValueType targetColumnType)
+        {
+            return 0L;
+        }
+
         @Override
         public ValueType targetColumnType(ValueType sourceColumnType)
         {
@@ -712,28 +1193,1176 @@ public abstract class AggregateFunction
         }
 
         @Override
-        public Object applyIterable(ListIterable<?> items)
+        public AggregateAccumulator longColumnAccumulator()
         {
-            Object first = items.getFirst();
-            if (items.allSatisfy(each -> each.equals(first)))
+            return new AggregateAccumulator()
             {
-                return first;
-            }
+                private boolean empty = true;
+                private boolean same = true;
+                private long first;
 
-            return null;
+                @Override
+                public void accumulateLong(long value)
+                {
+                    if (this.empty)
+                    {
+                        this.first = value;
+                        this.empty = false;
+                    }
+                    else if (value != this.first)
+                    {
+                        this.same = false;
+                    }
+                }
+
+                @Override
+                public Object getResult()
+                {
+                    return this.same ? this.first : null;
+                }
+            };
         }
 
         @Override
-        public String getDescription()
+        public AggregateAccumulator doubleColumnAccumulator()
         {
-            return "SAME";
+            return new AggregateAccumulator()
+            {
+                private boolean empty = true;
+                private boolean same = true;
+                private double first;
+
+                @Override
+                public void accumulateDouble(double value)
+                {
+                    if (this.empty)
+                    {
+                        this.first = value;
+                        this.empty = false;
+                    }
+                    else if (value != this.first)
+                    {
+                        this.same = false;
+                    }
+                }
+
+                @Override
+                public Object getResult()
+                {
+                    return this.same ? this.first : null;
+                }
+            };
         }
 
         @Override
-        public ValueType targetColumnType(ValueType sourceColumnType)
+        public AggregateAccumulator objectColumnAccumulator()
         {
-            return sourceColumnType;
-        }
-    }
-}
+            return new AggregateAccumulator()
+            {
+                private boolean empty = true;
+                private boolean same = true;
+                private Object first;
 
+                @Override
+                public void accumulateObject(Object value)
+                {
+                    if (this.empty)
+                    {
+                        this.first = value;
+                        this.empty = false;
+                    }
+                    else if (value == null || !value.equals(this.first))
+                    {
+                        this.same = false;
+                    }
+                }
+
+                @Override
+                public Object getResult()
+                {
+                    return this.same ? this.first : null;
+                }
+            };
+        }
+
+        @Override
+        public Object applyIterable(ListIterable<?> items)
+        {
+            Object first = items.getFirst();
+            if (items.allSatisfy(each -> each.equals(first)))
+            {
+                return first;
+            }
+
+            return null;
+        }
+
+        @Override
+        public String getDescription()
+        {
+            return "SAME";
+        }
+
+        @Override
+        public ValueType targetColumnType(ValueType sourceColumnType)
+        {
+            return sourceColumnType;
+        }
+    }
+
+    /**
+     * Sums up double values using compensated summation, the same way primitive lists do, optionally dividing the sum
+     * by the number of values
+     */
+    static private final class CompensatedSum
+    implements AggregateAccumulator
+    {
+        private final boolean average;
+
+        private double sum = 0.0;
+        private double compensation = 0.0;
+        private int count = 0;
+
+        private CompensatedSum(boolean newAverage)
+        {
+            this.average = newAverage;
+        }
+
+        @Override
+        public void accumulateDouble(double value)
+        {
+            double adjustedValue = value - this.compensation;
+            double nextSum = this.sum + adjustedValue;
+            this.compensation = nextSum - this.sum - adjustedValue;
+            this.sum = nextSum;
+            this.count++;
+        }
+
+        @Override
+        public Object getResult()
+        {
+            return this.average ? this.sum / this.count : this.sum;
+        }
+    }
+
+    public static class CountDistinct
+    extends AggregateFunction
+    {
+        public CountDistinct(String newColumnName)
+        {
+            super(newColumnName);
+        }
+
+        public CountDistinct(String newColumnName, String newTargetColumnName)
+        {
+            super(newColumnName, newTargetColumnName);
+        }
+
+        @Override
+        public Object emptyGroupValue(ValueType targetColumnType)
+        {
+            return 0L;
+        }
+
+        @Override
+        public ValueType targetColumnType(ValueType sourceColumnType)
+        {
+            return ValueType.LONG;
+        }
+
+        @Override
+        public String getDescription()
+        {
+            return "COUNT DISTINCT";
+        }
+
+        @Override
+        public GroupAccumulator groupAccumulator()
+        {
+            return new DistinctValues();
+        }
+
+        @Override
+        public long defaultLongIfEmpty()
+        {
+            return 0L;
+        }
+
+        @Override
+        public double defaultDoubleIfEmpty()
+        {
+            return 0.0;
+        }
+
+        @Override
+        public Object defaultObjectIfEmpty()
+        {
+            return 0L;
+        }
+    }
+
+    /**
+     * Estimates the number of distinct values using a {@link HyperLogLog} sketch per group, so the memory used does
+     * not depend on the number of values. The precision of the sketches determines the accuracy and the memory used.
+     */
+    public static class ApproxCountDistinct
+    extends AggregateFunction
+    {
+        static public final int DEFAULT_PRECISION = 14;
+
+        private final int precision;
+
+        public ApproxCountDistinct(String newColumnName, int newPrecision)
+        {
+            this(newColumnName, newColumnName, newPrecision);
+        }
+
+        public ApproxCountDistinct(String newColumnName, String newTargetColumnName, int newPrecision)
+        {
+            super(newColumnName, newTargetColumnName);
+            this.precision = newPrecision;
+        }
+
+        @Override
+        public Object emptyGroupValue(ValueType targetColumnType)
+        {
+            return 0L;
+        }
+
+        @Override
+        public ValueType targetColumnType(ValueType sourceColumnType)
+        {
+            return ValueType.LONG;
+        }
+
+        @Override
+        public String getDescription()
+        {
+            return "APPROX COUNT DISTINCT";
+        }
+
+        @Override
+        public GroupAccumulator groupAccumulator()
+        {
+            return new DistinctValueSketches(this.precision);
+        }
+
+        @Override
+        public long defaultLongIfEmpty()
+        {
+            return 0L;
+        }
+
+        @Override
+        public double defaultDoubleIfEmpty()
+        {
+            return 0.0;
+        }
+
+        @Override
+        public Object defaultObjectIfEmpty()
+        {
+            return 0L;
+        }
+    }
+
+    /**
+     * The sample variance of the values, calculated in a single pass using Welford's method, which, unlike
+     * subtracting the squared mean from the mean of squares, does not lose precision when the variance is small
+     * relative to the mean. The variance of a single value is NaN.
+     */
+    public static class Variance
+    extends AggregateFunction
+    {
+        public Variance(String newColumnName)
+        {
+            super(newColumnName);
+        }
+
+        public Variance(String newColumnName, String newTargetColumnName)
+        {
+            super(newColumnName, newTargetColumnName);
+        }
+
+        @Override
+        public ValueType targetColumnType(ValueType sourceColumnType)
+        {
+            return ValueType.DOUBLE;
+        }
+
+        @Override
+        public String getDescription()
+        {
+            return "VARIANCE";
+        }
+
+        @Override
+        public GroupAccumulator groupAccumulator()
+        {
+            return new GroupMoments(false);
+        }
+    }
+
+    /**
+     * The sample standard deviation of the values, the square root of {@link Variance}
+     */
+    public static class StandardDeviation
+    extends Variance
+    {
+        public StandardDeviation(String newColumnName)
+        {
+            super(newColumnName);
+        }
+
+        public StandardDeviation(String newColumnName, String newTargetColumnName)
+        {
+            super(newColumnName, newTargetColumnName);
+        }
+
+        @Override
+        public String getDescription()
+        {
+            return "STDDEV";
+        }
+
+        @Override
+        public GroupAccumulator groupAccumulator()
+        {
+            return new GroupMoments(true);
+        }
+    }
+
+    /**
+     * The sample covariance of the values of two numeric columns in the same rows. The rows where either value is null
+     * make the result null.
+     */
+    public static class Covariance
+    extends AggregateFunction
+    {
+        private final String otherColumnName;
+
+        public Covariance(String newColumnName, String newOtherColumnName, String newTargetColumnName)
+        {
+            super(newColumnName, newTargetColumnName);
+            this.otherColumnName = newOtherColumnName;
+        }
+
+        public String getOtherColumnName()
+        {
+            return this.otherColumnName;
+        }
+
+        @Override
+        public ValueType targetColumnType(ValueType sourceColumnType)
+        {
+            return ValueType.DOUBLE;
+        }
+
+        @Override
+        public String getDescription()
+        {
+            return "COVARIANCE";
+        }
+
+        @Override
+        public GroupAccumulator groupAccumulator(DataFrame sourceDataFrame)
+        {
+            return new GroupCoMoments(sourceDataFrame.getColumnNamed(this.otherColumnName), false);
+        }
+
+        @Override
+        public Object applyToDoubleColumn(DfDoubleColumn doubleColumn)
+        {
+            return this.applyToColumn(doubleColumn);
+        }
+
+        @Override
+        public Object applyToLongColumn(DfLongColumn longColumn)
+        {
+            return this.applyToColumn(longColumn);
+        }
+
+        private Object applyToColumn(DfColumn column)
+        {
+            GroupAccumulator accumulator = this.groupAccumulator(column.getDataFrame());
+
+            int columnSize = column.getSize();
+            for (int rowIndex = 0; rowIndex < columnSize; rowIndex++)
+            {
+                if (column.isNull(rowIndex))
+                {
+                    return null;
+                }
+
+                accumulator.accumulate(0, column, rowIndex);
+            }
+
+            return accumulator.getResult(0);
+        }
+    }
+
+    /**
+     * The Pearson correlation coefficient of the values of two numeric columns in the same rows
+     */
+    public static class Correlation
+    extends Covariance
+    {
+        public Correlation(String newColumnName, String newOtherColumnName, String newTargetColumnName)
+        {
+            super(newColumnName, newOtherColumnName, newTargetColumnName);
+        }
+
+        @Override
+        public String getDescription()
+        {
+            return "CORRELATION";
+        }
+
+        @Override
+        public GroupAccumulator groupAccumulator(DataFrame sourceDataFrame)
+        {
+            return new GroupCoMoments(sourceDataFrame.getColumnNamed(this.getOtherColumnName()), true);
+        }
+    }
+
+    /**
+     * Calculates the exact percentile of the values by collecting all the values of a group and selecting the value of
+     * the required rank. The percentiles falling between two values are interpolated, the interpolated percentiles of
+     * long values are rounded to the nearest long value.
+     */
+    public static class Percentile
+    extends AggregateFunction
+    {
+        static public final double MEDIAN = 50.0;
+
+        private final double percentile;
+
+        public Percentile(String newColumnName, double newPercentile)
+        {
+            this(newColumnName, newColumnName, newPercentile);
+        }
+
+        public Percentile(String newColumnName, String newTargetColumnName, double newPercentile)
+        {
+            super(newColumnName, newTargetColumnName);
+            this.percentile = validPercentile(newPercentile);
+        }
+
+        public double getPercentile()
+        {
+            return this.percentile;
+        }
+
+        @Override
+        public String getDescription()
+        {
+            return "PERCENTILE";
+        }
+
+        @Override
+        public GroupAccumulator groupAccumulator()
+        {
+            return new GroupValues(this.percentile);
+        }
+    }
+
+    /**
+     * Estimates the percentile of the values using a {@link TDigest} sketch per group, so the memory used does not
+     * depend on the number of values. The estimated percentiles of long values are rounded to the nearest long value.
+     */
+    public static class ApproxPercentile
+    extends AggregateFunction
+    {
+        private final double percentile;
+        private final double compression;
+
+        public ApproxPercentile(String newColumnName, double newPercentile)
+        {
+            this(newColumnName, newColumnName, newPercentile, TDigest.DEFAULT_COMPRESSION);
+        }
+
+        public ApproxPercentile(String newColumnName, String newTargetColumnName, double newPercentile, double newCompression)
+        {
+            super(newColumnName, newTargetColumnName);
+            this.percentile = validPercentile(newPercentile);
+            this.compression = newCompression;
+        }
+
+        public double getPercentile()
+        {
+            return this.percentile;
+        }
+
+        @Override
+        public String getDescription()
+        {
+            return "APPROX PERCENTILE";
+        }
+
+        @Override
+        public GroupAccumulator groupAccumulator()
+        {
+            return new GroupDigests(this.percentile, this.compression);
+        }
+    }
+
+    static private double doubleValueOf(DfColumn column, int rowIndex)
+    {
+        if (column.getType().isLong())
+        {
+            return ((DfLongColumn) column).getLong(rowIndex);
+        }
+
+        if (!column.getType().isDouble())
+        {
+            ErrorReporter.reportAndThrow("Column " + column.getName() + " is not numeric");
+        }
+
+        return ((DfDoubleColumn) column).getDouble(rowIndex);
+    }
+
+    /**
+     * A conditional aggregation created by {@link #where(String)}: has the filter and delegates everything else to the
+     * aggregate function it was created from.
+     */
+    static private final class Filtered
+    extends AggregateFunction
+    {
+        private final AggregateFunction aggregateFunction;
+
+        private Filtered(AggregateFunction newAggregateFunction, String newFilter)
+        {
+            super(newAggregateFunction.getColumnName(), newAggregateFunction.getTargetColumnName(), newFilter);
+            this.aggregateFunction = newAggregateFunction;
+        }
+
+        @Override
+        public AggregateFunction where(String newFilter)
+        {
+            return new Filtered(this.aggregateFunction, newFilter);
+        }
+
+        @Override
+        public String getDescription()
+        {
+            return this.aggregateFunction.getDescription();
+        }
+
+        @Override
+        public Object emptyGroupValue(ValueType targetColumnType)
+        {
+            return this.aggregateFunction.emptyGroupValue(targetColumnType);
+        }
+
+        @Override
+        public ValueType targetColumnType(ValueType sourceColumnType)
+        {
+            return this.aggregateFunction.targetColumnType(sourceColumnType);
+        }
+
+        @Override
+        public Object applyToDoubleColumn(DfDoubleColumn doubleColumn)
+        {
+            return this.aggregateFunction.applyToDoubleColumn(doubleColumn);
+        }
+
+        @Override
+        public Object applyToLongColumn(DfLongColumn longColumn)
+        {
+            return this.aggregateFunction.applyToLongColumn(longColumn);
+        }
+
+        @Override
+        public Object applyToObjectColumn(DfObjectColumn<?> objectColumn)
+        {
+            return this.aggregateFunction.applyToObjectColumn(objectColumn);
+        }
+
+        @Override
+        public Object applyIterable(ListIterable<?> items)
+        {
+            return this.aggregateFunction.applyIterable(items);
+        }
+
+        @Override
+        long longInitialValue()
+        {
+            return this.aggregateFunction.longInitialValue();
+        }
+
+        @Override
+        double doubleInitialValue()
+        {
+            return this.aggregateFunction.doubleInitialValue();
+        }
+
+        @Override
+        Object objectInitialValue()
+        {
+            return this.aggregateFunction.objectInitialValue();
+        }
+
+        @Override
+        protected long longAccumulator(long currentAggregate, long newValue)
+        {
+            return this.aggregateFunction.longAccumulator(currentAggregate, newValue);
+        }
+
+        @Override
+        protected double doubleAccumulator(double currentAggregate, double newValue)
+        {
+            return this.aggregateFunction.doubleAccumulator(currentAggregate, newValue);
+        }
+
+        @Override
+        protected Object objectAccumulator(Object currentAggregate, Object newValue)
+        {
+            return this.aggregateFunction.objectAccumulator(currentAggregate, newValue);
+        }
+
+        @Override
+        public Object defaultObjectIfEmpty()
+        {
+            return this.aggregateFunction.defaultObjectIfEmpty();
+        }
+
+        @Override
+        public long defaultLongIfEmpty()
+        {
+            return this.aggregateFunction.defaultLongIfEmpty();
+        }
+
+        @Override
+        public double defaultDoubleIfEmpty()
+        {
+            return this.aggregateFunction.defaultDoubleIfEmpty();
+        }
+
+        @Override
+        public long getLongValue(DfColumn sourceColumn, int sourceRowIndex)
+        {
+            return this.aggregateFunction.getLongValue(sourceColumn, sourceRowIndex);
+        }
+
+        @Override
+        public double getDoubleValue(DfColumn sourceColumn, int sourceRowIndex)
+        {
+            return this.aggregateFunction.getDoubleValue(sourceColumn, sourceRowIndex);
+        }
+
+        @Override
+        public Object getObjectValue(DfColumn sourceColumn, int sourceRowIndex)
+        {
+            return this.aggregateFunction.getObjectValue(sourceColumn, sourceRowIndex);
+        }
+
+        @Override
+        public void finishAggregating(DataFrame aggregatedDataFrame, int[] countsByRow)
+        {
+            this.aggregateFunction.finishAggregating(aggregatedDataFrame, countsByRow);
+        }
+
+        @Override
+        public void initializeValue(DfColumn accumulatorColumn, int accumulatorRowIndex)
+        {
+            this.aggregateFunction.initializeValue(accumulatorColumn, accumulatorRowIndex);
+        }
+
+        @Override
+        public void aggregateValueIntoLong(
+                DfLongColumnStored targetColumn, int targetRowIndex,
+                DfColumn sourceColumn, int sourceRowIndex)
+        {
+            this.aggregateFunction.aggregateValueIntoLong(targetColumn, targetRowIndex, sourceColumn, sourceRowIndex);
+        }
+
+        @Override
+        public void aggregateValueIntoDouble(
+                DfDoubleColumnStored targetColumn, int targetRowIndex,
+                DfColumn sourceColumn, int sourceRowIndex)
+        {
+            this.aggregateFunction.aggregateValueIntoDouble(targetColumn, targetRowIndex, sourceColumn, sourceRowIndex);
+        }
+
+        @Override
+        public boolean handlesObjectIterables()
+        {
+            return this.aggregateFunction.handlesObjectIterables();
+        }
+
+        @Override
+        public AggregateAccumulator longColumnAccumulator()
+        {
+            return this.aggregateFunction.longColumnAccumulator();
+        }
+
+        @Override
+        public AggregateAccumulator doubleColumnAccumulator()
+        {
+            return this.aggregateFunction.doubleColumnAccumulator();
+        }
+
+        @Override
+        public AggregateAccumulator objectColumnAccumulator()
+        {
+            return this.aggregateFunction.objectColumnAccumulator();
+        }
+
+        @Override
+        public GroupAccumulator groupAccumulator()
+        {
+            return this.aggregateFunction.groupAccumulator();
+        }
+
+        @Override
+        public GroupAccumulator groupAccumulator(DataFrame sourceDataFrame)
+        {
+            return this.aggregateFunction.groupAccumulator(sourceDataFrame);
+        }
+    }
+
+    /**
+     * The count, the mean and the sum of squared differences from the mean of the values of each group, updated with
+     * each value using Welford's method and merged using the pairwise formula by Chan et al. The state of all groups is
+     * kept in primitive arrays indexed by group.
+     */
+    static private final class GroupMoments
+    implements GroupAccumulator
+    {
+        static private final int INITIAL_CAPACITY = 16;
+
+        private final boolean standardDeviation;
+
+        private long[] counts = new long[INITIAL_CAPACITY];
+        private double[] means = new double[INITIAL_CAPACITY];
+        private double[] squaredDeviations = new double[INITIAL_CAPACITY];
+
+        private GroupMoments(boolean newStandardDeviation)
+        {
+            this.standardDeviation = newStandardDeviation;
+        }
+
+        @Override
+        public void accumulateLong(int groupIndex, long value)
+        {
+            this.accumulateDouble(groupIndex, value);
+        }
+
+        @Override
+        public void accumulateDouble(int groupIndex, double value)
+        {
+            this.ensureCapacity(groupIndex);
+
+            long count = ++this.counts[groupIndex];
+            double delta = value - this.means[groupIndex];
+            this.means[groupIndex] += delta / count;
+            this.squaredDeviations[groupIndex] += delta * (value - this.means[groupIndex]);
+        }
+
+        @Override
+        public void merge(int groupIndex, GroupAccumulator other, int otherGroupIndex)
+        {
+            GroupMoments otherMoments = (GroupMoments) other;
+            if (otherGroupIndex >= otherMoments.counts.length || otherMoments.counts[otherGroupIndex] == 0)
+            {
+                return;
+            }
+
+            this.ensureCapacity(groupIndex);
+
+            long count = this.counts[groupIndex];
+            long otherCount = otherMoments.counts[otherGroupIndex];
+            long mergedCount = count + otherCount;
+            double delta = otherMoments.means[otherGroupIndex] - this.means[groupIndex];
+
+            this.means[groupIndex] += delta * otherCount / mergedCount;
+            this.squaredDeviations[groupIndex] += otherMoments.squaredDeviations[otherGroupIndex]
+                    + delta * delta * count * otherCount / mergedCount;
+            this.counts[groupIndex] = mergedCount;
+        }
+
+        @Override
+        public Object getResult(int groupIndex)
+        {
+            if (groupIndex >= this.counts.length || this.counts[groupIndex] == 0)
+            {
+                return null;
+            }
+
+            double variance = this.squaredDeviations[groupIndex] / (this.counts[groupIndex] - 1);
+            return this.standardDeviation ? Math.sqrt(variance) : variance;
+        }
+
+        private void ensureCapacity(int groupIndex)
+        {
+            if (groupIndex >= this.counts.length)
+            {
+                int newCapacity = Math.max(groupIndex + 1, this.counts.length * 2);
+                this.counts = Arrays.copyOf(this.counts, newCapacity);
+                this.means = Arrays.copyOf(this.means, newCapacity);
+                this.squaredDeviations = Arrays.copyOf(this.squaredDeviations, newCapacity);
+            }
+        }
+    }
+
+    /**
+     * The count, the means, the sums of squared differences from the means and the sum of products of differences from
+     * the means of two columns for each group, kept in primitive arrays indexed by group. The aggregated column provides
+     * the first value, the second value is taken from the other column in the same row.
+     */
+    static private final class GroupCoMoments
+    implements GroupAccumulator
+    {
+        static private final int INITIAL_CAPACITY = 16;
+
+        private final DfColumn otherColumn;
+        private final boolean correlation;
+
+        private final BitSet groupsWithNulls = new BitSet();
+
+        private long[] counts = new long[INITIAL_CAPACITY];
+        private double[] means = new double[INITIAL_CAPACITY];
+        private double[] otherMeans = new double[INITIAL_CAPACITY];
+        private double[] squaredDeviations = new double[INITIAL_CAPACITY];
+        private double[] otherSquaredDeviations = new double[INITIAL_CAPACITY];
+        private double[] coDeviations = new double[INITIAL_CAPACITY];
+
+        private GroupCoMoments(DfColumn newOtherColumn, boolean newCorrelation)
+        {
+            this.otherColumn = newOtherColumn;
+            this.correlation = newCorrelation;
+        }
+
+        @Override
+        public void accumulate(int groupIndex, DfColumn sourceColumn, int sourceRowIndex)
+        {
+            if (this.otherColumn.isNull(sourceRowIndex))
+            {
+                this.groupsWithNulls.set(groupIndex);
+                return;
+            }
+
+            double value = doubleValueOf(sourceColumn, sourceRowIndex);
+            double otherValue = doubleValueOf(this.otherColumn, sourceRowIndex);
+
+            this.ensureCapacity(groupIndex);
+
+            long count = ++this.counts[groupIndex];
+            double delta = value - this.means[groupIndex];
+            double otherDelta = otherValue - this.otherMeans[groupIndex];
+
+            this.means[groupIndex] += delta / count;
+            this.otherMeans[groupIndex] += otherDelta / count;
+
+            this.squaredDeviations[groupIndex] += delta * (value - this.means[groupIndex]);
+            this.otherSquaredDeviations[groupIndex] += otherDelta * (otherValue - this.otherMeans[groupIndex]);
+            this.coDeviations[groupIndex] += delta * (otherValue - this.otherMeans[groupIndex]);
+        }
+
+        @Override
+        public void merge(int groupIndex, GroupAccumulator other, int otherGroupIndex)
+        {
+            GroupCoMoments otherMoments = (GroupCoMoments) other;
+
+            if (otherMoments.groupsWithNulls.get(otherGroupIndex))
+            {
+                this.groupsWithNulls.set(groupIndex);
+            }
+
+            if (otherGroupIndex >= otherMoments.counts.length || otherMoments.counts[otherGroupIndex] == 0)
+            {
+                return;
+            }
+
+            this.ensureCapacity(groupIndex);
+
+            long count = this.counts[groupIndex];
+            long otherCount = otherMoments.counts[otherGroupIndex];
+            long mergedCount = count + otherCount;
+            double delta = otherMoments.means[otherGroupIndex] - this.means[groupIndex];
+            double otherDelta = otherMoments.otherMeans[otherGroupIndex] - this.otherMeans[groupIndex];
+            double weight = (double) count * otherCount / mergedCount;
+
+            this.means[groupIndex] += delta * otherCount / mergedCount;
+            this.otherMeans[groupIndex] += otherDelta * otherCount / mergedCount;
+            this.squaredDeviations[groupIndex] += otherMoments.squaredDeviations[otherGroupIndex] + delta * delta * weight;
+            this.otherSquaredDeviations[groupIndex] += otherMoments.otherSquaredDeviations[otherGroupIndex] + otherDelta * otherDelta * weight;
+            this.coDeviations[groupIndex] += otherMoments.coDeviations[otherGroupIndex] + delta * otherDelta * weight;
+            this.counts[groupIndex] = mergedCount;
+        }
+
+        @Override
+        public Object getResult(int groupIndex)
+        {
+            if (this.groupsWithNulls.get(groupIndex) || groupIndex >= this.counts.length || this.counts[groupIndex] == 0)
+            {
+                return null;
+            }
+
+            if (this.correlation)
+            {
+                return this.coDeviations[groupIndex]
+                        / Math.sqrt(this.squaredDeviations[groupIndex] * this.otherSquaredDeviations[groupIndex]);
+            }
+
+            return this.coDeviations[groupIndex] / (this.counts[groupIndex] - 1);
+        }
+
+        private void ensureCapacity(int groupIndex)
+        {
+            if (groupIndex >= this.counts.length)
+            {
+                int newCapacity = Math.max(groupIndex + 1, this.counts.length * 2);
+                this.counts = Arrays.copyOf(this.counts, newCapacity);
+                this.means = Arrays.copyOf(this.means, newCapacity);
+                this.otherMeans = Arrays.copyOf(this.otherMeans, newCapacity);
+                this.squaredDeviations = Arrays.copyOf(this.squaredDeviations, newCapacity);
+                this.otherSquaredDeviations = Arrays.copyOf(this.otherSquaredDeviations, newCapacity);
+                this.coDeviations = Arrays.copyOf(this.coDeviations, newCapacity);
+            }
+        }
+    }
+
+    /**
+     * Collects the values of each group in a primitive list to find their percentile once all the values are known
+     */
+    static private final class GroupValues
+    implements GroupAccumulator
+    {
+        private final double percentile;
+        private final MutableList<MutableLongList> longValues = Lists.mutable.of();
+        private final MutableList<MutableDoubleList> doubleValues = Lists.mutable.of();
+
+        private GroupValues(double newPercentile)
+        {
+            this.percentile = newPercentile;
+        }
+
+        @Override
+        public void accumulateLong(int groupIndex, long value)
+        {
+            groupState(this.longValues, groupIndex, LongLists.mutable::empty).add(value);
+        }
+
+        @Override
+        public void accumulateDouble(int groupIndex, double value)
+        {
+            groupState(this.doubleValues, groupIndex, DoubleLists.mutable::empty).add(value);
+        }
+
+        @Override
+        public void merge(int groupIndex, GroupAccumulator other, int otherGroupIndex)
+        {
+            GroupValues otherValues = (GroupValues) other;
+
+            if (otherGroupIndex < otherValues.longValues.size())
+            {
+                groupState(this.longValues, groupIndex, LongLists.mutable::empty).addAll(otherValues.longValues.get(otherGroupIndex));
+            }
+
+            if (otherGroupIndex < otherValues.doubleValues.size())
+            {
+                groupState(this.doubleValues, groupIndex, DoubleLists.mutable::empty).addAll(otherValues.doubleValues.get(otherGroupIndex));
+            }
+        }
+
+        @Override
+        public Object getResult(int groupIndex)
+        {
+            if (groupIndex < this.longValues.size() && this.longValues.get(groupIndex).notEmpty())
+            {
+                long[] values = this.longValues.get(groupIndex).toArray();
+                return QuantileSelection.percentileOf(values, values.length, this.percentile);
+            }
+
+            if (groupIndex < this.doubleValues.size() && this.doubleValues.get(groupIndex).notEmpty())
+            {
+                double[] values = this.doubleValues.get(groupIndex).toArray();
+                return QuantileSelection.percentileOf(values, values.length, this.percentile);
+            }
+
+            return null;
+        }
+    }
+
+    /**
+     * Adds the values of each group to a t-digest sketch
+     */
+    static private final class GroupDigests
+    implements GroupAccumulator
+    {
+        private final double percentile;
+        private final double compression;
+        private final MutableList<TDigest> digests = Lists.mutable.of();
+        private boolean longValues = false;
+
+        private GroupDigests(double newPercentile, double newCompression)
+        {
+            this.percentile = newPercentile;
+            this.compression = newCompression;
+        }
+
+        @Override
+        public void accumulateLong(int groupIndex, long value)
+        {
+            this.longValues = true;
+            this.digest(groupIndex).add(value);
+        }
+
+        @Override
+        public void accumulateDouble(int groupIndex, double value)
+        {
+            this.digest(groupIndex).add(value);
+        }
+
+        @Override
+        public void merge(int groupIndex, GroupAccumulator other, int otherGroupIndex)
+        {
+            GroupDigests otherDigests = (GroupDigests) other;
+            this.longValues |= otherDigests.longValues;
+            this.digest(groupIndex).merge(otherDigests.digest(otherGroupIndex));
+        }
+
+        @Override
+        public Object getResult(int groupIndex)
+        {
+            double estimate = this.digest(groupIndex).quantile(this.percentile / 100.0);
+
+            if (this.longValues)
+            {
+                return Math.round(estimate);
+            }
+
+            return estimate;
+        }
+
+        private TDigest digest(int groupIndex)
+        {
+            return groupState(this.digests, groupIndex, () -> new TDigest(this.compression));
+        }
+    }
+
+    /**
+     * Collects the distinct values of each group in a hash set, using primitive sets for numeric values
+     */
+    static private final class DistinctValues
+    implements GroupAccumulator
+    {
+        private final MutableList<MutableLongSet> longValues = Lists.mutable.of();
+        private final MutableList<MutableDoubleSet> doubleValues = Lists.mutable.of();
+        private final MutableList<MutableSet<Object>> objectValues = Lists.mutable.of();
+
+        @Override
+        public void accumulateLong(int groupIndex, long value)
+        {
+            groupState(this.longValues, groupIndex, LongSets.mutable::empty).add(value);
+        }
+
+        @Override
+        public void accumulateDouble(int groupIndex, double value)
+        {
+            groupState(this.doubleValues, groupIndex, DoubleSets.mutable::empty).add(value);
+        }
+
+        @Override
+        public void accumulateObject(int groupIndex, Object value)
+        {
+            groupState(this.objectValues, groupIndex, Sets.mutable::empty).add(value);
+        }
+
+        @Override
+        public void merge(int groupIndex, GroupAccumulator other, int otherGroupIndex)
+        {
+            DistinctValues otherValues = (DistinctValues) other;
+
+            if (otherGroupIndex < otherValues.longValues.size())
+            {
+                groupState(this.longValues, groupIndex, LongSets.mutable::empty).addAll(otherValues.longValues.get(otherGroupIndex));
+            }
+
+            if (otherGroupIndex < otherValues.doubleValues.size())
+            {
+                groupState(this.doubleValues, groupIndex, DoubleSets.mutable::empty).addAll(otherValues.doubleValues.get(otherGroupIndex));
+            }
+
+            if (otherGroupIndex < otherValues.objectValues.size())
+            {
+                groupState(this.objectValues, groupIndex, Sets.mutable::empty).addAll(otherValues.objectValues.get(otherGroupIndex));
+            }
+        }
+
+        @Override
+        public Object getResult(int groupIndex)
+        {
+            // only one of the lists is populated, depending on the type of the aggregated column
+            long count = 0L;
+
+            if (groupIndex < this.longValues.size())
+            {
+                count += this.longValues.get(groupIndex).size();
+            }
+
+            if (groupIndex < this.doubleValues.size())
+            {
+                count += this.doubleValues.get(groupIndex).size();
+            }
+
+            if (groupIndex < this.objectValues.size())
+            {
+                count += this.objectValues.get(groupIndex).size();
+            }
+
+            return count;
+        }
+    }
+
+    /**
+     * Adds the values of each group to a HyperLogLog sketch
+     */
+    static private final class DistinctValueSketches
+    implements GroupAccumulator
+    {
+        private final int precision;
+        private final MutableList<HyperLogLog> sketches = Lists.mutable.of();
+
+        private DistinctValueSketches(int newPrecision)
+        {
+            this.precision = newPrecision;
+        }
+
+        @Override
+        public void accumulateLong(int groupIndex, long value)
+        {
+            this.sketch(groupIndex).addLong(value);
+        }
+
+        @Override
+        public void accumulateDouble(int groupIndex, double value)
+        {
+            this.sketch(groupIndex).addDouble(value);
+        }
+
+        @Override
+        public void accumulateObject(int groupIndex, Object value)
+        {
+            this.sketch(groupIndex).addObject(value);
+        }
+
+        @Override
+        public void merge(int groupIndex, GroupAccumulator other, int otherGroupIndex)
+        {
+            this.sketch(groupIndex).merge(((DistinctValueSketches) other).sketch(otherGroupIndex));
+        }
+
+        @Override
+        public Object getResult(int groupIndex)
+        {
+            return this.sketch(groupIndex).estimate();
+        }
+
+        private HyperLogLog sketch(int groupIndex)
+        {
+            return groupState(this.sketches, groupIndex, () -> new HyperLogLog(this.precision));
+        }
+    }
+}
@@ -1,42 +1,71 @@
 package io.github.vmzakharov.ecdataframe.dataframe;
 
+import io.github.vmzakharov.ecdataframe.dsl.BinaryExpr;
+import io.github.vmzakharov.ecdataframe.dsl.BooleanOp;
+import io.github.vmzakharov.ecdataframe.dsl.ComparisonOp;
 import io.github.vmzakharov.ecdataframe.dsl.DataFrameEvalContext;
 import io.github.vmzakharov.ecdataframe.dsl.EvalContext;
 import io.github.vmzakharov.ecdataframe.dsl.Expression;
+import io.github.vmzakharov.ecdataframe.dsl.VarExpr;
 import io.github.vmzakharov.ecdataframe.dsl.value.BooleanValue;
+import io.github.vmzakharov.ecdataframe.dsl.value.DateTimeValue;
+import io.github.vmzakharov.ecdataframe.dsl.value.DateValue;
+import io.github.vmzakharov.ecdataframe.dsl.value.LongValue;
+import io.github.vmzakharov.ecdataframe.dsl.value.NumberValue;
+import io.github.vmzakharov.ecdataframe.dsl.value.StringValue;
 import io.github.vmzakharov.ecdataframe.dsl.value.Value;
 import io.github.vmzakharov.ecdataframe.dsl.value.ValueType;
+import io.github.vmzakharov.ecdataframe.dsl.visitor.CommonSubexpressions;
 import io.github.vmzakharov.ecdataframe.dsl.visitor.InMemoryEvaluationVisitor;
+import io.github.vmzakharov.ecdataframe.dsl.visitor.OptimizingVisitor;
+import io.github.vmzakharov.ecdataframe.dsl.visitor.VariableReferenceVisitor;
 import io.github.vmzakharov.ecdataframe.util.ExpressionParserHelper;
 import org.eclipse.collections.api.DoubleIterable;
 import org.eclipse.collections.api.LongIterable;
+import org.eclipse.collections.api.RichIterable;
 import org.eclipse.collections.api.block.function.primitive.IntIntToIntFunction;
 import org.eclipse.collections.api.block.predicate.primitive.BooleanPredicate;
+import org.eclipse.collections.api.block.procedure.Procedure;
 import org.eclipse.collections.api.list.ImmutableList;
 import org.eclipse.collections.api.list.ListIterable;
 import org.eclipse.collections.api.list.MutableList;
+import org.eclipse.collections.api.list.primitive.BooleanList;
 import org.eclipse.collections.api.list.primitive.IntList;
 import org.eclipse.collections.api.list.primitive.MutableBooleanList;
 import org.eclipse.collections.api.list.primitive.MutableIntList;
+import org.eclipse.collections.api.multimap.list.MutableListMultimap;
 import org.eclipse.collections.api.map.MapIterable;
 import org.eclipse.collections.api.map.MutableMap;
 import org.eclipse.collections.api.set.MutableSet;
+import org.eclipse.collections.api.set.SetIterable;
 import org.eclipse.collections.api.tuple.Triplet;
 import org.eclipse.collections.api.tuple.Twin;
 import org.eclipse.collections.impl.factory.Lists;
 import org.eclipse.collections.impl.factory.Maps;
+import org.eclipse.collections.impl.factory.Multimaps;
+import org.eclipse.collections.impl.factory.Sets;
 import org.eclipse.collections.impl.factory.primitive.IntLists;
 import org.eclipse.collections.impl.list.mutable.primitive.BooleanArrayList;
 import org.eclipse.collections.impl.list.primitive.IntInterval;
+import org.eclipse.collections.impl.set.mutable.UnifiedSet;
 import org.eclipse.collections.impl.tuple.Tuples;
 import org.eclipse.collections.impl.utility.ArrayIterate;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class DataFrame
 {
+    static private final int PARALLEL_AGGREGATION_MIN_ROW_COUNT = 50_000;
+    static private final int PARALLEL_WINDOW_MIN_ROW_COUNT = 50_000;
+    static private final int PARALLEL_LOOKUP_MIN_ROW_COUNT = 50_000;
+
     private final String name;
     private final MutableMap<String, DfColumn> columnsByName = Maps.mutable.of();
     private final MutableList<DfColumn> columns = Lists.mutable.of();
@@ -45,10 +74,19 @@ public class DataFrame
     private final DataFrameEvalContext evalContext; // todo: thread safety?
     private IntList virtualRowMap = null;
     private boolean poolingEnabled = false;
+    private boolean computedColumnCachingEnabled = false;
+    private MutableMap<String, SetIterable<String>> computedColumnReferences = null;
+    private CommonSubexpressions commonSubexpressions = null;
+    private boolean commonSubexpressionsOutdated = false;
+    private final MutableSet<String> changedStoredColumnNames = Sets.mutable.of();
 
     private MutableBooleanList bitmap = null;
 
-    private MutableList<MutableIntList> aggregateIndex = null;
+    private final MutableMap<ListIterable<String>, DfIndex> indexesByColumnNames = Maps.mutable.of();
+
+    // the source row indices for aggregated row i are aggregateIndexRowIds[aggregateIndexOffsets[i]...aggregateIndexOffsets[i + 1] - 1]
+    private int[] aggregateIndexOffsets = null;
+    private int[] aggregateIndexRowIds = null;
 
     public DataFrame(String newName)
     {
@@ -149,6 +187,8 @@ public class DataFrame
 
         this.columnsByName.put(newColumn.getName(), newColumn);
         this.columns.add(newColumn);
+        this.computedColumnReferences = null;
+        this.commonSubexpressionsOutdated = true;
 
         if (this.isPoolingEnabled())
         {
@@ -157,6 +197,100 @@ public class DataFrame
         return this;
     }
 
+    /**
+     * If columns have been added or dropped since the last call, reoptimizes the expressions of all computed columns
+     * together so that the subexpressions they have in common are evaluated once per row, whether or not computed
+     * column caching is enabled, and the column references in them are bound to the current columns. Called before the
+     * values of a computed column are evaluated.
+     */
+    void shareCommonSubexpressionsIfNeeded()
+    {
+        if (!this.commonSubexpressionsOutdated)
+        {
+            return;
+        }
+
+        this.commonSubexpressionsOutdated = false;
+
+        ListIterable<DfColumnComputed> computedColumns = this.columns
+                .reject(DfColumn::isStored)
+                .collect(column -> (DfColumnComputed) column);
+
+        if (computedColumns.isEmpty())
+        {
+            this.commonSubexpressions = null;
+            return;
+        }
+
+        this.commonSubexpressions = new CommonSubexpressions(this.evalContext);
+
+        ListIterable<Expression> optimized = this.commonSubexpressions.optimize(computedColumns.collect(
+                column -> ExpressionParserHelper.DEFAULT.toExpressionOrScript(column.getExpressionAsString())));
+
+        computedColumns.forEachWithIndex((column, i) -> column.setExpression(optimized.get(i)));
+    }
+
+    /**
+     * Evaluates and caches the values of a computed column. The other computed columns that share subexpressions with
+     * it and do not refer to computed columns are cached in the same pass over the rows, so the value of each shared
+     * subexpression is calculated once per row.
+     *
+     * @param requested the column to cache the values of
+     */
+    void cacheComputedColumnValues(DfColumnComputed requested)
+    {
+        this.shareCommonSubexpressionsIfNeeded();
+
+        ListIterable<DfColumnComputed> columnsToCache = this.canBeCachedTogether(requested)
+                ? this.columns
+                        .reject(DfColumn::isStored)
+                        .collect(column -> (DfColumnComputed) column)
+                        .select(column -> !column.isCached() && this.canBeCachedTogether(column))
+                : Lists.immutable.of(requested);
+
+        columnsToCache.forEach(column -> column.startCaching(this.rowCount));
+
+        InMemoryEvaluationVisitor evaluationVisitor = new InMemoryEvaluationVisitor(this.evalContext);
+        int savedRowIndex = this.evalContext.getRowIndex();
+        try
+        {
+            for (int rowIndex = 0; rowIndex < this.rowCount; rowIndex++)
+            {
+                this.evalContext.setRowIndex(rowIndex);
+                for (int i = 0; i < columnsToCache.size(); i++)
+                {
+                    DfColumnComputed column = columnsToCache.get(i);
+                    column.cacheValue(rowIndex, column.getExpression().evaluate(evaluationVisitor));
+                }
+            }
+        }
+        finally
+        {
+            this.evalContext.setRowIndex(savedRowIndex);
+        }
+
+        columnsToCache.forEach(DfColumnComputed::finishCaching);
+    }
+
+    /**
+     * @return true if the column uses shared subexpressions and does not refer to other computed columns, so its values
+     * can be evaluated in the same pass as those of the other such columns without evaluating any computed column
+     * values it depends on in the middle of the pass
+     */
+    private boolean canBeCachedTogether(DfColumnComputed column)
+    {
+        return this.usesSharedSubexpressions(column)
+                && this.computedColumnReferences().get(column.getName()).noneSatisfy(
+                        referencedName -> this.hasColumn(referencedName) && this.getColumnNamed(referencedName).isComputed());
+    }
+
+    private boolean usesSharedSubexpressions(DfColumn column)
+    {
+        return this.commonSubexpressions != null
+                && column.isComputed()
+                && this.commonSubexpressions.usesSharedSubexpressions(((DfColumnComputed) column).getExpression());
+    }
+
     public void enablePooling()
     {
         this.poolingEnabled = true;
@@ -168,6 +302,124 @@ public class DataFrame
         return this.poolingEnabled;
     }
 
+    /**
+     * Enables caching of computed column values: the values of a computed column are evaluated for all rows on first
+     * access and stored. The cached values are discarded when the data frame is sealed, when a row is added, when a
+     * value in a column the computed column depends on (directly or via other computed columns) is changed, or when the
+     * external evaluation context is replaced. If variables in the external evaluation context are modified in place, call
+     * {@link #invalidateComputedColumnCaches()} for the changes to be picked up. The computed columns sharing
+     * subexpressions (see {@link CommonSubexpressions}) are cached together, in a single pass over the rows.
+     *
+     * @return the data frame
+     */
+    public DataFrame enableComputedColumnCaching()
+    {
+        this.computedColumnCachingEnabled = true;
+        this.invalidateComputedColumnCaches();
+        return this;
+    }
+
+    public boolean isComputedColumnCachingEnabled()
+    {
+        return this.computedColumnCachingEnabled;
+    }
+
+    /**
+     * Discards the cached values of all computed columns in this data frame, and the stored values of their shared
+     * subexpressions
+     */
+    public void invalidateComputedColumnCaches()
+    {
+        this.changedStoredColumnNames.clear();
+
+        if (this.commonSubexpressions != null)
+        {
+            this.commonSubexpressions.invalidate();
+        }
+
+        this.columns
+                .reject(DfColumn::isStored)
+                .forEach(column -> ((DfColumnComputed) column).invalidateCache());
+    }
+
+    /**
+     * Drops the indexes on the specified column and records that its values have changed, so that the cached values
+     * depending on it are discarded the next time a computed column is accessed, see
+     * {@link #invalidateCachesOfChangedColumns()}. This way a series of writes to a column only invalidates the caches
+     * once.
+     *
+     * @param columnName the name of the column the values of which have changed
+     */
+    void storedValuesChanged(String columnName)
+    {
+        this.dropIndexesOn(columnName);
+
+        if (this.computedColumnCachingEnabled || this.commonSubexpressions != null)
+        {
+            this.changedStoredColumnNames.add(columnName);
+        }
+    }
+
+    /**
+     * Discards the stored values of the shared subexpressions of the computed columns, and the cached values of the
+     * computed columns that depend, directly or transitively, on the columns changed since the last call. Called before
+     * the values of a computed column are materialized.
+     */
+    void invalidateCachesOfChangedColumns()
+    {
+        if (this.changedStoredColumnNames.isEmpty())
+        {
+            return;
+        }
+
+        if (this.commonSubexpressions != null)
+        {
+            this.commonSubexpressions.invalidate();
+        }
+
+        if (!this.computedColumnCachingEnabled)
+        {
+            this.changedStoredColumnNames.clear();
+            return;
+        }
+
+        MapIterable<String, SetIterable<String>> references = this.computedColumnReferences();
+
+        MutableSet<String> changed = Sets.mutable.withAll(this.changedStoredColumnNames);
+        MutableList<String> toProcess = Lists.mutable.withAll(this.changedStoredColumnNames);
+        this.changedStoredColumnNames.clear();
+
+        while (toProcess.notEmpty())
+        {
+            String changedName = toProcess.remove(toProcess.size() - 1);
+            references.forEachKeyValue((computedColumnName, referencedNames) -> {
+                if (referencedNames.contains(changedName) && changed.add(computedColumnName))
+                {
+                    ((DfColumnComputed) this.getColumnNamed(computedColumnName)).invalidateCache();
+                    toProcess.add(computedColumnName);
+                }
+            });
+        }
+    }
+
+    /**
+     * @return the names of the variables, including the columns, referred to by the expression of each computed column
+     */
+    private MapIterable<String, SetIterable<String>> computedColumnReferences()
+    {
+        if (this.computedColumnReferences == null)
+        {
+            this.computedColumnReferences = Maps.mutable.of();
+            this.columns
+                    .reject(DfColumn::isStored)
+                    .forEach(column -> this.computedColumnReferences.put(
+                            column.getName(),
+                            VariableReferenceVisitor.referencedVariableNames(((DfColumnComputed) column).getExpression())));
+        }
+
+        return this.computedColumnReferences;
+    }
+
     public DfColumn getColumnNamed(String columnName)
     {
         DfColumn column = this.columnsByName.get(columnName);
@@ -193,7 +445,7 @@ public class DataFrame
     public void addRow(ListIterable<Value> rowValues)
     {
         rowValues.forEachWithIndex((v, i) -> this.columns.get(i).addValue(v));
-        this.rowCount++;
+        this.rowAdded();
     }
 
     /**
@@ -246,7 +498,7 @@ public class DataFrame
     public DataFrame addRow()
     {
         this.columns.forEach(DfColumn::addEmptyValue);
-        this.rowCount++;
+        this.rowAdded();
         return this;
     }
 
@@ -259,7 +511,7 @@ public class DataFrame
         }
 
         ArrayIterate.forEachWithIndex(values, (v, i) -> this.columns.get(i).addObject(v));
-        this.rowCount++;
+        this.rowAdded();
         return this;
     }
 
@@ -337,11 +589,23 @@ public class DataFrame
         return this.virtualRowMap != null;
     }
 
+    /**
+     * Returns the indices of the source data frame rows aggregated into the specified row of this data frame, if this
+     * data frame is the result of aggregation with index. The returned list is a read only view backed by the index.
+     *
+     * @param rowIndex the index of a row in this data frame
+     * @return the indices of the source rows, in ascending order, or an empty list if this data frame does not have an
+     * aggregate index
+     */
     public IntList getAggregateIndex(int rowIndex)
     {
         if (this.isAggregateWithIndex())
         {
-            return this.aggregateIndex.get(this.rowIndexMap(rowIndex));
+            int aggregatedRowIndex = this.rowIndexMap(rowIndex);
+            return new IntArraySlice(
+                    this.aggregateIndexRowIds,
+                    this.aggregateIndexOffsets[aggregatedRowIndex],
+                    this.aggregateIndexOffsets[aggregatedRowIndex + 1]);
         }
 
         return IntLists.immutable.empty();
@@ -349,7 +613,35 @@ public class DataFrame
 
     private boolean isAggregateWithIndex()
     {
-        return this.aggregateIndex != null;
+        return this.aggregateIndexRowIds != null;
+    }
+
+    /**
+     * Stores the indices of the source rows for each aggregated row as a single array with the source rows grouped by
+     * the aggregated row they belong to, and an array of offsets of each group in it.
+     *
+     * @param aggregatedRowBySourceRow the index of the aggregated row for each source row
+     * @param sourceRowCounts the number of source rows for each aggregated row
+     */
+    private void setAggregateIndex(int[] aggregatedRowBySourceRow, int[] sourceRowCounts)
+    {
+        int aggregatedRowCount = sourceRowCounts.length;
+
+        int[] offsets = new int[aggregatedRowCount + 1];
+        for (int i = 0; i < aggregatedRowCount; i++)
+        {
+            offsets[i + 1] = offsets[i] + sourceRowCounts[i];
+        }
+
+        int[] rowIds = new int[aggregatedRowBySourceRow.length];
+        int[] nextPositions = Arrays.copyOf(offsets, aggregatedRowCount);
+        for (int sourceRowIndex = 0; sourceRowIndex < aggregatedRowBySourceRow.length; sourceRowIndex++)
+        {
+            rowIds[nextPositions[aggregatedRowBySourceRow[sourceRowIndex]]++] = sourceRowIndex;
+        }
+
+        this.aggregateIndexOffsets = offsets;
+        this.aggregateIndexRowIds = rowIds;
     }
 
     public Object getObject(int rowIndex, int columnIndex)
@@ -455,6 +747,7 @@ public class DataFrame
     public void setExternalEvalContext(EvalContext newEvalContext)
     {
         this.evalContext.setNestedContext(newEvalContext);
+        this.invalidateComputedColumnCaches();
     }
 
     /**
@@ -465,6 +758,8 @@ public class DataFrame
      */
     public DataFrame seal()
     {
+        int previousRowCount = this.rowCount;
+
         MutableIntList storedColumnsSizes = this.columns.select(DfColumn::isStored).collectInt(DfColumn::getSize);
         if (storedColumnsSizes.size() == 0)
         {
@@ -480,7 +775,13 @@ public class DataFrame
             }
         }
 
+        if (this.rowCount != previousRowCount)
+        {
+            this.dropIndexes();
+        }
+
         this.resetBitmap();
+        this.invalidateComputedColumnCaches();
 
         this.columns.forEach(DfColumn::seal);
         return this;
@@ -498,7 +799,13 @@ public class DataFrame
     }
 
     /**
-     * Aggregate the values in the specified columns
+     * Aggregate the values in the specified columns. Each column is scanned once, calculating all the aggregate
+     * functions applied to it in the same pass (for the functions that support it, see {@link
+     * AggregateFunction#longColumnAccumulator()}). If the data frame is large enough and the columns to aggregate are
+     * not computed, different columns are aggregated in parallel. If any of the aggregations are conditional (see
+     * {@link AggregateFunction#where(String)}), or if more than one of the columns to aggregate is computed using
+     * shared subexpressions (and the values of computed columns are not cached), all the aggregations are calculated in
+     * a single pass over the rows instead.
      *
      * @param aggregators - the aggregate functions to be applied to columns to aggregate
      * @return a single row data frame containing the aggregated values in the respective columns
@@ -507,20 +814,193 @@ public class DataFrame
     {
         ListIterable<DfColumn> columnsToAggregate = this.getColumnsToAggregate(aggregators.collect(AggregateFunction::getColumnName));
 
+        if (aggregators.anySatisfy(agg -> agg.getFilter() != null) || this.shareSubexpressions(columnsToAggregate))
+        {
+            return this.aggregateConditionally(aggregators);
+        }
+
         DataFrame summedDataFrame = new DataFrame("Aggregate Of " + this.getName());
 
         columnsToAggregate.forEachInBoth(aggregators,
                 (col, agg) -> summedDataFrame.addColumn(agg.getTargetColumnName(), agg.targetColumnType(col.getType()))
         );
 
-        ListIterable<Object> aggregatedValues = columnsToAggregate.collectWithIndex(
-                (each, index) -> each.aggregate(aggregators.get(index))
-        );
+        MutableListMultimap<DfColumn, Integer> aggregatorIndicesByColumn = Multimaps.mutable.list.empty();
+        columnsToAggregate.forEachWithIndex((column, index) -> aggregatorIndicesByColumn.put(column, index));
+
+        Object[] aggregatedValues = new Object[aggregators.size()];
 
-        summedDataFrame.addRow(aggregatedValues.toArray());
+        Procedure<DfColumn> columnAggregation = column -> {
+            ListIterable<Integer> aggregatorIndices = aggregatorIndicesByColumn.get(column);
+            this.aggregateColumn(column, aggregatorIndices.collect(aggregators::get), aggregatorIndices, aggregatedValues);
+        };
+
+        boolean parallel = aggregatorIndicesByColumn.keysView().size() > 1
+                && this.rowCount() >= PARALLEL_AGGREGATION_MIN_ROW_COUNT
+                && columnsToAggregate.allSatisfy(DfColumn::isStored);
+
+        if (parallel)
+        {
+            runInParallel(aggregatorIndicesByColumn
+                    .keysView()
+                    .collect(each -> () -> columnAggregation.value(each)));
+        }
+        else
+        {
+            aggregatorIndicesByColumn.keysView().forEach(columnAggregation);
+        }
+
+        summedDataFrame.addRow(aggregatedValues);
         return summedDataFrame;
     }
 
+    /**
+     * Runs the tasks concurrently and waits for all of them to complete, rethrowing the exception thrown by a task
+     */
+    static private void runInParallel(RichIterable<Runnable> tasks)
+    {
+        CompletableFuture<?>[] futures = tasks
+                .collect(CompletableFuture::runAsync)
+                .toArray(new CompletableFuture<?>[0]);
+        try
+        {
+            CompletableFuture.allOf(futures).join();
+        }
+        catch (CompletionException e)
+        {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+    }
+
+    /**
+     * @return true if the values of computed columns are not cached and more than one of the columns uses shared
+     * subexpressions, which are then calculated once per row only if the columns are evaluated row by row
+     */
+    private boolean shareSubexpressions(ListIterable<DfColumn> columnsToAggregate)
+    {
+        if (this.computedColumnCachingEnabled)
+        {
+            return false;
+        }
+
+        this.shareCommonSubexpressionsIfNeeded();
+
+        return columnsToAggregate.toSet().count(this::usesSharedSubexpressions) > 1;
+    }
+
+    private DataFrame aggregateConditionally(ListIterable<AggregateFunction> aggregators)
+    {
+        // aggregating by no columns puts all rows in the same group
+        DataFrame aggregatedDataFrame = this.aggregateByWithIndex(aggregators, Lists.immutable.empty(), false);
+
+        if (aggregatedDataFrame.rowCount() == 0)
+        {
+            aggregatedDataFrame.addRow(aggregators
+                    .collect(agg -> agg.emptyGroupValue(aggregatedDataFrame.getColumnNamed(agg.getTargetColumnName()).getType()))
+                    .toArray());
+        }
+
+        return aggregatedDataFrame;
+    }
+
+    /**
+     * Applies the aggregate functions to the column, the functions that provide accumulators are calculated in a single
+     * pass over the column values, the rest are applied to the column one by one.
+     */
+    private void aggregateColumn(
+            DfColumn column,
+            ListIterable<AggregateFunction> aggregators,
+            ListIterable<Integer> resultIndices,
+            Object[] results)
+    {
+        MutableList<Integer> accumulatedIndices = Lists.mutable.of();
+        MutableList<AggregateAccumulator> accumulators = Lists.mutable.of();
+
+        resultIndices.forEachWithIndex((resultIndex, i) -> {
+            AggregateAccumulator accumulator = column.getSize() == 0 ? null : this.accumulatorFor(column, aggregators.get(i));
+            if (accumulator == null)
+            {
+                results[resultIndex] = column.aggregate(aggregators.get(i));
+            }
+            else
+            {
+                accumulatedIndices.add(resultIndex);
+                accumulators.add(accumulator);
+            }
+        });
+
+        if (accumulators.isEmpty())
+        {
+            return;
+        }
+
+        int accumulatorCount = accumulators.size();
+        AggregateAccumulator[] accumulatorArray = accumulators.toArray(new AggregateAccumulator[accumulatorCount]);
+        int columnLength = this.rowCount();
+
+        try
+        {
+            if (column.getType().isLong())
+            {
+                DfLongColumn longColumn = (DfLongColumn) column;
+                for (int rowIndex = 0; rowIndex < columnLength; rowIndex++)
+                {
+                    long value = longColumn.getLong(rowIndex);
+                    for (int i = 0; i < accumulatorCount; i++)
+                    {
+                        accumulatorArray[i].accumulateLong(value);
+                    }
+                }
+            }
+            else if (column.getType().isDouble())
+            {
+                DfDoubleColumn doubleColumn = (DfDoubleColumn) column;
+                for (int rowIndex = 0; rowIndex < columnLength; rowIndex++)
+                {
+                    double value = doubleColumn.getDouble(rowIndex);
+                    for (int i = 0; i < accumulatorCount; i++)
+                    {
+                        accumulatorArray[i].accumulateDouble(value);
+                    }
+                }
+            }
+            else
+            {
+                for (int rowIndex = 0; rowIndex < columnLength; rowIndex++)
+                {
+                    Object value = column.getObject(rowIndex);
+                    for (int i = 0; i < accumulatorCount; i++)
+                    {
+                        accumulatorArray[i].accumulateObject(value);
+                    }
+                }
+            }
+        }
+        catch (NullPointerException npe)
+        {
+            // a null value in a numeric column makes the aggregated value null, same as when aggregating one by one
+            accumulatedIndices.forEach(resultIndex -> results[resultIndex] = null);
+            return;
+        }
+
+        accumulatedIndices.forEachWithIndex((resultIndex, i) -> results[resultIndex] = accumulatorArray[i].getResult());
+    }
+
+    private AggregateAccumulator accumulatorFor(DfColumn column, AggregateFunction aggregator)
+    {
+        if (column.getType().isLong())
+        {
+            return aggregator.longColumnAccumulator();
+        }
+
+        if (column.getType().isDouble())
+        {
+            return aggregator.doubleColumnAccumulator();
+        }
+
+        return aggregator.objectColumnAccumulator();
+    }
+
     private ListIterable<DfColumn> getColumnsToAggregate(ListIterable<String> columnNames)
     {
         return this.columnsNamed(columnNames);
@@ -566,13 +1046,9 @@ public class DataFrame
             ListIterable<String> columnsToGroupByNames,
             boolean createSourceRowIdIndex)
     {
-        MutableList<MutableIntList> sumIndex = null;
-        if (createSourceRowIdIndex)
-        {
-            sumIndex = Lists.mutable.of();
-        }
+        int[] aggregatedRowBySourceRow = createSourceRowIdIndex ? new int[this.rowCount] : null;
 
-        int[] counts = new int[this.rowCount()]; // todo: a bit wasteful?
+        MutableIntList counts = IntLists.mutable.of();
 
         ListIterable<String> columnsToAggregateNames = aggregators.collect(AggregateFunction::getColumnName);
         ListIterable<DfColumn> columnsToAggregate = this.getColumnsToAggregate(columnsToAggregateNames);
@@ -591,6 +1067,34 @@ public class DataFrame
                 .collect(AggregateFunction::getTargetColumnName)
                 .collect(aggregatedDataFrame::getColumnNamed);
 
+        // the functions with group accumulators keep their intermediate results outside of the accumulator columns
+        GroupAccumulator[] groupAccumulators = aggregators
+                .collect(aggregateFunction -> aggregateFunction.groupAccumulator(this))
+                .toArray(new GroupAccumulator[aggregators.size()]);
+        BitSet[] groupsWithNulls = new BitSet[aggregators.size()];
+
+        // the filters of conditional aggregations, each distinct filter is evaluated once per row
+        ListIterable<String> filters = aggregators.collectIf(agg -> agg.getFilter() != null, AggregateFunction::getFilter).distinct();
+        int[] filterIndexByAggregator = aggregators
+                .collectInt(agg -> agg.getFilter() == null ? -1 : filters.indexOf(agg.getFilter()), IntLists.mutable.empty())
+                .toArray();
+
+        DataFrameEvalContext filterContext = new DataFrameEvalContext(this);
+        ListIterable<Expression> filterExpressions = filters.collect(
+                filter -> OptimizingVisitor.optimizeForDataFrame(ExpressionParserHelper.DEFAULT.toExpression(filter), filterContext));
+        InMemoryEvaluationVisitor filterEvaluationVisitor = new InMemoryEvaluationVisitor(filterContext);
+        boolean[] rowMatchesFilter = new boolean[filters.size()];
+
+        // the number of rows matching the filter in each group, for conditional aggregations only
+        MutableIntList[] matchingCounts = new MutableIntList[aggregators.size()];
+        for (int i = 0; i < filterIndexByAggregator.length; i++)
+        {
+            if (filterIndexByAggregator[i] >= 0)
+            {
+                matchingCounts[i] = IntLists.mutable.of();
+            }
+        }
+
         DfIndexKeeper index = new DfIndexKeeper(aggregatedDataFrame, columnsToGroupByNames);
 
         for (int rowIndex = 0; rowIndex < this.rowCount; rowIndex++)
@@ -603,8 +1107,25 @@ public class DataFrame
                 // new entry in the aggregated data frame - need to initialize accumulators
                 accumulatorRowIndex = index.getRowIndexAtKeyIfAbsentAdd(keyValue);
 
-                aggregators.forEachInBoth(accumulatorColumns,
-                        (aggregateFunction, accumulatorColumn) -> aggregateFunction.initializeValue(accumulatorColumn, accumulatorRowIndex));
+                aggregators.forEachWithIndex((aggregateFunction, i) -> {
+                    if (groupAccumulators[i] == null)
+                    {
+                        aggregateFunction.initializeValue(accumulatorColumns.get(i), accumulatorRowIndex);
+                    }
+                });
+
+                while (counts.size() <= accumulatorRowIndex)
+                {
+                    counts.add(0);
+                }
+
+                for (MutableIntList matchingCount : matchingCounts)
+                {
+                    while (matchingCount != null && matchingCount.size() <= accumulatorRowIndex)
+                    {
+                        matchingCount.add(0);
+                    }
+                }
             }
             else
             {
@@ -614,32 +1135,116 @@ public class DataFrame
 
             if (createSourceRowIdIndex)
             {
-                while (sumIndex.size() <= accumulatorRowIndex)
+                aggregatedRowBySourceRow[rowIndex] = accumulatorRowIndex;
+            }
+
+            counts.set(accumulatorRowIndex, counts.get(accumulatorRowIndex) + 1);
+
+            if (filterExpressions.notEmpty())
+            {
+                filterContext.setRowIndex(rowIndex);
+                for (int filterIndex = 0; filterIndex < rowMatchesFilter.length; filterIndex++)
                 {
-                    sumIndex.add(IntLists.mutable.of());
+                    rowMatchesFilter[filterIndex] = ((BooleanValue) filterExpressions.get(filterIndex).evaluate(filterEvaluationVisitor)).isTrue();
                 }
-
-                sumIndex.get(accumulatorRowIndex).add(rowIndex);
             }
 
-            counts[accumulatorRowIndex]++;
-
             for (int colIndex = 0; colIndex < columnsToAggregate.size(); colIndex++)
             {
-                accumulatorColumns.get(colIndex).applyAggregator(accumulatorRowIndex, columnsToAggregate.get(colIndex), rowIndex, aggregators.get(colIndex));
+                int filterIndex = filterIndexByAggregator[colIndex];
+                if (filterIndex >= 0)
+                {
+                    if (!rowMatchesFilter[filterIndex])
+                    {
+                        continue;
+                    }
+
+                    matchingCounts[colIndex].set(accumulatorRowIndex, matchingCounts[colIndex].get(accumulatorRowIndex) + 1);
+                }
+
+                DfColumn sourceColumn = columnsToAggregate.get(colIndex);
+                GroupAccumulator groupAccumulator = groupAccumulators[colIndex];
+
+                if (groupAccumulator == null)
+                {
+                    accumulatorColumns.get(colIndex).applyAggregator(accumulatorRowIndex, sourceColumn, rowIndex, aggregators.get(colIndex));
+                }
+                else if (sourceColumn.isNull(rowIndex))
+                {
+                    if (groupsWithNulls[colIndex] == null)
+                    {
+                        groupsWithNulls[colIndex] = new BitSet();
+                    }
+                    groupsWithNulls[colIndex].set(accumulatorRowIndex);
+                }
+                else
+                {
+                    groupAccumulator.accumulate(accumulatorRowIndex, sourceColumn, rowIndex);
+                }
             }
         }
 
-        if (createSourceRowIdIndex)
+        for (int colIndex = 0; colIndex < groupAccumulators.length; colIndex++)
         {
-            aggregatedDataFrame.aggregateIndex = sumIndex;
-        }
-
-        aggregators.forEach(agg -> agg.finishAggregating(aggregatedDataFrame, counts));
+            if (groupAccumulators[colIndex] != null)
+            {
+                DfColumn accumulatorColumn = accumulatorColumns.get(colIndex);
+                BitSet groupsWithNullValues = groupsWithNulls[colIndex];
+                for (int groupIndex = 0; groupIndex < aggregatedDataFrame.rowCount(); groupIndex++)
+                {
+                    accumulatorColumn.setObject(groupIndex,
+                            groupsWithNullValues != null && groupsWithNullValues.get(groupIndex)
+                                    ? null
+                                    : groupAccumulators[colIndex].getResult(groupIndex));
+                }
+            }
+        }
+
+        int[] countsByRow = counts.toArray();
+
+        if (createSourceRowIdIndex)
+        {
+            aggregatedDataFrame.setAggregateIndex(aggregatedRowBySourceRow, countsByRow);
+        }
+
+        aggregators.forEachWithIndex((agg, i) -> {
+            if (matchingCounts[i] == null)
+            {
+                agg.finishAggregating(aggregatedDataFrame, countsByRow);
+            }
+            else
+            {
+                this.finishConditionalAggregation(agg, aggregatedDataFrame, accumulatorColumns.get(i), matchingCounts[i].toArray());
+            }
+        });
 
         return aggregatedDataFrame;
     }
 
+    /**
+     * Completes a conditional aggregation using the counts of the rows matching the filter rather than all rows of
+     * each group, the groups where no rows match get the function's value for an empty group.
+     */
+    private void finishConditionalAggregation(
+            AggregateFunction aggregator,
+            DataFrame aggregatedDataFrame,
+            DfColumn accumulatorColumn,
+            int[] matchingCountsByRow)
+    {
+        // the empty groups are counted as having one row here to keep finishAggregating well defined, their values
+        // are replaced afterwards anyway
+        int[] nonEmptyCountsByRow = Arrays.stream(matchingCountsByRow).map(count -> Math.max(count, 1)).toArray();
+        aggregator.finishAggregating(aggregatedDataFrame, nonEmptyCountsByRow);
+
+        for (int rowIndex = 0; rowIndex < matchingCountsByRow.length; rowIndex++)
+        {
+            if (matchingCountsByRow[rowIndex] == 0)
+            {
+                accumulatorColumn.setObject(rowIndex, aggregator.emptyGroupValue(accumulatorColumn.getType()));
+            }
+        }
+    }
+
     public DataFrame sumByWithIndex(ListIterable<String> columnsToSumNames, ListIterable<String> columnsToGroupByNames)
     {
         return this.aggregateByWithIndex(columnsToSumNames.collect(AggregateFunction::sum), columnsToGroupByNames);
@@ -651,7 +1256,8 @@ public class DataFrame
         DataFrame rejected = this.cloneStructure(this.name + "-rejected");
 
         DataFrameEvalContext context = new DataFrameEvalContext(this);
-        Expression filterExpression = ExpressionParserHelper.DEFAULT.toExpression(filterExpressionString);
+        Expression filterExpression = OptimizingVisitor.optimizeForDataFrame(
+                ExpressionParserHelper.DEFAULT.toExpression(filterExpressionString), context);
         InMemoryEvaluationVisitor evaluationVisitor = new InMemoryEvaluationVisitor(context);
 
         for (int i = 0; i < this.rowCount; i++)
@@ -677,8 +1283,21 @@ public class DataFrame
     public DataFrame selectBy(String filterExpressionString)
     {
         DataFrame filtered = this.cloneStructure(this.getName() + "-selected");
+        Expression parsedExpression = ExpressionParserHelper.DEFAULT.toExpression(filterExpressionString);
+
+        if (this.indexesByColumnNames.notEmpty())
+        {
+            IntList indexedRows = this.rowsMatchingIndexedEqualities(parsedExpression);
+            if (indexedRows != null)
+            {
+                indexedRows.forEach(rowIndex -> filtered.copyRowFrom(this, rowIndex));
+                filtered.seal();
+                return filtered;
+            }
+        }
+
         DataFrameEvalContext context = new DataFrameEvalContext(this);
-        Expression filterExpression = ExpressionParserHelper.DEFAULT.toExpression(filterExpressionString);
+        Expression filterExpression = OptimizingVisitor.optimizeForDataFrame(parsedExpression, context);
         InMemoryEvaluationVisitor evaluationVisitor = new InMemoryEvaluationVisitor(context);
         for (int i = 0; i < this.rowCount; i++)
         {
@@ -693,12 +1312,116 @@ public class DataFrame
         return filtered;
     }
 
-    private DataFrame selectByMarkValue(BooleanPredicate markAtIndexPredicate)
+    /**
+     * If the filter expression is a comparison of a column to a constant or a conjunction of such comparisons, and
+     * there is an index on exactly the compared columns, finds the matching rows using the index.
+     *
+     * @return the indices of the matching rows in ascending order or null if the index cannot be used for this filter
+     */
+    private IntList rowsMatchingIndexedEqualities(Expression filterExpression)
+    {
+        MutableMap<String, Object> valuesByColumnName = Maps.mutable.of();
+        if (!this.collectColumnEqualities(filterExpression, valuesByColumnName))
+        {
+            return null;
+        }
+
+        ListIterable<String> indexByColumnNames = this.indexesByColumnNames.keysView().detect(
+                columnNames -> columnNames.size() == valuesByColumnName.size() && columnNames.allSatisfy(valuesByColumnName::containsKey));
+
+        if (indexByColumnNames == null)
+        {
+            return null;
+        }
+
+        return this.getIndex(indexByColumnNames).getRowIndicesAtKey(indexByColumnNames.collect(valuesByColumnName::get));
+    }
+
+    private boolean collectColumnEqualities(Expression expression, MutableMap<String, Object> valuesByColumnName)
+    {
+        if (!(expression instanceof BinaryExpr))
+        {
+            return false;
+        }
+
+        BinaryExpr binaryExpr = (BinaryExpr) expression;
+
+        if (binaryExpr.getOperation() == BooleanOp.AND)
+        {
+            return this.collectColumnEqualities(binaryExpr.getOperand1(), valuesByColumnName)
+                    && this.collectColumnEqualities(binaryExpr.getOperand2(), valuesByColumnName);
+        }
+
+        if (binaryExpr.getOperation() != ComparisonOp.EQ)
+        {
+            return false;
+        }
+
+        Expression variable = binaryExpr.getOperand1() instanceof VarExpr ? binaryExpr.getOperand1() : binaryExpr.getOperand2();
+        Expression constant = variable == binaryExpr.getOperand1() ? binaryExpr.getOperand2() : binaryExpr.getOperand1();
+
+        if (!(variable instanceof VarExpr) || !(constant instanceof Value))
+        {
+            return false;
+        }
+
+        String columnName = ((VarExpr) variable).getVariableName();
+        if (!this.hasColumn(columnName))
+        {
+            return false;
+        }
+
+        Object value = this.constantAsColumnValue((Value) constant, this.getColumnNamed(columnName).getType());
+        if (value == null)
+        {
+            return false;
+        }
+
+        Object previous = valuesByColumnName.put(columnName, value);
+        return previous == null || previous.equals(value);
+    }
+
+    /**
+     * @return the constant converted to the type of the values stored in a column of the specified type or null if it
+     * cannot be compared to these values by equality
+     */
+    private Object constantAsColumnValue(Value constant, ValueType columnType)
+    {
+        if (columnType.isLong() && constant.isLong())
+        {
+            return ((LongValue) constant).longValue();
+        }
+
+        // 0.0 and -0.0 are equal in expressions but not as keys
+        if (columnType.isDouble() && constant.isNumber() && ((NumberValue) constant).doubleValue() != 0.0)
+        {
+            return ((NumberValue) constant).doubleValue();
+        }
+
+        if (columnType.isString() && constant.isString())
+        {
+            return ((StringValue) constant).stringValue();
+        }
+
+        if (columnType.isDate() && constant.isDate())
+        {
+            return ((DateValue) constant).dateValue();
+        }
+
+        if (columnType.isDateTime() && constant.isDateTime())
+        {
+            return ((DateTimeValue) constant).dateTimeValue();
+        }
+
+        return null;
+    }
+
+    private DataFrame selectByMarkValue(BooleanList marks, BooleanPredicate markAtIndexPredicate)
     {
         DataFrame filtered = this.cloneStructure(this.getName() + "-selected");
         for (int i = 0; i < this.rowCount; i++)
         {
-            if (markAtIndexPredicate.accept(this.isFlagged(i)))
+            if (markAtIndexPredicate.accept(marks.get(i)))
             {
                 filtered.copyRowFrom(this, this.rowIndexMap(i));
             }
@@ -763,16 +1486,94 @@ public class DataFrame
             return this;
         }
 
+        this.virtualRowMap = this.sortedRowIndexes(this.rowsToTuples(columnsToSortBy));
+
+        return this;
+    }
+
+    private DfTuple[] rowsToTuples(ListIterable<DfColumn> columnsToCollect)
+    {
         DfTuple[] tuples = new DfTuple[this.rowCount];
         for (int i = 0; i < this.rowCount; i++)
         {
-            tuples[i] = this.rowToTuple(i, columnsToSortBy);
+            tuples[i] = this.rowToTuple(i, columnsToCollect);
+        }
+        return tuples;
+    }
+
+    private MutableIntList sortedRowIndexes(DfTuple[] tuples)
+    {
+        if (this.rowCount == 0)
+        {
+            return IntLists.mutable.empty();
         }
 
         MutableIntList indexes = IntInterval.zeroTo(this.rowCount - 1).toList();
         indexes.sortThisBy(i -> tuples[i]);
+        return indexes;
+    }
 
-        this.virtualRowMap = indexes;
+    /**
+     * Calculates window functions and adds their results to this data frame as new columns. The rows are split into
+     * partitions by the values of the partition columns and ordered within each partition by the values of the order
+     * columns, the same way as by {@link #sortBy(ListIterable)}. Each window function makes a single pass over each
+     * partition, different partitions are processed in parallel if the data frame is large enough and all the columns
+     * the functions read are stored. The order of the rows of this data frame does not change.
+     *
+     * @param windowFunctions the functions to calculate
+     * @param partitionByColumnNames the columns to partition the rows by, if empty all the rows are in one partition
+     * @param orderByColumnNames the columns to order the rows by within each partition
+     * @return this data frame
+     */
+    public DataFrame window(
+            ListIterable<WindowFunction> windowFunctions,
+            ListIterable<String> partitionByColumnNames,
+            ListIterable<String> orderByColumnNames)
+    {
+        ListIterable<DfColumn> partitionByColumns = this.columnsNamed(partitionByColumnNames);
+        ListIterable<DfColumn> sortByColumns = this.columnsNamed(
+                Lists.mutable.<String>withAll(partitionByColumnNames).withAll(orderByColumnNames));
+
+        ListIterable<WindowOutput> outputs = windowFunctions.collect(
+                each -> new WindowOutput(each.targetColumnType(this), this.rowCount));
+
+        MutableList<WindowPartition> partitions = Lists.mutable.of();
+
+        if (this.rowCount > 0)
+        {
+            DfTuple[] sortKeys = this.rowsToTuples(sortByColumns);
+            int[] orderedRows = this.sortedRowIndexes(sortKeys).toArray();
+            DfTuple[] partitionKeys = this.rowsToTuples(partitionByColumns);
+
+            int partitionStart = 0;
+            for (int i = 1; i <= this.rowCount; i++)
+            {
+                if (i == this.rowCount || !partitionKeys[orderedRows[i]].equals(partitionKeys[orderedRows[partitionStart]]))
+                {
+                    partitions.add(new WindowPartition(this, orderedRows, partitionStart, i, sortKeys));
+                    partitionStart = i;
+                }
+            }
+        }
+
+        boolean parallel = partitions.size() > 1
+                && this.rowCount >= PARALLEL_WINDOW_MIN_ROW_COUNT
+                && windowFunctions.flatCollect(WindowFunction::getSourceColumnNames).allSatisfy(
+                        columnName -> this.getColumnNamed(columnName).isStored());
+
+        if (parallel)
+        {
+            int chunkSize = Math.max(1, partitions.size() / (4 * Runtime.getRuntime().availableProcessors()));
+            runInParallel(partitions.chunk(chunkSize).collect(chunk -> () -> chunk.forEach(
+                    partition -> windowFunctions.forEachInBoth(outputs, (function, output) -> function.apply(partition, output)))));
+        }
+        else
+        {
+            partitions.forEach(
+                    partition -> windowFunctions.forEachInBoth(outputs, (function, output) -> function.apply(partition, output)));
+        }
+
+        windowFunctions.forEachInBoth(outputs, (function, output) -> output.addColumnTo(this, function.getTargetColumnName()));
 
         return this;
     }
@@ -786,7 +1587,8 @@ public class DataFrame
             return this;
         }
 
-        Expression expression = ExpressionParserHelper.DEFAULT.toExpression(expressionString);
+        Expression expression = OptimizingVisitor.optimizeForDataFrame(
+                ExpressionParserHelper.DEFAULT.toExpression(expressionString), this.getEvalContext());
         MutableIntList indexes = IntInterval.zeroTo(this.rowCount - 1).toList();
         indexes.sortThisBy(i -> this.evaluateExpression(expression, i));
         this.virtualRowMap = indexes;
@@ -867,7 +1669,7 @@ public class DataFrame
      */
     public DataFrame selectFlagged()
     {
-        return this.selectByMarkValue(mark -> mark);
+        return this.selectByMarkValue(this.bitmap, mark -> mark);
     }
 
     /**
@@ -878,7 +1680,7 @@ public class DataFrame
      */
     public DataFrame selectNotFlagged()
     {
-        return this.selectByMarkValue(mark -> !mark);
+        return this.selectByMarkValue(this.bitmap, mark -> !mark);
     }
 
     /**
@@ -891,7 +1693,8 @@ public class DataFrame
         this.bitmap = BooleanArrayList.newWithNValues(this.rowCount, false);
 
         DataFrameEvalContext context = new DataFrameEvalContext(this);
-        Expression filterExpression = ExpressionParserHelper.DEFAULT.toExpression(filterExpressionString);
+        Expression filterExpression = OptimizingVisitor.optimizeForDataFrame(
+                ExpressionParserHelper.DEFAULT.toExpression(filterExpressionString), context);
         InMemoryEvaluationVisitor evaluationVisitor = new InMemoryEvaluationVisitor(context);
 
         for (int i = 0; i < this.rowCount; i++)
@@ -918,6 +1721,10 @@ public class DataFrame
 
         this.columns.remove(dropped);
         this.columnsByName.remove(columnName);
+        this.dropIndexesOn(columnName);
+        this.computedColumnReferences = null;
+        this.commonSubexpressionsOutdated = true;
+        this.invalidateComputedColumnCaches();
 
         return this;
     }
@@ -1166,6 +1973,556 @@ public class DataFrame
                 renamedOtherColumns);
     }
 
+    /**
+     * A semi join - creates a data frame with the rows of this data frame that have at least one row with the same
+     * value of the key column in the other data frame. Unlike a join, the rows of this data frame are not repeated
+     * for multiple matches and the columns of the other data frame are not added.
+     *
+     * @param other               the data frame to match the rows of this data frame to
+     * @param thisJoinColumnName  the name of the column in this data frame to use as the join key
+     * @param otherJoinColumnName the name of the column in the other data frame to use as the join key
+     * @return a data frame with the rows of this data frame that have a match in the other data frame
+     */
+    public DataFrame semiJoin(DataFrame other, String thisJoinColumnName, String otherJoinColumnName)
+    {
+        return this.semiJoin(other, Lists.immutable.of(thisJoinColumnName), Lists.immutable.of(otherJoinColumnName));
+    }
+
+    /**
+     * A semi join - creates a data frame with the rows of this data frame that have at least one row with the same
+     * values of the key columns in the other data frame. See {@link #flagRowsWithKeysIn(DataFrame, ListIterable,
+     * ListIterable)}.
+     *
+     * @param other                the data frame to match the rows of this data frame to
+     * @param thisJoinColumnNames  the names of the columns in this data frame to use as the join keys
+     * @param otherJoinColumnNames the names of the columns in the other data frame to use as the join keys
+     * @return a data frame with the rows of this data frame that have a match in the other data frame
+     */
+    public DataFrame semiJoin(DataFrame other, ListIterable<String> thisJoinColumnNames, ListIterable<String> otherJoinColumnNames)
+    {
+        return this.selectByMarkValue(this.rowsWithKeysIn(other, thisJoinColumnNames, otherJoinColumnNames), mark -> mark);
+    }
+
+    /**
+     * An anti join - creates a data frame with the rows of this data frame that do not have a row with the same value
+     * of the key column in the other data frame.
+     *
+     * @param other               the data frame to match the rows of this data frame to
+     * @param thisJoinColumnName  the name of the column in this data frame to use as the join key
+     * @param otherJoinColumnName the name of the column in the other data frame to use as the join key
+     * @return a data frame with the rows of this data frame that do not have a match in the other data frame
+     */
+    public DataFrame antiJoin(DataFrame other, String thisJoinColumnName, String otherJoinColumnName)
+    {
+        return this.antiJoin(other, Lists.immutable.of(thisJoinColumnName), Lists.immutable.of(otherJoinColumnName));
+    }
+
+    /**
+     * An anti join - creates a data frame with the rows of this data frame that do not have a row with the same values
+     * of the key columns in the other data frame. See {@link #flagRowsWithKeysIn(DataFrame, ListIterable,
+     * ListIterable)}.
+     *
+     * @param other                the data frame to match the rows of this data frame to
+     * @param thisJoinColumnNames  the names of the columns in this data frame to use as the join keys
+     * @param otherJoinColumnNames the names of the columns in the other data frame to use as the join keys
+     * @return a data frame with the rows of this data frame that do not have a match in the other data frame
+     */
+    public DataFrame antiJoin(DataFrame other, ListIterable<String> thisJoinColumnNames, ListIterable<String> otherJoinColumnNames)
+    {
+        return this.selectByMarkValue(this.rowsWithKeysIn(other, thisJoinColumnNames, otherJoinColumnNames), mark -> !mark);
+    }
+
+    /**
+     * Flags the rows of this data frame that have at least one row with the same values of the key columns in the
+     * other data frame, without copying any data: the matching rows can then be selected with
+     * {@link #selectFlagged()}, the rest with {@link #selectNotFlagged()}, or the flags can be inspected with
+     * {@link #isFlagged(int)}. The keys of the other data frame are collected into a hash set, which this data frame
+     * is then checked against in a single pass over its rows, neither data frame is sorted. If the other data frame has
+     * an index on its key columns (see {@link #createIndex(ListIterable)}), the index is used instead of collecting the
+     * keys.
+     *
+     * @param other                the data frame to match the rows of this data frame to
+     * @param thisJoinColumnNames  the names of the columns in this data frame to use as the join keys
+     * @param otherJoinColumnNames the names of the columns in the other data frame to use as the join keys
+     */
+    public void flagRowsWithKeysIn(DataFrame other, ListIterable<String> thisJoinColumnNames, ListIterable<String> otherJoinColumnNames)
+    {
+        this.bitmap = this.rowsWithKeysIn(other, thisJoinColumnNames, otherJoinColumnNames);
+    }
+
+    /**
+     * @return a new list of flags, one per row of this data frame, set to true for the rows that have a match in the
+     * other data frame, see {@link #flagRowsWithKeysIn(DataFrame, ListIterable, ListIterable)}
+     */
+    private MutableBooleanList rowsWithKeysIn(DataFrame other, ListIterable<String> thisJoinColumnNames, ListIterable<String> otherJoinColumnNames)
+    {
+        if (thisJoinColumnNames.size() != otherJoinColumnNames.size())
+        {
+            ErrorReporter.reportAndThrow("Attempting to join dataframes by different number of keys on each side: "
+                    + thisJoinColumnNames.makeString() + " to " + otherJoinColumnNames.makeString());
+        }
+
+        ListIterable<DfColumn> thisKeyColumns = this.columnsNamed(thisJoinColumnNames);
+        MutableBooleanList matches = BooleanArrayList.newWithNValues(this.rowCount, false);
+
+        DfIndex otherIndex = other.getIndex(otherJoinColumnNames);
+        if (otherIndex != null)
+        {
+            for (int i = 0; i < this.rowCount; i++)
+            {
+                int rowIndex = this.rowIndexMap(i);
+                if (otherIndex.containsKey(thisKeyColumns.collect(column -> column.getObject(rowIndex))))
+                {
+                    matches.set(i, true);
+                }
+            }
+            return matches;
+        }
+
+        ListIterable<DfColumn> otherKeyColumns = other.columnsNamed(otherJoinColumnNames);
+
+        int otherRowCount = other.rowCount();
+        MutableSet<Object> otherKeys = UnifiedSet.newSet(otherRowCount);
+        for (int i = 0; i < otherRowCount; i++)
+        {
+            otherKeys.add(other.joinKeyAt(i, otherKeyColumns));
+        }
+
+        for (int i = 0; i < this.rowCount; i++)
+        {
+            if (otherKeys.contains(this.joinKeyAt(this.rowIndexMap(i), thisKeyColumns)))
+            {
+                matches.set(i, true);
+            }
+        }
+
+        return matches;
+    }
+
+    /**
+     * @return the value of the key column if there is only one, otherwise a tuple of the values of the key columns
+     */
+    private Object joinKeyAt(int rowIndex, ListIterable<DfColumn> keyColumns)
+    {
+        return keyColumns.size() == 1 ? keyColumns.get(0).getObject(rowIndex) : this.rowToTuple(rowIndex, keyColumns);
+    }
+
+    /**
+     * An as-of join - creates a data frame that is a join of this data frame and another one, where each row of this
+     * data frame is combined with the row of the other data frame with the same values of the key columns and the
+     * latest time at or before the time of this row, for example each trade with the latest quote for the same
+     * instrument. If there is no such row, the values from the other data frame are null. The resulting data frame has
+     * the same columns as the result of {@link #join(DataFrame, ListIterable, ListIterable)} and its rows are in the
+     * order of the rows of this data frame.
+     *
+     * @param other               the data frame to join to
+     * @param byColumnNames       the names of the key columns, the same in both data frames
+     * @param thisTimeColumnName  the name of the time column in this data frame
+     * @param otherTimeColumnName the name of the time column in the other data frame
+     * @return a data frame that is an as-of join of this data frame and the data frame passed as a parameter
+     */
+    public DataFrame asOfJoin(
+            DataFrame other,
+            ListIterable<String> byColumnNames,
+            String thisTimeColumnName,
+            String otherTimeColumnName)
+    {
+        DfColumn thisTimeColumn = this.getColumnNamed(thisTimeColumnName);
+        return this.asOfJoin(
+                other, byColumnNames, byColumnNames, thisTimeColumnName, otherTimeColumnName,
+                false, 0L, !thisTimeColumn.getType().isLong());
+    }
+
+    /**
+     * An as-of join with the time columns of type long, the rows of the other data frame with time more than
+     * <code>tolerance</code> before the time of a row of this data frame do not match it. See
+     * {@link #asOfJoin(DataFrame, ListIterable, String, String)}.
+     *
+     * @param other               the data frame to join to
+     * @param byColumnNames       the names of the key columns, the same in both data frames
+     * @param thisTimeColumnName  the name of the time column in this data frame
+     * @param otherTimeColumnName the name of the time column in the other data frame
+     * @param tolerance           the maximum difference between the time of a row of this data frame and the time of
+     *                            the matching row of the other data frame
+     * @return a data frame that is an as-of join of this data frame and the data frame passed as a parameter
+     */
+    public DataFrame asOfJoin(
+            DataFrame other,
+            ListIterable<String> byColumnNames,
+            String thisTimeColumnName,
+            String otherTimeColumnName,
+            long tolerance)
+    {
+        return this.asOfJoin(
+                other, byColumnNames, byColumnNames, thisTimeColumnName, otherTimeColumnName, true, tolerance, false);
+    }
+
+    /**
+     * An as-of join with the time columns of type date or date/time, the rows of the other data frame with time more
+     * than <code>tolerance</code> before the time of a row of this data frame do not match it. See
+     * {@link #asOfJoin(DataFrame, ListIterable, String, String)}.
+     *
+     * @param other               the data frame to join to
+     * @param byColumnNames       the names of the key columns, the same in both data frames
+     * @param thisTimeColumnName  the name of the time column in this data frame
+     * @param otherTimeColumnName the name of the time column in the other data frame
+     * @param tolerance           the maximum difference between the time of a row of this data frame and the time of
+     *                            the matching row of the other data frame
+     * @return a data frame that is an as-of join of this data frame and the data frame passed as a parameter
+     */
+    public DataFrame asOfJoin(
+            DataFrame other,
+            ListIterable<String> byColumnNames,
+            String thisTimeColumnName,
+            String otherTimeColumnName,
+            Duration tolerance)
+    {
+        return this.asOfJoin(
+                other, byColumnNames, byColumnNames, thisTimeColumnName, otherTimeColumnName,
+                true, tolerance.toNanos(), true);
+    }
+
+    /**
+     * The rows of both data frames are ordered by their keys and times (without changing the sort order of the data
+     * frames) and then merged in a single pass: the other side advances past all the rows with the same key and time
+     * not after the time of the current row of this side, so the last row it passed is the match if its key is the
+     * same.
+     *
+     * @param hasTolerance false if the rows of the other data frame match regardless of how long before the time of a
+     *                     row of this data frame they are, in which case <code>tolerance</code> is ignored
+     */
+    private DataFrame asOfJoin(
+            DataFrame other,
+            ListIterable<String> thisJoinColumnNames,
+            ListIterable<String> otherJoinColumnNames,
+            String thisTimeColumnName,
+            String otherTimeColumnName,
+            boolean hasTolerance,
+            long tolerance,
+            boolean toleranceIsDuration)
+    {
+        if (thisJoinColumnNames.size() != otherJoinColumnNames.size())
+        {
+            ErrorReporter.reportAndThrow("Attempting to join dataframes by different number of keys on each side: "
+                    + thisJoinColumnNames.makeString() + " to " + otherJoinColumnNames.makeString());
+        }
+
+        DfColumn thisTimeColumn = this.getColumnNamed(thisTimeColumnName);
+        DfColumn otherTimeColumn = other.getColumnNamed(otherTimeColumnName);
+
+        TimeKeys.checkTimeColumn(thisTimeColumn, toleranceIsDuration, "As-of join");
+        TimeKeys.checkTimeColumn(otherTimeColumn, toleranceIsDuration, "As-of join");
+
+        int[] thisOrder = this.sortedRowIndexes(
+                this.rowsToTuples(this.columnsNamed(thisJoinColumnNames.toList().with(thisTimeColumnName)))).toArray();
+        int[] otherOrder = other.sortedRowIndexes(
+                other.rowsToTuples(other.columnsNamed(otherJoinColumnNames.toList().with(otherTimeColumnName)))).toArray();
+
+        DfTuple[] thisKeys = this.rowsToTuples(this.columnsNamed(thisJoinColumnNames));
+        DfTuple[] otherKeys = other.rowsToTuples(other.columnsNamed(otherJoinColumnNames));
+
+        int[] matchingOtherRows = new int[this.rowCount];
+        Arrays.fill(matchingOtherRows, -1);
+
+        int otherPosition = 0;
+        for (int thisRowIndex : thisOrder)
+        {
+            if (thisTimeColumn.isNull(thisRowIndex))
+            {
+                // nulls are ordered first, no match for these rows
+                continue;
+            }
+
+            DfTuple thisKey = thisKeys[thisRowIndex];
+
+            while (otherPosition < otherOrder.length)
+            {
+                int otherRowIndex = otherOrder[otherPosition];
+                int keyComparison = otherKeys[otherRowIndex].compareTo(thisKey);
+                if (keyComparison > 0
+                        || keyComparison == 0
+                        && !otherTimeColumn.isNull(otherRowIndex)
+                        && TimeKeys.compare(otherTimeColumn, otherRowIndex, thisTimeColumn, thisRowIndex) > 0)
+                {
+                    break;
+                }
+                otherPosition++;
+            }
+
+            if (otherPosition > 0)
+            {
+                int candidateRowIndex = otherOrder[otherPosition - 1];
+                if (!otherTimeColumn.isNull(candidateRowIndex)
+                        && otherKeys[candidateRowIndex].compareTo(thisKey) == 0
+                        && (!hasTolerance
+                            || TimeKeys.compareDistance(
+                                    thisTimeColumn, thisRowIndex, otherTimeColumn, candidateRowIndex, tolerance) <= 0))
+                {
+                    matchingOtherRows[thisRowIndex] = candidateRowIndex;
+                }
+            }
+        }
+
+        DataFrame joined = this.cloneStructureAsStored(this.getName() + "_" + other.getName());
+
+        MapIterable<String, String> otherColumnNameMap = this.resolveDuplicateNames(
+                this.columns.collect(DfColumn::getName),
+                other.columns.collect(DfColumn::getName));
+
+        ListIterable<DfColumn> otherColumns = other.columns.reject(col -> otherJoinColumnNames.contains(col.getName()));
+        otherColumns.forEach(col -> joined.addColumn(otherColumnNameMap.get(col.getName()), col.getType()));
+
+        int theseColumnCount = this.columnCount();
+        Object[] rowData = new Object[joined.columnCount()];
+
+        for (int i = 0; i < this.rowCount; i++)
+        {
+            int thisRowIndex = this.rowIndexMap(i);
+            int otherRowIndex = matchingOtherRows[thisRowIndex];
+
+            this.columns.forEachWithIndex((col, columnIndex) -> rowData[columnIndex] = col.getObject(thisRowIndex));
+            otherColumns.forEachWithIndex((col, columnIndex) ->
+                    rowData[theseColumnCount + columnIndex] = otherRowIndex == -1 ? null : col.getObject(otherRowIndex));
+
+            joined.addRow(rowData);
+        }
+
+        return joined.seal();
+    }
+
+    /**
+     * A range join - creates a data frame that is a join of this data frame and another one, where each row of this
+     * data frame is combined with each row of the other data frame for which the value of the value column in this
+     * data frame is in the interval <code>[from, to)</code> defined by the values of the interval columns of the other
+     * data frame, for example <code>ValidFrom &lt;= Date &lt; ValidTo</code>. A null value of the interval start or
+     * end means the interval is unbounded on that side. This is an inner join, so the rows of this data frame that do
+     * not fall into any interval will not be present in the join.
+     *
+     * @param other               the data frame to join to
+     * @param thisValueColumnName the name of the column in this data frame with the values to match to intervals
+     * @param otherFromColumnName the name of the column in the other data frame with the interval starts, inclusive
+     * @param otherToColumnName   the name of the column in the other data frame with the interval ends, exclusive
+     * @return a data frame that is a range join of this data frame and the data frame passed as a parameter
+     */
+    public DataFrame rangeJoin(DataFrame other, String thisValueColumnName, String otherFromColumnName, String otherToColumnName)
+    {
+        return this.rangeJoin(
+                other, Lists.immutable.empty(), Lists.immutable.empty(),
+                thisValueColumnName, otherFromColumnName, otherToColumnName, false);
+    }
+
+    /**
+     * A range join with equality keys - the same as {@link #rangeJoin(DataFrame, String, String, String)} but only the
+     * rows with the same values of the key columns are combined.
+     *
+     * @param other                the data frame to join to
+     * @param thisJoinColumnNames  the names of the columns in this data frame to use as the join keys
+     * @param otherJoinColumnNames the names of the columns in the other data frame to use as the join keys
+     * @param thisValueColumnName  the name of the column in this data frame with the values to match to intervals
+     * @param otherFromColumnName  the name of the column in the other data frame with the interval starts, inclusive
+     * @param otherToColumnName    the name of the column in the other data frame with the interval ends, exclusive
+     * @return a data frame that is a range join of this data frame and the data frame passed as a parameter
+     */
+    public DataFrame rangeJoin(
+            DataFrame other,
+            ListIterable<String> thisJoinColumnNames,
+            ListIterable<String> otherJoinColumnNames,
+            String thisValueColumnName,
+            String otherFromColumnName,
+            String otherToColumnName)
+    {
+        return this.rangeJoin(
+                other, thisJoinColumnNames, otherJoinColumnNames,
+                thisValueColumnName, otherFromColumnName, otherToColumnName, false);
+    }
+
+    /**
+     * A left range join - the same as {@link #rangeJoin(DataFrame, String, String, String)} but the rows of this data
+     * frame that do not fall into any interval are present in the join with the values from the other data frame set
+     * to null.
+     *
+     * @param other               the data frame to join to
+     * @param thisValueColumnName the name of the column in this data frame with the values to match to intervals
+     * @param otherFromColumnName the name of the column in the other data frame with the interval starts, inclusive
+     * @param otherToColumnName   the name of the column in the other data frame with the interval ends, exclusive
+     * @return a data frame that is a range join of this data frame and the data frame passed as a parameter
+     */
+    public DataFrame leftRangeJoin(DataFrame other, String thisValueColumnName, String otherFromColumnName, String otherToColumnName)
+    {
+        return this.rangeJoin(
+                other, Lists.immutable.empty(), Lists.immutable.empty(),
+                thisValueColumnName, otherFromColumnName, otherToColumnName, true);
+    }
+
+    /**
+     * A left range join with equality keys - the same as
+     * {@link #rangeJoin(DataFrame, ListIterable, ListIterable, String, String, String)} but the rows of this data frame
+     * that do not fall into any interval are present in the join with the values from the other data frame set to
+     * null.
+     *
+     * @param other                the data frame to join to
+     * @param thisJoinColumnNames  the names of the columns in this data frame to use as the join keys
+     * @param otherJoinColumnNames the names of the columns in the other data frame to use as the join keys
+     * @param thisValueColumnName  the name of the column in this data frame with the values to match to intervals
+     * @param otherFromColumnName  the name of the column in the other data frame with the interval starts, inclusive
+     * @param otherToColumnName    the name of the column in the other data frame with the interval ends, exclusive
+     * @return a data frame that is a range join of this data frame and the data frame passed as a parameter
+     */
+    public DataFrame leftRangeJoin(
+            DataFrame other,
+            ListIterable<String> thisJoinColumnNames,
+            ListIterable<String> otherJoinColumnNames,
+            String thisValueColumnName,
+            String otherFromColumnName,
+            String otherToColumnName)
+    {
+        return this.rangeJoin(
+                other, thisJoinColumnNames, otherJoinColumnNames,
+                thisValueColumnName, otherFromColumnName, otherToColumnName, true);
+    }
+
+    /**
+     * The rows of this data frame are ordered by their keys and values and the intervals by their keys and starts
+     * (without changing the sort order of the data frames). The intervals are swept in this order: an interval becomes
+     * active once a value reaches its start and is dropped once a value reaches its end, the active intervals are kept
+     * in a heap ordered by their ends, so all the intervals still in the heap after dropping contain the current value.
+     */
+    private DataFrame rangeJoin(
+            DataFrame other,
+            ListIterable<String> thisJoinColumnNames,
+            ListIterable<String> otherJoinColumnNames,
+            String thisValueColumnName,
+            String otherFromColumnName,
+            String otherToColumnName,
+            boolean keepUnmatched)
+    {
+        if (thisJoinColumnNames.size() != otherJoinColumnNames.size())
+        {
+            ErrorReporter.reportAndThrow("Attempting to join dataframes by different number of keys on each side: "
+                    + thisJoinColumnNames.makeString() + " to " + otherJoinColumnNames.makeString());
+        }
+
+        DfColumn thisValueColumn = this.getColumnNamed(thisValueColumnName);
+        DfColumn otherFromColumn = other.getColumnNamed(otherFromColumnName);
+        DfColumn otherToColumn = other.getColumnNamed(otherToColumnName);
+
+        if (thisValueColumn.getType() != otherFromColumn.getType() || thisValueColumn.getType() != otherToColumn.getType())
+        {
+            ErrorReporter.reportAndThrow("Attempting to range join values of " + thisValueColumnName
+                    + " of type " + thisValueColumn.getType() + " to intervals " + otherFromColumnName
+                    + " of type " + otherFromColumn.getType() + " and " + otherToColumnName
+                    + " of type " + otherToColumn.getType());
+        }
+
+        int[] thisOrder = this.sortedRowIndexes(
+                this.rowsToTuples(this.columnsNamed(thisJoinColumnNames.toList().with(thisValueColumnName)))).toArray();
+        int[] otherOrder = other.sortedRowIndexes(
+                other.rowsToTuples(other.columnsNamed(otherJoinColumnNames.toList().with(otherFromColumnName)))).toArray();
+
+        DfTuple[] thisKeys = this.rowsToTuples(this.columnsNamed(thisJoinColumnNames));
+        DfTuple[] otherKeys = other.rowsToTuples(other.columnsNamed(otherJoinColumnNames));
+
+        // a null end means the interval is unbounded, so it is ordered last
+        PriorityQueue<Integer> activeIntervals = new PriorityQueue<>((one, two) -> {
+            Object oneEnd = otherToColumn.getObject(one);
+            Object twoEnd = otherToColumn.getObject(two);
+            if (oneEnd == null || twoEnd == null)
+            {
+                return oneEnd == null ? (twoEnd == null ? 0 : 1) : -1;
+            }
+            return DfTuple.compareMindingNulls(oneEnd, twoEnd);
+        });
+
+        MutableIntList[] matchesByRow = new MutableIntList[this.rowCount];
+
+        DfTuple currentKey = null;
+        int otherPosition = 0;
+        for (int thisRowIndex : thisOrder)
+        {
+            DfTuple thisKey = thisKeys[thisRowIndex];
+            if (currentKey == null || currentKey.compareTo(thisKey) != 0)
+            {
+                currentKey = thisKey;
+                activeIntervals.clear();
+            }
+
+            if (thisValueColumn.isNull(thisRowIndex))
+            {
+                continue;
+            }
+
+            Object value = thisValueColumn.getObject(thisRowIndex);
+
+            while (otherPosition < otherOrder.length && otherKeys[otherOrder[otherPosition]].compareTo(thisKey) < 0)
+            {
+                otherPosition++;
+            }
+
+            while (otherPosition < otherOrder.length
+                    && otherKeys[otherOrder[otherPosition]].compareTo(thisKey) == 0
+                    && DfTuple.compareMindingNulls(otherFromColumn.getObject(otherOrder[otherPosition]), value) <= 0)
+            {
+                activeIntervals.add(otherOrder[otherPosition]);
+                otherPosition++;
+            }
+
+            while (!activeIntervals.isEmpty()
+                    && !otherToColumn.isNull(activeIntervals.peek())
+                    && DfTuple.compareMindingNulls(otherToColumn.getObject(activeIntervals.peek()), value) <= 0)
+            {
+                activeIntervals.poll();
+            }
+
+            if (!activeIntervals.isEmpty())
+            {
+                MutableIntList matches = IntLists.mutable.withInitialCapacity(activeIntervals.size());
+                activeIntervals.forEach(matches::add);
+                matchesByRow[thisRowIndex] = matches.sortThis();
+            }
+        }
+
+        DataFrame joined = this.cloneStructureAsStored(this.getName() + "_" + other.getName());
+
+        MapIterable<String, String> otherColumnNameMap = this.resolveDuplicateNames(
+                this.columns.collect(DfColumn::getName),
+                other.columns.collect(DfColumn::getName));
+
+        ListIterable<DfColumn> otherColumns = other.columns.reject(col -> otherJoinColumnNames.contains(col.getName()));
+        otherColumns.forEach(col -> joined.addColumn(otherColumnNameMap.get(col.getName()), col.getType()));
+
+        int theseColumnCount = this.columnCount();
+        Object[] rowData = new Object[joined.columnCount()];
+
+        for (int i = 0; i < this.rowCount; i++)
+        {
+            int thisRowIndex = this.rowIndexMap(i);
+            MutableIntList matches = matchesByRow[thisRowIndex];
+
+            if (matches == null && !keepUnmatched)
+            {
+                continue;
+            }
+
+            Arrays.fill(rowData, null);
+            this.columns.forEachWithIndex((col, columnIndex) -> rowData[columnIndex] = col.getObject(thisRowIndex));
+
+            if (matches == null)
+            {
+                joined.addRow(rowData);
+            }
+            else
+            {
+                matches.forEach(otherRowIndex -> {
+                    otherColumns.forEachWithIndex((col, columnIndex) ->
+                            rowData[theseColumnCount + columnIndex] = col.getObject(otherRowIndex));
+                    joined.addRow(rowData);
+                });
+            }
+        }
+
+        return joined.seal();
+    }
+
     // todo: do not override sort order (use an external sort)
     private Triplet<DataFrame> join(
             DataFrame other,
@@ -1383,6 +2740,10 @@ public class DataFrame
 
         this.columns.removeAllIterable(columnsToDrop);
         this.columnsByName.removeAllKeys(columnNamesToDrop.toSet());
+        columnNamesToDrop.forEach(this::dropIndexesOn);
+        this.computedColumnReferences = null;
+        this.commonSubexpressionsOutdated = true;
+        this.invalidateComputedColumnCaches();
 
         return this;
     }
@@ -1410,6 +2771,94 @@ public class DataFrame
         return thisColumn.columnComparator(otherColumn);
     }
 
+    /**
+     * Builds an index of the rows of this data frame by the values of the specified columns and keeps it with the data
+     * frame, so that it is reused by the operations looking up rows by these columns: {@link #lookup(DfJoin)} into
+     * this data frame, {@link #semiJoin(DataFrame, ListIterable, ListIterable)} and
+     * {@link #antiJoin(DataFrame, ListIterable, ListIterable)} against this data frame, and
+     * {@link #selectBy(String)} with a filter comparing each of the indexed columns to a constant. The data frame is
+     * expected to be sealed. The index is dropped when the rows of the data frame are added or the values of the
+     * indexed columns change. If an index on these columns already exists, it is returned.
+     *
+     * @param indexByColumnNames the names of the stored columns to index the rows by
+     * @return the index
+     */
+    public DfIndex createIndex(ListIterable<String> indexByColumnNames)
+    {
+        ListIterable<DfColumn> indexByColumns = this.columnsNamed(indexByColumnNames);
+
+        indexByColumns.reject(DfColumn::isStored).forEach(column -> ErrorReporter.reportAndThrow(
+                "Cannot index data frame '" + this.getName() + "' by computed column '" + column.getName() + "'"));
+
+        return this.indexesByColumnNames.getIfAbsentPut(
+                Lists.immutable.withAll(indexByColumnNames),
+                () -> new DfIndex(this, indexByColumnNames));
+    }
+
+    /**
+     * @param indexByColumnNames the names of the indexed columns, in the order they were specified for the index
+     * @return the index on these columns created by {@link #createIndex(ListIterable)} or null if there is no such
+     * index
+     */
+    public DfIndex getIndex(ListIterable<String> indexByColumnNames)
+    {
+        return this.indexesByColumnNames.get(indexByColumnNames);
+    }
+
+    public boolean hasIndex(ListIterable<String> indexByColumnNames)
+    {
+        return this.indexesByColumnNames.containsKey(indexByColumnNames);
+    }
+
+    public void dropIndex(ListIterable<String> indexByColumnNames)
+    {
+        this.indexesByColumnNames.remove(indexByColumnNames);
+    }
+
+    /**
+     * @return the estimated memory used by all the indexes kept with this data frame, in bytes
+     */
+    public long estimatedIndexSizeInBytes()
+    {
+        return this.indexesByColumnNames.sumOfLong(DfIndex::estimatedSizeInBytes);
+    }
+
+    private void rowAdded()
+    {
+        this.rowCount++;
+        this.dropIndexes();
+
+        if (this.computedColumnCachingEnabled)
+        {
+            this.invalidateComputedColumnCaches();
+        }
+    }
+
+    private void dropIndexes()
+    {
+        if (this.indexesByColumnNames.notEmpty())
+        {
+            this.indexesByColumnNames.clear();
+        }
+    }
+
+    private void dropIndexesOn(String columnName)
+    {
+        if (this.indexesByColumnNames.notEmpty())
+        {
+            this.indexesByColumnNames.removeIf((columnNames, index) -> columnNames.contains(columnName));
+        }
+    }
+
+    /**
+     * @return the index kept with this data frame on the specified columns if there is one, otherwise a new index
+     */
+    private DfIndex indexOn(ListIterable<String> indexByColumnNames)
+    {
+        DfIndex index = this.getIndex(indexByColumnNames);
+        return index == null ? new DfIndex(this, indexByColumnNames) : index;
+    }
+
     /**
      * Appends one or more columns to this dataframe based on value lookup in another data frame. If more than one value
      * matches a lookup key, the first matching value is used.
@@ -1421,7 +2870,7 @@ public class DataFrame
     public DataFrame lookup(DfJoin joinDescriptor)
     {
         DataFrame target = joinDescriptor.joinTo();
-        DfIndex index = new DfIndex(target, joinDescriptor.joinToColumnNames());
+        DfIndex index = target.indexOn(joinDescriptor.joinToColumnNames());
 
         ListIterable<DfColumn> columnsToSelectFrom = joinDescriptor
                 .selectFromJoined()
@@ -1434,36 +2883,68 @@ public class DataFrame
 
         ListIterable<DfColumn> addedColumns = joinDescriptor.columnNameAliases().collect(this::getColumnNamed);
 
-        for (int rowIndex = 0; rowIndex < this.rowCount(); rowIndex++)
+        int[] targetRowIndexes = new int[this.rowCount()];
+
+        if (this.rowCount() >= PARALLEL_LOOKUP_MIN_ROW_COUNT && columnsToLookup.allSatisfy(DfColumn::isStored))
+        {
+            int chunkSize = Math.max(1, this.rowCount() / (4 * Runtime.getRuntime().availableProcessors()));
+            runInParallel(IntInterval.fromToBy(0, this.rowCount() - 1, chunkSize).collect(
+                    chunkStart -> () -> findFirstMatches(index, columnsToLookup, targetRowIndexes,
+                            chunkStart, Math.min(chunkStart + chunkSize, this.rowCount()))));
+        }
+        else
         {
-            int finalRowIndex = rowIndex; // to pass as a lambda parameter
+            findFirstMatches(index, columnsToLookup, targetRowIndexes, 0, this.rowCount());
+        }
+
+        ListIterable<Object> valuesIfAbsent = joinDescriptor.valuesIfAbsent();
 
-            ListIterable<Object> lookupKey = columnsToLookup.collect(col -> col.getObject(finalRowIndex));
+        columnsToSelectFrom.forEachWithIndex((selectFrom, columnIndex) -> {
+            DfColumn addTo = addedColumns.get(columnIndex);
+            Object valueIfAbsent = valuesIfAbsent.notEmpty() ? valuesIfAbsent.get(columnIndex) : null;
 
-            IntList found = index.getRowIndicesAtKey(lookupKey);
+            ((DfColumnStored) addTo).ensureInitialCapacity(targetRowIndexes.length);
 
-            if (found.isEmpty())
+            for (int targetRowIndex : targetRowIndexes)
             {
-                // default if specified, otherwise null
-                if (joinDescriptor.valuesIfAbsent().notEmpty())
+                if (targetRowIndex >= 0)
                 {
-                    addedColumns.forEachInBoth(joinDescriptor.valuesIfAbsent(), DfColumn::addObject);
+                    selectFrom.addRowToColumn(targetRowIndex, addTo);
+                }
+                else if (valueIfAbsent == null)
+                {
+                    addTo.addEmptyValue();
                 }
                 else
                 {
-                    addedColumns.forEach(DfColumn::addEmptyValue);
+                    addTo.addObject(valueIfAbsent);
                 }
             }
-            else
-            {
-                // use the first row
-                int targetRowIndex = found.get(0);
+        });
+
+        return this.seal();
+    }
 
-                columnsToSelectFrom.forEachInBoth(addedColumns, (selectFrom, addTo) -> addTo.addObject(selectFrom.getObject(targetRowIndex)));
+    /**
+     * For each row in the range stores the index of the first row in the index's data frame with the matching key, or
+     * -1 if there is no match. The key list is reused for all rows, so no key is allocated per row.
+     */
+    static private void findFirstMatches(
+            DfIndex index, ListIterable<DfColumn> columnsToLookup, int[] targetRowIndexes, int fromRow, int toRow)
+    {
+        MutableList<Object> key = Lists.fixedSize.of(new Object[columnsToLookup.size()]);
+        int keySize = columnsToLookup.size();
+
+        for (int rowIndex = fromRow; rowIndex < toRow; rowIndex++)
+        {
+            for (int i = 0; i < keySize; i++)
+            {
+                key.set(i, columnsToLookup.get(i).getObject(rowIndex));
             }
-        }
 
-        return this.seal();
+            IntList found = index.getRowIndicesAtKey(key);
+            targetRowIndexes[rowIndex] = found.isEmpty() ? -1 : found.get(0);
+        }
     }
 
     public DfJoin lookupIn(DataFrame lookupTarget)
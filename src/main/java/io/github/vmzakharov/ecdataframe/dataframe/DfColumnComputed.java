@@ -15,6 +15,13 @@ extends DfColumn
 
     Expression getExpression();
 
+    /**
+     * Replaces the expression evaluated to compute the values of this column with an equivalent one, e.g., one
+     * sharing subexpressions with other computed columns of the data frame
+     * @param newExpression the expression to evaluate, must produce the same values as the current one
+     */
+    void setExpression(Expression newExpression);
+
     @Override
     default void setObject(int rowIndex, Object anObject)
     {
@@ -24,13 +31,52 @@ extends DfColumn
     @Override
     default Value getValue(int rowIndex)
     {
-        // todo: column in the variable expr or some other optimization?
-        DataFrameEvalContext evalContext = this.getDataFrame().getEvalContext();
+        DataFrame dataFrame = this.getDataFrame();
+        dataFrame.shareCommonSubexpressionsIfNeeded();
+        dataFrame.invalidateCachesOfChangedColumns();
+
+        DataFrameEvalContext evalContext = dataFrame.getEvalContext();
         evalContext.setRowIndex(rowIndex);
 
         return this.getExpression().evaluate(new InMemoryEvaluationVisitor(evalContext));
     }
 
+    /**
+     * @return true if the values of this column are to be materialized and cached on first access, as opposed to
+     * being evaluated every time they are accessed
+     */
+    default boolean isCachingEnabled()
+    {
+        return this.getDataFrame().isComputedColumnCachingEnabled();
+    }
+
+    /**
+     * Discards the cached values of this column, if any, so they are evaluated again the next time they are accessed.
+     */
+    void invalidateCache();
+
+    /**
+     * @return true if the values of this column are currently cached
+     */
+    boolean isCached();
+
+    /**
+     * Creates the storage for the values of this column to be cached in. The data frame then passes the value of each
+     * row to {@link #cacheValue(int, Value)} and calls {@link #finishCaching()}, which allows it to cache the values of
+     * several computed columns in a single pass over the rows.
+     *
+     * @param rowCount the number of rows in the data frame
+     */
+    void startCaching(int rowCount);
+
+    void cacheValue(int rowIndex, Value value);
+
+    /**
+     * Makes the values passed to {@link #cacheValue(int, Value)} since {@link #startCaching(int)} was called the cached
+     * values of this column
+     */
+    void finishCaching();
+
     @Override
     default void addEmptyValue()
     {
@@ -11,6 +11,14 @@ extends DfColumn
 
     void ensureInitialCapacity(int newCapacity);
 
+    /**
+     * Appends all the values of another column of the same type to the end of this column, copying the backing lists
+     * directly when the other column is stored rather than adding its values one row at a time
+     *
+     * @param source the column to append the values of
+     */
+    void addAllValuesFrom(DfColumn source);
+
     @Override
     default void applyAggregator(int targetRowIndex, DfColumn sourceColumn, int sourceRowIndex, AggregateFunction aggregator)
     {
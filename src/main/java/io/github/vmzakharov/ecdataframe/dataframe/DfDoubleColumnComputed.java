@@ -3,6 +3,7 @@ package io.github.vmzakharov.ecdataframe.dataframe;
 import io.github.vmzakharov.ecdataframe.dsl.Expression;
 import io.github.vmzakharov.ecdataframe.dsl.value.DoubleValue;
 import io.github.vmzakharov.ecdataframe.dsl.value.Value;
+import io.github.vmzakharov.ecdataframe.dsl.visitor.OptimizingVisitor;
 import io.github.vmzakharov.ecdataframe.util.ExpressionParserHelper;
 
 public class DfDoubleColumnComputed
@@ -10,19 +11,43 @@ extends DfDoubleColumn
 implements DfColumnComputed
 {
     private final String expressionAsString;
-    private final Expression expression;
+    private Expression expression;
+
+    private double[] cachedValues;
+    private boolean[] cachedNulls;
+    private double[] valuesBeingCached;
+    private boolean[] nullsBeingCached;
 
     public DfDoubleColumnComputed(DataFrame newDataFrame, String newName, String newExpressionAsString)
     {
         super(newDataFrame, newName);
         this.expressionAsString = newExpressionAsString;
 
-        this.expression = ExpressionParserHelper.DEFAULT.toExpressionOrScript(this.expressionAsString);
+        this.expression = OptimizingVisitor.optimizeForComputedColumn(
+                ExpressionParserHelper.DEFAULT.toExpressionOrScript(this.expressionAsString), newDataFrame.getEvalContext());
+    }
+
+    @Override
+    public Value getValue(int rowIndex)
+    {
+        if (this.isCachingEnabled())
+        {
+            this.materializeIfNeeded();
+            return this.cachedNulls[rowIndex] ? Value.VOID : new DoubleValue(this.cachedValues[rowIndex]);
+        }
+
+        return DfColumnComputed.super.getValue(rowIndex);
     }
 
     @Override
     public Object getObject(int rowIndex)
     {
+        if (this.isCachingEnabled())
+        {
+            this.materializeIfNeeded();
+            return this.cachedNulls[rowIndex] ? null : this.cachedValues[rowIndex];
+        }
+
         Value result = this.getValue(rowIndex);
 
         return result.isVoid() ? null : ((DoubleValue) result).doubleValue();
@@ -31,6 +56,18 @@ implements DfColumnComputed
     @Override
     public double getDouble(int rowIndex)
     {
+        if (this.isCachingEnabled())
+        {
+            this.materializeIfNeeded();
+
+            if (this.cachedNulls[rowIndex])
+            {
+                throw new NullPointerException("Null value at " + this.getName() + "[" + rowIndex + "]");
+            }
+
+            return this.cachedValues[rowIndex];
+        }
+
         Value result = this.getValue(rowIndex);
 
         if (result.isVoid())
@@ -65,9 +102,74 @@ implements DfColumnComputed
         return this.expression;
     }
 
+    @Override
+    public void setExpression(Expression newExpression)
+    {
+        this.expression = newExpression;
+        this.invalidateCache();
+    }
+
     @Override
     public boolean isNull(int rowIndex)
     {
+        if (this.isCachingEnabled())
+        {
+            this.materializeIfNeeded();
+            return this.cachedNulls[rowIndex];
+        }
+
         return this.getObject(rowIndex) == null;
     }
+
+    @Override
+    public void invalidateCache()
+    {
+        this.cachedValues = null;
+        this.cachedNulls = null;
+    }
+
+    private void materializeIfNeeded()
+    {
+        this.getDataFrame().invalidateCachesOfChangedColumns();
+
+        if (this.cachedValues == null)
+        {
+            this.getDataFrame().cacheComputedColumnValues(this);
+        }
+    }
+
+    @Override
+    public boolean isCached()
+    {
+        return this.cachedValues != null;
+    }
+
+    @Override
+    public void startCaching(int rowCount)
+    {
+        this.valuesBeingCached = new double[rowCount];
+        this.nullsBeingCached = new boolean[rowCount];
+    }
+
+    @Override
+    public void cacheValue(int rowIndex, Value value)
+    {
+        if (value.isVoid())
+        {
+            this.nullsBeingCached[rowIndex] = true;
+        }
+        else
+        {
+            this.valuesBeingCached[rowIndex] = ((DoubleValue) value).doubleValue();
+        }
+    }
+
+    @Override
+    public void finishCaching()
+    {
+        this.cachedValues = this.valuesBeingCached;
+        this.cachedNulls = this.nullsBeingCached;
+        this.valuesBeingCached = null;
+        this.nullsBeingCached = null;
+    }
 }
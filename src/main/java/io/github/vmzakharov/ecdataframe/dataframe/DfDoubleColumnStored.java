@@ -118,11 +118,14 @@ implements DfColumnStored
         {
             this.values.set(rowIndex, (Double) anObject);
         }
+
+        this.getDataFrame().storedValuesChanged(this.getName());
     }
 
     public void setDouble(int rowIndex, double value)
     {
         this.values.set(rowIndex, value);
+        this.getDataFrame().storedValuesChanged(this.getName());
     }
 
     @Override
@@ -142,9 +145,21 @@ implements DfColumnStored
         this.values = DoubleLists.mutable.withInitialCapacity(newCapacity);
     }
 
+    @Override
+    public void addAllValuesFrom(DfColumn source)
+    {
+        this.addAllItemsFrom((DfDoubleColumn) source);
+    }
+
     @Override
     protected void addAllItemsFrom(DfDoubleColumn doubleColumn)
     {
+        if (doubleColumn.isStored())
+        {
+            this.values.addAll(((DfDoubleColumnStored) doubleColumn).values);
+            return;
+        }
+
         int size = doubleColumn.getSize();
         for (int rowIndex = 0; rowIndex < size; rowIndex++)
         {
@@ -13,16 +13,29 @@ public class DfIndex
 {
     static private final MutableIntList EMPTY_LIST = IntLists.mutable.empty().asUnmodifiable();
 
+    // assumed sizes for estimating memory usage
+    static private final long OBJECT_HEADER_SIZE = 16L;
+    static private final long REFERENCE_SIZE = 8L;
+    static private final long BOXED_VALUE_SIZE = 24L;
+    static private final double MAP_LOAD_FACTOR = 0.75;
+
     private final MutableMap<ListIterable<Object>, MutableIntList> rowIndexByKey = Maps.mutable.of();
+    private final ListIterable<String> indexByColumnNames;
+
+    public DfIndex(DataFrame newIndexedDataFrame, ListIterable<String> newIndexByColumnNames)
+    {
+        this.indexByColumnNames = newIndexByColumnNames;
+        this.buildIndex(newIndexedDataFrame, newIndexByColumnNames);
+    }
 
-    public DfIndex(DataFrame newIndexedDataFrame, ListIterable<String> indexByColumnNames)
+    public ListIterable<String> getIndexByColumnNames()
     {
-        this.buildIndex(newIndexedDataFrame, indexByColumnNames);
+        return this.indexByColumnNames;
     }
 
-    private void buildIndex(DataFrame dataFrame, ListIterable<String> indexByColumnNames)
+    private void buildIndex(DataFrame dataFrame, ListIterable<String> columnNames)
     {
-        ListIterable<DfColumn> indexByColumns = indexByColumnNames.collect(dataFrame::getColumnNamed);
+        ListIterable<DfColumn> indexByColumns = columnNames.collect(dataFrame::getColumnNamed);
 
         int rowCount = dataFrame.rowCount();
         for (int rowIndex = 0; rowIndex < rowCount; rowIndex++)
@@ -39,6 +52,32 @@ public class DfIndex
         return this.rowIndexByKey.getIfAbsent(key, () -> EMPTY_LIST);
     }
 
+    public boolean containsKey(ListIterable<Object> key)
+    {
+        return this.rowIndexByKey.containsKey(key);
+    }
+
+    public int keyCount()
+    {
+        return this.rowIndexByKey.size();
+    }
+
+    /**
+     * Estimates the memory used by this index: the hash table, the keys and the lists of row indices. The values in
+     * the keys are counted unless they are strings, which are usually shared with the indexed data frame.
+     *
+     * @return the estimated size of this index in bytes
+     */
+    public long estimatedSizeInBytes()
+    {
+        long tableSize = OBJECT_HEADER_SIZE + (long) (2 * REFERENCE_SIZE * this.rowIndexByKey.size() / MAP_LOAD_FACTOR);
+
+        return tableSize + this.rowIndexByKey.keyValuesView().sumOfLong(each ->
+                2 * OBJECT_HEADER_SIZE + REFERENCE_SIZE * each.getOne().size()
+                + BOXED_VALUE_SIZE * each.getOne().count(value -> value != null && !(value instanceof String))
+                + 2 * OBJECT_HEADER_SIZE + (long) Integer.BYTES * each.getTwo().size());
+    }
+
     private ListIterable<Object> computeKeyFrom(ListIterable<DfColumn> indexByColumns, int rowIndex)
     {
         MutableList<Object> key = Lists.fixedSize.of(new Object[indexByColumns.size()]);
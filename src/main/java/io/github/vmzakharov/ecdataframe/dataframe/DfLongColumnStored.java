@@ -116,12 +116,16 @@ implements DfColumnStored
             this.values.set(rowIndex, (Long) anObject);
             this.clearNull(rowIndex);
         }
+
+        this.getDataFrame().storedValuesChanged(this.getName());
     }
 
     public void setLong(int rowIndex, long value)
     {
         this.values.set(rowIndex, value);
         this.clearNull(rowIndex);
+
+        this.getDataFrame().storedValuesChanged(this.getName());
     }
 
     @Override
@@ -175,9 +179,22 @@ implements DfColumnStored
         this.nullMap = BooleanLists.mutable.withInitialCapacity(newCapacity);
     }
 
+    @Override
+    public void addAllValuesFrom(DfColumn source)
+    {
+        this.addAllItemsFrom((DfLongColumn) source);
+    }
+
     @Override
     protected void addAllItemsFrom(DfLongColumn longColumn)
     {
+        if (longColumn.isStored())
+        {
+            this.values.addAll(((DfLongColumnStored) longColumn).values);
+            this.nullMap.addAll(((DfLongColumnStored) longColumn).nullMap);
+            return;
+        }
+
         int size = longColumn.getSize();
         for (int rowIndex = 0; rowIndex < size; rowIndex++)
         {
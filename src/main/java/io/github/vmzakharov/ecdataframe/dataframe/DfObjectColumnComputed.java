@@ -1,6 +1,8 @@
 package io.github.vmzakharov.ecdataframe.dataframe;
 
 import io.github.vmzakharov.ecdataframe.dsl.Expression;
+import io.github.vmzakharov.ecdataframe.dsl.value.Value;
+import io.github.vmzakharov.ecdataframe.dsl.visitor.OptimizingVisitor;
 import io.github.vmzakharov.ecdataframe.util.ExpressionParserHelper;
 import org.eclipse.collections.api.list.ImmutableList;
 import org.eclipse.collections.api.list.ListIterable;
@@ -12,13 +14,70 @@ extends DfObjectColumnAbstract<T>
 implements DfColumnComputed
 {
     private final String expressionAsString;
-    private final Expression expression;
+    private Expression expression;
+
+    private Value[] cachedValues;
+    private Value[] valuesBeingCached;
 
     public DfObjectColumnComputed(DataFrame newDataFrame, String newName, String newExpressionAsString)
     {
         super(newDataFrame, newName);
         this.expressionAsString = newExpressionAsString;
-        this.expression = ExpressionParserHelper.DEFAULT.toExpressionOrScript(this.expressionAsString);
+        this.expression = OptimizingVisitor.optimizeForComputedColumn(
+                ExpressionParserHelper.DEFAULT.toExpressionOrScript(this.expressionAsString), newDataFrame.getEvalContext());
+    }
+
+    @Override
+    public Value getValue(int rowIndex)
+    {
+        if (this.isCachingEnabled())
+        {
+            this.materializeIfNeeded();
+            return this.cachedValues[rowIndex];
+        }
+
+        return DfColumnComputed.super.getValue(rowIndex);
+    }
+
+    @Override
+    public void invalidateCache()
+    {
+        this.cachedValues = null;
+    }
+
+    private void materializeIfNeeded()
+    {
+        this.getDataFrame().invalidateCachesOfChangedColumns();
+
+        if (this.cachedValues == null)
+        {
+            this.getDataFrame().cacheComputedColumnValues(this);
+        }
+    }
+
+    @Override
+    public boolean isCached()
+    {
+        return this.cachedValues != null;
+    }
+
+    @Override
+    public void startCaching(int rowCount)
+    {
+        this.valuesBeingCached = new Value[rowCount];
+    }
+
+    @Override
+    public void cacheValue(int rowIndex, Value value)
+    {
+        this.valuesBeingCached[rowIndex] = value;
+    }
+
+    @Override
+    public void finishCaching()
+    {
+        this.cachedValues = this.valuesBeingCached;
+        this.valuesBeingCached = null;
     }
 
     @Override
@@ -56,6 +115,13 @@ implements DfColumnComputed
         return this.expression;
     }
 
+    @Override
+    public void setExpression(Expression newExpression)
+    {
+        this.expression = newExpression;
+        this.invalidateCache();
+    }
+
     @Override
     protected void addAllItems(ListIterable<T> items)
     {
@@ -72,6 +72,7 @@ implements DfColumnStored
     public void setObject(int rowIndex, Object anObject)
     {
         this.values.set(rowIndex, (T) anObject);
+        this.getDataFrame().storedValuesChanged(this.getName());
     }
 
     @Override
@@ -130,9 +131,22 @@ implements DfColumnStored
         this.values = Lists.mutable.withInitialCapacity(newCapacity);
     }
 
+    @Override
+    public void addAllValuesFrom(DfColumn source)
+    {
+        this.addAllItems(source.isStored() ? ((DfObjectColumnStored<T>) source).values : ((DfObjectColumn<T>) source).toList());
+    }
+
     @Override
     protected void addAllItems(ListIterable<T> items)
     {
-        this.values.addAllIterable(items);
+        if (this.pool == null)
+        {
+            this.values.addAllIterable(items);
+        }
+        else
+        {
+            items.each(this::addMyType);
+        }
     }
 }
@@ -0,0 +1,66 @@
+package io.github.vmzakharov.ecdataframe.dataframe;
+
+/**
+ * Accumulates the results of an aggregate function for each group of values when aggregating with grouping, for the
+ * functions whose intermediate state does not fit in a single value of the aggregated column, such as distinct counts.
+ * Groups are identified by their row index in the aggregated data frame, a group may be referenced for the first time
+ * in any of the methods of this interface. Null values are not passed to the accumulator: if a group contains a null
+ * value, the result of aggregation for this group is null.
+ * <p>
+ * Accumulators created by the same aggregate function can be merged, so that parts of a data set can be aggregated
+ * separately and the results combined afterwards.
+ */
+public interface GroupAccumulator
+{
+    default void accumulateLong(int groupIndex, long value)
+    {
+        ErrorReporter.unsupported("Accumulating long values is not supported");
+    }
+
+    default void accumulateDouble(int groupIndex, double value)
+    {
+        ErrorReporter.unsupported("Accumulating double values is not supported");
+    }
+
+    default void accumulateObject(int groupIndex, Object value)
+    {
+        ErrorReporter.unsupported("Accumulating non-numeric values is not supported");
+    }
+
+    /**
+     * Accumulates the value of the source column at the source row into the group, the value is not null. The
+     * functions that need more than the value, such as the values of other columns in the same row, override this
+     * method.
+     *
+     * @param groupIndex the group to accumulate the value into
+     * @param sourceColumn the column being aggregated
+     * @param sourceRowIndex the row of the value to accumulate
+     */
+    default void accumulate(int groupIndex, DfColumn sourceColumn, int sourceRowIndex)
+    {
+        if (sourceColumn.getType().isLong())
+        {
+            this.accumulateLong(groupIndex, ((DfLongColumn) sourceColumn).getLong(sourceRowIndex));
+        }
+        else if (sourceColumn.getType().isDouble())
+        {
+            this.accumulateDouble(groupIndex, ((DfDoubleColumn) sourceColumn).getDouble(sourceRowIndex));
+        }
+        else
+        {
+            this.accumulateObject(groupIndex, sourceColumn.getObject(sourceRowIndex));
+        }
+    }
+
+    /**
+     * Combines the state of a group of another accumulator with the state of a group of this accumulator, the result
+     * is the same as if all the values accumulated in both groups were accumulated in the group of this accumulator.
+     *
+     * @param groupIndex the group of this accumulator to merge into
+     * @param other an accumulator created by the same aggregate function
+     * @param otherGroupIndex the group of the other accumulator to merge from
+     */
+    void merge(int groupIndex, GroupAccumulator other, int otherGroupIndex);
+
+    Object getResult(int groupIndex);
+}
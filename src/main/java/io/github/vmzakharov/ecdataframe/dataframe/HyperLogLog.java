@@ -0,0 +1,238 @@
+package io.github.vmzakharov.ecdataframe.dataframe;
+
+import org.eclipse.collections.api.set.primitive.MutableLongSet;
+import org.eclipse.collections.impl.factory.primitive.LongSets;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * A HyperLogLog sketch estimating the number of distinct values added to it using a bounded amount of memory: 2 to the
+ * power of <code>precision</code> bytes. The relative standard error of the estimate is about 1.04 divided by the
+ * square root of that number, e.g. 0.8% for the precision of 14. Sketches with the same precision can be merged, the
+ * result is the same as if all the values were added to a single sketch.
+ * <p>
+ * A sketch starts out sparse, keeping the distinct hashes of the values added to it, which are counted exactly, and
+ * switches to the registers once keeping the hashes would take about as much memory as the registers. This way the
+ * sketches for the many small groups of an aggregation do not each take the full amount of memory.
+ */
+final public class HyperLogLog
+{
+    static public final int MIN_PRECISION = 4;
+    static public final int MAX_PRECISION = 18;
+
+    static private final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    static private final long FNV_OFFSET_BASIS = 0xCBF29CE484222325L;
+    static private final long FNV_PRIME = 0x100000001B3L;
+
+    private final int precision;
+    private final int sparseCapacity;
+
+    private MutableLongSet hashes = LongSets.mutable.empty();
+    private byte[] registers;
+
+    public HyperLogLog(int newPrecision)
+    {
+        if (newPrecision < MIN_PRECISION || newPrecision > MAX_PRECISION)
+        {
+            ErrorReporter.reportAndThrow("HyperLogLog precision must be between " + MIN_PRECISION + " and "
+                    + MAX_PRECISION + ", was " + newPrecision);
+        }
+
+        this.precision = newPrecision;
+
+        // a hash set takes about 16 bytes per long element
+        this.sparseCapacity = (1 << newPrecision) / 16;
+    }
+
+    public int getPrecision()
+    {
+        return this.precision;
+    }
+
+    public void addLong(long value)
+    {
+        this.addHash(mix(value));
+    }
+
+    public void addDouble(double value)
+    {
+        this.addHash(mix(Double.doubleToLongBits(value)));
+    }
+
+    /**
+     * Adds an object using a 64-bit hash of its value rather than the 32-bit <code>hashCode()</code> to keep collisions
+     * rare. Objects other than strings, numbers, dates, and date/times are hashed by their string representations.
+     */
+    public void addObject(Object value)
+    {
+        if (value instanceof String)
+        {
+            this.addHash(mix(hashOf((String) value)));
+        }
+        else if (value instanceof Double || value instanceof Float)
+        {
+            this.addDouble(((Number) value).doubleValue());
+        }
+        else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte)
+        {
+            this.addLong(((Number) value).longValue());
+        }
+        else if (value instanceof LocalDate)
+        {
+            this.addHash(mix(((LocalDate) value).toEpochDay()));
+        }
+        else if (value instanceof LocalDateTime)
+        {
+            LocalDateTime dateTime = (LocalDateTime) value;
+            this.addHash(mix(mix(dateTime.toEpochSecond(ZoneOffset.UTC)) + dateTime.getNano()));
+        }
+        else
+        {
+            this.addHash(mix(hashOf(value.toString())));
+        }
+    }
+
+    /**
+     * Adds the values added to another sketch to this sketch
+     *
+     * @param other a sketch with the same precision as this one
+     */
+    public void merge(HyperLogLog other)
+    {
+        if (other.precision != this.precision)
+        {
+            ErrorReporter.reportAndThrow("Cannot merge HyperLogLog sketches of different precision: "
+                    + this.precision + " and " + other.precision);
+        }
+
+        if (other.isSparse())
+        {
+            other.hashes.forEach(this::addHash);
+            return;
+        }
+
+        if (this.isSparse())
+        {
+            this.switchToRegisters();
+        }
+
+        for (int i = 0; i < this.registers.length; i++)
+        {
+            if (other.registers[i] > this.registers[i])
+            {
+                this.registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    /**
+     * @return the estimated number of distinct values added to this sketch
+     */
+    public long estimate()
+    {
+        if (this.isSparse())
+        {
+            return this.hashes.size();
+        }
+
+        int registerCount = this.registers.length;
+
+        double sum = 0.0;
+        int zeroRegisterCount = 0;
+        for (byte register : this.registers)
+        {
+            sum += 1.0 / (1L << register);
+            if (register == 0)
+            {
+                zeroRegisterCount++;
+            }
+        }
+
+        double estimate = this.alpha() * registerCount * registerCount / sum;
+
+        if (estimate <= 2.5 * registerCount && zeroRegisterCount > 0)
+        {
+            // small cardinalities are estimated better by linear counting
+            estimate = registerCount * Math.log((double) registerCount / zeroRegisterCount);
+        }
+
+        return Math.round(estimate);
+    }
+
+    private double alpha()
+    {
+        switch (this.registers.length)
+        {
+            case 16:
+                return 0.673;
+            case 32:
+                return 0.697;
+            case 64:
+                return 0.709;
+            default:
+                return 0.7213 / (1.0 + 1.079 / this.registers.length);
+        }
+    }
+
+    private boolean isSparse()
+    {
+        return this.registers == null;
+    }
+
+    private void switchToRegisters()
+    {
+        this.registers = new byte[1 << this.precision];
+        this.hashes.forEach(this::addHashToRegisters);
+        this.hashes = null;
+    }
+
+    private void addHash(long hash)
+    {
+        if (this.isSparse())
+        {
+            this.hashes.add(hash);
+            if (this.hashes.size() > this.sparseCapacity)
+            {
+                this.switchToRegisters();
+            }
+        }
+        else
+        {
+            this.addHashToRegisters(hash);
+        }
+    }
+
+    private void addHashToRegisters(long hash)
+    {
+        int registerIndex = (int) (hash >>> (Long.SIZE - this.precision));
+
+        // the position of the leftmost 1 in the remaining bits, the added 1 bit bounds it if they are all zeroes
+        byte rank = (byte) (Long.numberOfLeadingZeros((hash << this.precision) | (1L << (this.precision - 1))) + 1);
+
+        if (rank > this.registers[registerIndex])
+        {
+            this.registers[registerIndex] = rank;
+        }
+    }
+
+    static private long hashOf(String string)
+    {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < string.length(); i++)
+        {
+            hash = (hash ^ string.charAt(i)) * FNV_PRIME;
+        }
+
+        return hash;
+    }
+
+    static private long mix(long value)
+    {
+        long z = value + GOLDEN_GAMMA;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,461 @@
+package io.github.vmzakharov.ecdataframe.dataframe;
+
+import org.eclipse.collections.api.LazyIntIterable;
+import org.eclipse.collections.api.block.function.primitive.IntToObjectFunction;
+import org.eclipse.collections.api.block.function.primitive.ObjectIntIntToObjectFunction;
+import org.eclipse.collections.api.block.function.primitive.ObjectIntToObjectFunction;
+import org.eclipse.collections.api.block.predicate.primitive.IntPredicate;
+import org.eclipse.collections.api.block.procedure.primitive.IntIntProcedure;
+import org.eclipse.collections.api.block.procedure.primitive.IntProcedure;
+import org.eclipse.collections.api.iterator.IntIterator;
+import org.eclipse.collections.api.list.MutableList;
+import org.eclipse.collections.api.list.primitive.ImmutableIntList;
+import org.eclipse.collections.api.list.primitive.IntList;
+import org.eclipse.collections.api.list.primitive.MutableIntList;
+import org.eclipse.collections.api.set.primitive.MutableIntSet;
+import org.eclipse.collections.impl.factory.Lists;
+import org.eclipse.collections.impl.factory.primitive.IntLists;
+import org.eclipse.collections.impl.factory.primitive.IntSets;
+import org.eclipse.collections.impl.lazy.primitive.ReverseIntIterable;
+import org.eclipse.collections.impl.primitive.AbstractIntIterable;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+
+/**
+ * A read only list view of a range of elements of an int array. The array is not copied, so the view reflects any
+ * changes to the array, which are not expected.
+ */
+final class IntArraySlice
+extends AbstractIntIterable
+implements IntList
+{
+    private final int[] items;
+    private final int from;
+    private final int to;
+
+    /**
+     * @param newItems the array to create a view of
+     * @param newFrom the index of the first element of the range, inclusive
+     * @param newTo the index of the last element of the range, exclusive
+     */
+    IntArraySlice(int[] newItems, int newFrom, int newTo)
+    {
+        this.items = newItems;
+        this.from = newFrom;
+        this.to = newTo;
+    }
+
+    @Override
+    public int size()
+    {
+        return this.to - this.from;
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return this.to == this.from;
+    }
+
+    @Override
+    public boolean notEmpty()
+    {
+        return this.to != this.from;
+    }
+
+    @Override
+    public int get(int index)
+    {
+        if (index < 0 || index >= this.size())
+        {
+            throw new IndexOutOfBoundsException("Index: " + index + " Size: " + this.size());
+        }
+
+        return this.items[this.from + index];
+    }
+
+    @Override
+    public int getFirst()
+    {
+        return this.get(0);
+    }
+
+    @Override
+    public int getLast()
+    {
+        return this.get(this.size() - 1);
+    }
+
+    @Override
+    public IntIterator intIterator()
+    {
+        return new IntIterator()
+        {
+            private int nextIndex = IntArraySlice.this.from;
+
+            @Override
+            public int next()
+            {
+                if (!this.hasNext())
+                {
+                    throw new NoSuchElementException();
+                }
+
+                return IntArraySlice.this.items[this.nextIndex++];
+            }
+
+            @Override
+            public boolean hasNext()
+            {
+                return this.nextIndex < IntArraySlice.this.to;
+            }
+        };
+    }
+
+    @Override
+    public int[] toArray()
+    {
+        return Arrays.copyOfRange(this.items, this.from, this.to);
+    }
+
+    @Override
+    public boolean contains(int value)
+    {
+        return this.indexOf(value) >= 0;
+    }
+
+    @Override
+    public int indexOf(int value)
+    {
+        for (int i = this.from; i < this.to; i++)
+        {
+            if (this.items[i] == value)
+            {
+                return i - this.from;
+            }
+        }
+
+        return -1;
+    }
+
+    @Override
+    public int lastIndexOf(int value)
+    {
+        for (int i = this.to - 1; i >= this.from; i--)
+        {
+            if (this.items[i] == value)
+            {
+                return i - this.from;
+            }
+        }
+
+        return -1;
+    }
+
+    @Override
+    public int binarySearch(int value)
+    {
+        int found = Arrays.binarySearch(this.items, this.from, this.to, value);
+        return found >= 0 ? found - this.from : found + this.from;
+    }
+
+    @Override
+    public void forEach(IntProcedure procedure)
+    {
+        this.each(procedure);
+    }
+
+    @Override
+    public void each(IntProcedure procedure)
+    {
+        for (int i = this.from; i < this.to; i++)
+        {
+            procedure.value(this.items[i]);
+        }
+    }
+
+    @Override
+    public void forEachWithIndex(IntIntProcedure procedure)
+    {
+        for (int i = this.from; i < this.to; i++)
+        {
+            procedure.value(this.items[i], i - this.from);
+        }
+    }
+
+    @Override
+    public <T> T injectInto(T injectedValue, ObjectIntToObjectFunction<? super T, ? extends T> function)
+    {
+        T result = injectedValue;
+        for (int i = this.from; i < this.to; i++)
+        {
+            result = function.valueOf(result, this.items[i]);
+        }
+
+        return result;
+    }
+
+    @Override
+    public <T> T injectIntoWithIndex(T injectedValue, ObjectIntIntToObjectFunction<? super T, ? extends T> function)
+    {
+        T result = injectedValue;
+        for (int i = this.from; i < this.to; i++)
+        {
+            result = function.valueOf(result, this.items[i], i - this.from);
+        }
+
+        return result;
+    }
+
+    @Override
+    public int detectIfNone(IntPredicate predicate, int ifNone)
+    {
+        for (int i = this.from; i < this.to; i++)
+        {
+            if (predicate.accept(this.items[i]))
+            {
+                return this.items[i];
+            }
+        }
+
+        return ifNone;
+    }
+
+    @Override
+    public int count(IntPredicate predicate)
+    {
+        int count = 0;
+        for (int i = this.from; i < this.to; i++)
+        {
+            if (predicate.accept(this.items[i]))
+            {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    @Override
+    public boolean anySatisfy(IntPredicate predicate)
+    {
+        return this.count(predicate) > 0;
+    }
+
+    @Override
+    public boolean allSatisfy(IntPredicate predicate)
+    {
+        return this.count(predicate) == this.size();
+    }
+
+    @Override
+    public boolean noneSatisfy(IntPredicate predicate)
+    {
+        return !this.anySatisfy(predicate);
+    }
+
+    @Override
+    public long sum()
+    {
+        long sum = 0L;
+        for (int i = this.from; i < this.to; i++)
+        {
+            sum += this.items[i];
+        }
+
+        return sum;
+    }
+
+    @Override
+    public int max()
+    {
+        if (this.isEmpty())
+        {
+            throw new NoSuchElementException();
+        }
+
+        int max = this.items[this.from];
+        for (int i = this.from + 1; i < this.to; i++)
+        {
+            max = Math.max(max, this.items[i]);
+        }
+
+        return max;
+    }
+
+    @Override
+    public int min()
+    {
+        if (this.isEmpty())
+        {
+            throw new NoSuchElementException();
+        }
+
+        int min = this.items[this.from];
+        for (int i = this.from + 1; i < this.to; i++)
+        {
+            min = Math.min(min, this.items[i]);
+        }
+
+        return min;
+    }
+
+    @Override
+    public long dotProduct(IntList list)
+    {
+        if (this.size() != list.size())
+        {
+            throw new IllegalArgumentException("Lists used in dotProduct must be the same size");
+        }
+
+        long sum = 0L;
+        for (int i = 0; i < this.size(); i++)
+        {
+            sum += (long) this.items[this.from + i] * list.get(i);
+        }
+
+        return sum;
+    }
+
+    @Override
+    public MutableIntList select(IntPredicate predicate)
+    {
+        MutableIntList result = IntLists.mutable.empty();
+        this.each(each -> {
+            if (predicate.accept(each))
+            {
+                result.add(each);
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public MutableIntList reject(IntPredicate predicate)
+    {
+        return this.select(each -> !predicate.accept(each));
+    }
+
+    @Override
+    public <V> MutableList<V> collect(IntToObjectFunction<? extends V> function)
+    {
+        MutableList<V> result = Lists.mutable.withInitialCapacity(this.size());
+        this.each(each -> result.add(function.valueOf(each)));
+        return result;
+    }
+
+    @Override
+    public MutableIntList distinct()
+    {
+        MutableIntSet seen = IntSets.mutable.empty();
+        return this.select(seen::add);
+    }
+
+    @Override
+    public MutableIntList toReversed()
+    {
+        MutableIntList result = IntLists.mutable.withInitialCapacity(this.size());
+        for (int i = this.to - 1; i >= this.from; i--)
+        {
+            result.add(this.items[i]);
+        }
+        return result;
+    }
+
+    @Override
+    public LazyIntIterable asReversed()
+    {
+        return ReverseIntIterable.adapt(this);
+    }
+
+    @Override
+    public IntList subList(int fromIndex, int toIndex)
+    {
+        if (fromIndex < 0 || toIndex > this.size() || fromIndex > toIndex)
+        {
+            throw new IndexOutOfBoundsException("From: " + fromIndex + " To: " + toIndex + " Size: " + this.size());
+        }
+
+        return new IntArraySlice(this.items, this.from + fromIndex, this.from + toIndex);
+    }
+
+    @Override
+    public ImmutableIntList toImmutable()
+    {
+        return IntLists.immutable.with(this.toArray());
+    }
+
+    @Override
+    public Spliterator.OfInt spliterator()
+    {
+        return Spliterators.spliterator(this.items, this.from, this.to, Spliterator.ORDERED | Spliterator.IMMUTABLE);
+    }
+
+    @Override
+    public void appendString(Appendable appendable, String start, String separator, String end)
+    {
+        try
+        {
+            appendable.append(start);
+            for (int i = this.from; i < this.to; i++)
+            {
+                if (i > this.from)
+                {
+                    appendable.append(separator);
+                }
+                appendable.append(String.valueOf(this.items[i]));
+            }
+            appendable.append(end);
+        }
+        catch (IOException e)
+        {
+            ErrorReporter.reportAndThrow("Failed to append the elements of a list", e);
+        }
+    }
+
+    @Override
+    public boolean equals(Object other)
+    {
+        if (this == other)
+        {
+            return true;
+        }
+
+        if (!(other instanceof IntList))
+        {
+            return false;
+        }
+
+        IntList otherList = (IntList) other;
+        if (this.size() != otherList.size())
+        {
+            return false;
+        }
+
+        for (int i = 0; i < this.size(); i++)
+        {
+            if (this.items[this.from + i] != otherList.get(i))
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        int hashCode = 1;
+        for (int i = this.from; i < this.to; i++)
+        {
+            hashCode = 31 * hashCode + this.items[i];
+        }
+
+        return hashCode;
+    }
+}
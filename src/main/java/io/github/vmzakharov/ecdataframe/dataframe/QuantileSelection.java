@@ -0,0 +1,164 @@
+package io.github.vmzakharov.ecdataframe.dataframe;
+
+/**
+ * Finds exact percentiles of primitive values without sorting them, by selecting the value of the required rank in
+ * expected linear time. A percentile falling between two values is linearly interpolated between them (the same
+ * definition as in most spreadsheets). The values are reordered in the process.
+ */
+final class QuantileSelection
+{
+    private QuantileSelection()
+    {
+        // Utility class should not have a public constructor
+    }
+
+    static double percentileOf(double[] values, int size, double percentile)
+    {
+        double rank = (size - 1) * percentile / 100.0;
+        int lowerRank = (int) rank;
+
+        double lower = select(values, size, lowerRank);
+
+        if (lowerRank == rank)
+        {
+            return lower;
+        }
+
+        // the values after the selected one are not less than it, so the next value is the smallest of them
+        double upper = values[lowerRank + 1];
+        for (int i = lowerRank + 2; i < size; i++)
+        {
+            upper = Math.min(upper, values[i]);
+        }
+
+        return lower + (upper - lower) * (rank - lowerRank);
+    }
+
+    static long percentileOf(long[] values, int size, double percentile)
+    {
+        double rank = (size - 1) * percentile / 100.0;
+        int lowerRank = (int) rank;
+
+        long lower = select(values, size, lowerRank);
+
+        if (lowerRank == rank)
+        {
+            return lower;
+        }
+
+        long upper = values[lowerRank + 1];
+        for (int i = lowerRank + 2; i < size; i++)
+        {
+            upper = Math.min(upper, values[i]);
+        }
+
+        return lower + Math.round((upper - lower) * (rank - lowerRank));
+    }
+
+    /**
+     * Three way partitioning quickselect, so that repeated values do not degrade the performance
+     */
+    static private double select(double[] values, int size, int rank)
+    {
+        int left = 0;
+        int right = size - 1;
+
+        while (left < right)
+        {
+            double pivot = values[left + (right - left) / 2];
+
+            int less = left;
+            int greater = right;
+            int i = left;
+            while (i <= greater)
+            {
+                if (values[i] < pivot)
+                {
+                    swap(values, less++, i++);
+                }
+                else if (values[i] > pivot)
+                {
+                    swap(values, i, greater--);
+                }
+                else
+                {
+                    i++;
+                }
+            }
+
+            if (rank < less)
+            {
+                right = less - 1;
+            }
+            else if (rank > greater)
+            {
+                left = greater + 1;
+            }
+            else
+            {
+                return pivot;
+            }
+        }
+
+        return values[rank];
+    }
+
+    static private long select(long[] values, int size, int rank)
+    {
+        int left = 0;
+        int right = size - 1;
+
+        while (left < right)
+        {
+            long pivot = values[left + (right - left) / 2];
+
+            int less = left;
+            int greater = right;
+            int i = left;
+            while (i <= greater)
+            {
+                if (values[i] < pivot)
+                {
+                    swap(values, less++, i++);
+                }
+                else if (values[i] > pivot)
+                {
+                    swap(values, i, greater--);
+                }
+                else
+                {
+                    i++;
+                }
+            }
+
+            if (rank < less)
+            {
+                right = less - 1;
+            }
+            else if (rank > greater)
+            {
+                left = greater + 1;
+            }
+            else
+            {
+                return pivot;
+            }
+        }
+
+        return values[rank];
+    }
+
+    static private void swap(double[] values, int i, int j)
+    {
+        double value = values[i];
+        values[i] = values[j];
+        values[j] = value;
+    }
+
+    static private void swap(long[] values, int i, int j)
+    {
+        long value = values[i];
+        values[i] = values[j];
+        values[j] = value;
+    }
+}
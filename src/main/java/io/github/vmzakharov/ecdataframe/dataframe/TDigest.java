@@ -0,0 +1,235 @@
+package io.github.vmzakharov.ecdataframe.dataframe;
+
+import java.util.Arrays;
+
+/**
+ * A t-digest sketch estimating quantiles of the values added to it using bounded memory. The values are summarized as
+ * a sorted list of centroids (a mean and a number of values each), centroids near the tails of the distribution are
+ * kept smaller, so extreme quantiles (e.g. p99) are estimated more accurately than the ones near the median. The
+ * number of centroids is proportional to the <code>compression</code> parameter: higher values give more accurate
+ * estimates using more memory. Sketches can be merged, so that parts of a data set can be summarized separately.
+ */
+final public class TDigest
+{
+    static public final double DEFAULT_COMPRESSION = 100.0;
+
+    static private final int BUFFER_SIZE_PER_COMPRESSION = 5;
+
+    private final double compression;
+
+    private double[] means = new double[0];
+    private double[] weights = new double[0];
+    private int centroidCount = 0;
+
+    // newly added values are buffered and merged into the centroids in batches
+    private final double[] buffer;
+    private int bufferCount = 0;
+
+    private double totalWeight = 0.0;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public TDigest()
+    {
+        this(DEFAULT_COMPRESSION);
+    }
+
+    public TDigest(double newCompression)
+    {
+        if (!(newCompression >= 1.0))
+        {
+            ErrorReporter.reportAndThrow("t-digest compression must be at least 1, was " + newCompression);
+        }
+
+        this.compression = newCompression;
+        this.buffer = new double[(int) Math.ceil(newCompression * BUFFER_SIZE_PER_COMPRESSION)];
+    }
+
+    public double getCompression()
+    {
+        return this.compression;
+    }
+
+    public void add(double value)
+    {
+        if (this.bufferCount == this.buffer.length)
+        {
+            this.flushBuffer();
+        }
+
+        this.buffer[this.bufferCount++] = value;
+        this.totalWeight++;
+        this.min = Math.min(this.min, value);
+        this.max = Math.max(this.max, value);
+    }
+
+    /**
+     * Adds the values summarized by another sketch to this sketch
+     *
+     * @param other the sketch to merge into this one
+     */
+    public void merge(TDigest other)
+    {
+        if (other == this || other.totalWeight == 0.0)
+        {
+            return;
+        }
+
+        other.flushBuffer();
+        this.flushBuffer();
+
+        this.totalWeight += other.totalWeight;
+        this.min = Math.min(this.min, other.min);
+        this.max = Math.max(this.max, other.max);
+
+        this.mergeCentroids(other.means, other.weights, other.centroidCount);
+    }
+
+    public long size()
+    {
+        return (long) this.totalWeight;
+    }
+
+    /**
+     * @param quantile the quantile to estimate, between 0 and 1
+     * @return the estimated value of the quantile or NaN if no values have been added to this sketch
+     */
+    public double quantile(double quantile)
+    {
+        if (quantile < 0.0 || quantile > 1.0)
+        {
+            ErrorReporter.reportAndThrow("Quantile must be between 0 and 1, was " + quantile);
+        }
+
+        this.flushBuffer();
+
+        if (this.centroidCount == 0)
+        {
+            return Double.NaN;
+        }
+
+        if (this.centroidCount == 1)
+        {
+            return this.means[0];
+        }
+
+        double index = quantile * this.totalWeight;
+
+        if (index < 1.0)
+        {
+            return this.min;
+        }
+
+        if (index > this.totalWeight - 1.0)
+        {
+            return this.max;
+        }
+
+        // the minimum is the first value and the mean of the first centroid is in the middle of its values
+        double firstHalfWeight = this.weights[0] / 2.0;
+        if (index < firstHalfWeight)
+        {
+            return this.min + (index - 1.0) / (firstHalfWeight - 1.0) * (this.means[0] - this.min);
+        }
+
+        double weightSoFar = firstHalfWeight;
+        for (int i = 0; i < this.centroidCount - 1; i++)
+        {
+            double distanceToNext = (this.weights[i] + this.weights[i + 1]) / 2.0;
+            if (weightSoFar + distanceToNext > index)
+            {
+                double fraction = (index - weightSoFar) / distanceToNext;
+                return this.means[i] + fraction * (this.means[i + 1] - this.means[i]);
+            }
+            weightSoFar += distanceToNext;
+        }
+
+        double lastMean = this.means[this.centroidCount - 1];
+        double lastHalfWeight = this.weights[this.centroidCount - 1] / 2.0;
+        if (lastHalfWeight <= 1.0)
+        {
+            return lastMean;
+        }
+
+        return lastMean + (index - weightSoFar) / (lastHalfWeight - 1.0) * (this.max - lastMean);
+    }
+
+    private void flushBuffer()
+    {
+        if (this.bufferCount == 0)
+        {
+            return;
+        }
+
+        Arrays.sort(this.buffer, 0, this.bufferCount);
+        this.mergeCentroids(this.buffer, null, this.bufferCount);
+        this.bufferCount = 0;
+    }
+
+    /**
+     * Merges sorted centroids with the centroids of this sketch and then combines adjacent centroids as long as they
+     * stay under the size limit for their position in the distribution.
+     *
+     * @param otherWeights the weights of the centroids, <code>null</code> if they are all one
+     */
+    private void mergeCentroids(double[] otherMeans, double[] otherWeights, int otherCount)
+    {
+        int count = this.centroidCount + otherCount;
+        double[] newMeans = new double[count];
+        double[] newWeights = new double[count];
+
+        int thisIndex = 0;
+        int otherIndex = 0;
+        for (int i = 0; i < count; i++)
+        {
+            if (otherIndex == otherCount || thisIndex < this.centroidCount && this.means[thisIndex] <= otherMeans[otherIndex])
+            {
+                newMeans[i] = this.means[thisIndex];
+                newWeights[i] = this.weights[thisIndex];
+                thisIndex++;
+            }
+            else
+            {
+                newMeans[i] = otherMeans[otherIndex];
+                newWeights[i] = otherWeights == null ? 1.0 : otherWeights[otherIndex];
+                otherIndex++;
+            }
+        }
+
+        // the combined centroids are built in place, the last one is at lastIndex
+        int lastIndex = 0;
+        double weightSoFar = 0.0;
+        for (int i = 1; i < count; i++)
+        {
+            double proposedWeight = newWeights[lastIndex] + newWeights[i];
+            double lowerQuantile = weightSoFar / this.totalWeight;
+            double upperQuantile = (weightSoFar + proposedWeight) / this.totalWeight;
+
+            if (proposedWeight <= this.totalWeight * Math.min(this.sizeLimit(lowerQuantile), this.sizeLimit(upperQuantile)))
+            {
+                newMeans[lastIndex] += (newMeans[i] - newMeans[lastIndex]) * newWeights[i] / proposedWeight;
+                newWeights[lastIndex] = proposedWeight;
+            }
+            else
+            {
+                weightSoFar += newWeights[lastIndex];
+                lastIndex++;
+                newMeans[lastIndex] = newMeans[i];
+                newWeights[lastIndex] = newWeights[i];
+            }
+        }
+
+        this.means = newMeans;
+        this.weights = newWeights;
+        this.centroidCount = count == 0 ? 0 : lastIndex + 1;
+    }
+
+    /**
+     * The largest share of all values a centroid may have at the given quantile, it is zero at the extremes so that
+     * the minimum and the maximum values always stay in centroids of their own
+     */
+    private double sizeLimit(double quantile)
+    {
+        return 4.0 * quantile * (1.0 - quantile) / this.compression;
+    }
+}
@@ -0,0 +1,127 @@
+package io.github.vmzakharov.ecdataframe.dataframe;
+
+import io.github.vmzakharov.ecdataframe.dsl.value.ValueType;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Compares the values of the columns used as time axes and the time distances between them to a range or a tolerance.
+ * The values of long columns are used as they are, the distances between dates and date/times are compared to ranges
+ * specified as {@link java.time.Duration}s converted to nanoseconds. The dates and date/times are not converted to
+ * nanoseconds since the epoch themselves, as that overflows a <code>long</code> for the dates more than 292 years away
+ * from 1970, instead they are compared as days or seconds and nanoseconds.
+ */
+final class TimeKeys
+{
+    static private final long NANOS_PER_SECOND = 1_000_000_000L;
+    static private final long NANOS_PER_DAY = 86_400L * NANOS_PER_SECOND;
+
+    private TimeKeys()
+    {
+        // Utility class should not have a public constructor
+    }
+
+    /**
+     * @param type the type of a time column
+     * @param measuredByDuration true if the distances along the time axis are specified as durations, false if they
+     *                           are specified as numbers
+     * @return true if a column of this type can be used as a time axis with distances specified this way
+     */
+    static boolean isTimeType(ValueType type, boolean measuredByDuration)
+    {
+        return measuredByDuration ? type.isDate() || type.isDateTime() : type.isLong();
+    }
+
+    static void checkTimeColumn(DfColumn column, boolean measuredByDuration, String operation)
+    {
+        if (!isTimeType(column.getType(), measuredByDuration))
+        {
+            ErrorReporter.reportAndThrow(
+                    operation + " with a " + (measuredByDuration ? "duration" : "numeric distance")
+                    + " cannot use time column " + column.getName() + " of type " + column.getType());
+        }
+    }
+
+    /**
+     * Compares the times in two rows, the columns must be of the same type and the values must not be null
+     *
+     * @return a negative number, zero, or a positive number if the first time is before, the same as, or after the
+     * second one
+     */
+    static int compare(DfColumn column, int rowIndex, DfColumn otherColumn, int otherRowIndex)
+    {
+        ValueType type = column.getType();
+
+        if (type.isLong())
+        {
+            return Long.compare(
+                    ((DfLongColumn) column).getLong(rowIndex), ((DfLongColumn) otherColumn).getLong(otherRowIndex));
+        }
+
+        if (type.isDate())
+        {
+            return ((LocalDate) column.getObject(rowIndex)).compareTo((LocalDate) otherColumn.getObject(otherRowIndex));
+        }
+
+        return ((LocalDateTime) column.getObject(rowIndex)).compareTo((LocalDateTime) otherColumn.getObject(otherRowIndex));
+    }
+
+    /**
+     * Compares the distance from the time in the second row to the time in the first one to the specified range, the
+     * columns must be of the same type and the values must not be null
+     *
+     * @param range the range to compare the distance to, in nanoseconds for dates and date/times
+     * @return a negative number, zero, or a positive number if the distance is less than, equal to, or greater than
+     * the range
+     */
+    static int compareDistance(DfColumn column, int rowIndex, DfColumn otherColumn, int otherRowIndex, long range)
+    {
+        ValueType type = column.getType();
+
+        if (type.isLong())
+        {
+            return Long.compare(
+                    ((DfLongColumn) column).getLong(rowIndex) - ((DfLongColumn) otherColumn).getLong(otherRowIndex), range);
+        }
+
+        if (type.isDate())
+        {
+            long days = ((LocalDate) column.getObject(rowIndex)).toEpochDay()
+                    - ((LocalDate) otherColumn.getObject(otherRowIndex)).toEpochDay();
+
+            return compareDistance(days, 0L, NANOS_PER_DAY, range);
+        }
+
+        LocalDateTime dateTime = (LocalDateTime) column.getObject(rowIndex);
+        LocalDateTime otherDateTime = (LocalDateTime) otherColumn.getObject(otherRowIndex);
+
+        long seconds = dateTime.toEpochSecond(ZoneOffset.UTC) - otherDateTime.toEpochSecond(ZoneOffset.UTC);
+        long nanos = dateTime.getNano() - otherDateTime.getNano();
+        if (nanos < 0)
+        {
+            seconds--;
+            nanos += NANOS_PER_SECOND;
+        }
+
+        return compareDistance(seconds, nanos, NANOS_PER_SECOND, range);
+    }
+
+    /**
+     * Compares the distance of <code>units * nanosPerUnit + nanos</code> nanoseconds to the range without calculating
+     * the distance in nanoseconds, which may not fit in a <code>long</code>
+     *
+     * @param nanos the part of the distance smaller than a unit, between zero and <code>nanosPerUnit</code>
+     */
+    static private int compareDistance(long units, long nanos, long nanosPerUnit, long range)
+    {
+        long rangeUnits = Math.floorDiv(range, nanosPerUnit);
+        if (units != rangeUnits)
+        {
+            return Long.compare(units, rangeUnits);
+        }
+
+        return Long.compare(nanos, Math.floorMod(range, nanosPerUnit));
+    }
+}
@@ -0,0 +1,830 @@
+package io.github.vmzakharov.ecdataframe.dataframe;
+
+import io.github.vmzakharov.ecdataframe.dsl.value.ValueType;
+import org.eclipse.collections.api.list.ListIterable;
+import org.eclipse.collections.impl.factory.Lists;
+
+import java.time.Duration;
+
+/**
+ * A function calculating a value for each row of a data frame from the rows of the same partition, ordered by the
+ * window order columns (see {@link DataFrame#window(ListIterable, ListIterable, ListIterable)}). Each function makes a
+ * single pass over the rows of a partition. Nulls are treated the same way as by aggregate functions: a running or a
+ * rolling value is null if any of the values it includes is null.
+ */
+public abstract class WindowFunction
+{
+    private final String columnName;
+    private final String targetColumnName;
+
+    public WindowFunction(String newColumnName, String newTargetColumnName)
+    {
+        this.columnName = newColumnName;
+        this.targetColumnName = newTargetColumnName;
+    }
+
+    public static WindowFunction runningSum(String newColumnName)
+    {
+        return new RunningSum(newColumnName, newColumnName);
+    }
+
+    public static WindowFunction runningSum(String newColumnName, String newTargetColumnName)
+    {
+        return new RunningSum(newColumnName, newTargetColumnName);
+    }
+
+    public static WindowFunction runningMin(String newColumnName)
+    {
+        return new RunningMin(newColumnName, newColumnName);
+    }
+
+    public static WindowFunction runningMin(String newColumnName, String newTargetColumnName)
+    {
+        return new RunningMin(newColumnName, newTargetColumnName);
+    }
+
+    public static WindowFunction runningMax(String newColumnName)
+    {
+        return new RunningMax(newColumnName, newColumnName);
+    }
+
+    public static WindowFunction runningMax(String newColumnName, String newTargetColumnName)
+    {
+        return new RunningMax(newColumnName, newTargetColumnName);
+    }
+
+    /**
+     * The sum of the values of the current row and of up to <code>rowCount - 1</code> rows preceding it
+     */
+    public static WindowFunction rollingSum(String newColumnName, String newTargetColumnName, int rowCount)
+    {
+        return new RollingSum(newColumnName, newTargetColumnName, rowCount);
+    }
+
+    /**
+     * The sum of the values of the rows with the value of the time column greater than <code>t - range</code> and not
+     * greater than <code>t</code>, where <code>t</code> is the value of the time column in the current row. The time
+     * column must be of type long and the partition must be in ascending order of the time column.
+     */
+    public static WindowFunction rangeSum(String newColumnName, String newTargetColumnName, String timeColumnName, long range)
+    {
+        return new RangeSum(newColumnName, newTargetColumnName, timeColumnName, range, false);
+    }
+
+    /**
+     * The same as {@link #rangeSum(String, String, String, long)} for a time column of type date or date/time
+     */
+    public static WindowFunction rangeSum(String newColumnName, String newTargetColumnName, String timeColumnName, Duration range)
+    {
+        return new RangeSum(newColumnName, newTargetColumnName, timeColumnName, range.toNanos(), true);
+    }
+
+    public static WindowFunction lag(String newColumnName, String newTargetColumnName)
+    {
+        return new Lag(newColumnName, newTargetColumnName, 1);
+    }
+
+    /**
+     * The value of the column <code>offset</code> rows before the current row, null if there is no such row in the
+     * partition
+     */
+    public static WindowFunction lag(String newColumnName, String newTargetColumnName, int offset)
+    {
+        return new Lag(newColumnName, newTargetColumnName, offset);
+    }
+
+    public static WindowFunction lead(String newColumnName, String newTargetColumnName)
+    {
+        return new Lead(newColumnName, newTargetColumnName, 1);
+    }
+
+    /**
+     * The value of the column <code>offset</code> rows after the current row, null if there is no such row in the
+     * partition
+     */
+    public static WindowFunction lead(String newColumnName, String newTargetColumnName, int offset)
+    {
+        return new Lead(newColumnName, newTargetColumnName, offset);
+    }
+
+    public static WindowFunction rowNumber(String newTargetColumnName)
+    {
+        return new RowNumber(newTargetColumnName);
+    }
+
+    /**
+     * The rank of the row in the partition, the rows with the same values of the order columns get the same rank and
+     * leave a gap in the sequence of ranks after them (1, 1, 3)
+     */
+    public static WindowFunction rank(String newTargetColumnName)
+    {
+        return new Rank(newTargetColumnName);
+    }
+
+    /**
+     * The rank of the row in the partition without gaps in the sequence of ranks (1, 1, 2)
+     */
+    public static WindowFunction denseRank(String newTargetColumnName)
+    {
+        return new DenseRank(newTargetColumnName);
+    }
+
+    public String getColumnName()
+    {
+        return this.columnName;
+    }
+
+    public String getTargetColumnName()
+    {
+        return this.targetColumnName;
+    }
+
+    abstract public String getDescription();
+
+    /**
+     * @return the names of the columns of the data frame the function reads
+     */
+    public ListIterable<String> getSourceColumnNames()
+    {
+        return this.columnName == null ? Lists.immutable.empty() : Lists.immutable.of(this.columnName);
+    }
+
+    public ValueType targetColumnType(DataFrame dataFrame)
+    {
+        return dataFrame.getColumnNamed(this.columnName).getType();
+    }
+
+    /**
+     * Calculates the values of the function for the rows of the partition and writes them to the output
+     */
+    abstract void apply(WindowPartition partition, WindowOutput output);
+
+    protected ValueType numericColumnType(DataFrame dataFrame)
+    {
+        ValueType type = dataFrame.getColumnNamed(this.columnName).getType();
+
+        if (!type.isLong() && !type.isDouble())
+        {
+            ErrorReporter.reportAndThrow(
+                    "Window function " + this.getDescription() + " cannot be applied to column "
+                    + this.columnName + " of type " + type);
+        }
+
+        return type;
+    }
+
+    public abstract static class RunningAggregate
+    extends WindowFunction
+    {
+        public RunningAggregate(String newColumnName, String newTargetColumnName)
+        {
+            super(newColumnName, newTargetColumnName);
+        }
+
+        @Override
+        public ValueType targetColumnType(DataFrame dataFrame)
+        {
+            return this.numericColumnType(dataFrame);
+        }
+
+        abstract protected long combineLongs(long runningValue, long value);
+
+        abstract protected double combineDoubles(double runningValue, double value);
+
+        @Override
+        void apply(WindowPartition partition, WindowOutput output)
+        {
+            DfColumn column = partition.getDataFrame().getColumnNamed(this.getColumnName());
+            int size = partition.size();
+
+            if (column.getType().isLong())
+            {
+                DfLongColumn longColumn = (DfLongColumn) column;
+                long runningValue = 0L;
+                for (int position = 0; position < size; position++)
+                {
+                    int rowIndex = partition.rowAt(position);
+                    if (longColumn.isNull(rowIndex))
+                    {
+                        this.fillWithNulls(partition, output, position);
+                        return;
+                    }
+
+                    long value = longColumn.getLong(rowIndex);
+                    runningValue = position == 0 ? value : this.combineLongs(runningValue, value);
+                    output.setLong(rowIndex, runningValue);
+                }
+            }
+            else
+            {
+                DfDoubleColumn doubleColumn = (DfDoubleColumn) column;
+                double runningValue = 0.0;
+                for (int position = 0; position < size; position++)
+                {
+                    int rowIndex = partition.rowAt(position);
+                    if (doubleColumn.isNull(rowIndex))
+                    {
+                        this.fillWithNulls(partition, output, position);
+                        return;
+                    }
+
+                    double value = doubleColumn.getDouble(rowIndex);
+                    runningValue = position == 0 ? value : this.combineDoubles(runningValue, value);
+                    output.setDouble(rowIndex, runningValue);
+                }
+            }
+        }
+
+        private void fillWithNulls(WindowPartition partition, WindowOutput output, int fromPosition)
+        {
+            for (int position = fromPosition; position < partition.size(); position++)
+            {
+                output.setNull(partition.rowAt(position));
+            }
+        }
+    }
+
+    public static class RunningSum
+    extends RunningAggregate
+    {
+        public RunningSum(String newColumnName, String newTargetColumnName)
+        {
+            super(newColumnName, newTargetColumnName);
+        }
+
+        @Override
+        public String getDescription()
+        {
+            return "RUNNING SUM";
+        }
+
+        @Override
+        protected long combineLongs(long runningValue, long value)
+        {
+            return runningValue + value;
+        }
+
+        @Override
+        protected double combineDoubles(double runningValue, double value)
+        {
+            return runningValue + value;
+        }
+    }
+
+    public static class RunningMin
+    extends RunningAggregate
+    {
+        public RunningMin(String newColumnName, String newTargetColumnName)
+        {
+            super(newColumnName, newTargetColumnName);
+        }
+
+        @Override
+        public String getDescription()
+        {
+            return "RUNNING MIN";
+        }
+
+        @Override
+        protected long combineLongs(long runningValue, long value)
+        {
+            return Math.min(runningValue, value);
+        }
+
+        @Override
+        protected double combineDoubles(double runningValue, double value)
+        {
+            return Math.min(runningValue, value);
+        }
+    }
+
+    public static class RunningMax
+    extends RunningAggregate
+    {
+        public RunningMax(String newColumnName, String newTargetColumnName)
+        {
+            super(newColumnName, newTargetColumnName);
+        }
+
+        @Override
+        public String getDescription()
+        {
+            return "RUNNING MAX";
+        }
+
+        @Override
+        protected long combineLongs(long runningValue, long value)
+        {
+            return Math.max(runningValue, value);
+        }
+
+        @Override
+        protected double combineDoubles(double runningValue, double value)
+        {
+            return Math.max(runningValue, value);
+        }
+    }
+
+    /**
+     * A sum over a sliding window: the value entering the window is added to the sum and the value leaving it is
+     * subtracted, so each row is visited twice regardless of the size of the window. The nulls currently in the window
+     * are counted rather than summed. Doubles are summed with compensation for the rounding errors, which otherwise
+     * build up as the values are added and subtracted, see {@link SlidingDoubleSum}.
+     */
+    public abstract static class SlidingSum
+    extends WindowFunction
+    {
+        public SlidingSum(String newColumnName, String newTargetColumnName)
+        {
+            super(newColumnName, newTargetColumnName);
+        }
+
+        @Override
+        public ValueType targetColumnType(DataFrame dataFrame)
+        {
+            return this.numericColumnType(dataFrame);
+        }
+
+        /**
+         * @return the position of the first row of the window ending at <code>position</code>, must not decrease as
+         * the position increases
+         */
+        abstract protected int windowStart(WindowPartition partition, int position, int previousWindowStart);
+
+        /**
+         * @return the position of the last row of the window for the row at <code>position</code>, inclusive, must not
+         * decrease as the position increases
+         */
+        protected int windowEnd(WindowPartition partition, int position, int previousWindowEnd)
+        {
+            return position;
+        }
+
+        @Override
+        void apply(WindowPartition partition, WindowOutput output)
+        {
+            DfColumn column = partition.getDataFrame().getColumnNamed(this.getColumnName());
+            boolean isLong = column.getType().isLong();
+            DfLongColumn longColumn = isLong ? (DfLongColumn) column : null;
+            DfDoubleColumn doubleColumn = isLong ? null : (DfDoubleColumn) column;
+
+            long longSum = 0L;
+            SlidingDoubleSum doubleSum = new SlidingDoubleSum();
+            int nullCount = 0;
+
+            int start = 0;
+            int end = -1;
+            for (int position = 0; position < partition.size(); position++)
+            {
+                int newEnd = this.windowEnd(partition, position, end);
+                while (end < newEnd)
+                {
+                    end++;
+                    int rowIndex = partition.rowAt(end);
+                    if (column.isNull(rowIndex))
+                    {
+                        nullCount++;
+                    }
+                    else if (isLong)
+                    {
+                        longSum += longColumn.getLong(rowIndex);
+                    }
+                    else
+                    {
+                        doubleSum.add(doubleColumn.getDouble(rowIndex));
+                    }
+                }
+
+                int newStart = this.windowStart(partition, position, start);
+                while (start < newStart)
+                {
+                    int rowIndex = partition.rowAt(start);
+                    if (column.isNull(rowIndex))
+                    {
+                        nullCount--;
+                    }
+                    else if (isLong)
+                    {
+                        longSum -= longColumn.getLong(rowIndex);
+                    }
+                    else
+                    {
+                        doubleSum.remove(doubleColumn.getDouble(rowIndex));
+                    }
+                    start++;
+                }
+
+                if (doubleSum.overflowed())
+                {
+                    doubleSum.reset();
+                    for (int i = start; i <= end; i++)
+                    {
+                        if (!column.isNull(partition.rowAt(i)))
+                        {
+                            doubleSum.add(doubleColumn.getDouble(partition.rowAt(i)));
+                        }
+                    }
+                }
+
+                int rowIndex = partition.rowAt(position);
+                if (nullCount > 0)
+                {
+                    output.setNull(rowIndex);
+                }
+                else if (isLong)
+                {
+                    output.setLong(rowIndex, longSum);
+                }
+                else
+                {
+                    output.setDouble(rowIndex, doubleSum.value());
+                }
+            }
+        }
+    }
+
+    public static class RollingSum
+    extends SlidingSum
+    {
+        private final int windowSize;
+
+        public RollingSum(String newColumnName, String newTargetColumnName, int newWindowSize)
+        {
+            super(newColumnName, newTargetColumnName);
+
+            if (newWindowSize < 1)
+            {
+                ErrorReporter.reportAndThrow("Rolling window size must be at least 1, was " + newWindowSize);
+            }
+
+            this.windowSize = newWindowSize;
+        }
+
+        @Override
+        public String getDescription()
+        {
+            return "ROLLING SUM";
+        }
+
+        @Override
+        protected int windowStart(WindowPartition partition, int position, int previousWindowStart)
+        {
+            return Math.max(0, position - this.windowSize + 1);
+        }
+    }
+
+    /**
+     * A sum over a window defined by a range of the values of a time column rather than by a number of rows. The rows
+     * with the same time as the current row are all included in its window.
+     */
+    public static class RangeSum
+    extends SlidingSum
+    {
+        private final String timeColumnName;
+        private final long range;
+        private final boolean rangeIsDuration;
+
+        public RangeSum(String newColumnName, String newTargetColumnName, String newTimeColumnName, long newRange, boolean newRangeIsDuration)
+        {
+            super(newColumnName, newTargetColumnName);
+
+            if (newRange <= 0L)
+            {
+                ErrorReporter.reportAndThrow("Range window size must be positive, was " + newRange);
+            }
+
+            this.timeColumnName = newTimeColumnName;
+            this.range = newRange;
+            this.rangeIsDuration = newRangeIsDuration;
+        }
+
+        @Override
+        public String getDescription()
+        {
+            return "RANGE SUM";
+        }
+
+        @Override
+        public ListIterable<String> getSourceColumnNames()
+        {
+            return Lists.immutable.of(this.getColumnName(), this.timeColumnName);
+        }
+
+        @Override
+        public ValueType targetColumnType(DataFrame dataFrame)
+        {
+            TimeKeys.checkTimeColumn(
+                    dataFrame.getColumnNamed(this.timeColumnName), this.rangeIsDuration, "Window function " + this.getDescription());
+
+            return this.numericColumnType(dataFrame);
+        }
+
+        @Override
+        void apply(WindowPartition partition, WindowOutput output)
+        {
+            DfColumn timeColumn = partition.getDataFrame().getColumnNamed(this.timeColumnName);
+            for (int position = 0; position < partition.size(); position++)
+            {
+                if (timeColumn.isNull(partition.rowAt(position))
+                        || position > 0 && this.compareTimes(partition, position - 1, position) > 0)
+                {
+                    ErrorReporter.reportAndThrow(
+                            "Window function " + this.getDescription() + " requires non-null values of "
+                            + this.timeColumnName + " in ascending order within each partition");
+                }
+            }
+
+            super.apply(partition, output);
+        }
+
+        @Override
+        protected int windowStart(WindowPartition partition, int position, int previousWindowStart)
+        {
+            DfColumn timeColumn = partition.getDataFrame().getColumnNamed(this.timeColumnName);
+            int rowIndex = partition.rowAt(position);
+
+            int start = previousWindowStart;
+            while (TimeKeys.compareDistance(timeColumn, rowIndex, timeColumn, partition.rowAt(start), this.range) >= 0)
+            {
+                start++;
+            }
+
+            return start;
+        }
+
+        @Override
+        protected int windowEnd(WindowPartition partition, int position, int previousWindowEnd)
+        {
+            int end = Math.max(position, previousWindowEnd);
+            while (end + 1 < partition.size() && this.compareTimes(partition, end + 1, position) == 0)
+            {
+                end++;
+            }
+
+            return end;
+        }
+
+        private int compareTimes(WindowPartition partition, int position, int otherPosition)
+        {
+            DfColumn timeColumn = partition.getDataFrame().getColumnNamed(this.timeColumnName);
+            return TimeKeys.compare(timeColumn, partition.rowAt(position), timeColumn, partition.rowAt(otherPosition));
+        }
+    }
+
+    /**
+     * The value of the column in the row a fixed number of rows before the current one, a negative offset refers to
+     * the rows after the current one
+     */
+    public static class Lag
+    extends WindowFunction
+    {
+        private final int offset;
+
+        public Lag(String newColumnName, String newTargetColumnName, int newOffset)
+        {
+            super(newColumnName, newTargetColumnName);
+            this.offset = newOffset;
+        }
+
+        @Override
+        public String getDescription()
+        {
+            return "LAG";
+        }
+
+        @Override
+        void apply(WindowPartition partition, WindowOutput output)
+        {
+            DfColumn column = partition.getDataFrame().getColumnNamed(this.getColumnName());
+            ValueType type = column.getType();
+
+            for (int position = 0; position < partition.size(); position++)
+            {
+                int rowIndex = partition.rowAt(position);
+                int sourcePosition = position - this.offset;
+
+                if (sourcePosition < 0 || sourcePosition >= partition.size())
+                {
+                    output.setNull(rowIndex);
+                    continue;
+                }
+
+                int sourceRowIndex = partition.rowAt(sourcePosition);
+                if (column.isNull(sourceRowIndex))
+                {
+                    output.setNull(rowIndex);
+                }
+                else if (type.isLong())
+                {
+                    output.setLong(rowIndex, ((DfLongColumn) column).getLong(sourceRowIndex));
+                }
+                else if (type.isDouble())
+                {
+                    output.setDouble(rowIndex, ((DfDoubleColumn) column).getDouble(sourceRowIndex));
+                }
+                else
+                {
+                    output.setObject(rowIndex, column.getObject(sourceRowIndex));
+                }
+            }
+        }
+    }
+
+    public static class Lead
+    extends Lag
+    {
+        public Lead(String newColumnName, String newTargetColumnName, int newOffset)
+        {
+            super(newColumnName, newTargetColumnName, -newOffset);
+        }
+
+        @Override
+        public String getDescription()
+        {
+            return "LEAD";
+        }
+    }
+
+    public static class RowNumber
+    extends WindowFunction
+    {
+        public RowNumber(String newTargetColumnName)
+        {
+            super(null, newTargetColumnName);
+        }
+
+        @Override
+        public String getDescription()
+        {
+            return "ROW NUMBER";
+        }
+
+        @Override
+        public ValueType targetColumnType(DataFrame dataFrame)
+        {
+            return ValueType.LONG;
+        }
+
+        @Override
+        void apply(WindowPartition partition, WindowOutput output)
+        {
+            for (int position = 0; position < partition.size(); position++)
+            {
+                output.setLong(partition.rowAt(position), position + 1);
+            }
+        }
+    }
+
+    public static class Rank
+    extends RowNumber
+    {
+        public Rank(String newTargetColumnName)
+        {
+            super(newTargetColumnName);
+        }
+
+        @Override
+        public String getDescription()
+        {
+            return "RANK";
+        }
+
+        protected long nextRank(long previousRank, int position)
+        {
+            return position + 1;
+        }
+
+        @Override
+        void apply(WindowPartition partition, WindowOutput output)
+        {
+            long rank = 0L;
+            for (int position = 0; position < partition.size(); position++)
+            {
+                if (position == 0 || !partition.sameSortKey(position - 1, position))
+                {
+                    rank = this.nextRank(rank, position);
+                }
+
+                output.setLong(partition.rowAt(position), rank);
+            }
+        }
+    }
+
+    public static class DenseRank
+    extends Rank
+    {
+        public DenseRank(String newTargetColumnName)
+        {
+            super(newTargetColumnName);
+        }
+
+        @Override
+        public String getDescription()
+        {
+            return "DENSE RANK";
+        }
+
+        @Override
+        protected long nextRank(long previousRank, int position)
+        {
+            return previousRank + 1;
+        }
+    }
+
+    /**
+     * A sum of the doubles in a sliding window. The finite values are summed using Neumaier's variant of Kahan
+     * summation, which keeps the rounding error of both adding and removing values from building up. The infinite values
+     * are counted instead of being summed, as subtracting an infinite value leaving the window from an infinite sum
+     * would result in NaN, which is a null, rather than in the sum of the values remaining in the window.
+     */
+    static private final class SlidingDoubleSum
+    {
+        private double sum;
+        private double compensation;
+        private int positiveInfinityCount;
+        private int negativeInfinityCount;
+
+        void add(double value)
+        {
+            if (value == Double.POSITIVE_INFINITY)
+            {
+                this.positiveInfinityCount++;
+            }
+            else if (value == Double.NEGATIVE_INFINITY)
+            {
+                this.negativeInfinityCount++;
+            }
+            else
+            {
+                this.addFinite(value);
+            }
+        }
+
+        void remove(double value)
+        {
+            if (value == Double.POSITIVE_INFINITY)
+            {
+                this.positiveInfinityCount--;
+            }
+            else if (value == Double.NEGATIVE_INFINITY)
+            {
+                this.negativeInfinityCount--;
+            }
+            else
+            {
+                this.addFinite(-value);
+            }
+        }
+
+        private void addFinite(double value)
+        {
+            double newSum = this.sum + value;
+            if (Math.abs(this.sum) >= Math.abs(value))
+            {
+                this.compensation += this.sum - newSum + value;
+            }
+            else
+            {
+                this.compensation += value - newSum + this.sum;
+            }
+            this.sum = newSum;
+        }
+
+        /**
+         * @return true if the sum of the finite values exceeded the range of a double, in which case it cannot be
+         * updated by removing values and has to be recalculated from the values in the window
+         */
+        boolean overflowed()
+        {
+            return !Double.isFinite(this.sum) || !Double.isFinite(this.compensation);
+        }
+
+        void reset()
+        {
+            this.sum = 0.0;
+            this.compensation = 0.0;
+            this.positiveInfinityCount = 0;
+            this.negativeInfinityCount = 0;
+        }
+
+        double value()
+        {
+            if (this.positiveInfinityCount > 0 && this.negativeInfinityCount > 0)
+            {
+                return Double.NaN;
+            }
+
+            if (this.positiveInfinityCount > 0)
+            {
+                return Double.POSITIVE_INFINITY;
+            }
+
+            if (this.negativeInfinityCount > 0)
+            {
+                return Double.NEGATIVE_INFINITY;
+            }
+
+            return Double.isFinite(this.sum) ? this.sum + this.compensation : this.sum;
+        }
+    }
+}
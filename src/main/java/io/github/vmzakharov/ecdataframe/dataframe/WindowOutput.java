@@ -0,0 +1,100 @@
+package io.github.vmzakharov.ecdataframe.dataframe;
+
+import io.github.vmzakharov.ecdataframe.dsl.value.ValueType;
+
+/**
+ * The values calculated by a window function indexed by the physical row of the data frame. Partitions write to
+ * disjoint rows, so they can be calculated concurrently, the values are added to the data frame as a column once all
+ * the partitions have been processed.
+ */
+final class WindowOutput
+{
+    private final ValueType type;
+
+    private long[] longValues;
+    private boolean[] longNulls;
+    private double[] doubleValues;
+    private Object[] objectValues;
+
+    WindowOutput(ValueType newType, int size)
+    {
+        this.type = newType;
+
+        if (this.type.isLong())
+        {
+            this.longValues = new long[size];
+            this.longNulls = new boolean[size];
+        }
+        else if (this.type.isDouble())
+        {
+            this.doubleValues = new double[size];
+        }
+        else
+        {
+            this.objectValues = new Object[size];
+        }
+    }
+
+    public void setLong(int rowIndex, long value)
+    {
+        this.longValues[rowIndex] = value;
+    }
+
+    public void setDouble(int rowIndex, double value)
+    {
+        this.doubleValues[rowIndex] = value;
+    }
+
+    public void setObject(int rowIndex, Object value)
+    {
+        this.objectValues[rowIndex] = value;
+    }
+
+    public void setNull(int rowIndex)
+    {
+        if (this.type.isLong())
+        {
+            this.longNulls[rowIndex] = true;
+        }
+        else if (this.type.isDouble())
+        {
+            this.doubleValues[rowIndex] = Double.NaN;
+        }
+        else
+        {
+            this.objectValues[rowIndex] = null;
+        }
+    }
+
+    public void addColumnTo(DataFrame dataFrame, String columnName)
+    {
+        dataFrame.addColumn(columnName, this.type);
+        DfColumn column = dataFrame.getColumnNamed(columnName);
+
+        if (this.type.isLong())
+        {
+            DfLongColumnStored longColumn = (DfLongColumnStored) column;
+            for (int i = 0; i < this.longValues.length; i++)
+            {
+                longColumn.addLong(this.longValues[i], this.longNulls[i]);
+            }
+        }
+        else if (this.type.isDouble())
+        {
+            DfDoubleColumnStored doubleColumn = (DfDoubleColumnStored) column;
+            for (int i = 0; i < this.doubleValues.length; i++)
+            {
+                doubleColumn.addDouble(this.doubleValues[i]);
+            }
+        }
+        else
+        {
+            for (int i = 0; i < this.objectValues.length; i++)
+            {
+                column.addObject(this.objectValues[i]);
+            }
+        }
+
+        column.seal();
+    }
+}
@@ -0,0 +1,50 @@
+package io.github.vmzakharov.ecdataframe.dataframe;
+
+/**
+ * A partition of the rows of a data frame a window function is applied to. The rows are listed in the window order,
+ * positions in the partition run from zero to <code>size() - 1</code> and map to the physical rows of the data frame.
+ */
+final class WindowPartition
+{
+    private final DataFrame dataFrame;
+    private final int[] orderedRows;
+    private final int from;
+    private final int to;
+    private final DfTuple[] sortKeys;
+
+    /**
+     * @param newDataFrame the data frame the partition belongs to
+     * @param newOrderedRows the physical row indices of the data frame in the window order
+     * @param newFrom the first position of this partition in <code>newOrderedRows</code>, inclusive
+     * @param newTo the last position of this partition in <code>newOrderedRows</code>, exclusive
+     * @param newSortKeys the values of the window order columns indexed by physical row
+     */
+    WindowPartition(DataFrame newDataFrame, int[] newOrderedRows, int newFrom, int newTo, DfTuple[] newSortKeys)
+    {
+        this.dataFrame = newDataFrame;
+        this.orderedRows = newOrderedRows;
+        this.from = newFrom;
+        this.to = newTo;
+        this.sortKeys = newSortKeys;
+    }
+
+    public DataFrame getDataFrame()
+    {
+        return this.dataFrame;
+    }
+
+    public int size()
+    {
+        return this.to - this.from;
+    }
+
+    public int rowAt(int position)
+    {
+        return this.orderedRows[this.from + position];
+    }
+
+    public boolean sameSortKey(int position, int otherPosition)
+    {
+        return this.sortKeys[this.rowAt(position)].compareTo(this.sortKeys[this.rowAt(otherPosition)]) == 0;
+    }
+}
@@ -2,10 +2,6 @@ package io.github.vmzakharov.ecdataframe.dataset;
 
 import io.github.vmzakharov.ecdataframe.dataframe.DataFrame;
 import io.github.vmzakharov.ecdataframe.dataframe.DfColumn;
-import io.github.vmzakharov.ecdataframe.dataframe.DfDateColumn;
-import io.github.vmzakharov.ecdataframe.dataframe.DfDateTimeColumn;
-import io.github.vmzakharov.ecdataframe.dataframe.DfDoubleColumn;
-import io.github.vmzakharov.ecdataframe.dataframe.DfLongColumn;
 import io.github.vmzakharov.ecdataframe.dataframe.ErrorReporter;
 import io.github.vmzakharov.ecdataframe.dsl.value.ValueType;
 import org.eclipse.collections.api.block.procedure.Procedure;
@@ -15,21 +11,27 @@ import org.eclipse.collections.impl.factory.Lists;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
-import java.time.format.ResolverStyle;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.IntFunction;
 import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
@@ -44,14 +46,19 @@ extends DataSetAbstract
 {
     public static final int BUFFER_SIZE = 65_536;
     public static final int LINE_COUNT_FOR_TYPE_INFERENCE = 100;
+    public static final int WRITE_CHUNK_ROW_COUNT = 16_384;
+    public static final int SAMPLE_SEGMENT_COUNT = 10;
 
     private final Path dataFilePath;
 
     private boolean emptyElementsConvertedToNulls = false;
+    private boolean schemaInferredFromSampleAcrossFile = false;
+    private boolean inferredSchemaCached = false;
 
     private CsvSchema schema;
 
-    private DateTimeFormatter[] formatters;
+    private ListIterable<DateTimeParser> dateFormatCandidates;
+    private ListIterable<DateTimeParser> dateTimeFormatCandidates;
 
     public CsvDataSet(String newDataFileName, String newName)
     {
@@ -94,6 +101,27 @@ extends DataSetAbstract
         this.emptyElementsConvertedToNulls = true;
     }
 
+    /**
+     * Infer the schema from lines sampled across the whole file rather than from the lines at the beginning of the
+     * file. Half of the lines used for inference are taken from the beginning of the file, the rest are read from
+     * {@code SAMPLE_SEGMENT_COUNT} points spread evenly across the file, which the reader seeks to directly. Only
+     * applies to uncompressed files, for compressed files the lines at the beginning of the file are used.
+     */
+    public void inferSchemaFromSampleAcrossFile()
+    {
+        this.schemaInferredFromSampleAcrossFile = true;
+    }
+
+    /**
+     * Store the inferred schema in a file next to the data file (the data file name with {@code .schema} appended).
+     * The stored schema is tagged with the size and the modification time of the data file, and as long as these do
+     * not change, the stored schema is used on subsequent loads instead of inferring the schema again.
+     */
+    public void cacheInferredSchema()
+    {
+        this.inferredSchemaCached = true;
+    }
+
     @Override
     public Object next()
     {
@@ -112,6 +140,13 @@ extends DataSetAbstract
         // Not needed for CSV files
     }
 
+    /**
+     * Writes the data frame to this data set. Rows are formatted in chunks of {@code WRITE_CHUNK_ROW_COUNT} rows and the
+     * chunks are written out in order. If the data frame does not have computed columns the chunks are formatted in
+     * parallel. If the data set file name ends with {@code .gz} the output is compressed, each chunk as a separate gzip
+     * member, so the chunks formatted in parallel are compressed in parallel as well.
+     * @param dataFrame the data frame to write
+     */
     public void write(DataFrame dataFrame)
     {
         if (this.schemaIsNotDefined())
@@ -119,34 +154,36 @@ extends DataSetAbstract
             this.schema = this.schemaFromDataFrame(dataFrame);
         }
 
-        try (BufferedWriter writer = new BufferedWriter(this.createWriter(), BUFFER_SIZE))
-        {
-            int columnCount = dataFrame.columnCount();
+        int rowCount = dataFrame.rowCount();
+        int chunkCount = (rowCount + WRITE_CHUNK_ROW_COUNT - 1) / WRITE_CHUNK_ROW_COUNT;
+        boolean parallel = chunkCount > 1 && dataFrame.getColumns().allSatisfy(DfColumn::isStored);
 
-            for (int columnIndex = 0; columnIndex < columnCount; columnIndex++)
-            {
-                writer.write(this.schema.columnAt(columnIndex).getName());
+        IntFunction<String> chunkFormatter = chunkIndex -> {
+            int fromRowIndex = chunkIndex * WRITE_CHUNK_ROW_COUNT;
+            int toRowIndex = Math.min(fromRowIndex + WRITE_CHUNK_ROW_COUNT, rowCount);
+            StringBuilder builder = new StringBuilder((toRowIndex - fromRowIndex) * 16 * dataFrame.columnCount());
+            new CsvRowFormatter(dataFrame, this.schema).formatRows(fromRowIndex, toRowIndex, builder);
+            return builder.toString();
+        };
 
-                if (columnIndex < columnCount - 1)
+        try
+        {
+            if (this.getDataFileName().endsWith(".gz"))
+            {
+                try (OutputStream stream = this.createOutputStream())
                 {
-                    writer.write(this.getSchema().getSeparator());
+                    stream.write(this.compress(this.headerLine(dataFrame)));
+                    this.processChunksInOrder(
+                            chunkCount, parallel, chunkIndex -> this.compress(chunkFormatter.apply(chunkIndex)), stream::write);
                 }
             }
-            writer.write('\n');
-
-            int rowCount = dataFrame.rowCount();
-            for (int rowIndex = 0; rowIndex < rowCount; rowIndex++)
+            else
             {
-                for (int columnIndex = 0; columnIndex < columnCount; columnIndex++)
+                try (BufferedWriter writer = new BufferedWriter(this.createWriter(), BUFFER_SIZE))
                 {
-                    this.writeValue(writer, dataFrame, rowIndex, columnIndex);
-
-                    if (columnIndex < columnCount - 1)
-                    {
-                        writer.write(this.getSchema().getSeparator());
-                    }
+                    writer.write(this.headerLine(dataFrame));
+                    this.processChunksInOrder(chunkCount, parallel, chunkFormatter, writer::write);
                 }
-                writer.write('\n');
             }
         }
         catch (IOException e)
@@ -155,78 +192,117 @@ extends DataSetAbstract
         }
     }
 
-    private CsvSchema schemaFromDataFrame(DataFrame dataFrame)
+    /**
+     * Compresses the text as a complete gzip member. A sequence of gzip members is a valid gzip file, which decompresses
+     * to the concatenation of their contents, so the chunks of the output can be compressed independently.
+     */
+    private byte[] compress(String text)
     {
-        CsvSchema dfSchema = new CsvSchema();
-        dataFrame.getColumns().forEach(e -> dfSchema.addColumn(e.getName(), e.getType()));
-        return dfSchema;
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(text.length() / 4 + 64);
+        try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(compressed, BUFFER_SIZE)))
+        {
+            writer.write(text);
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException("Failed to compress data to write to '" + this.getDataFileName() + "'", e);
+        }
+
+        return compressed.toByteArray();
     }
 
-    private void writeValue(Writer writer, DataFrame dataFrame, int rowIndex, int columnIndex)
-    throws IOException
+    private String headerLine(DataFrame dataFrame)
     {
-        DfColumn dfColumn = dataFrame.getColumnAt(columnIndex);
-        CsvSchemaColumn schemaColumn = this.getSchema().columnAt(columnIndex);
+        StringBuilder header = new StringBuilder();
+        int columnCount = dataFrame.columnCount();
 
-        String valueAsLiteral;
-
-        if (dfColumn.isNull(rowIndex))
-        {
-            valueAsLiteral = this.schema.hasNullMarker() ? this.schema.getNullMarker() : "";
-        }
-        else
+        for (int columnIndex = 0; columnIndex < columnCount; columnIndex++)
         {
-            switch (dfColumn.getType())
+            header.append(this.schema.columnAt(columnIndex).getName());
+
+            if (columnIndex < columnCount - 1)
             {
-                case LONG:
-                    long longValue = ((DfLongColumn) dfColumn).getLong(rowIndex);
-                    valueAsLiteral = schemaColumn.getLongFormatter().format(longValue);
-                    break;
-                case DOUBLE:
-                    double doubleValue = ((DfDoubleColumn) dfColumn).getDouble(rowIndex);
-                    valueAsLiteral = schemaColumn.getDoubleFormatter().format(doubleValue);
-                    break;
-                case STRING:
-                    String stringValue = dfColumn.getValueAsString(rowIndex);
-                    valueAsLiteral = this.schema.getQuoteCharacter() + stringValue + this.schema.getQuoteCharacter();
-                    break;
-                case DATE:
-                    LocalDate dateValue = ((DfDateColumn) dfColumn).getTypedObject(rowIndex);
-                    valueAsLiteral = this.formatterForColumn(columnIndex).format(dateValue);
-                    break;
-                case DATE_TIME:
-                    LocalDateTime dateTimeValue = ((DfDateTimeColumn) dfColumn).getTypedObject(rowIndex);
-                    valueAsLiteral = this.formatterForColumn(columnIndex).format(dateTimeValue);
-                    break;
-                default:
-                    ErrorReporter.reportAndThrow("Do not know how to convert value of type " + dfColumn.getType() + " to a string");
-                    valueAsLiteral = "";
+                header.append(this.getSchema().getSeparator());
             }
         }
+        header.append('\n');
 
-        writer.write(valueAsLiteral);
+        return header.toString();
     }
 
-    private DateTimeFormatter formatterForColumn(int columnIndex)
+    /**
+     * Produces chunks using the chunk function and passes them to the chunk writer in order. If the parallel flag is
+     * set, a limited number of chunks is produced ahead concurrently, so that the memory used by chunks waiting to be
+     * written stays bounded.
+     */
+    private <T> void processChunksInOrder(int chunkCount, boolean parallel, IntFunction<T> chunkFunction, ChunkWriter<T> chunkWriter)
+    throws IOException
     {
-        if (this.formatters == null)
+        if (!parallel)
         {
-            this.formatters = new DateTimeFormatter[this.schema.columnCount()];
+            for (int chunkIndex = 0; chunkIndex < chunkCount; chunkIndex++)
+            {
+                chunkWriter.write(chunkFunction.apply(chunkIndex));
+            }
+            return;
         }
 
-        if (this.formatters[columnIndex] == null)
+        int maxChunksInFlight = 2 * Runtime.getRuntime().availableProcessors();
+        Deque<CompletableFuture<T>> chunksInFlight = new ArrayDeque<>(maxChunksInFlight);
+        int nextChunkIndex = 0;
+
+        try
+        {
+            while (nextChunkIndex < chunkCount || !chunksInFlight.isEmpty())
+            {
+                while (nextChunkIndex < chunkCount && chunksInFlight.size() < maxChunksInFlight)
+                {
+                    int chunkIndex = nextChunkIndex++;
+                    chunksInFlight.addLast(CompletableFuture.supplyAsync(() -> chunkFunction.apply(chunkIndex)));
+                }
+
+                T chunk;
+                try
+                {
+                    chunk = chunksInFlight.removeFirst().join();
+                }
+                catch (CompletionException e)
+                {
+                    throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+                }
+
+                chunkWriter.write(chunk);
+            }
+        }
+        finally
         {
-            String pattern = this.schema.columnAt(columnIndex).getPattern();
-            this.formatters[columnIndex] = DateTimeFormatter.ofPattern(pattern);
+            chunksInFlight.forEach(future -> future.cancel(false));
         }
+    }
 
-        return this.formatters[columnIndex];
+    private CsvSchema schemaFromDataFrame(DataFrame dataFrame)
+    {
+        CsvSchema dfSchema = new CsvSchema();
+        dataFrame.getColumns().forEach(e -> dfSchema.addColumn(e.getName(), e.getType()));
+        return dfSchema;
     }
 
+    /**
+     * @return the writer to write uncompressed output to
+     */
     protected Writer createWriter()
     throws IOException
     {
-        return new OutputStreamWriter(Files.newOutputStream(this.dataFilePath));
+        return new OutputStreamWriter(this.createOutputStream());
+    }
+
+    /**
+     * @return the stream to write the output to, compressed output is written to it already compressed
+     */
+    protected OutputStream createOutputStream()
+    throws IOException
+    {
+        return Files.newOutputStream(this.dataFilePath);
     }
 
     protected Reader createReader()
@@ -304,15 +380,24 @@ extends DataSetAbstract
 
             MutableList<String> lineBuffer = Lists.mutable.withInitialCapacity(numberOfLinesToInferFrom);
 
-            String dataRow;
+            boolean sampling = this.schemaInferredFromSampleAcrossFile && this.isSeekable();
+            int headLineCount = sampling ? numberOfLinesToInferFrom / 2 : numberOfLinesToInferFrom;
+
+            String dataRow = null;
             for (int loadedLineCount = 0;
-                 loadedLineCount < numberOfLinesToInferFrom && (dataRow = reader.readLine()) != null;
+                 loadedLineCount < headLineCount && (dataRow = reader.readLine()) != null;
                  loadedLineCount++)
             {
                 lineBuffer.add(dataRow);
             }
 
+            if (sampling && dataRow != null)
+            {
+                this.sampleLinesAcrossFileInto(numberOfLinesToInferFrom - lineBuffer.size(), lineBuffer);
+            }
+
             this.inferSchema(headers, lineBuffer);
+            this.storeInferredSchemaIfCached();
         }
         catch (IOException e)
         {
@@ -414,6 +499,16 @@ extends DataSetAbstract
           header1,header2,header3,...
           "String",123,45.67,...
          */
+        if (this.schemaIsNotDefined())
+        {
+            this.schema = this.cachedSchemaIfAvailable();
+        }
+
+        if (this.schemaIsNotDefined() && this.schemaInferredFromSampleAcrossFile && this.isSeekable())
+        {
+            this.inferSchema();
+        }
+
         if (this.schemaIsNotDefined())
         {
             this.schema = new CsvSchema(); // provides default separators, quote characters, etc.
@@ -455,6 +550,7 @@ extends DataSetAbstract
                     lineBuffer.add(dataRow);
                 }
                 this.inferSchema(headers, lineBuffer);
+                this.storeInferredSchemaIfCached();
             }
             else if (headers.size() != this.schema.columnCount())
             {
@@ -646,6 +742,101 @@ extends DataSetAbstract
         }
     }
 
+    private boolean isSeekable()
+    {
+        String fileName = this.getDataFileName();
+        return !fileName.endsWith(".zip") && !fileName.endsWith(".gz") && Files.isRegularFile(this.dataFilePath);
+    }
+
+    /**
+     * reads lines from points spread evenly across the data file. Each read starts with skipping to the beginning of
+     * the next line, as the read is likely to start in the middle of a line
+     */
+    private void sampleLinesAcrossFileInto(int lineCount, MutableList<String> lines)
+    throws IOException
+    {
+        int segmentCount = Math.min(SAMPLE_SEGMENT_COUNT, lineCount);
+        if (segmentCount == 0)
+        {
+            return;
+        }
+
+        int linesPerSegment = lineCount / segmentCount;
+
+        try (SeekableByteChannel channel = Files.newByteChannel(this.dataFilePath))
+        {
+            long size = channel.size();
+            for (int segment = 1; segment <= segmentCount; segment++)
+            {
+                channel.position(size * segment / (segmentCount + 1));
+
+                // not closing the reader as it would close the channel, closing the channel is enough
+                BufferedReader reader = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel)));
+                reader.readLine();
+
+                String line;
+                for (int i = 0; i < linesPerSegment && (line = reader.readLine()) != null; i++)
+                {
+                    if (!line.isEmpty())
+                    {
+                        lines.add(line);
+                    }
+                }
+            }
+        }
+    }
+
+    private Path schemaFilePath()
+    {
+        return this.dataFilePath.resolveSibling(this.dataFilePath.getFileName() + ".schema");
+    }
+
+    private String dataFileKey()
+    throws IOException
+    {
+        return Files.size(this.dataFilePath) + ":" + Files.getLastModifiedTime(this.dataFilePath).toMillis();
+    }
+
+    private CsvSchema cachedSchemaIfAvailable()
+    {
+        if (!this.inferredSchemaCached || !Files.isRegularFile(this.schemaFilePath()))
+        {
+            return null;
+        }
+
+        try (Reader reader = Files.newBufferedReader(this.schemaFilePath()))
+        {
+            Properties properties = new Properties();
+            properties.load(reader);
+
+            return this.dataFileKey().equals(properties.getProperty("dataFile")) ? CsvSchema.fromProperties(properties) : null;
+        }
+        catch (IOException | RuntimeException e)
+        {
+            // a missing or unreadable schema file means the schema has to be inferred again
+            return null;
+        }
+    }
+
+    private void storeInferredSchemaIfCached()
+    {
+        if (!this.inferredSchemaCached || !Files.isRegularFile(this.dataFilePath))
+        {
+            return;
+        }
+
+        try (Writer writer = Files.newBufferedWriter(this.schemaFilePath()))
+        {
+            Properties properties = this.schema.toProperties();
+            properties.setProperty("dataFile", this.dataFileKey());
+            properties.store(writer, "Schema inferred from " + this.dataFilePath.getFileName());
+        }
+        catch (IOException | RuntimeException e)
+        {
+            // the schema file is only an optimization, if it cannot be written the schema will be inferred again
+        }
+    }
+
     private boolean schemaIsNotDefined()
     {
         return this.schema == null;
@@ -710,50 +901,28 @@ extends DataSetAbstract
 
     private String findMatchingDateFormat(String aString)
     {
-        ListIterable<String> dateFormats = Lists.immutable.of("uuuu/M/d", "uuuu-M-d", "M/d/uuuu");
-
-        String trimmed = aString.trim();
-        for (int i = 0; i < dateFormats.size(); i++)
+        if (this.dateFormatCandidates == null)
         {
-            String pattern = dateFormats.get(i);
-
-            try
-            {
-                DateTimeFormatter candidateFormatter = DateTimeFormatter.ofPattern(pattern).withResolverStyle(ResolverStyle.STRICT);
-                LocalDate.parse(trimmed, candidateFormatter);
-                return pattern;
-            }
-            catch (DateTimeParseException e)
-            {
-                // ignore
-            }
+            this.dateFormatCandidates = Lists.immutable.of("uuuu/M/d", "uuuu-M-d", "M/d/uuuu").collect(DateTimeParser::new);
         }
 
-        return null;
+        String trimmed = aString.trim();
+        DateTimeParser matchingParser = this.dateFormatCandidates.detect(parser -> parser.canParseAsLocalDate(trimmed));
+
+        return matchingParser == null ? null : matchingParser.getPattern();
     }
 
     private String findMatchingDateTimeFormat(String aString)
     {
-        ListIterable<String> dateFormats = Lists.immutable.of("uuuu-M-d'T'H:m:s");
-
-        String trimmed = aString.trim();
-        for (int i = 0; i < dateFormats.size(); i++)
+        if (this.dateTimeFormatCandidates == null)
         {
-            String pattern = dateFormats.get(i);
-
-            try
-            {
-                DateTimeFormatter candidateFormatter = DateTimeFormatter.ofPattern(pattern).withResolverStyle(ResolverStyle.STRICT);
-                LocalDateTime.parse(trimmed, candidateFormatter);
-                return pattern;
-            }
-            catch (DateTimeParseException e)
-            {
-                // ignore
-            }
+            this.dateTimeFormatCandidates = Lists.immutable.of("uuuu-M-d'T'H:m:s").collect(DateTimeParser::new);
         }
 
-        return null;
+        String trimmed = aString.trim();
+        DateTimeParser matchingParser = this.dateTimeFormatCandidates.detect(parser -> parser.canParseAsLocalDateTime(trimmed));
+
+        return matchingParser == null ? null : matchingParser.getPattern();
     }
 
     private MutableList<String> splitMindingQs(String aString)
@@ -857,4 +1026,10 @@ extends DataSetAbstract
 
         return this.emptyElementsConvertedToNulls ? null : "";
     }
+
+    private interface ChunkWriter<T>
+    {
+        void write(T chunk)
+        throws IOException;
+    }
 }
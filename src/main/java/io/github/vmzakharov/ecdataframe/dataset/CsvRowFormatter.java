@@ -0,0 +1,109 @@
+package io.github.vmzakharov.ecdataframe.dataset;
+
+import io.github.vmzakharov.ecdataframe.dataframe.DataFrame;
+import io.github.vmzakharov.ecdataframe.dataframe.DfColumn;
+import io.github.vmzakharov.ecdataframe.dataframe.DfDateColumn;
+import io.github.vmzakharov.ecdataframe.dataframe.DfDateTimeColumn;
+import io.github.vmzakharov.ecdataframe.dataframe.DfDoubleColumn;
+import io.github.vmzakharov.ecdataframe.dataframe.DfLongColumn;
+import io.github.vmzakharov.ecdataframe.dataframe.ErrorReporter;
+
+/**
+ * Formats ranges of data frame rows as CSV text. Values are appended directly to a string builder, without creating
+ * intermediate strings for numbers and dates (unless the corresponding schema column specifies a decimal format).
+ * <p>
+ * An instance is not thread safe, but instances formatting different row ranges of the same data frame can be used
+ * concurrently as long as the data frame does not change and does not have computed columns.
+ */
+class CsvRowFormatter
+{
+    private final CsvSchema schema;
+    private final CellFormatter[] cellFormatters;
+    private final String nullLiteral;
+
+    CsvRowFormatter(DataFrame dataFrame, CsvSchema newSchema)
+    {
+        this.schema = newSchema;
+        this.nullLiteral = this.schema.hasNullMarker() ? this.schema.getNullMarker() : "";
+
+        int columnCount = dataFrame.columnCount();
+        this.cellFormatters = new CellFormatter[columnCount];
+        for (int columnIndex = 0; columnIndex < columnCount; columnIndex++)
+        {
+            this.cellFormatters[columnIndex] = this.cellFormatterFor(dataFrame.getColumnAt(columnIndex), this.schema.columnAt(columnIndex));
+        }
+    }
+
+    public void formatRows(int fromRowIndex, int toRowIndex, StringBuilder builder)
+    {
+        int columnCount = this.cellFormatters.length;
+        char separator = this.schema.getSeparator();
+
+        for (int rowIndex = fromRowIndex; rowIndex < toRowIndex; rowIndex++)
+        {
+            for (int columnIndex = 0; columnIndex < columnCount; columnIndex++)
+            {
+                this.cellFormatters[columnIndex].appendValue(rowIndex, builder);
+
+                if (columnIndex < columnCount - 1)
+                {
+                    builder.append(separator);
+                }
+            }
+            builder.append('\n');
+        }
+    }
+
+    private CellFormatter cellFormatterFor(DfColumn dfColumn, CsvSchemaColumn schemaColumn)
+    {
+        CellFormatter valueFormatter;
+
+        switch (dfColumn.getType())
+        {
+            case LONG:
+                DfLongColumn longColumn = (DfLongColumn) dfColumn;
+                // decimal formats are not thread safe, so each row formatter gets its own
+                LongFormatter longFormatter = new LongFormatter(schemaColumn.getPattern());
+                valueFormatter = (rowIndex, builder) -> longFormatter.appendFormatted(longColumn.getLong(rowIndex), builder);
+                break;
+            case DOUBLE:
+                DfDoubleColumn doubleColumn = (DfDoubleColumn) dfColumn;
+                DoubleFormatter doubleFormatter = new DoubleFormatter(schemaColumn.getPattern());
+                valueFormatter = (rowIndex, builder) -> doubleFormatter.appendFormatted(doubleColumn.getDouble(rowIndex), builder);
+                break;
+            case STRING:
+                char quote = this.schema.getQuoteCharacter();
+                valueFormatter = (rowIndex, builder) -> builder.append(quote).append(dfColumn.getValueAsString(rowIndex)).append(quote);
+                break;
+            case DATE:
+                DfDateColumn dateColumn = (DfDateColumn) dfColumn;
+                DateTimeParser dateParser = schemaColumn.getDateTimeParser();
+                valueFormatter = (rowIndex, builder) -> dateParser.appendFormatted(dateColumn.getTypedObject(rowIndex), builder);
+                break;
+            case DATE_TIME:
+                DfDateTimeColumn dateTimeColumn = (DfDateTimeColumn) dfColumn;
+                DateTimeParser dateTimeParser = schemaColumn.getDateTimeParser();
+                valueFormatter = (rowIndex, builder) -> dateTimeParser.appendFormatted(dateTimeColumn.getTypedObject(rowIndex), builder);
+                break;
+            default:
+                valueFormatter = (rowIndex, builder) -> ErrorReporter.reportAndThrow(
+                        "Do not know how to convert value of type " + dfColumn.getType() + " to a string");
+        }
+
+        return (rowIndex, builder) -> {
+            if (dfColumn.isNull(rowIndex))
+            {
+                builder.append(this.nullLiteral);
+            }
+            else
+            {
+                valueFormatter.appendValue(rowIndex, builder);
+            }
+        };
+    }
+
+    private interface CellFormatter
+    {
+        void appendValue(int rowIndex, StringBuilder builder);
+    }
+}
@@ -4,6 +4,8 @@ import io.github.vmzakharov.ecdataframe.dsl.value.ValueType;
 import org.eclipse.collections.api.factory.Lists;
 import org.eclipse.collections.api.list.MutableList;
 
+import java.util.Properties;
+
 public class CsvSchema
 {
     private String nullMarker;
@@ -95,4 +97,74 @@ public class CsvSchema
     {
         return this.columns.get(columnIndex);
     }
+
+    /**
+     * creates a copy of this schema with the same separators, null marker and columns. As column parsers are not
+     * thread safe, each of the data sets loaded concurrently needs its own copy of a schema
+     * @return a copy of this schema
+     */
+    public CsvSchema copy()
+    {
+        CsvSchema copy = new CsvSchema()
+                .nullMarker(this.nullMarker)
+                .separator(this.separator)
+                .quoteCharacter(this.quoteCharacter);
+
+        this.columns.forEach(column -> copy.addColumn(column.getName(), column.getType(), column.getPattern()));
+
+        return copy;
+    }
+
+    /**
+     * converts this schema to properties, so that it can be stored (for example, to avoid inferring the schema of a
+     * file every time the file is loaded)
+     * @return the properties describing this schema
+     */
+    Properties toProperties()
+    {
+        Properties properties = new Properties();
+
+        properties.setProperty("separator", String.valueOf(this.separator));
+        properties.setProperty("quoteCharacter", String.valueOf(this.quoteCharacter));
+        if (this.hasNullMarker())
+        {
+            properties.setProperty("nullMarker", this.nullMarker);
+        }
+
+        properties.setProperty("columnCount", String.valueOf(this.columnCount()));
+        this.columns.forEachWithIndex((column, index) -> {
+            properties.setProperty("column." + index + ".name", column.getName());
+            properties.setProperty("column." + index + ".type", column.getType().name());
+            if (column.getPattern() != null)
+            {
+                properties.setProperty("column." + index + ".pattern", column.getPattern());
+            }
+        });
+
+        return properties;
+    }
+
+    /**
+     * creates a schema from properties produced by {@code toProperties()}
+     * @param properties the properties describing the schema
+     * @return the schema
+     */
+    static CsvSchema fromProperties(Properties properties)
+    {
+        CsvSchema schema = new CsvSchema()
+                .nullMarker(properties.getProperty("nullMarker"))
+                .separator(properties.getProperty("separator").charAt(0))
+                .quoteCharacter(properties.getProperty("quoteCharacter").charAt(0));
+
+        int columnCount = Integer.parseInt(properties.getProperty("columnCount"));
+        for (int index = 0; index < columnCount; index++)
+        {
+            schema.addColumn(
+                    properties.getProperty("column." + index + ".name"),
+                    ValueType.valueOf(properties.getProperty("column." + index + ".type")),
+                    properties.getProperty("column." + index + ".pattern"));
+        }
+
+        return schema;
+    }
 }
@@ -7,8 +7,6 @@ import io.github.vmzakharov.ecdataframe.dsl.value.ValueType;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.time.format.ResolverStyle;
 
 public class CsvSchemaColumn
 {
@@ -17,7 +15,7 @@ public class CsvSchemaColumn
     private final String pattern;
 
     transient private final CsvSchema csvSchema;
-    transient private DateTimeFormatter dateTimeFormatter;
+    transient private DateTimeParser dateTimeParser;
     transient private DoubleFormatter doubleFormatter;
     transient private LongFormatter longFormatter;
 
@@ -45,7 +43,7 @@ public class CsvSchemaColumn
 
         if (this.type.isDate() || this.type.isDateTime())
         {
-            this.dateTimeFormatter = DateTimeFormatter.ofPattern(this.pattern).withResolverStyle(ResolverStyle.STRICT);
+            this.dateTimeParser = new DateTimeParser(this.pattern);
         }
         else if (this.type.isDouble())
         {
@@ -79,9 +77,10 @@ public class CsvSchemaColumn
             return null;
         }
 
-        String trimmed = aString.trim();
+        int begin = this.trimmedBegin(aString);
+        int end = this.trimmedEnd(aString, begin);
 
-        return trimmed.isEmpty() ? null : LocalDate.parse(trimmed, this.dateTimeFormatter);
+        return begin == end ? null : this.dateTimeParser.parseAsLocalDate(aString, begin, end);
     }
 
     public LocalDateTime parseAsLocalDateTime(String aString)
@@ -91,9 +90,33 @@ public class CsvSchemaColumn
             return null;
         }
 
-        String trimmed = aString.trim();
+        int begin = this.trimmedBegin(aString);
+        int end = this.trimmedEnd(aString, begin);
 
-        return trimmed.isEmpty() ? null : LocalDateTime.parse(trimmed, this.dateTimeFormatter);
+        return begin == end ? null : this.dateTimeParser.parseAsLocalDateTime(aString, begin, end);
+    }
+
+    private int trimmedBegin(String aString)
+    {
+        int begin = 0;
+        int length = aString.length();
+        while (begin < length && aString.charAt(begin) <= ' ')
+        {
+            begin++;
+        }
+
+        return begin;
+    }
+
+    private int trimmedEnd(String aString, int begin)
+    {
+        int end = aString.length();
+        while (end > begin && aString.charAt(end - 1) <= ' ')
+        {
+            end--;
+        }
+
+        return end;
     }
 
     public void parseAsDoubleAndAdd(String aString, DfColumn dfColumn)
@@ -132,4 +155,9 @@ public class CsvSchemaColumn
     {
         return this.longFormatter;
     }
+
+    public DateTimeParser getDateTimeParser()
+    {
+        return this.dateTimeParser;
+    }
 }
@@ -0,0 +1,680 @@
+package io.github.vmzakharov.ecdataframe.dataset;
+
+import org.eclipse.collections.api.list.MutableList;
+import org.eclipse.collections.impl.factory.Lists;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.util.Arrays;
+
+/**
+ * Parses dates and date/times laid out according to a {@code DateTimeFormatter} pattern. Purely numeric layouts, such
+ * as {@code uuuu-M-d}, {@code uuuuMMdd}, {@code M/d/uuuu} or {@code uuuu-MM-dd'T'HH:mm:ss[.SSS]}, are handled by a
+ * scanner working directly over a range of characters, without creating intermediate strings or exceptions. Other
+ * patterns, as well as any input the scanner cannot decide on, are passed on to a strict {@code DateTimeFormatter}, so
+ * the results (and the errors) are the same as if the formatter was used directly.
+ * <p>
+ * Recently parsed values are cached, so repeated values (common in date columns) are neither parsed nor allocated
+ * again.
+ * <p>
+ * The same layouts are used to format values, which is done without creating intermediate strings.
+ * <p>
+ * Parsing with instances of this class is not thread safe, formatting is.
+ */
+public class DateTimeParser
+{
+    static private final int CACHE_SIZE = 256;
+
+    static private final int PARSED = 0;
+    static private final int NO_MATCH = 1;
+    static private final int UNDECIDED = 2;
+
+    static private final int YEAR = 0;
+    static private final int MONTH = 1;
+    static private final int DAY = 2;
+    static private final int HOUR = 3;
+    static private final int MINUTE = 4;
+    static private final int SECOND = 5;
+    static private final int NANO = 6;
+    static private final int FIELD_COUNT = 7;
+
+    static private final int MAX_VARIABLE_WIDTH = 9;
+    static private final int FRACTION_DIGITS = 9;
+    static private final int MAX_FOUR_DIGIT_YEAR = 9_999;
+    static private final int[] POWERS_OF_TEN = {1, 10, 100, 1_000, 10_000, 100_000, 1_000_000, 10_000_000, 100_000_000, 1_000_000_000};
+
+    private final String pattern;
+    private final DateTimeFormatter formatter;
+    private final LayoutElement[] layout;
+    private final boolean dateLayout;
+    private final boolean dateTimeLayout;
+
+    private final int[] fieldValues = new int[FIELD_COUNT];
+    private final CachedValue[] cache = new CachedValue[CACHE_SIZE];
+
+    public DateTimeParser(String newPattern)
+    {
+        this.pattern = newPattern;
+        this.formatter = DateTimeFormatter.ofPattern(this.pattern).withResolverStyle(ResolverStyle.STRICT);
+        this.layout = compile(this.pattern);
+
+        boolean[] present = new boolean[FIELD_COUNT];
+        if (this.layout != null)
+        {
+            for (LayoutElement element : this.layout)
+            {
+                if (element.isField())
+                {
+                    present[element.field] = true;
+                }
+            }
+        }
+
+        boolean hasDate = present[YEAR] && present[MONTH] && present[DAY];
+        boolean hasTime = present[HOUR] || present[MINUTE] || present[SECOND] || present[NANO];
+
+        this.dateLayout = hasDate && !hasTime;
+        this.dateTimeLayout = hasDate && present[HOUR] && present[MINUTE] && (present[SECOND] || !present[NANO]);
+    }
+
+    public String getPattern()
+    {
+        return this.pattern;
+    }
+
+    public LocalDate parseAsLocalDate(CharSequence text)
+    {
+        return this.parseAsLocalDate(text, 0, text.length());
+    }
+
+    /**
+     * Parses the characters of {@code text} between {@code begin} (inclusive) and {@code end} (exclusive) as a date
+     * @param text the text containing the value to parse
+     * @param begin the index of the first character of the value
+     * @param end the index following the last character of the value
+     * @return the parsed date
+     * @throws DateTimeParseException if the value cannot be parsed
+     */
+    public LocalDate parseAsLocalDate(CharSequence text, int begin, int end)
+    {
+        int cacheSlot = this.cacheSlot(text, begin, end);
+        CachedValue cached = this.cache[cacheSlot];
+        if (cached != null && cached.value instanceof LocalDate && cached.matches(text, begin, end))
+        {
+            return (LocalDate) cached.value;
+        }
+
+        LocalDate parsed;
+        if (this.dateLayout && this.scan(text, begin, end) == PARSED)
+        {
+            int[] values = this.fieldValues;
+            parsed = LocalDate.of(values[YEAR], values[MONTH], values[DAY]);
+        }
+        else
+        {
+            parsed = LocalDate.parse(text.subSequence(begin, end), this.formatter);
+        }
+
+        this.cache[cacheSlot] = new CachedValue(this.keyFor(text, begin, end), parsed);
+
+        return parsed;
+    }
+
+    public LocalDateTime parseAsLocalDateTime(CharSequence text)
+    {
+        return this.parseAsLocalDateTime(text, 0, text.length());
+    }
+
+    /**
+     * Parses the characters of {@code text} between {@code begin} (inclusive) and {@code end} (exclusive) as a date/time
+     * @param text the text containing the value to parse
+     * @param begin the index of the first character of the value
+     * @param end the index following the last character of the value
+     * @return the parsed date/time
+     * @throws DateTimeParseException if the value cannot be parsed
+     */
+    public LocalDateTime parseAsLocalDateTime(CharSequence text, int begin, int end)
+    {
+        int cacheSlot = this.cacheSlot(text, begin, end);
+        CachedValue cached = this.cache[cacheSlot];
+        if (cached != null && cached.value instanceof LocalDateTime && cached.matches(text, begin, end))
+        {
+            return (LocalDateTime) cached.value;
+        }
+
+        LocalDateTime parsed;
+        if (this.dateTimeLayout && this.scan(text, begin, end) == PARSED)
+        {
+            int[] values = this.fieldValues;
+            parsed = LocalDateTime.of(
+                    values[YEAR], values[MONTH], values[DAY], values[HOUR], values[MINUTE], values[SECOND], values[NANO]);
+        }
+        else
+        {
+            parsed = LocalDateTime.parse(text.subSequence(begin, end), this.formatter);
+        }
+
+        this.cache[cacheSlot] = new CachedValue(this.keyFor(text, begin, end), parsed);
+
+        return parsed;
+    }
+
+    /**
+     * Appends the date formatted according to this parser's pattern to the string builder. Safe to call from multiple
+     * threads.
+     * @param date the date to format
+     * @param builder the string builder to append the formatted value to
+     */
+    public void appendFormatted(LocalDate date, StringBuilder builder)
+    {
+        int year = date.getYear();
+        if (this.dateLayout && year >= 0 && year <= MAX_FOUR_DIGIT_YEAR)
+        {
+            this.appendLayout(builder, year, date.getMonthValue(), date.getDayOfMonth(), 0, 0, 0, 0);
+        }
+        else
+        {
+            this.formatter.formatTo(date, builder);
+        }
+    }
+
+    /**
+     * Appends the date/time formatted according to this parser's pattern to the string builder. Safe to call from
+     * multiple threads.
+     * @param dateTime the date/time to format
+     * @param builder the string builder to append the formatted value to
+     */
+    public void appendFormatted(LocalDateTime dateTime, StringBuilder builder)
+    {
+        int year = dateTime.getYear();
+        if (this.dateTimeLayout && year >= 0 && year <= MAX_FOUR_DIGIT_YEAR)
+        {
+            this.appendLayout(builder, year, dateTime.getMonthValue(), dateTime.getDayOfMonth(),
+                    dateTime.getHour(), dateTime.getMinute(), dateTime.getSecond(), dateTime.getNano());
+        }
+        else
+        {
+            this.formatter.formatTo(dateTime, builder);
+        }
+    }
+
+    private void appendLayout(StringBuilder builder, int year, int month, int day, int hour, int minute, int second, int nano)
+    {
+        for (LayoutElement element : this.layout)
+        {
+            if (!element.isField())
+            {
+                builder.append(element.literal);
+                continue;
+            }
+
+            int value;
+            switch (element.field)
+            {
+                case YEAR:
+                    value = year;
+                    break;
+                case MONTH:
+                    value = month;
+                    break;
+                case DAY:
+                    value = day;
+                    break;
+                case HOUR:
+                    value = hour;
+                    break;
+                case MINUTE:
+                    value = minute;
+                    break;
+                case SECOND:
+                    value = second;
+                    break;
+                default:
+                    value = nano / POWERS_OF_TEN[FRACTION_DIGITS - element.width];
+            }
+
+            if (element.optional)
+            {
+                builder.append(element.literal);
+            }
+
+            if (!element.isVariableWidth())
+            {
+                for (int padding = element.width - 1; padding > 0 && value < POWERS_OF_TEN[padding]; padding--)
+                {
+                    builder.append('0');
+                }
+            }
+
+            builder.append(value);
+        }
+    }
+
+    /**
+     * Checks if the text can be parsed as a date using this parser's pattern. Used for type inference, where most
+     * candidate patterns do not match, so this method avoids throwing exceptions whenever it can.
+     * @param text the text to check
+     * @return true if the text is a valid date in this parser's pattern, false otherwise
+     */
+    public boolean canParseAsLocalDate(CharSequence text)
+    {
+        if (this.dateLayout)
+        {
+            int result = this.scan(text, 0, text.length());
+            if (result != UNDECIDED)
+            {
+                return result == PARSED;
+            }
+        }
+
+        try
+        {
+            LocalDate.parse(text, this.formatter);
+            return true;
+        }
+        catch (DateTimeParseException e)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Checks if the text can be parsed as a date/time using this parser's pattern. Used for type inference, where most
+     * candidate patterns do not match, so this method avoids throwing exceptions whenever it can.
+     * @param text the text to check
+     * @return true if the text is a valid date/time in this parser's pattern, false otherwise
+     */
+    public boolean canParseAsLocalDateTime(CharSequence text)
+    {
+        if (this.dateTimeLayout)
+        {
+            int result = this.scan(text, 0, text.length());
+            if (result != UNDECIDED)
+            {
+                return result == PARSED;
+            }
+        }
+
+        try
+        {
+            LocalDateTime.parse(text, this.formatter);
+            return true;
+        }
+        catch (DateTimeParseException e)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Scans the text according to the layout, placing the field values into {@code fieldValues}.
+     * @return {@code PARSED} if the text is a valid value, {@code NO_MATCH} if it is definitely not a valid value,
+     * {@code UNDECIDED} if the text goes beyond what the scanner handles (leading signs, years longer than four
+     * digits, etc.) and should be left to the formatter
+     */
+    private int scan(CharSequence text, int begin, int end)
+    {
+        int[] values = this.fieldValues;
+        Arrays.fill(values, 0);
+
+        int position = begin;
+        for (LayoutElement element : this.layout)
+        {
+            if (!element.isField())
+            {
+                if (position == end)
+                {
+                    return NO_MATCH;
+                }
+
+                char c = text.charAt(position);
+                if (c != element.literal)
+                {
+                    return this.mismatch(c);
+                }
+
+                position++;
+                continue;
+            }
+
+            if (element.optional)
+            {
+                if (position == end)
+                {
+                    continue;
+                }
+
+                char c = text.charAt(position);
+                if (c != element.literal)
+                {
+                    return this.mismatch(c);
+                }
+
+                position++;
+            }
+
+            int maxWidth = element.isVariableWidth() ? MAX_VARIABLE_WIDTH : element.width;
+            int value = 0;
+            int digitCount = 0;
+            while (digitCount < maxWidth && position < end)
+            {
+                char c = text.charAt(position);
+                if (c < '0' || c > '9')
+                {
+                    break;
+                }
+
+                value = value * 10 + (c - '0');
+                position++;
+                digitCount++;
+            }
+
+            if (digitCount == 0 || (!element.isVariableWidth() && digitCount < element.width))
+            {
+                return position < end && this.isSign(text.charAt(position)) ? UNDECIDED : NO_MATCH;
+            }
+
+            if (element.isVariableWidth() && digitCount == MAX_VARIABLE_WIDTH && position < end && this.isDigit(text.charAt(position)))
+            {
+                return UNDECIDED;
+            }
+
+            values[element.field] = element.field == NANO ? value * POWERS_OF_TEN[FRACTION_DIGITS - element.width] : value;
+        }
+
+        if (position < end)
+        {
+            return this.mismatch(text.charAt(position));
+        }
+
+        return this.fieldValuesValid() ? PARSED : NO_MATCH;
+    }
+
+    private boolean fieldValuesValid()
+    {
+        int[] values = this.fieldValues;
+
+        int month = values[MONTH];
+        if (month < 1 || month > 12)
+        {
+            return false;
+        }
+
+        int day = values[DAY];
+        if (day < 1 || day > this.monthLength(values[YEAR], month))
+        {
+            return false;
+        }
+
+        return values[HOUR] < 24 && values[MINUTE] < 60 && values[SECOND] < 60;
+    }
+
+    private int monthLength(int year, int month)
+    {
+        switch (month)
+        {
+            case 2:
+                return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0 ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /*
+     * a digit where a literal or the end of text is expected may still be matched by the formatter, which allows wider
+     * (e.g. five digit) years
+     */
+    private int mismatch(char c)
+    {
+        return this.isDigit(c) || this.isSign(c) ? UNDECIDED : NO_MATCH;
+    }
+
+    private boolean isDigit(char c)
+    {
+        return c >= '0' && c <= '9';
+    }
+
+    private boolean isSign(char c)
+    {
+        return c == '+' || c == '-';
+    }
+
+    private int cacheSlot(CharSequence text, int begin, int end)
+    {
+        int hash = 0;
+        for (int i = begin; i < end; i++)
+        {
+            hash = 31 * hash + text.charAt(i);
+        }
+
+        return (hash ^ (hash >>> 16)) & (CACHE_SIZE - 1);
+    }
+
+    private String keyFor(CharSequence text, int begin, int end)
+    {
+        if (begin == 0 && end == text.length() && text instanceof String)
+        {
+            return (String) text;
+        }
+
+        return text.subSequence(begin, end).toString();
+    }
+
+    /**
+     * Compiles a pattern into a sequence of fixed or variable width numeric fields and literals.
+     * @return the compiled layout or null if the pattern contains elements not supported by the scanner
+     */
+    static private LayoutElement[] compile(String pattern)
+    {
+        MutableList<LayoutElement> elements = Lists.mutable.of();
+
+        int length = pattern.length();
+        int index = 0;
+        while (index < length)
+        {
+            char c = pattern.charAt(index);
+            if (Character.isLetter(c))
+            {
+                int count = 1;
+                while (index + count < length && pattern.charAt(index + count) == c)
+                {
+                    count++;
+                }
+
+                LayoutElement field = fieldFor(c, count, false, ' ');
+
+                if (field == null || !canFollow(elements, field))
+                {
+                    return null;
+                }
+
+                elements.add(field);
+                index += count;
+            }
+            else if (c == '\'')
+            {
+                int closingQuote = pattern.indexOf('\'', index + 1);
+                if (closingQuote == -1
+                        || (closingQuote > index + 1 && closingQuote + 1 < length && pattern.charAt(closingQuote + 1) == '\''))
+                {
+                    // quotes escaped inside quoted text are left to the formatter
+                    return null;
+                }
+
+                if (closingQuote == index + 1)
+                {
+                    elements.add(new LayoutElement('\''));
+                }
+                else
+                {
+                    for (int i = index + 1; i < closingQuote; i++)
+                    {
+                        elements.add(new LayoutElement(pattern.charAt(i)));
+                    }
+                }
+
+                index = closingQuote + 1;
+            }
+            else if (c == '[')
+            {
+                // the only supported optional section is a trailing fraction of a second, like [.SSS]
+                int fractionWidth = length - index - 3;
+                if (fractionWidth < 1
+                        || pattern.charAt(length - 1) != ']'
+                        || Character.isLetter(pattern.charAt(index + 1))
+                        || isReserved(pattern.charAt(index + 1)))
+                {
+                    return null;
+                }
+
+                for (int i = index + 2; i < length - 1; i++)
+                {
+                    if (pattern.charAt(i) != 'S')
+                    {
+                        return null;
+                    }
+                }
+
+                LayoutElement fraction = fieldFor('S', fractionWidth, true, pattern.charAt(index + 1));
+                if (fraction == null)
+                {
+                    return null;
+                }
+
+                elements.add(fraction);
+                index = length;
+            }
+            else if (isReserved(c))
+            {
+                return null;
+            }
+            else
+            {
+                elements.add(new LayoutElement(c));
+                index++;
+            }
+        }
+
+        return elements.toArray(new LayoutElement[elements.size()]);
+    }
+
+    static private boolean isReserved(char c)
+    {
+        return c == '[' || c == ']' || c == '{' || c == '}' || c == '#' || c == '\'';
+    }
+
+    /*
+     * a variable width field immediately followed by another field puts the formatter into adjacent value parsing
+     * mode, leave these to the formatter
+     */
+    static private boolean canFollow(MutableList<LayoutElement> elements, LayoutElement field)
+    {
+        if (elements.isEmpty())
+        {
+            return true;
+        }
+
+        LayoutElement previous = elements.getLast();
+
+        return !previous.isField() || (!previous.isVariableWidth() && !field.isVariableWidth());
+    }
+
+    static private LayoutElement fieldFor(char letter, int count, boolean optional, char optionalPrefix)
+    {
+        switch (letter)
+        {
+            case 'u':
+                // the year is four digits wide, wider years are left to the formatter
+                return count == 4 ? new LayoutElement(YEAR, 4) : null;
+            case 'M':
+                return count <= 2 ? new LayoutElement(MONTH, count == 1 ? 0 : 2) : null;
+            case 'd':
+                return count <= 2 ? new LayoutElement(DAY, count == 1 ? 0 : 2) : null;
+            case 'H':
+                return count <= 2 ? new LayoutElement(HOUR, count == 1 ? 0 : 2) : null;
+            case 'm':
+                return count <= 2 ? new LayoutElement(MINUTE, count == 1 ? 0 : 2) : null;
+            case 's':
+                return count <= 2 ? new LayoutElement(SECOND, count == 1 ? 0 : 2) : null;
+            case 'S':
+                return count <= FRACTION_DIGITS ? new LayoutElement(NANO, count, optional, optionalPrefix) : null;
+            default:
+                return null;
+        }
+    }
+
+    static private final class LayoutElement
+    {
+        private final int field;
+        private final int width;
+        private final boolean optional;
+        private final char literal;
+
+        private LayoutElement(char newLiteral)
+        {
+            this(-1, 0, false, newLiteral);
+        }
+
+        private LayoutElement(int newField, int newWidth)
+        {
+            this(newField, newWidth, false, ' ');
+        }
+
+        private LayoutElement(int newField, int newWidth, boolean newOptional, char newLiteral)
+        {
+            this.field = newField;
+            this.width = newWidth;
+            this.optional = newOptional;
+            this.literal = newLiteral;
+        }
+
+        public boolean isField()
+        {
+            return this.field != -1;
+        }
+
+        public boolean isVariableWidth()
+        {
+            return this.isField() && this.width == 0;
+        }
+    }
+
+    static private final class CachedValue
+    {
+        private final String key;
+        private final Object value;
+
+        private CachedValue(String newKey, Object newValue)
+        {
+            this.key = newKey;
+            this.value = newValue;
+        }
+
+        public boolean matches(CharSequence text, int begin, int end)
+        {
+            int length = end - begin;
+            if (this.key.length() != length)
+            {
+                return false;
+            }
+
+            for (int i = 0; i < length; i++)
+            {
+                if (this.key.charAt(i) != text.charAt(begin + i))
+                {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+}
@@ -12,21 +12,30 @@ public class DoubleFormatter
     private DecimalFormat decimalFormat;
     private DoubleFunction<String> doubleParser;
     private Pattern nonNumericPattern;
+    private NumberParser numberParser;
 
     public DoubleFormatter(String pattern)
     {
         if (StringIterate.isEmpty(pattern))
         {
             this.doubleParser = Double::parseDouble;
+            this.numberParser = NumberParser.forDouble();
         }
         else if (pattern.length() == 1)
         {
             this.nonNumericPattern = Pattern.compile("[^0-9" + pattern + "]");
             this.doubleParser = s -> Double.parseDouble(this.stripNonNumericCharacters(s).replace(pattern, "."));
+
+            char decimalSeparator = pattern.charAt(0);
+            if ((decimalSeparator < '0' || decimalSeparator > '9') && "\\[]^&-".indexOf(decimalSeparator) == -1)
+            {
+                this.numberParser = NumberParser.ignoringNonNumeric(decimalSeparator);
+            }
         }
         else
         {
             this.decimalFormat = new DecimalFormat(pattern);
+            this.numberParser = NumberParser.forDecimalFormat(this.decimalFormat);
             this.doubleParser = s -> {
                 try
                 {
@@ -47,6 +56,15 @@ public class DoubleFormatter
             return 0.0;
         }
 
+        if (this.numberParser != null)
+        {
+            double parsed = this.numberParser.parseDouble(aString);
+            if (!Double.isNaN(parsed))
+            {
+                return parsed;
+            }
+        }
+
         return this.doubleParser.applyAsDouble(aString);
     }
 
@@ -59,4 +77,16 @@ public class DoubleFormatter
     {
         return this.decimalFormat == null ? Double.toString(doubleValue) : this.decimalFormat.format(doubleValue);
     }
+
+    public void appendFormatted(double doubleValue, StringBuilder builder)
+    {
+        if (this.decimalFormat == null)
+        {
+            builder.append(doubleValue);
+        }
+        else
+        {
+            builder.append(this.decimalFormat.format(doubleValue));
+        }
+    }
 }
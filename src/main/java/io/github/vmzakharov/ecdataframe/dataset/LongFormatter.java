@@ -12,21 +12,31 @@ public class LongFormatter
     private DecimalFormat decimalFormat;
     private LongFunction<String> longParser;
     private Pattern nonNumericPattern;
+    private NumberParser numberParser;
 
     public LongFormatter(String pattern)
     {
         if (StringIterate.isEmpty(pattern))
         {
             this.longParser = Long::parseLong;
+            this.numberParser = NumberParser.forLong();
         }
         else if (pattern.length() == 1)
         {
             this.nonNumericPattern = Pattern.compile("[^0-9" + pattern + "]");
             this.longParser = s -> Long.parseLong(this.stripNonNumericCharacters(s));
+
+            char separator = pattern.charAt(0);
+            if ("\\[]^&-".indexOf(separator) == -1)
+            {
+                // the separator is kept when stripping non-numeric characters, so it makes a value unparseable
+                this.numberParser = NumberParser.ignoringNonNumeric(separator);
+            }
         }
         else
         {
             this.decimalFormat = new DecimalFormat(pattern);
+            this.numberParser = NumberParser.forDecimalFormat(this.decimalFormat);
             this.longParser = s -> {
                 try
                 {
@@ -47,6 +57,15 @@ public class LongFormatter
             return 0L;
         }
 
+        if (this.numberParser != null)
+        {
+            long parsed = this.numberParser.parseLong(aString);
+            if (parsed != NumberParser.NOT_PARSED_LONG)
+            {
+                return parsed;
+            }
+        }
+
         return this.longParser.applyAsLong(aString);
     }
 
@@ -55,6 +74,18 @@ public class LongFormatter
         return this.decimalFormat == null ? Long.toString(longValue) : this.decimalFormat.format(longValue);
     }
 
+    public void appendFormatted(long longValue, StringBuilder builder)
+    {
+        if (this.decimalFormat == null)
+        {
+            builder.append(longValue);
+        }
+        else
+        {
+            builder.append(this.decimalFormat.format(longValue));
+        }
+    }
+
     private String stripNonNumericCharacters(String s)
     {
         return this.nonNumericPattern.matcher(s).replaceAll("");
@@ -0,0 +1,222 @@
+package io.github.vmzakharov.ecdataframe.dataset;
+
+import io.github.vmzakharov.ecdataframe.dataframe.DataFrame;
+import io.github.vmzakharov.ecdataframe.dataframe.DfColumnStored;
+import io.github.vmzakharov.ecdataframe.dataframe.ErrorReporter;
+import org.eclipse.collections.api.list.ListIterable;
+import org.eclipse.collections.api.list.MutableList;
+import org.eclipse.collections.impl.factory.Lists;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Stream;
+
+/**
+ * A data set made up of several CSV sources with the same layout - either the files in a directory matching a glob
+ * pattern or all the entries of a zip archive. The sources are decompressed (if needed) and parsed concurrently and
+ * the results are concatenated, in the order of source names, into a single data frame, the same way
+ * {@code DataFrame.union} would. String values are pooled across all the sources.
+ * <p>
+ * If the schema is not specified, it is inferred from the first source.
+ */
+public class MultiSourceCsvDataSet
+extends DataSetAbstract
+{
+    private final Path location;
+    private final String glob;
+
+    private CsvSchema schema;
+    private boolean emptyElementsConvertedToNulls = false;
+
+    /**
+     * creates a data set of all the entries of a zip archive
+     * @param newZipFilePath the path to the archive
+     * @param newName the name of the data set
+     */
+    public MultiSourceCsvDataSet(Path newZipFilePath, String newName)
+    {
+        this(newZipFilePath, null, newName, null);
+    }
+
+    /**
+     * creates a data set of all the entries of a zip archive
+     * @param newZipFilePath the path to the archive
+     * @param newName the name of the data set
+     * @param newSchema the schema shared by all the entries
+     */
+    public MultiSourceCsvDataSet(Path newZipFilePath, String newName, CsvSchema newSchema)
+    {
+        this(newZipFilePath, null, newName, newSchema);
+    }
+
+    /**
+     * creates a data set of the files in a directory matching a glob pattern
+     * @param newDirectory the directory containing the files
+     * @param newGlob the glob pattern, for example {@code "*.csv.gz"}
+     * @param newName the name of the data set
+     */
+    public MultiSourceCsvDataSet(Path newDirectory, String newGlob, String newName)
+    {
+        this(newDirectory, newGlob, newName, null);
+    }
+
+    /**
+     * creates a data set of the files in a directory matching a glob pattern
+     * @param newDirectory the directory containing the files
+     * @param newGlob the glob pattern, for example {@code "*.csv.gz"}
+     * @param newName the name of the data set
+     * @param newSchema the schema shared by all the files
+     */
+    public MultiSourceCsvDataSet(Path newDirectory, String newGlob, String newName, CsvSchema newSchema)
+    {
+        super(newName);
+        this.location = newDirectory;
+        this.glob = newGlob;
+        this.schema = newSchema;
+    }
+
+    @Override
+    public void openFileForReading()
+    {
+        // Not needed for CSV files
+    }
+
+    public void convertEmptyElementsToNulls()
+    {
+        this.emptyElementsConvertedToNulls = true;
+    }
+
+    @Override
+    public Object next()
+    {
+        return null;
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+        return false;
+    }
+
+    @Override
+    public void close()
+    {
+        // Not needed for CSV files
+    }
+
+    public CsvSchema getSchema()
+    {
+        return this.schema;
+    }
+
+    /**
+     * Loads all the sources of this data set as a single data frame.
+     * @return a data frame containing the rows of all the sources, in the order of the source names
+     */
+    public DataFrame loadAsDataFrame()
+    {
+        try
+        {
+            if (this.glob == null)
+            {
+                try (FileSystem zipFileSystem = FileSystems.newFileSystem(this.location, (ClassLoader) null))
+                {
+                    MutableList<Path> entries = Lists.mutable.of();
+                    for (Path root : zipFileSystem.getRootDirectories())
+                    {
+                        try (Stream<Path> paths = Files.walk(root))
+                        {
+                            paths.filter(Files::isRegularFile).forEach(entries::add);
+                        }
+                    }
+
+                    return this.loadFromSources(entries.sortThisBy(Path::toString));
+                }
+            }
+
+            MutableList<Path> files = Lists.mutable.of();
+            try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(this.location, this.glob))
+            {
+                directoryStream.forEach(files::add);
+            }
+
+            return this.loadFromSources(files.sortThisBy(path -> path.getFileName().toString()));
+        }
+        catch (IOException e)
+        {
+            ErrorReporter.reportAndThrow("Failed to load as a data frame '" + this.location + "'", e);
+        }
+
+        return null;
+    }
+
+    private DataFrame loadFromSources(ListIterable<Path> sources)
+    {
+        ErrorReporter.reportAndThrowIf(sources.isEmpty(), () -> "No data sources found for data set '" + this.getName() + "'");
+
+        if (this.schema == null)
+        {
+            this.schema = new CsvDataSet(sources.getFirst(), this.getName()).inferSchema();
+        }
+
+        ListIterable<CompletableFuture<DataFrame>> loading = sources.collect(
+                source -> CompletableFuture.supplyAsync(() -> this.dataSetFor(source).loadAsDataFrame()));
+
+        ListIterable<DataFrame> loaded;
+        try
+        {
+            loaded = loading.collect(CompletableFuture::join);
+        }
+        catch (CompletionException e)
+        {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+
+        return this.concatenate(loaded);
+    }
+
+    private CsvDataSet dataSetFor(Path source)
+    {
+        // column parsers are not thread safe, so each source gets its own copy of the schema
+        CsvDataSet dataSet = new CsvDataSet(source, this.getName(), this.schema.copy());
+
+        if (this.emptyElementsConvertedToNulls)
+        {
+            dataSet.convertEmptyElementsToNulls();
+        }
+
+        return dataSet;
+    }
+
+    private DataFrame concatenate(ListIterable<DataFrame> dataFrames)
+    {
+        DataFrame result = new DataFrame(this.getName());
+        result.enablePooling();
+
+        this.schema.getColumns().forEach(column -> result.addColumn(column.getName(), column.getType()));
+
+        int columnCount = result.columnCount();
+        long totalRowCount = dataFrames.sumOfInt(DataFrame::rowCount);
+
+        for (int columnIndex = 0; columnIndex < columnCount; columnIndex++)
+        {
+            DfColumnStored target = (DfColumnStored) result.getColumnAt(columnIndex);
+            target.ensureInitialCapacity((int) totalRowCount);
+
+            for (DataFrame dataFrame : dataFrames)
+            {
+                target.addAllValuesFrom(dataFrame.getColumnAt(columnIndex));
+            }
+        }
+
+        result.seal();
+
+        return result;
+    }
+}
@@ -0,0 +1,405 @@
+package io.github.vmzakharov.ecdataframe.dataset;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+
+/**
+ * An allocation free parser for the common shapes of numeric text handled by {@code DoubleFormatter} and
+ * {@code LongFormatter}: plain numbers, numbers with a custom decimal separator surrounded by characters to ignore, and
+ * numbers written according to a simple {@code DecimalFormat} pattern (prefixes, suffixes, grouping and decimal
+ * separators). The parser works directly over the characters of the input and only handles cases where the result is
+ * guaranteed to be the same as the one produced by the general purpose parsing - anything else, including malformed
+ * input, is signalled back to the caller with {@code NOT_PARSED_LONG} or {@code NOT_PARSED_DOUBLE}, so that the caller
+ * can fall back on the general purpose parsing (and its error reporting).
+ * <p>
+ * Double values are exact: a value is only produced when both its significand and the power of ten it is scaled by
+ * are exactly representable as doubles, so the result is rounded once and is the same as that of
+ * {@code Double.parseDouble}.
+ * <p>
+ * Instances of this class are immutable and can be shared between threads.
+ */
+final class NumberParser
+{
+    /**
+     * returned by {@code parseLong} if the input cannot be parsed by this parser. It is also a valid long value, so
+     * the input producing it will always be parsed by the fallback parser, which is fine since it is rare
+     */
+    static final long NOT_PARSED_LONG = Long.MIN_VALUE;
+
+    /**
+     * returned by {@code parseDouble} if the input cannot be parsed by this parser. NaN is never produced by this
+     * parser otherwise (the text "NaN" is left to the fallback parser)
+     */
+    static final double NOT_PARSED_DOUBLE = Double.NaN;
+
+    static private final char NONE = '\uFFFF';
+
+    static private final int POSITIVE = 0;
+    static private final int NEGATIVE = 1;
+    static private final int UNKNOWN = 2;
+
+    static private final long MAX_EXACT_SIGNIFICAND = 1L << 53;
+    static private final int MAX_EXPONENT_DIGITS = 4;
+    static private final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final boolean trimmed;
+    private final boolean signed;
+    private final boolean exponentAllowed;
+    private final boolean otherCharactersIgnored;
+    private final char decimalSeparator;
+    private final char groupingSeparator;
+
+    private final String positivePrefix;
+    private final String positiveSuffix;
+    private final String negativePrefix;
+    private final String negativeSuffix;
+
+    private NumberParser(
+            boolean newTrimmed,
+            boolean newSigned,
+            boolean newExponentAllowed,
+            boolean newOtherCharactersIgnored,
+            char newDecimalSeparator,
+            char newGroupingSeparator,
+            String newPositivePrefix, String newPositiveSuffix, String newNegativePrefix, String newNegativeSuffix)
+    {
+        this.trimmed = newTrimmed;
+        this.signed = newSigned;
+        this.exponentAllowed = newExponentAllowed;
+        this.otherCharactersIgnored = newOtherCharactersIgnored;
+        this.decimalSeparator = newDecimalSeparator;
+        this.groupingSeparator = newGroupingSeparator;
+        this.positivePrefix = newPositivePrefix;
+        this.positiveSuffix = newPositiveSuffix;
+        this.negativePrefix = newNegativePrefix;
+        this.negativeSuffix = newNegativeSuffix;
+    }
+
+    /**
+     * a parser for text accepted by {@code Double.parseDouble}
+     */
+    static NumberParser forDouble()
+    {
+        return new NumberParser(true, true, true, false, '.', NONE, null, null, null, null);
+    }
+
+    /**
+     * a parser for text accepted by {@code Long.parseLong}
+     */
+    static NumberParser forLong()
+    {
+        return new NumberParser(false, true, false, false, NONE, NONE, null, null, null, null);
+    }
+
+    /**
+     * a parser that only pays attention to digits and the decimal separator, ignoring all other characters
+     * @param decimalSeparator the character separating the integer and fraction parts of a number
+     */
+    static NumberParser ignoringNonNumeric(char decimalSeparator)
+    {
+        return new NumberParser(false, false, false, true, decimalSeparator, NONE, null, null, null, null);
+    }
+
+    /**
+     * a parser for numbers formatted using the specified decimal format
+     * @param format the decimal format
+     * @return a parser or null if the format uses features not supported by the parser, such as multipliers (percent
+     * values), currency symbols or scientific notation
+     */
+    static NumberParser forDecimalFormat(DecimalFormat format)
+    {
+        DecimalFormatSymbols symbols = format.getDecimalFormatSymbols();
+        String pattern = format.toPattern();
+
+        if (format.getMultiplier() != 1
+                || format.isParseBigDecimal()
+                || format.isParseIntegerOnly()
+                || symbols.getZeroDigit() != '0'
+                || pattern.indexOf('E') != -1
+                || pattern.indexOf('\u00A4') != -1)
+        {
+            return null;
+        }
+
+        char decimal = symbols.getDecimalSeparator();
+        char grouping = format.isGroupingUsed() ? symbols.getGroupingSeparator() : NONE;
+
+        // the digits of the number could run into a suffix starting with a character that looks like a part of a number
+        for (String suffix : new String[] {format.getPositiveSuffix(), format.getNegativeSuffix()})
+        {
+            if (!suffix.isEmpty())
+            {
+                char first = suffix.charAt(0);
+                if (Character.isDigit(first) || first == decimal || first == grouping)
+                {
+                    return null;
+                }
+            }
+        }
+
+        return new NumberParser(true, false, false, false, decimal, grouping,
+                format.getPositivePrefix(), format.getPositiveSuffix(), format.getNegativePrefix(), format.getNegativeSuffix());
+    }
+
+    long parseLong(String s)
+    {
+        int begin = this.trimmed ? trimmedBegin(s) : 0;
+        int end = this.trimmed ? trimmedEnd(s, begin) : s.length();
+
+        int sign = this.signOf(s, begin, end);
+        if (sign == UNKNOWN)
+        {
+            return NOT_PARSED_LONG;
+        }
+
+        begin += this.prefixLength(s, begin, sign);
+        end -= this.suffixLength(sign);
+
+        long value = 0;
+        int digitCount = 0;
+
+        for (int i = begin; i < end; i++)
+        {
+            char c = s.charAt(i);
+            if (isDigit(c))
+            {
+                int digit = c - '0';
+                if (value > (Long.MAX_VALUE - digit) / 10)
+                {
+                    return NOT_PARSED_LONG;
+                }
+
+                value = value * 10 + digit;
+                digitCount++;
+            }
+            else if (c == this.groupingSeparator && c != NONE && i + 1 < end && isDigit(s.charAt(i + 1)))
+            {
+                // skip
+            }
+            else if (!this.otherCharactersIgnored || c == this.decimalSeparator)
+            {
+                return NOT_PARSED_LONG;
+            }
+        }
+
+        if (digitCount == 0)
+        {
+            return NOT_PARSED_LONG;
+        }
+
+        return sign == NEGATIVE ? -value : value;
+    }
+
+    double parseDouble(String s)
+    {
+        int begin = this.trimmed ? trimmedBegin(s) : 0;
+        int end = this.trimmed ? trimmedEnd(s, begin) : s.length();
+
+        int sign = this.signOf(s, begin, end);
+        if (sign == UNKNOWN)
+        {
+            return NOT_PARSED_DOUBLE;
+        }
+
+        begin += this.prefixLength(s, begin, sign);
+        end -= this.suffixLength(sign);
+
+        long significand = 0;
+        int exponent = 0;
+        int digitCount = 0;
+        boolean sawDecimalSeparator = false;
+
+        int index = begin;
+        while (index < end)
+        {
+            char c = s.charAt(index);
+            if (isDigit(c))
+            {
+                digitCount++;
+                significand = significand * 10 + (c - '0');
+                if (significand > MAX_EXACT_SIGNIFICAND)
+                {
+                    return NOT_PARSED_DOUBLE;
+                }
+
+                if (sawDecimalSeparator)
+                {
+                    exponent--;
+                }
+            }
+            else if (c == this.decimalSeparator)
+            {
+                if (sawDecimalSeparator)
+                {
+                    return NOT_PARSED_DOUBLE;
+                }
+
+                sawDecimalSeparator = true;
+            }
+            else if (c == this.groupingSeparator && c != NONE && !sawDecimalSeparator && index + 1 < end && isDigit(s.charAt(index + 1)))
+            {
+                // skip
+            }
+            else if (this.exponentAllowed && (c == 'e' || c == 'E'))
+            {
+                break;
+            }
+            else if (!this.otherCharactersIgnored)
+            {
+                return NOT_PARSED_DOUBLE;
+            }
+
+            index++;
+        }
+
+        if (digitCount == 0)
+        {
+            return NOT_PARSED_DOUBLE;
+        }
+
+        if (index < end)
+        {
+            // an exponent: an optional sign followed by digits running to the end of the number
+            index++;
+            boolean negativeExponent = false;
+            if (index < end && (s.charAt(index) == '-' || s.charAt(index) == '+'))
+            {
+                negativeExponent = s.charAt(index) == '-';
+                index++;
+            }
+
+            int exponentDigitCount = end - index;
+            if (exponentDigitCount == 0 || exponentDigitCount > MAX_EXPONENT_DIGITS)
+            {
+                return NOT_PARSED_DOUBLE;
+            }
+
+            int explicitExponent = 0;
+            for (; index < end; index++)
+            {
+                char c = s.charAt(index);
+                if (!isDigit(c))
+                {
+                    return NOT_PARSED_DOUBLE;
+                }
+
+                explicitExponent = explicitExponent * 10 + (c - '0');
+            }
+
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+
+        double value;
+        if (significand == 0)
+        {
+            value = 0.0;
+        }
+        else if (exponent >= 0 && exponent < POWERS_OF_TEN.length)
+        {
+            value = significand * POWERS_OF_TEN[exponent];
+        }
+        else if (exponent < 0 && -exponent < POWERS_OF_TEN.length)
+        {
+            value = significand / POWERS_OF_TEN[-exponent];
+        }
+        else
+        {
+            return NOT_PARSED_DOUBLE;
+        }
+
+        return sign == NEGATIVE ? -value : value;
+    }
+
+    private int signOf(String s, int begin, int end)
+    {
+        if (this.positivePrefix == null)
+        {
+            return this.signed && begin < end && s.charAt(begin) == '-' ? NEGATIVE : POSITIVE;
+        }
+
+        // same as DecimalFormat, the sign is decided by the longest matching prefix, then the suffix has to match
+        boolean positive = s.startsWith(this.positivePrefix, begin);
+        boolean negative = s.startsWith(this.negativePrefix, begin);
+
+        if (positive && negative)
+        {
+            int positiveLength = this.positivePrefix.length();
+            int negativeLength = this.negativePrefix.length();
+            if (positiveLength == negativeLength)
+            {
+                return UNKNOWN;
+            }
+
+            positive = positiveLength > negativeLength;
+            negative = !positive;
+        }
+
+        if (positive)
+        {
+            return this.suffixMatches(s, begin, end, this.positivePrefix, this.positiveSuffix) ? POSITIVE : UNKNOWN;
+        }
+
+        if (negative)
+        {
+            return this.suffixMatches(s, begin, end, this.negativePrefix, this.negativeSuffix) ? NEGATIVE : UNKNOWN;
+        }
+
+        return UNKNOWN;
+    }
+
+    private boolean suffixMatches(String s, int begin, int end, String prefix, String suffix)
+    {
+        return end - begin >= prefix.length() + suffix.length() && s.startsWith(suffix, end - suffix.length());
+    }
+
+    private int prefixLength(String s, int begin, int sign)
+    {
+        if (this.positivePrefix == null)
+        {
+            return this.signed && begin < s.length() && (s.charAt(begin) == '-' || s.charAt(begin) == '+') ? 1 : 0;
+        }
+
+        return sign == NEGATIVE ? this.negativePrefix.length() : this.positivePrefix.length();
+    }
+
+    private int suffixLength(int sign)
+    {
+        if (this.positivePrefix == null)
+        {
+            return 0;
+        }
+
+        return sign == NEGATIVE ? this.negativeSuffix.length() : this.positiveSuffix.length();
+    }
+
+    static private boolean isDigit(char c)
+    {
+        return c >= '0' && c <= '9';
+    }
+
+    static private int trimmedBegin(String s)
+    {
+        int begin = 0;
+        int length = s.length();
+        while (begin < length && s.charAt(begin) <= ' ')
+        {
+            begin++;
+        }
+
+        return begin;
+    }
+
+    static private int trimmedEnd(String s, int begin)
+    {
+        int end = s.length();
+        while (end > begin && s.charAt(end - 1) <= ' ')
+        {
+            end--;
+        }
+
+        return end;
+    }
+}
@@ -1,15 +1,17 @@
 package io.github.vmzakharov.ecdataframe.dsl;
 
+import io.github.vmzakharov.ecdataframe.dataframe.ErrorReporter;
 import io.github.vmzakharov.ecdataframe.dsl.value.Value;
 import io.github.vmzakharov.ecdataframe.dsl.visitor.ExpressionEvaluationVisitor;
 import io.github.vmzakharov.ecdataframe.dsl.visitor.ExpressionVisitor;
 import org.eclipse.collections.api.map.MutableMap;
 import org.eclipse.collections.impl.factory.Maps;
+import org.eclipse.collections.impl.map.mutable.UnmodifiableMutableMap;
 
 public class AnonymousScript
 extends AbstractScript
 {
-    private final MutableMap<String, FunctionScript> functions = Maps.mutable.of();
+    private MutableMap<String, FunctionScript> functions = Maps.mutable.of();
 
     public AnonymousScript()
     {
@@ -29,9 +31,29 @@ extends AbstractScript
 
     public void addFunctionScript(FunctionScript functionScript)
     {
+        ErrorReporter.reportAndThrowIf(this.functionsAreUnmodifiable(),
+                "Cannot add function " + functionScript.getName() + " to a shared script");
+
         this.functions.put(functionScript.getNormalizedName(), functionScript);
     }
 
+    /**
+     * Prevents functions from being added to or removed from this script, e.g., once it is cached and shared between
+     * callers. The map returned by {@link #getFunctions()} becomes an unmodifiable view.
+     */
+    public void makeFunctionsUnmodifiable()
+    {
+        if (!this.functionsAreUnmodifiable())
+        {
+            this.functions = this.functions.asUnmodifiable();
+        }
+    }
+
+    private boolean functionsAreUnmodifiable()
+    {
+        return this.functions instanceof UnmodifiableMutableMap;
+    }
+
     public MutableMap<String, FunctionScript> getFunctions()
     {
         return this.functions;
@@ -0,0 +1,168 @@
+package io.github.vmzakharov.ecdataframe.dsl;
+
+import io.github.vmzakharov.ecdataframe.dsl.value.BooleanValue;
+import io.github.vmzakharov.ecdataframe.dsl.value.DateValue;
+import io.github.vmzakharov.ecdataframe.dsl.value.DoubleValue;
+import io.github.vmzakharov.ecdataframe.dsl.value.LongValue;
+import io.github.vmzakharov.ecdataframe.dsl.value.Value;
+import io.github.vmzakharov.ecdataframe.dsl.value.ValueType;
+import io.github.vmzakharov.ecdataframe.dsl.value.VectorValue;
+import org.eclipse.collections.api.set.MutableSet;
+import org.eclipse.collections.api.set.primitive.MutableDoubleSet;
+import org.eclipse.collections.api.set.primitive.MutableLongSet;
+import org.eclipse.collections.impl.factory.Sets;
+import org.eclipse.collections.impl.factory.primitive.DoubleSets;
+import org.eclipse.collections.impl.factory.primitive.LongSets;
+
+/**
+ * An {@code in} or {@code not in} operation with a constant vector as its second operand. The elements of the vector
+ * are stored in a hash set of the element type, so checking if a value is an element of the vector does not depend on
+ * the size of the vector. The result is the same as that of the generic operation, which is used for the values the
+ * set cannot answer for (e.g., a double value checked against a vector of longs).
+ * <p>
+ * Instances are immutable and safe to use from multiple threads.
+ */
+final public class VectorMembershipOp
+implements ContainsOp
+{
+    private final ContainsOp genericOp;
+    private final boolean negated;
+
+    private final ValueType elementType;
+    private final boolean containsVoid;
+
+    private final MutableLongSet longs;
+    private final MutableDoubleSet doubles;
+    private final MutableSet<Object> objects;
+
+    private VectorMembershipOp(ContainsOp newGenericOp, ValueType newElementType, VectorValue vector)
+    {
+        this.genericOp = newGenericOp;
+        this.negated = newGenericOp == ContainsOp.NOT_IN;
+        this.elementType = newElementType;
+        this.containsVoid = vector.getElements().anySatisfy(Value::isVoid);
+
+        this.longs = this.elementType.isLong() ? LongSets.mutable.empty() : null;
+        this.doubles = this.elementType.isDouble() ? DoubleSets.mutable.empty() : null;
+        this.objects = this.elementType.isString() || this.elementType.isDate() ? Sets.mutable.empty() : null;
+
+        vector.getElements().reject(Value::isVoid).forEach(element -> {
+            switch (this.elementType)
+            {
+                case LONG:
+                    this.longs.add(((LongValue) element).longValue());
+                    break;
+                case DOUBLE:
+                    double doubleValue = ((DoubleValue) element).doubleValue();
+                    // NaN is not equal to anything, so it is never an element
+                    if (!Double.isNaN(doubleValue))
+                    {
+                        this.doubles.add(this.normalized(doubleValue));
+                    }
+                    break;
+                case STRING:
+                    this.objects.add(element.stringValue());
+                    break;
+                default:
+                    this.objects.add(((DateValue) element).dateValue());
+            }
+        });
+    }
+
+    /**
+     * Returns an operation checking for membership in the specified constant vector using a hash set if the vector
+     * elements are of a supported type (long, double, string, date, or void), otherwise returns the original operation.
+     * @param containsOp {@code ContainsOp.IN} or {@code ContainsOp.NOT_IN}
+     * @param vector a constant vector
+     * @return an operation equivalent to {@code containsOp} when applied to this vector
+     */
+    static public ContainsOp forConstantVector(ContainsOp containsOp, VectorValue vector)
+    {
+        if (containsOp != ContainsOp.IN && containsOp != ContainsOp.NOT_IN)
+        {
+            return containsOp;
+        }
+
+        ValueType elementType = null;
+        for (Value element : vector.getElements())
+        {
+            if (element.isVoid())
+            {
+                continue;
+            }
+
+            if (elementType == null)
+            {
+                elementType = element.getType();
+            }
+            else if (elementType != element.getType())
+            {
+                return containsOp;
+            }
+
+            if (element.isDate() && ((DateValue) element).dateValue() == null)
+            {
+                return containsOp;
+            }
+        }
+
+        if (elementType == null || !(elementType.isLong() || elementType.isDouble() || elementType.isString() || elementType.isDate()))
+        {
+            return containsOp;
+        }
+
+        return new VectorMembershipOp(containsOp, elementType, vector);
+    }
+
+    @Override
+    public BooleanValue applyWithVector(Value value, VectorValue vectorValue)
+    {
+        boolean found;
+
+        if (value.isVoid())
+        {
+            found = this.containsVoid;
+        }
+        else if (value.isLong() && this.longs != null)
+        {
+            found = this.longs.contains(((LongValue) value).longValue());
+        }
+        else if (value.isNumber() && this.doubles != null)
+        {
+            found = this.containsDouble(value.isLong() ? ((LongValue) value).longValue() : ((DoubleValue) value).doubleValue());
+        }
+        else if (value.getType() == this.elementType && this.objects != null)
+        {
+            found = this.objects.contains(value.isString() ? value.stringValue() : ((DateValue) value).dateValue());
+        }
+        else
+        {
+            return this.genericOp.applyWithVector(value, vectorValue);
+        }
+
+        return BooleanValue.valueOf(found != this.negated);
+    }
+
+    private boolean containsDouble(double value)
+    {
+        return !Double.isNaN(value) && this.doubles.contains(this.normalized(value));
+    }
+
+    private double normalized(double value)
+    {
+        // 0.0 == -0.0, but they are different elements of a hash set
+        return value == 0.0 ? 0.0 : value;
+    }
+
+    @Override
+    public BooleanValue applyString(String operand1, String operand2)
+    {
+        return this.genericOp.applyString(operand1, operand2);
+    }
+
+    @Override
+    public String asString()
+    {
+        return this.genericOp.asString();
+    }
+}
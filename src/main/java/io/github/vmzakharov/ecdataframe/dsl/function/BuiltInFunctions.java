@@ -23,6 +23,7 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.Period;
 import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
 
 final public class BuiltInFunctions
 {
@@ -50,9 +51,18 @@ final public class BuiltInFunctions
         {
             @Override
             public Value evaluate(VectorValue parameters)
+            {
+                return this.call(parameters.getElements().toArray(new Value[0]));
+            }
+
+            @Override
+            public Value call(Value[] parameters)
             {
                 Printer printer = PrinterFactory.getPrinter();
-                parameters.getElements().collect(Value::stringValue).forEach(printer::print);
+                for (Value parameter : parameters)
+                {
+                    printer.print(parameter.stringValue());
+                }
                 return Value.VOID;
             }
         });
@@ -61,21 +71,30 @@ final public class BuiltInFunctions
         {
             @Override
             public Value evaluate(VectorValue parameters)
+            {
+                return this.call(parameters.getElements().toArray(new Value[0]));
+            }
+
+            @Override
+            public Value call(Value[] parameters)
             {
                 Printer printer = PrinterFactory.getPrinter();
-                parameters.getElements().collect(Value::stringValue).forEach(printer::print);
+                for (Value parameter : parameters)
+                {
+                    printer.print(parameter.stringValue());
+                }
                 printer.newLine();
                 return Value.VOID;
             }
         });
 
-        addFunctionDescriptor(new IntrinsicFunctionDescriptor("startsWith", Lists.immutable.of("string", "prefix"))
+        addFunctionDescriptor(new PositionalFunctionDescriptor("startsWith", Lists.immutable.of("string", "prefix"))
         {
             @Override
-            public Value evaluate(EvalContext context)
+            public Value call(Value string, Value prefix)
             {
-                String aString = context.getVariable("string").stringValue();
-                String aPrefix = context.getVariable("prefix").stringValue();
+                String aString = string.stringValue();
+                String aPrefix = prefix.stringValue();
 
                 return BooleanValue.valueOf(aString.startsWith(aPrefix));
             }
@@ -87,15 +106,15 @@ final public class BuiltInFunctions
             }
         });
 
-        addFunctionDescriptor(new IntrinsicFunctionDescriptor("contains", Lists.immutable.of("string", "substring"))
+        addFunctionDescriptor(new PositionalFunctionDescriptor("contains", Lists.immutable.of("string", "substring"))
         {
             @Override
-            public Value evaluate(EvalContext context)
+            public Value call(Value string, Value substring)
             {
-                String aString = context.getVariable("string").stringValue();
-                String substring = context.getVariable("substring").stringValue();
+                String aString = string.stringValue();
+                String aSubstring = substring.stringValue();
 
-                return BooleanValue.valueOf(aString.contains(substring));
+                return BooleanValue.valueOf(aString.contains(aSubstring));
             }
 
             @Override
@@ -105,12 +124,12 @@ final public class BuiltInFunctions
             }
         });
 
-        addFunctionDescriptor(new IntrinsicFunctionDescriptor("toUpper", Lists.immutable.of("string"))
+        addFunctionDescriptor(new PositionalFunctionDescriptor("toUpper", Lists.immutable.of("string"))
         {
             @Override
-            public Value evaluate(EvalContext context)
+            public Value call(Value string)
             {
-                return new StringValue(context.getVariable("string").stringValue().toUpperCase());
+                return new StringValue(string.stringValue().toUpperCase());
             }
 
             @Override
@@ -120,12 +139,12 @@ final public class BuiltInFunctions
             }
         });
 
-        addFunctionDescriptor(new IntrinsicFunctionDescriptor("trim", Lists.immutable.of("string"))
+        addFunctionDescriptor(new PositionalFunctionDescriptor("trim", Lists.immutable.of("string"))
         {
             @Override
-            public Value evaluate(EvalContext context)
+            public Value call(Value string)
             {
-                return new StringValue(context.getVariable("string").stringValue().trim());
+                return new StringValue(string.stringValue().trim());
             }
 
             @Override
@@ -135,34 +154,29 @@ final public class BuiltInFunctions
             }
         });
 
-        addFunctionDescriptor(new IntrinsicFunctionDescriptor("substr")
+        addFunctionDescriptor(new PositionalFunctionDescriptor("substr")
         {
             @Override
-            public Value evaluate(VectorValue parameters)
+            public Value call(Value string, Value beginIndex)
             {
-                int parameterCount = parameters.size();
-                if (parameterCount != 2 && parameterCount != 3)
+                if (string.isVoid())
                 {
-                    ErrorReporter.reportAndThrow("Invalid number of parameters in a call to '" + this.getName() + "'. " + this.usageString());
+                    return Value.VOID;
                 }
 
-                Value stringParam = parameters.get(0);
-                if (stringParam.isVoid())
+                return new StringValue(string.stringValue().substring((int) ((LongValue) beginIndex).longValue()));
+            }
+
+            @Override
+            public Value call(Value string, Value beginIndex, Value endIndex)
+            {
+                if (string.isVoid())
                 {
                     return Value.VOID;
                 }
 
-                String aString = stringParam.stringValue();
-
-                int beginIndex = (int) ((LongValue) parameters.get(1)).longValue();
-
-                String substring = (parameterCount == 2)
-                        ?
-                        aString.substring(beginIndex)
-                        :
-                        aString.substring(beginIndex, (int) ((LongValue) parameters.get(2)).longValue());
-
-                return new StringValue(substring);
+                return new StringValue(string.stringValue().substring(
+                        (int) ((LongValue) beginIndex).longValue(), (int) ((LongValue) endIndex).longValue()));
             }
 
             @Override
@@ -178,13 +192,11 @@ final public class BuiltInFunctions
             }
         });
 
-        addFunctionDescriptor(new IntrinsicFunctionDescriptor("abs", Lists.immutable.of("number"))
+        addFunctionDescriptor(new PositionalFunctionDescriptor("abs", Lists.immutable.of("number"))
         {
             @Override
-            public Value evaluate(EvalContext context)
+            public Value call(Value parameter)
             {
-                Value parameter = context.getVariable("number");
-
                 if (parameter.isVoid())
                 {
                     return Value.VOID;
@@ -211,14 +223,12 @@ final public class BuiltInFunctions
             }
         });
 
-        addFunctionDescriptor(new IntrinsicFunctionDescriptor("toString", Lists.immutable.of("number"))
+        addFunctionDescriptor(new PositionalFunctionDescriptor("toString", Lists.immutable.of("number"))
         {
             @Override
-            public Value evaluate(EvalContext context)
+            public Value call(Value number)
             {
-                Value value = context.getVariable("number");
-
-                return new StringValue(value.stringValue());
+                return new StringValue(number.stringValue());
             }
 
             @Override
@@ -228,32 +238,22 @@ final public class BuiltInFunctions
             }
         });
 
-        addFunctionDescriptor(new IntrinsicFunctionDescriptor("toDate")
+        addFunctionDescriptor(new PositionalFunctionDescriptor("toDate")
         {
             @Override
-            public Value evaluate(VectorValue parameters)
+            public Value call(Value string)
             {
-                LocalDate date = null;
-                if (parameters.size() == 3)
-                {
-                    date = LocalDate.of(
-                            (int) ((LongValue) parameters.get(0)).longValue(),
-                            (int) ((LongValue) parameters.get(1)).longValue(),
-                            (int) ((LongValue) parameters.get(2)).longValue()
-                    );
-                }
-                else if (parameters.size() == 1)
-                {
-                    String aString = parameters.get(0).stringValue();
-                    date = LocalDate.parse(aString, DateTimeFormatter.ISO_DATE);
-                }
-                else
-                {
-                    // forces to fail
-                    this.assertParameterCount(1, parameters.size());
-                }
+                return new DateValue(LocalDate.parse(string.stringValue(), DateTimeFormatter.ISO_DATE));
+            }
 
-                return new DateValue(date);
+            @Override
+            public Value call(Value year, Value month, Value day)
+            {
+                return new DateValue(LocalDate.of(
+                        (int) ((LongValue) year).longValue(),
+                        (int) ((LongValue) month).longValue(),
+                        (int) ((LongValue) day).longValue()
+                ));
             }
 
             @Override
@@ -269,19 +269,25 @@ final public class BuiltInFunctions
             }
         });
 
-        addFunctionDescriptor(new IntrinsicFunctionDescriptor("toDateTime")
+        addFunctionDescriptor(new PositionalFunctionDescriptor("toDateTime")
         {
             @Override
-            public Value evaluate(VectorValue parameters)
+            public Value call(Value string)
+            {
+                return new DateTimeValue(LocalDateTime.parse(string.stringValue(), DateTimeFormatter.ISO_DATE_TIME));
+            }
+
+            @Override
+            public Value call(Value[] parameters)
             {
                 LocalDateTime dateTime = null;
-                int paramCount = parameters.size();
-                if (parameters.size() > 4)
+                int paramCount = parameters.length;
+                if (paramCount > 4)
                 {
                     int[] params = new int[paramCount];
                     for (int i = 0; i < paramCount; i++)
                     {
-                        params[i] = (int) ((LongValue) parameters.get(i)).longValue();
+                        params[i] = (int) ((LongValue) parameters[i]).longValue();
                     }
 
                     switch (paramCount)
@@ -296,18 +302,12 @@ final public class BuiltInFunctions
                             dateTime = LocalDateTime.of(params[0], params[1], params[2], params[3], params[4], params[5], params[6]);
                             break;
                         default:
-                            this.assertParameterCount(1, parameters.size()); // forced fail
+                            this.assertParameterCount(1, paramCount); // forced fail
                     }
                 }
-                else if (parameters.size() == 1)
-                {
-                    String aString = parameters.get(0).stringValue();
-                    dateTime = LocalDateTime.parse(aString, DateTimeFormatter.ISO_DATE_TIME);
-                }
                 else
                 {
-                    // forces to fail
-                    this.assertParameterCount(1, parameters.size());
+                    return super.call(parameters);
                 }
 
                 return new DateTimeValue(dateTime);
@@ -326,12 +326,11 @@ final public class BuiltInFunctions
             }
         });
 
-        addFunctionDescriptor(new IntrinsicFunctionDescriptor("toLong", Lists.immutable.of("string"))
+        addFunctionDescriptor(new PositionalFunctionDescriptor("toLong", Lists.immutable.of("string"))
         {
             @Override
-            public Value evaluate(EvalContext context)
+            public Value call(Value parameter)
             {
-                Value parameter = context.getVariable("string");
                 this.assertParameterType(ValueType.STRING, parameter.getType());
                 String aString = parameter.stringValue();
 
@@ -345,12 +344,11 @@ final public class BuiltInFunctions
             }
         });
 
-        addFunctionDescriptor(new IntrinsicFunctionDescriptor("toDouble", Lists.immutable.of("string"))
+        addFunctionDescriptor(new PositionalFunctionDescriptor("toDouble", Lists.immutable.of("string"))
         {
             @Override
-            public Value evaluate(EvalContext context)
+            public Value call(Value parameter)
             {
-                Value parameter = context.getVariable("string");
                 this.assertParameterType(ValueType.STRING, parameter.getType());
                 String aString = parameter.stringValue();
 
@@ -364,14 +362,14 @@ final public class BuiltInFunctions
             }
         });
 
-        addFunctionDescriptor(new IntrinsicFunctionDescriptor("withinDays", Lists.immutable.of("date1", "date2", "numberOfDays"))
+        addFunctionDescriptor(new PositionalFunctionDescriptor("withinDays", Lists.immutable.of("date1", "date2", "numberOfDays"))
         {
             @Override
-            public Value evaluate(EvalContext context)
+            public Value call(Value date1Value, Value date2Value, Value numberOfDaysValue)
             {
-                LocalDate date1 = ((DateValue) context.getVariable("date1")).dateValue();
-                LocalDate date2 = ((DateValue) context.getVariable("date2")).dateValue();
-                long numberOfDays = ((LongValue) context.getVariable("numberOfDays")).longValue();
+                LocalDate date1 = ((DateValue) date1Value).dateValue();
+                LocalDate date2 = ((DateValue) date2Value).dateValue();
+                long numberOfDays = ((LongValue) numberOfDaysValue).longValue();
 
                 Period period = Period.between(date1, date2);
 
@@ -384,6 +382,11 @@ final public class BuiltInFunctions
                 return ValueType.BOOLEAN;
             }
         });
+
+        // everything except for the print functions only depends on the parameters
+        FUNCTIONS_BY_NAME
+                .reject((name, descriptor) -> name.equals("PRINT") || name.equals("PRINTLN"))
+                .forEachValue(IntrinsicFunctionDescriptor::markPure);
     }
 
     public static void addFunctionDescriptor(IntrinsicFunctionDescriptor fd)
@@ -400,4 +403,100 @@ final public class BuiltInFunctions
     {
         return FUNCTIONS_BY_NAME.toImmutable();
     }
+
+    /**
+     * A built-in function implemented by overriding the fixed arity versions of {@code call} it supports. The context
+     * and vector based evaluation methods are routed to these positional versions. As with the name based parameter
+     * binding, a function with explicit parameters ignores any parameters passed in addition to the declared ones,
+     * calls with any other unsupported number of parameters fail.
+     */
+    abstract static private class PositionalFunctionDescriptor
+    extends IntrinsicFunctionDescriptor
+    {
+        PositionalFunctionDescriptor(String newName, ListIterable<String> newParameterNames)
+        {
+            super(newName, newParameterNames);
+        }
+
+        PositionalFunctionDescriptor(String newName)
+        {
+            super(newName);
+        }
+
+        @Override
+        public Value evaluate(EvalContext context)
+        {
+            if (this.hasExplicitParameters())
+            {
+                return this.call(this.getParameterNames().collect(context::getVariable).toArray(new Value[0]));
+            }
+
+            return super.evaluate(context);
+        }
+
+        @Override
+        public Value evaluate(VectorValue parameters)
+        {
+            return this.call(parameters.getElements().toArray(new Value[0]));
+        }
+
+        @Override
+        public Value call(Value[] parameters)
+        {
+            switch (parameters.length)
+            {
+                case 1:
+                    return this.call(parameters[0]);
+                case 2:
+                    return this.call(parameters[0], parameters[1]);
+                case 3:
+                    return this.call(parameters[0], parameters[1], parameters[2]);
+                default:
+                    int declaredCount = this.getParameterNames().size();
+                    if (this.hasExplicitParameters() && parameters.length > declaredCount)
+                    {
+                        return this.call(Arrays.copyOf(parameters, declaredCount));
+                    }
+
+                    return this.invalidParameterCount();
+            }
+        }
+
+        @Override
+        public Value call(Value parameter)
+        {
+            return this.invalidParameterCount();
+        }
+
+        @Override
+        public Value call(Value parameter1, Value parameter2)
+        {
+            if (this.getParameterNames().size() == 1)
+            {
+                return this.call(parameter1);
+            }
+
+            return this.invalidParameterCount();
+        }
+
+        @Override
+        public Value call(Value parameter1, Value parameter2, Value parameter3)
+        {
+            switch (this.getParameterNames().size())
+            {
+                case 1:
+                    return this.call(parameter1);
+                case 2:
+                    return this.call(parameter1, parameter2);
+                default:
+                    return this.invalidParameterCount();
+            }
+        }
+
+        private Value invalidParameterCount()
+        {
+            ErrorReporter.reportAndThrow("Invalid number of parameters in a call to '" + this.getName() + "'. " + this.usageString());
+            return Value.VOID;
+        }
+    }
 }
@@ -3,6 +3,7 @@ package io.github.vmzakharov.ecdataframe.dsl.function;
 import io.github.vmzakharov.ecdataframe.dataframe.ErrorReporter;
 import io.github.vmzakharov.ecdataframe.dsl.EvalContext;
 import io.github.vmzakharov.ecdataframe.dsl.FunctionDescriptor;
+import io.github.vmzakharov.ecdataframe.dsl.SimpleEvalContext;
 import io.github.vmzakharov.ecdataframe.dsl.value.Value;
 import io.github.vmzakharov.ecdataframe.dsl.value.ValueType;
 import io.github.vmzakharov.ecdataframe.dsl.value.VectorValue;
@@ -16,6 +17,7 @@ implements FunctionDescriptor
     private final String normalizedName;
     private final ListIterable<String> parameterNames;
     private ListIterable<ValueType> expectedParameterTypes;
+    private boolean pure = false;
 
     public IntrinsicFunctionDescriptor(String newName, ListIterable<String> newParameterNames)
     {
@@ -49,6 +51,22 @@ implements FunctionDescriptor
         return this.parameterNames.size() > 0;
     }
 
+    /**
+     * A pure function has no side effects and its result depends only on its parameters, so a call to it with
+     * constant parameters can be replaced with the result of the call ahead of evaluation. Functions are not assumed
+     * to be pure unless this method is overridden or the function is one of the built-ins marked as pure.
+     * @return true if the function is pure
+     */
+    public boolean isPure()
+    {
+        return this.pure;
+    }
+
+    void markPure()
+    {
+        this.pure = true;
+    }
+
     public ValueType returnType(ListIterable<ValueType> parameterTypes)
     {
         return ValueType.VOID;
@@ -65,6 +83,65 @@ implements FunctionDescriptor
         return Value.VOID;
     }
 
+    /**
+     * Calls the function with the parameters passed by position. This is how the function is invoked when an
+     * expression is evaluated. The default implementation binds the parameters in a new context, either by name if the
+     * function has explicit parameters, or as a vector value otherwise, and passes this context to
+     * {@link #evaluate(EvalContext)}, so functions implementing only the context or vector based methods work as is.
+     * Functions called frequently, for example once per data frame row, should override this method or one of its
+     * fixed arity versions to avoid creating the context.
+     * @param parameters the parameter values in the order they appear in the call
+     * @return the result of the call
+     */
+    public Value call(Value[] parameters)
+    {
+        SimpleEvalContext localContext = new SimpleEvalContext();
+
+        if (this.hasExplicitParameters())
+        {
+            this.parameterNames.forEachWithIndex((p, i) -> localContext.setVariable(p, parameters[i]));
+        }
+        else
+        {
+            localContext.setVariable(this.magicalParameterName(), new VectorValue(Lists.immutable.of(parameters)));
+        }
+
+        return this.evaluate(localContext);
+    }
+
+    /**
+     * Calls the function with a single parameter. The default implementation delegates to {@link #call(Value[])}.
+     * @param parameter the parameter value
+     * @return the result of the call
+     */
+    public Value call(Value parameter)
+    {
+        return this.call(new Value[] {parameter});
+    }
+
+    /**
+     * Calls the function with two parameters. The default implementation delegates to {@link #call(Value[])}.
+     * @param parameter1 the first parameter value
+     * @param parameter2 the second parameter value
+     * @return the result of the call
+     */
+    public Value call(Value parameter1, Value parameter2)
+    {
+        return this.call(new Value[] {parameter1, parameter2});
+    }
+
+    /**
+     * Calls the function with three parameters. The default implementation delegates to {@link #call(Value[])}.
+     * @param parameter1 the first parameter value
+     * @param parameter2 the second parameter value
+     * @param parameter3 the third parameter value
+     * @return the result of the call
+     */
+    public Value call(Value parameter1, Value parameter2, Value parameter3)
+    {
+        return this.call(new Value[] {parameter1, parameter2, parameter3});
+    }
+
     public String usageString()
     {
         return "Usage: " + this.name + "(" + this.parameterNames.makeString(", ") + ")";
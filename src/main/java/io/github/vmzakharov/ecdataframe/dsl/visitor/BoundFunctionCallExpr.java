@@ -0,0 +1,90 @@
+package io.github.vmzakharov.ecdataframe.dsl.visitor;
+
+import io.github.vmzakharov.ecdataframe.dsl.EvalContext;
+import io.github.vmzakharov.ecdataframe.dsl.Expression;
+import io.github.vmzakharov.ecdataframe.dsl.FunctionCallExpr;
+import io.github.vmzakharov.ecdataframe.dsl.FunctionScript;
+import io.github.vmzakharov.ecdataframe.dsl.value.Value;
+import org.eclipse.collections.api.list.ListIterable;
+import org.eclipse.collections.api.map.MapIterable;
+
+/**
+ * A call to a function declared in a script, bound to the function at the time the calling expression is prepared for
+ * evaluation. The parameters and the local variables of the function are stored in slots, in a frame allocated for
+ * each call, and the function body is evaluated in a context prepared once per call site, which only has the functions
+ * visible from inside the function body, so a call does not create a new context or copy the declared functions into
+ * it.
+ * <p>
+ * If the function the name refers to in the calling context is no longer the one the call is bound to, the call is
+ * evaluated the same way as an unbound call would be.
+ */
+final class BoundFunctionCallExpr
+extends FunctionCallExpr
+{
+    private final EvalContext callerContext;
+    private final MapIterable<String, FunctionScript> callerFunctions;
+    private final FunctionScript functionScript;
+
+    private final VariableSlots slots;
+    private final ListIterable<Expression> body;
+    private final EvalContext bodyContext;
+
+    /**
+     * @param original the call expression being bound
+     * @param newParameters the (possibly optimized) parameter expressions
+     * @param newCallerContext the context to verify the binding against before each call, {@code null} if the binding
+     *                         does not need to be verified, e.g., for calls from inside a function body
+     * @param newFunctionScript the function being called
+     * @param newSlots the slots for the function parameters and local variables
+     * @param newBody the body of the function with its variables bound to the slots
+     * @param newBodyContext the context to evaluate the body in
+     */
+    BoundFunctionCallExpr(
+            FunctionCallExpr original,
+            ListIterable<Expression> newParameters,
+            EvalContext newCallerContext,
+            FunctionScript newFunctionScript,
+            VariableSlots newSlots,
+            ListIterable<Expression> newBody,
+            EvalContext newBodyContext)
+    {
+        super(original.getFunctionName(), newParameters);
+        this.callerContext = newCallerContext;
+        this.callerFunctions = newCallerContext == null ? null : newCallerContext.getDeclaredFunctions();
+        this.functionScript = newFunctionScript;
+        this.slots = newSlots;
+        this.body = newBody;
+        this.bodyContext = newBodyContext;
+    }
+
+    @Override
+    public Value evaluate(ExpressionEvaluationVisitor visitor)
+    {
+        if (this.callerContext != null
+                && (this.callerContext.getDeclaredFunction(this.getNormalizedFunctionName()) != this.functionScript
+                || this.callerContext.getDeclaredFunctions() != this.callerFunctions))
+        {
+            return visitor.visitFunctionCallExpr(this);
+        }
+
+        // the parameters are evaluated in the caller's frame, as they may refer to the caller's variables
+        ListIterable<Expression> parameters = this.getParameters();
+        int parameterCount = parameters.size();
+        Value[] frame = this.slots.newFrame();
+        for (int i = 0; i < parameterCount; i++)
+        {
+            frame[i] = parameters.get(i).evaluate(visitor);
+        }
+
+        InMemoryEvaluationVisitor bodyVisitor = new InMemoryEvaluationVisitor(this.bodyContext, frame);
+
+        Value result = Value.VOID;
+        int statementCount = this.body.size();
+        for (int i = 0; i < statementCount; i++)
+        {
+            result = this.body.get(i).evaluate(bodyVisitor);
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,32 @@
+package io.github.vmzakharov.ecdataframe.dsl.visitor;
+
+import io.github.vmzakharov.ecdataframe.dataframe.DfColumn;
+import io.github.vmzakharov.ecdataframe.dsl.DataFrameEvalContext;
+import io.github.vmzakharov.ecdataframe.dsl.VarExpr;
+import io.github.vmzakharov.ecdataframe.dsl.value.Value;
+
+/**
+ * A reference to a data frame column, evaluates to the value of the column in the current row of the context. The
+ * reference is bound to the column when the expression is prepared for evaluation. Expressions of computed columns
+ * outlive the columns they refer to, which can be dropped and added again, so the data frame prepares them again after
+ * its columns change, before evaluating them.
+ */
+final class ColumnVarExpr
+extends VarExpr
+{
+    private final DataFrameEvalContext evalContext;
+    private final DfColumn column;
+
+    ColumnVarExpr(VarExpr original, DataFrameEvalContext newEvalContext, DfColumn newColumn)
+    {
+        super(original.getVariableName(), original.isEscaped());
+        this.evalContext = newEvalContext;
+        this.column = newColumn;
+    }
+
+    @Override
+    public Value evaluate(ExpressionEvaluationVisitor visitor)
+    {
+        return this.column.getValue(this.evalContext.getRowIndex());
+    }
+}
@@ -0,0 +1,201 @@
+package io.github.vmzakharov.ecdataframe.dsl.visitor;
+
+import io.github.vmzakharov.ecdataframe.dataframe.DataFrame;
+import io.github.vmzakharov.ecdataframe.dataframe.DfColumn;
+import io.github.vmzakharov.ecdataframe.dsl.BinaryExpr;
+import io.github.vmzakharov.ecdataframe.dsl.DataFrameEvalContext;
+import io.github.vmzakharov.ecdataframe.dsl.Expression;
+import io.github.vmzakharov.ecdataframe.dsl.FunctionCallExpr;
+import io.github.vmzakharov.ecdataframe.dsl.IfElseExpr;
+import io.github.vmzakharov.ecdataframe.dsl.IndexExpr;
+import io.github.vmzakharov.ecdataframe.dsl.UnaryExpr;
+import io.github.vmzakharov.ecdataframe.dsl.value.Value;
+import org.eclipse.collections.api.bag.MutableBag;
+import org.eclipse.collections.api.block.predicate.Predicate;
+import org.eclipse.collections.api.list.ListIterable;
+import org.eclipse.collections.api.map.MutableMap;
+import org.eclipse.collections.api.set.MutableSet;
+import org.eclipse.collections.api.set.SetIterable;
+import org.eclipse.collections.impl.factory.Bags;
+import org.eclipse.collections.impl.factory.Maps;
+import org.eclipse.collections.impl.factory.Sets;
+
+/**
+ * Finds the subexpressions that occur more than once in the expressions of the computed columns of a data frame and
+ * makes them shared between the expressions, so that when the computed columns are evaluated row by row the value of
+ * each such subexpression is calculated once per row, no matter how many columns it is used in. A subexpression can be
+ * shared if it only refers to the stored columns of the data frame and only calls pure built-in functions, so its
+ * values cannot depend on the evaluation context or on other computed columns. Each shared subexpression retains its
+ * value for the last row it was evaluated for, until that value is replaced by the value for another row or
+ * {@link #invalidate()} is called, which the data frame does whenever a stored value changes, the data frame is
+ * sealed, or the external evaluation context is replaced.
+ */
+final public class CommonSubexpressions
+{
+    private final DataFrameEvalContext evalContext;
+    private final SetIterable<String> columnNames;
+
+    private final MutableBag<String> occurrences = Bags.mutable.of();
+    private final MutableMap<String, SharedExpr> sharedExpressions = Maps.mutable.of();
+    private final MutableSet<Expression> expressionsUsingShared = Sets.mutable.of();
+    private boolean counting = true;
+    private boolean sharedExpressionUsed = false;
+
+    public CommonSubexpressions(DataFrameEvalContext newEvalContext)
+    {
+        this.evalContext = newEvalContext;
+        this.columnNames = newEvalContext.getDataFrame().getColumns()
+                .select(DfColumn::isStored)
+                .collect(DfColumn::getName)
+                .toSet();
+    }
+
+    /**
+     * Optimizes the expressions of the computed columns of the data frame (see {@link
+     * OptimizingVisitor#optimizeForComputedColumn(Expression, DataFrameEvalContext)}), replacing the subexpressions
+     * they have in common with the shared ones. This method should be called once per instance.
+     * @param expressions the expressions of all computed columns of the data frame, as parsed
+     * @return the optimized expressions, in the same order
+     */
+    public ListIterable<Expression> optimize(ListIterable<Expression> expressions)
+    {
+        // the first pass finds the subexpressions used more than once, the second one replaces them
+        expressions.forEach(expression -> OptimizingVisitor.optimizeForComputedColumn(expression, this.evalContext, this));
+        this.counting = false;
+
+        return expressions.collect(expression -> {
+            this.sharedExpressionUsed = false;
+            Expression optimized = OptimizingVisitor.optimizeForComputedColumn(expression, this.evalContext, this);
+            if (this.sharedExpressionUsed)
+            {
+                this.expressionsUsingShared.add(optimized);
+            }
+            return optimized;
+        });
+    }
+
+    /**
+     * @param expression an expression returned by {@link #optimize(ListIterable)}
+     * @return true if the expression contains any shared subexpressions
+     */
+    public boolean usesSharedSubexpressions(Expression expression)
+    {
+        return this.expressionsUsingShared.contains(expression);
+    }
+
+    /**
+     * Discards the retained values of the shared subexpressions, to be called when the values they depend on change
+     */
+    public void invalidate()
+    {
+        this.sharedExpressions.forEachValue(SharedExpr::invalidate);
+    }
+
+    public int sharedExpressionCount()
+    {
+        return this.sharedExpressions.size();
+    }
+
+    Expression shared(Expression expression, Predicate<String> pureIntrinsicFunction)
+    {
+        if (!this.isShareable(expression, pureIntrinsicFunction))
+        {
+            return expression;
+        }
+
+        String key = PrettyPrintVisitor.exprToString(expression);
+
+        if (this.counting)
+        {
+            this.occurrences.add(key);
+            return expression;
+        }
+
+        if (this.occurrences.occurrencesOf(key) < 2)
+        {
+            return expression;
+        }
+
+        this.sharedExpressionUsed = true;
+        return this.sharedExpressions.getIfAbsentPut(key, () -> new SharedExpr(expression, this.evalContext));
+    }
+
+    private boolean isShareable(Expression expression, Predicate<String> pureIntrinsicFunction)
+    {
+        boolean compositeExpression = expression instanceof BinaryExpr
+                || expression instanceof UnaryExpr
+                || expression instanceof FunctionCallExpr
+                || expression instanceof IndexExpr
+                || expression instanceof IfElseExpr && ((IfElseExpr) expression).isTernary();
+
+        return compositeExpression
+                && new InlineCandidateVisitor(pureIntrinsicFunction, this.columnNames).analyze(expression).isCandidate();
+    }
+
+    /**
+     * Wraps a subexpression shared between computed columns. The value of the subexpression is retained for the row it
+     * was last calculated for and reused while the same row is evaluated.
+     */
+    static private final class SharedExpr
+    implements Expression
+    {
+        private final Expression expression;
+        private final DataFrameEvalContext evalContext;
+        private RowValue lastValue;
+
+        private SharedExpr(Expression newExpression, DataFrameEvalContext newEvalContext)
+        {
+            this.expression = newExpression;
+            this.evalContext = newEvalContext;
+        }
+
+        @Override
+        public Value evaluate(ExpressionEvaluationVisitor evaluationVisitor)
+        {
+            int rowIndex = this.evalContext.getRowIndex();
+            DataFrame dataFrame = this.evalContext.getDataFrame();
+
+            if (rowIndex < 0 || rowIndex >= dataFrame.rowCount())
+            {
+                return this.expression.evaluate(evaluationVisitor);
+            }
+
+            RowValue last = this.lastValue;
+            if (last != null && last.rowIndex == rowIndex)
+            {
+                return last.value;
+            }
+
+            Value value = this.expression.evaluate(evaluationVisitor);
+            this.lastValue = new RowValue(rowIndex, value);
+
+            return value;
+        }
+
+        @Override
+        public void accept(ExpressionVisitor visitor)
+        {
+            this.expression.accept(visitor);
+        }
+
+        private void invalidate()
+        {
+            this.lastValue = null;
+        }
+    }
+
+    /**
+     * The value of a shared subexpression for a row, replaced as a whole so the row and the value always match
+     */
+    static private final class RowValue
+    {
+        private final int rowIndex;
+        private final Value value;
+
+        private RowValue(int newRowIndex, Value newValue)
+        {
+            this.rowIndex = newRowIndex;
+            this.value = newValue;
+        }
+    }
+}
@@ -35,20 +35,36 @@ import org.eclipse.collections.api.list.ListIterable;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Arrays;
 
 public class InMemoryEvaluationVisitor
 implements ExpressionEvaluationVisitor
 {
+    static final private Value[] NO_PARAMETERS = new Value[0];
+
     final private EvalContext context;
 
+    // the values of the variables stored in slots by the optimizer, see VariableSlots
+    private Value[] frame;
+
     public InMemoryEvaluationVisitor()
     {
         this(new SimpleEvalContext());
     }
 
     public InMemoryEvaluationVisitor(EvalContext newContext)
+    {
+        this(newContext, NO_PARAMETERS);
+    }
+
+    /**
+     * @param newContext the context to evaluate expressions in
+     * @param newFrame the values of the variables stored in slots, e.g., the parameters of a function call
+     */
+    InMemoryEvaluationVisitor(EvalContext newContext, Value[] newFrame)
     {
         this.context = newContext;
+        this.frame = newFrame;
     }
 
     @Override
@@ -81,18 +97,20 @@ implements ExpressionEvaluationVisitor
     public Value visitFunctionCallExpr(FunctionCallExpr expr)
     {
         String functionName = expr.getNormalizedFunctionName();
-        SimpleEvalContext localContext = new SimpleEvalContext();
-        ListIterable<Value> parameterValues = expr.getParameters().collectWith(Expression::evaluate, this);
+        ListIterable<Expression> parameters = expr.getParameters();
 
         FunctionScript functionScript = this.getContext().getDeclaredFunction(functionName);
 
         if (functionScript != null)
         {
-            if (expr.getParameters().size() != functionScript.getParameterNames().size())
+            if (parameters.size() != functionScript.getParameterNames().size())
             {
                 throw new RuntimeException("Parameter count mismatch in an invocation of '" + functionName + "'");
             }
 
+            SimpleEvalContext localContext = new SimpleEvalContext();
+            ListIterable<Value> parameterValues = parameters.collectWith(Expression::evaluate, this);
+
             functionScript.getParameterNames().forEachWithIndex(
                     (p, i) -> localContext.setVariable(p, parameterValues.get(i)));
 
@@ -100,26 +118,30 @@ implements ExpressionEvaluationVisitor
 
             return this.applyVisitorToScript(new InMemoryEvaluationVisitor(localContext), functionScript);
         }
-        else
-        {
-            IntrinsicFunctionDescriptor functionDescriptor = BuiltInFunctions.getFunctionDescriptor(functionName);
 
-            if (functionDescriptor == null)
-            {
-                throw new RuntimeException("Unknown function: '" + expr.getFunctionName() + "'");
-            }
+        IntrinsicFunctionDescriptor functionDescriptor = BuiltInFunctions.getFunctionDescriptor(functionName);
 
-            if (functionDescriptor.hasExplicitParameters())
-            {
-                functionDescriptor.getParameterNames().forEachWithIndex(
-                        (p, i) -> localContext.setVariable(p, parameterValues.get(i)));
-            }
-            else
-            {
-                localContext.setVariable(functionDescriptor.magicalParameterName(), new VectorValue(parameterValues));
-            }
+        if (functionDescriptor == null)
+        {
+            throw new RuntimeException("Unknown function: '" + expr.getFunctionName() + "'");
+        }
 
-            return functionDescriptor.evaluate(localContext);
+        // the most common arities are passed without collecting the parameter values first
+        switch (parameters.size())
+        {
+            case 0:
+                return functionDescriptor.call(NO_PARAMETERS);
+            case 1:
+                return functionDescriptor.call(parameters.get(0).evaluate(this));
+            case 2:
+                return functionDescriptor.call(parameters.get(0).evaluate(this), parameters.get(1).evaluate(this));
+            case 3:
+                return functionDescriptor.call(
+                        parameters.get(0).evaluate(this), parameters.get(1).evaluate(this), parameters.get(2).evaluate(this));
+            default:
+                Value[] parameterValues = new Value[parameters.size()];
+                parameters.forEachWithIndex((p, i) -> parameterValues[i] = p.evaluate(this));
+                return functionDescriptor.call(parameterValues);
         }
     }
 
@@ -279,4 +301,18 @@ implements ExpressionEvaluationVisitor
     {
         return this.context;
     }
+
+    /**
+     * @param slotCount the number of slots the frame needs to have room for
+     * @return the values of the variables stored in slots, grown if needed to have room for {@code slotCount} values
+     */
+    Value[] frame(int slotCount)
+    {
+        if (this.frame.length < slotCount)
+        {
+            this.frame = Arrays.copyOf(this.frame, slotCount);
+        }
+
+        return this.frame;
+    }
 }
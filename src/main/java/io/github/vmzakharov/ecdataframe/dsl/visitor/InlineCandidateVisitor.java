@@ -0,0 +1,188 @@
+package io.github.vmzakharov.ecdataframe.dsl.visitor;
+
+import io.github.vmzakharov.ecdataframe.dsl.AliasExpr;
+import io.github.vmzakharov.ecdataframe.dsl.AnonymousScript;
+import io.github.vmzakharov.ecdataframe.dsl.AssingExpr;
+import io.github.vmzakharov.ecdataframe.dsl.BinaryExpr;
+import io.github.vmzakharov.ecdataframe.dsl.Expression;
+import io.github.vmzakharov.ecdataframe.dsl.FunctionCallExpr;
+import io.github.vmzakharov.ecdataframe.dsl.FunctionScript;
+import io.github.vmzakharov.ecdataframe.dsl.IfElseExpr;
+import io.github.vmzakharov.ecdataframe.dsl.IndexExpr;
+import io.github.vmzakharov.ecdataframe.dsl.ProjectionExpr;
+import io.github.vmzakharov.ecdataframe.dsl.PropertyPathExpr;
+import io.github.vmzakharov.ecdataframe.dsl.StatementSequenceScript;
+import io.github.vmzakharov.ecdataframe.dsl.UnaryExpr;
+import io.github.vmzakharov.ecdataframe.dsl.VarExpr;
+import io.github.vmzakharov.ecdataframe.dsl.VectorExpr;
+import io.github.vmzakharov.ecdataframe.dsl.value.Value;
+import org.eclipse.collections.api.block.predicate.Predicate;
+import org.eclipse.collections.api.map.primitive.MutableObjectIntMap;
+import org.eclipse.collections.api.set.SetIterable;
+import org.eclipse.collections.impl.factory.primitive.ObjectIntMaps;
+
+/**
+ * Checks if an expression can be moved into a different expression tree without changing the result of evaluation:
+ * it has no side effects, does not assign variables, only calls pure built-in functions, and, optionally, only refers
+ * to the specified variables. Also counts the nodes of the expression and the references to each variable.
+ */
+final class InlineCandidateVisitor
+implements ExpressionVisitor
+{
+    private final Predicate<String> pureIntrinsicFunction;
+    private final SetIterable<String> allowedVariables;
+
+    private final MutableObjectIntMap<String> variableReferenceCounts = ObjectIntMaps.mutable.empty();
+    private int nodeCount = 0;
+    private boolean candidate = true;
+
+    /**
+     * @param newPureIntrinsicFunction tests if a (normalized) function name refers to a pure built-in function
+     * @param newAllowedVariables the variables the expression may refer to, {@code null} if it may refer to any
+     */
+    InlineCandidateVisitor(Predicate<String> newPureIntrinsicFunction, SetIterable<String> newAllowedVariables)
+    {
+        this.pureIntrinsicFunction = newPureIntrinsicFunction;
+        this.allowedVariables = newAllowedVariables;
+    }
+
+    InlineCandidateVisitor analyze(Expression expression)
+    {
+        expression.accept(this);
+        return this;
+    }
+
+    boolean isCandidate()
+    {
+        return this.candidate;
+    }
+
+    int getNodeCount()
+    {
+        return this.nodeCount;
+    }
+
+    int referenceCount(String variableName)
+    {
+        return this.variableReferenceCounts.get(variableName);
+    }
+
+    @Override
+    public void visitAliasExpr(AliasExpr expr)
+    {
+        this.candidate = false;
+    }
+
+    @Override
+    public void visitAssignExpr(AssingExpr expr)
+    {
+        this.candidate = false;
+    }
+
+    @Override
+    public void visitBinaryExpr(BinaryExpr expr)
+    {
+        this.nodeCount++;
+        expr.getOperand1().accept(this);
+        expr.getOperand2().accept(this);
+    }
+
+    @Override
+    public void visitUnaryExpr(UnaryExpr expr)
+    {
+        this.nodeCount++;
+        expr.getOperand().accept(this);
+    }
+
+    @Override
+    public void visitConstExpr(Value expr)
+    {
+        this.nodeCount++;
+    }
+
+    @Override
+    public void visitFunctionCallExpr(FunctionCallExpr expr)
+    {
+        this.nodeCount++;
+
+        if (!this.pureIntrinsicFunction.accept(expr.getNormalizedFunctionName()))
+        {
+            this.candidate = false;
+            return;
+        }
+
+        expr.getParameters().forEach(parameter -> parameter.accept(this));
+    }
+
+    @Override
+    public void visitIfElseExpr(IfElseExpr expr)
+    {
+        this.nodeCount++;
+        expr.getCondition().accept(this);
+        expr.getIfScript().accept(this);
+        if (expr.hasElseSection())
+        {
+            expr.getElseScript().accept(this);
+        }
+    }
+
+    @Override
+    public void visitPropertyPathExpr(PropertyPathExpr expr)
+    {
+        this.candidate = false;
+    }
+
+    @Override
+    public void visitAnonymousScriptExpr(AnonymousScript expr)
+    {
+        this.candidate = false;
+    }
+
+    @Override
+    public void visitFunctionScriptExpr(FunctionScript expr)
+    {
+        this.candidate = false;
+    }
+
+    @Override
+    public void visitStatementSequenceScript(StatementSequenceScript expr)
+    {
+        this.nodeCount++;
+        expr.getExpressions().forEach(statement -> statement.accept(this));
+    }
+
+    @Override
+    public void visitVarExpr(VarExpr expr)
+    {
+        this.nodeCount++;
+
+        if (this.allowedVariables != null && !this.allowedVariables.contains(expr.getVariableName()))
+        {
+            this.candidate = false;
+            return;
+        }
+
+        this.variableReferenceCounts.addToValue(expr.getVariableName(), 1);
+    }
+
+    @Override
+    public void visitProjectionExpr(ProjectionExpr expr)
+    {
+        this.candidate = false;
+    }
+
+    @Override
+    public void visitVectorExpr(VectorExpr expr)
+    {
+        this.nodeCount++;
+        expr.getElements().forEach(element -> element.accept(this));
+    }
+
+    @Override
+    public void visitIndexExpr(IndexExpr expr)
+    {
+        this.nodeCount++;
+        expr.getVectorExpr().accept(this);
+        expr.getIndexExpr().accept(this);
+    }
+}
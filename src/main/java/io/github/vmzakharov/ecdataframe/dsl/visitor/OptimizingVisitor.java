@@ -0,0 +1,736 @@
+package io.github.vmzakharov.ecdataframe.dsl.visitor;
+
+import io.github.vmzakharov.ecdataframe.dataframe.DataFrame;
+import io.github.vmzakharov.ecdataframe.dsl.AliasExpr;
+import io.github.vmzakharov.ecdataframe.dsl.AnonymousScript;
+import io.github.vmzakharov.ecdataframe.dsl.AssingExpr;
+import io.github.vmzakharov.ecdataframe.dsl.BinaryExpr;
+import io.github.vmzakharov.ecdataframe.dsl.BinaryOp;
+import io.github.vmzakharov.ecdataframe.dsl.BooleanOp;
+import io.github.vmzakharov.ecdataframe.dsl.ContainsOp;
+import io.github.vmzakharov.ecdataframe.dsl.DataFrameEvalContext;
+import io.github.vmzakharov.ecdataframe.dsl.EvalContext;
+import io.github.vmzakharov.ecdataframe.dsl.Expression;
+import io.github.vmzakharov.ecdataframe.dsl.FunctionCallExpr;
+import io.github.vmzakharov.ecdataframe.dsl.FunctionScript;
+import io.github.vmzakharov.ecdataframe.dsl.IfElseExpr;
+import io.github.vmzakharov.ecdataframe.dsl.IndexExpr;
+import io.github.vmzakharov.ecdataframe.dsl.ProjectionExpr;
+import io.github.vmzakharov.ecdataframe.dsl.PropertyPathExpr;
+import io.github.vmzakharov.ecdataframe.dsl.SimpleEvalContext;
+import io.github.vmzakharov.ecdataframe.dsl.StatementSequenceScript;
+import io.github.vmzakharov.ecdataframe.dsl.UnaryExpr;
+import io.github.vmzakharov.ecdataframe.dsl.UnaryOp;
+import io.github.vmzakharov.ecdataframe.dsl.VarExpr;
+import io.github.vmzakharov.ecdataframe.dsl.VectorExpr;
+import io.github.vmzakharov.ecdataframe.dsl.VectorMembershipOp;
+import io.github.vmzakharov.ecdataframe.dsl.function.BuiltInFunctions;
+import io.github.vmzakharov.ecdataframe.dsl.function.IntrinsicFunctionDescriptor;
+import io.github.vmzakharov.ecdataframe.dsl.value.BooleanValue;
+import io.github.vmzakharov.ecdataframe.dsl.value.Value;
+import io.github.vmzakharov.ecdataframe.dsl.value.VectorValue;
+import org.eclipse.collections.api.list.ListIterable;
+import org.eclipse.collections.api.list.MutableList;
+import org.eclipse.collections.api.map.MutableMap;
+import org.eclipse.collections.api.set.MutableSet;
+import org.eclipse.collections.api.stack.MutableStack;
+import org.eclipse.collections.impl.factory.Lists;
+import org.eclipse.collections.impl.factory.Maps;
+import org.eclipse.collections.impl.factory.Sets;
+import org.eclipse.collections.impl.factory.Stacks;
+
+/**
+ * Rewrites an expression into an equivalent one that is cheaper to evaluate repeatedly. The original expression is
+ * not modified, the parts of it that cannot be improved are shared with the result.
+ * <ul>
+ *     <li>subexpressions made up of constants and calls to pure built-in functions are replaced with their values</li>
+ *     <li>boolean expressions with operands that fold to constants are simplified: {@code x and true}, {@code true and x},
+ *     {@code x or false}, {@code false or x} become {@code x}, {@code false and x} becomes {@code false},
+ *     {@code true or x} becomes {@code true}, and {@code not not x} becomes {@code x}</li>
+ *     <li>conditional expressions with a constant condition are replaced with the branch that would be taken</li>
+ *     <li>{@code in} and {@code not in} operations on constant vectors check for membership using a hash set (see
+ *     {@link VectorMembershipOp})</li>
+ *     <li>when optimizing for evaluation over a data frame, subexpressions that do not depend on the values in the
+ *     current row (i.e., only refer to variables other than the data frame columns) are evaluated at most once, the
+ *     first time their value is needed</li>
+ *     <li>when optimizing for evaluation over a data frame, references to the data frame columns are bound to the
+ *     columns, variables assigned in the script are stored in slots instead of the evaluation context, and calls to
+ *     the functions declared in the script or in the context are bound to these functions, with their parameters and
+ *     local variables stored in slots as well</li>
+ *     <li>when optimizing the expressions of all computed columns of a data frame together, the subexpressions they
+ *     have in common are evaluated once per row (see {@link CommonSubexpressions})</li>
+ *     <li>calls to small functions declared in the script are replaced with the function body, with the parameters
+ *     substituted with the call arguments, if the function body and the arguments are free of side effects and only
+ *     call pure built-in functions, and the arguments referenced more than once in the body are cheap to evaluate</li>
+ * </ul>
+ * Constant subexpressions that fail to evaluate are left as is, so the failure is reported during evaluation, the
+ * same way as it would be without optimization.
+ */
+public class OptimizingVisitor
+implements ExpressionVisitor
+{
+    static private final int MAX_INLINED_NODE_COUNT = 32;
+
+    private final EvalContext evalContext;
+    private final DataFrame dataFrame;
+    private final boolean hoistInvariants;
+    private final VariableSlots slots;
+    private final CommonSubexpressions commonSubexpressions;
+
+    private final MutableStack<Expression> expressionStack = Stacks.mutable.of();
+    private final MutableStack<Variance> varianceStack = Stacks.mutable.of();
+
+    private final MutableSet<String> assignedVariables = Sets.mutable.of();
+    private final MutableMap<String, FunctionScript> scriptFunctions = Maps.mutable.of();
+
+    private final MutableMap<String, Expression> substitutedExpressions = Maps.mutable.of();
+    private final MutableMap<String, Variance> substitutedVariances = Maps.mutable.of();
+
+    /**
+     * creates a visitor that folds constants and simplifies expressions, but does not hoist row invariant
+     * subexpressions
+     */
+    public OptimizingVisitor()
+    {
+        this(new SimpleEvalContext(), null, false, null, null);
+    }
+
+    /**
+     * creates a visitor optimizing expressions for evaluation over the rows of the data frame of the context. Besides
+     * folding constants and simplifying expressions, it hoists subexpressions that are invariant for the duration of
+     * iteration over the data frame rows. The result is meant to be used for a single pass over the data frame, and
+     * should not be retained beyond that, as the values of the hoisted subexpressions are not recalculated if the
+     * values of the variables they depend on change.
+     * @param newEvalContext the context the optimized expression will be evaluated in
+     */
+    public OptimizingVisitor(DataFrameEvalContext newEvalContext)
+    {
+        this(newEvalContext, newEvalContext.getDataFrame(), true, new VariableSlots(false), null);
+    }
+
+    private OptimizingVisitor(
+            EvalContext newEvalContext,
+            DataFrame newDataFrame,
+            boolean newHoistInvariants,
+            VariableSlots newSlots,
+            CommonSubexpressions newCommonSubexpressions)
+    {
+        this.evalContext = newEvalContext;
+        this.dataFrame = newDataFrame;
+        this.hoistInvariants = newHoistInvariants;
+        this.slots = newSlots;
+        this.commonSubexpressions = newCommonSubexpressions;
+    }
+
+    static public Expression optimize(Expression expression)
+    {
+        return new OptimizingVisitor().optimizeExpression(expression);
+    }
+
+    static public Expression optimizeForDataFrame(Expression expression, DataFrameEvalContext evalContext)
+    {
+        return new OptimizingVisitor(evalContext).optimizeExpression(expression);
+    }
+
+    /**
+     * Optimizes the expression of a computed column. Unlike {@link #optimizeForDataFrame(Expression,
+     * DataFrameEvalContext)}, does not hoist row invariant subexpressions, as the result is retained for the lifetime
+     * of the column while the values of the variables in the context may change.
+     * @param expression the expression of the computed column
+     * @param evalContext the context of the data frame the column belongs to
+     * @return the optimized expression
+     */
+    static public Expression optimizeForComputedColumn(Expression expression, DataFrameEvalContext evalContext)
+    {
+        return optimizeForComputedColumn(expression, evalContext, null);
+    }
+
+    static Expression optimizeForComputedColumn(
+            Expression expression, DataFrameEvalContext evalContext, CommonSubexpressions commonSubexpressions)
+    {
+        return new OptimizingVisitor(evalContext, evalContext.getDataFrame(), false, new VariableSlots(false), commonSubexpressions)
+                .optimizeExpression(expression);
+    }
+
+    public Expression optimizeExpression(Expression expression)
+    {
+        if (expression == null)
+        {
+            return null;
+        }
+
+        expression.accept(this);
+
+        Variance variance = this.varianceStack.pop();
+        Expression optimized = this.expressionStack.pop();
+
+        return variance == Variance.INVARIANT ? this.hoisted(optimized) : optimized;
+    }
+
+    @Override
+    public void visitAliasExpr(AliasExpr expr)
+    {
+        Expression expression = this.optimizeVariantOperand(expr.getExpression());
+        this.push(expression == expr.getExpression() ? expr : new AliasExpr(expr.getAlias(), expression), Variance.VARIANT);
+    }
+
+    @Override
+    public void visitAssignExpr(AssingExpr expr)
+    {
+        Expression expression = this.optimizeVariantOperand(expr.getExpression());
+        this.assignedVariables.add(expr.getVarName());
+
+        if (this.slots != null && !this.evalContext.hasVariable(expr.getVarName()))
+        {
+            this.push(new SlotAssignExpr(expr, expression, this.slots), Variance.VARIANT);
+            return;
+        }
+
+        this.push(
+                expression == expr.getExpression() ? expr : new AssingExpr(expr.getVarName(), expr.isEscaped(), expression),
+                Variance.VARIANT);
+    }
+
+    @Override
+    public void visitBinaryExpr(BinaryExpr expr)
+    {
+        expr.getOperand1().accept(this);
+        Variance variance1 = this.varianceStack.pop();
+        Expression operand1 = this.expressionStack.pop();
+
+        expr.getOperand2().accept(this);
+        Variance variance2 = this.varianceStack.pop();
+        Expression operand2 = this.expressionStack.pop();
+
+        if (expr.getOperation() instanceof BooleanOp && this.simplifyBooleanExpr(expr, operand1, variance1, operand2, variance2))
+        {
+            return;
+        }
+
+        Variance variance = Variance.combine(variance1, variance2);
+
+        if (variance == Variance.VARIANT)
+        {
+            operand1 = this.hoistIfInvariant(operand1, variance1);
+            operand2 = this.hoistIfInvariant(operand2, variance2);
+        }
+
+        BinaryOp operation = expr.getOperation();
+        if (variance != Variance.CONSTANT && operation instanceof ContainsOp && operand2 instanceof VectorValue)
+        {
+            operation = VectorMembershipOp.forConstantVector((ContainsOp) operation, (VectorValue) operand2);
+        }
+
+        Expression optimized = operand1 == expr.getOperand1() && operand2 == expr.getOperand2() && operation == expr.getOperation()
+                ? expr
+                : new BinaryExpr(operand1, operand2, operation);
+
+        this.pushFolded(optimized, variance);
+    }
+
+    private boolean simplifyBooleanExpr(
+            BinaryExpr expr, Expression operand1, Variance variance1, Expression operand2, Variance variance2)
+    {
+        if (expr.getOperation() == BooleanOp.AND)
+        {
+            if (this.isBooleanConstant(operand1))
+            {
+                // the second operand is not evaluated if the first one is false
+                if (((BooleanValue) operand1).isTrue())
+                {
+                    this.push(operand2, variance2);
+                }
+                else
+                {
+                    this.push(operand1, variance1);
+                }
+                return true;
+            }
+
+            if (this.isBooleanConstant(operand2) && ((BooleanValue) operand2).isTrue())
+            {
+                this.push(operand1, variance1);
+                return true;
+            }
+        }
+        else if (expr.getOperation() == BooleanOp.OR)
+        {
+            if (this.isBooleanConstant(operand1))
+            {
+                // the second operand is not evaluated if the first one is true
+                if (((BooleanValue) operand1).isTrue())
+                {
+                    this.push(operand1, variance1);
+                }
+                else
+                {
+                    this.push(operand2, variance2);
+                }
+                return true;
+            }
+
+            if (this.isBooleanConstant(operand2) && ((BooleanValue) operand2).isFalse())
+            {
+                this.push(operand1, variance1);
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private boolean isBooleanConstant(Expression expression)
+    {
+        return expression instanceof BooleanValue;
+    }
+
+    @Override
+    public void visitUnaryExpr(UnaryExpr expr)
+    {
+        if (expr.getOperation() == UnaryOp.NOT
+                && expr.getOperand() instanceof UnaryExpr
+                && ((UnaryExpr) expr.getOperand()).getOperation() == UnaryOp.NOT)
+        {
+            ((UnaryExpr) expr.getOperand()).getOperand().accept(this);
+            return;
+        }
+
+        expr.getOperand().accept(this);
+        Variance variance = this.varianceStack.pop();
+        Expression operand = this.expressionStack.pop();
+
+        Expression optimized = operand == expr.getOperand() ? expr : new UnaryExpr(expr.getOperation(), operand);
+
+        this.pushFolded(optimized, variance);
+    }
+
+    @Override
+    public void visitConstExpr(Value expr)
+    {
+        this.push(expr, Variance.CONSTANT);
+    }
+
+    @Override
+    public void visitFunctionCallExpr(FunctionCallExpr expr)
+    {
+        MutableList<Expression> parameters = Lists.mutable.withInitialCapacity(expr.getParameters().size());
+        MutableList<Variance> variances = Lists.mutable.withInitialCapacity(expr.getParameters().size());
+
+        expr.getParameters().forEach(parameter -> {
+            parameter.accept(this);
+            variances.add(this.varianceStack.pop());
+            parameters.add(this.expressionStack.pop());
+        });
+
+        Variance variance = this.isPureIntrinsicFunction(expr.getNormalizedFunctionName())
+                ? variances.injectInto(Variance.CONSTANT, Variance::combine)
+                : Variance.VARIANT;
+
+        if (variance == Variance.VARIANT)
+        {
+            this.hoistInvariantElements(parameters, variances);
+        }
+
+        FunctionScript scriptFunction = this.scriptFunctions.get(expr.getNormalizedFunctionName());
+        if (scriptFunction != null && this.canInline(scriptFunction, parameters))
+        {
+            this.inline(scriptFunction, parameters, variances);
+            return;
+        }
+
+        FunctionScript functionScript = this.slots == null ? null : this.declaredFunction(expr.getNormalizedFunctionName());
+        if (functionScript != null && functionScript.getParameterNames().size() == parameters.size())
+        {
+            this.push(this.boundFunctionCall(expr, parameters, functionScript), Variance.VARIANT);
+            return;
+        }
+
+        Expression optimized = this.sameElements(parameters, expr.getParameters())
+                ? expr
+                : new FunctionCallExpr(expr.getFunctionName(), parameters);
+
+        this.pushFolded(optimized, variance);
+    }
+
+    private boolean canInline(FunctionScript functionScript, ListIterable<Expression> parameters)
+    {
+        ListIterable<String> parameterNames = functionScript.getParameterNames();
+        if (functionScript.getExpressions().size() != 1 || parameterNames.size() != parameters.size())
+        {
+            return false;
+        }
+
+        InlineCandidateVisitor body = new InlineCandidateVisitor(this::isPureIntrinsicFunction, parameterNames.toSet())
+                .analyze(functionScript.getExpressions().get(0));
+
+        if (!body.isCandidate() || body.getNodeCount() > MAX_INLINED_NODE_COUNT)
+        {
+            return false;
+        }
+
+        for (int i = 0; i < parameters.size(); i++)
+        {
+            Expression parameter = parameters.get(i);
+
+            if (!new InlineCandidateVisitor(this::isPureIntrinsicFunction, null).analyze(parameter).isCandidate())
+            {
+                return false;
+            }
+
+            // substituting a parameter referenced more than once should not make the argument evaluated more than once
+            boolean cheapToEvaluate = parameter instanceof Value || parameter instanceof VarExpr || parameter instanceof EvaluatedOnceExpr;
+            if (body.referenceCount(parameterNames.get(i)) > 1 && !cheapToEvaluate)
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private void inline(FunctionScript functionScript, ListIterable<Expression> parameters, ListIterable<Variance> variances)
+    {
+        OptimizingVisitor bodyVisitor = new OptimizingVisitor(
+                this.evalContext, this.dataFrame, this.hoistInvariants, this.slots, this.commonSubexpressions);
+        bodyVisitor.scriptFunctions.putAll(this.scriptFunctions);
+
+        functionScript.getParameterNames().forEachWithIndex((parameterName, i) -> {
+            bodyVisitor.substitutedExpressions.put(parameterName, parameters.get(i));
+            bodyVisitor.substitutedVariances.put(parameterName, variances.get(i));
+        });
+
+        functionScript.getExpressions().get(0).accept(bodyVisitor);
+
+        this.push(bodyVisitor.expressionStack.pop(), bodyVisitor.varianceStack.pop());
+    }
+
+    private FunctionScript declaredFunction(String normalizedFunctionName)
+    {
+        FunctionScript functionScript = this.scriptFunctions.get(normalizedFunctionName);
+        return functionScript == null ? this.evalContext.getDeclaredFunction(normalizedFunctionName) : functionScript;
+    }
+
+    private Expression boundFunctionCall(FunctionCallExpr expr, ListIterable<Expression> parameters, FunctionScript functionScript)
+    {
+        // the functions visible inside the function body are the same as for an unbound call (no recursion)
+        SimpleEvalContext bodyContext = new SimpleEvalContext();
+        bodyContext.loadFunctionsExcept(this.evalContext.getDeclaredFunctions(), expr.getNormalizedFunctionName());
+
+        VariableSlots bodySlots = new VariableSlots(true);
+        functionScript.getParameterNames().forEach(bodySlots::addSlot);
+
+        OptimizingVisitor bodyVisitor = new OptimizingVisitor(bodyContext, null, false, bodySlots, null);
+        ListIterable<Expression> body = functionScript.getExpressions().collect(bodyVisitor::optimizeExpression);
+
+        // calls from a function body are bound once and for all, calls from a script are verified on each call
+        EvalContext callerContext = this.dataFrame == null ? null : this.evalContext;
+
+        return new BoundFunctionCallExpr(expr, parameters, callerContext, functionScript, bodySlots, body, bodyContext);
+    }
+
+    private boolean isPureIntrinsicFunction(String normalizedFunctionName)
+    {
+        if (this.scriptFunctions.containsKey(normalizedFunctionName)
+                || this.evalContext.getDeclaredFunction(normalizedFunctionName) != null)
+        {
+            return false;
+        }
+
+        IntrinsicFunctionDescriptor functionDescriptor = BuiltInFunctions.getFunctionDescriptor(normalizedFunctionName);
+
+        return functionDescriptor != null && functionDescriptor.isPure();
+    }
+
+    @Override
+    public void visitIfElseExpr(IfElseExpr expr)
+    {
+        expr.getCondition().accept(this);
+        Variance conditionVariance = this.varianceStack.pop();
+        Expression condition = this.expressionStack.pop();
+
+        if (this.isBooleanConstant(condition))
+        {
+            if (((BooleanValue) condition).isTrue())
+            {
+                expr.getIfScript().accept(this);
+            }
+            else if (expr.hasElseSection())
+            {
+                expr.getElseScript().accept(this);
+            }
+            else
+            {
+                this.push(Value.VOID, Variance.CONSTANT);
+            }
+
+            return;
+        }
+
+        if (!expr.isTernary())
+        {
+            // the branches are scripts that may assign variables, so they are optimized but not hoisted
+            Expression ifScript = this.optimizeVariantOperand(expr.getIfScript());
+            Expression elseScript = expr.hasElseSection() ? this.optimizeVariantOperand(expr.getElseScript()) : null;
+            condition = this.hoistIfInvariant(condition, conditionVariance);
+
+            this.push(new IfElseExpr(condition, ifScript, elseScript, false), Variance.VARIANT);
+            return;
+        }
+
+        expr.getIfScript().accept(this);
+        Variance ifVariance = this.varianceStack.pop();
+        Expression ifExpression = this.expressionStack.pop();
+
+        expr.getElseScript().accept(this);
+        Variance elseVariance = this.varianceStack.pop();
+        Expression elseExpression = this.expressionStack.pop();
+
+        Variance variance = Variance.combine(conditionVariance, Variance.combine(ifVariance, elseVariance));
+
+        if (variance == Variance.VARIANT)
+        {
+            condition = this.hoistIfInvariant(condition, conditionVariance);
+            ifExpression = this.hoistIfInvariant(ifExpression, ifVariance);
+            elseExpression = this.hoistIfInvariant(elseExpression, elseVariance);
+        }
+
+        Expression optimized =
+                condition == expr.getCondition() && ifExpression == expr.getIfScript() && elseExpression == expr.getElseScript()
+                ? expr
+                : new IfElseExpr(condition, ifExpression, elseExpression, true);
+
+        this.pushFolded(optimized, variance);
+    }
+
+    @Override
+    public void visitPropertyPathExpr(PropertyPathExpr expr)
+    {
+        this.push(expr, Variance.VARIANT);
+    }
+
+    @Override
+    public void visitAnonymousScriptExpr(AnonymousScript expr)
+    {
+        this.scriptFunctions.putAll(expr.getFunctions());
+
+        AnonymousScript optimized = new AnonymousScript();
+        expr.getFunctions().forEachValue(optimized::addFunctionScript);
+        expr.getExpressions().forEach(statement -> optimized.addStatement(this.optimizeVariantOperand(statement)));
+
+        this.push(optimized, Variance.VARIANT);
+    }
+
+    @Override
+    public void visitFunctionScriptExpr(FunctionScript expr)
+    {
+        // function bodies are evaluated with their own parameters, so they are left as is
+        this.push(expr, Variance.VARIANT);
+    }
+
+    @Override
+    public void visitStatementSequenceScript(StatementSequenceScript expr)
+    {
+        StatementSequenceScript optimized = new StatementSequenceScript();
+        expr.getExpressions().forEach(statement -> optimized.addStatement(this.optimizeVariantOperand(statement)));
+
+        this.push(optimized, Variance.VARIANT);
+    }
+
+    @Override
+    public void visitVarExpr(VarExpr expr)
+    {
+        String variableName = expr.getVariableName();
+
+        if (this.substitutedExpressions.containsKey(variableName))
+        {
+            this.push(this.substitutedExpressions.get(variableName), this.substitutedVariances.get(variableName));
+        }
+        else if (this.dataFrame != null && this.dataFrame.hasColumn(variableName))
+        {
+            this.push(this.slots == null ? expr : new ColumnVarExpr(expr, (DataFrameEvalContext) this.evalContext, this.dataFrame.getColumnNamed(variableName)), Variance.VARIANT);
+        }
+        else if (this.slots != null && this.slots.hasSlot(variableName))
+        {
+            this.push(new SlotVarExpr(expr, this.slots), Variance.VARIANT);
+        }
+        else
+        {
+            boolean invariant = this.hoistInvariants && !this.assignedVariables.contains(variableName);
+            this.push(expr, invariant ? Variance.INVARIANT : Variance.VARIANT);
+        }
+    }
+
+    @Override
+    public void visitProjectionExpr(ProjectionExpr expr)
+    {
+        this.push(expr, Variance.VARIANT);
+    }
+
+    @Override
+    public void visitVectorExpr(VectorExpr expr)
+    {
+        MutableList<Expression> elements = Lists.mutable.withInitialCapacity(expr.getElements().size());
+        MutableList<Variance> variances = Lists.mutable.withInitialCapacity(expr.getElements().size());
+
+        expr.getElements().forEach(element -> {
+            element.accept(this);
+            variances.add(this.varianceStack.pop());
+            elements.add(this.expressionStack.pop());
+        });
+
+        Variance variance = variances.injectInto(Variance.CONSTANT, Variance::combine);
+
+        if (variance == Variance.VARIANT)
+        {
+            this.hoistInvariantElements(elements, variances);
+        }
+
+        Expression optimized = this.sameElements(elements, expr.getElements()) ? expr : new VectorExpr(elements);
+
+        this.pushFolded(optimized, variance);
+    }
+
+    @Override
+    public void visitIndexExpr(IndexExpr expr)
+    {
+        expr.getVectorExpr().accept(this);
+        Variance vectorVariance = this.varianceStack.pop();
+        Expression vectorExpr = this.expressionStack.pop();
+
+        expr.getIndexExpr().accept(this);
+        Variance indexVariance = this.varianceStack.pop();
+        Expression indexExpr = this.expressionStack.pop();
+
+        Variance variance = Variance.combine(vectorVariance, indexVariance);
+
+        if (variance == Variance.VARIANT)
+        {
+            vectorExpr = this.hoistIfInvariant(vectorExpr, vectorVariance);
+            indexExpr = this.hoistIfInvariant(indexExpr, indexVariance);
+        }
+
+        Expression optimized = vectorExpr == expr.getVectorExpr() && indexExpr == expr.getIndexExpr()
+                ? expr
+                : new IndexExpr(vectorExpr, indexExpr);
+
+        this.pushFolded(optimized, variance);
+    }
+
+    private Expression optimizeVariantOperand(Expression expression)
+    {
+        expression.accept(this);
+        Variance variance = this.varianceStack.pop();
+        return this.hoistIfInvariant(this.expressionStack.pop(), variance);
+    }
+
+    private Expression hoistIfInvariant(Expression expression, Variance variance)
+    {
+        return variance == Variance.INVARIANT ? this.hoisted(expression) : expression;
+    }
+
+    private void hoistInvariantElements(MutableList<Expression> expressions, ListIterable<Variance> variances)
+    {
+        for (int i = 0; i < expressions.size(); i++)
+        {
+            expressions.set(i, this.hoistIfInvariant(expressions.get(i), variances.get(i)));
+        }
+    }
+
+    private Expression hoisted(Expression expression)
+    {
+        // hoisting a variable reference does not save anything
+        return expression instanceof VarExpr || expression instanceof EvaluatedOnceExpr ? expression : new EvaluatedOnceExpr(expression);
+    }
+
+    private boolean sameElements(ListIterable<Expression> these, ListIterable<Expression> those)
+    {
+        if (these.size() != those.size())
+        {
+            return false;
+        }
+
+        for (int i = 0; i < these.size(); i++)
+        {
+            if (these.get(i) != those.get(i))
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private void pushFolded(Expression expression, Variance variance)
+    {
+        if (variance == Variance.CONSTANT && !(expression instanceof Value))
+        {
+            try
+            {
+                this.push(expression.evaluate(new InMemoryEvaluationVisitor()), Variance.CONSTANT);
+            }
+            catch (RuntimeException e)
+            {
+                // leave it to fail during evaluation
+                this.push(expression, Variance.VARIANT);
+            }
+            return;
+        }
+
+        if (variance == Variance.VARIANT && this.commonSubexpressions != null)
+        {
+            this.push(this.commonSubexpressions.shared(expression, this::isPureIntrinsicFunction), variance);
+            return;
+        }
+
+        this.push(expression, variance);
+    }
+
+    private void push(Expression expression, Variance variance)
+    {
+        this.expressionStack.push(expression);
+        this.varianceStack.push(variance);
+    }
+
+    private enum Variance
+    {
+        CONSTANT, INVARIANT, VARIANT;
+
+        static Variance combine(Variance one, Variance another)
+        {
+            return one.compareTo(another) >= 0 ? one : another;
+        }
+    }
+
+    /**
+     * Wraps a subexpression whose value does not change while the expression is evaluated over the rows of a data
+     * frame. The subexpression is evaluated the first time its value is needed and the value is reused after that.
+     */
+    static private final class EvaluatedOnceExpr
+    implements Expression
+    {
+        private final Expression expression;
+        private Value value;
+
+        private EvaluatedOnceExpr(Expression newExpression)
+        {
+            this.expression = newExpression;
+        }
+
+        @Override
+        public Value evaluate(ExpressionEvaluationVisitor evaluationVisitor)
+        {
+            if (this.value == null)
+            {
+                this.value = this.expression.evaluate(evaluationVisitor);
+            }
+
+            return this.value;
+        }
+
+        @Override
+        public void accept(ExpressionVisitor visitor)
+        {
+            this.expression.accept(visitor);
+        }
+    }
+}
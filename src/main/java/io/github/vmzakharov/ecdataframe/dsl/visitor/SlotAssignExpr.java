@@ -0,0 +1,36 @@
+package io.github.vmzakharov.ecdataframe.dsl.visitor;
+
+import io.github.vmzakharov.ecdataframe.dsl.AssingExpr;
+import io.github.vmzakharov.ecdataframe.dsl.Expression;
+import io.github.vmzakharov.ecdataframe.dsl.value.Value;
+
+/**
+ * An assignment of a value to a variable stored in a slot.
+ */
+final class SlotAssignExpr
+extends AssingExpr
+{
+    private final VariableSlots slots;
+    private final int slotIndex;
+
+    SlotAssignExpr(AssingExpr original, Expression newExpression, VariableSlots newSlots)
+    {
+        super(original.getVarName(), original.isEscaped(), newExpression);
+        this.slots = newSlots;
+        this.slotIndex = newSlots.addSlot(original.getVarName());
+    }
+
+    @Override
+    public Value evaluate(ExpressionEvaluationVisitor visitor)
+    {
+        Value value = this.getExpression().evaluate(visitor);
+
+        if (this.slots.isImmutable() && this.slots.get(visitor, this.slotIndex) != null)
+        {
+            throw new RuntimeException("Attempting to change immutable variable '" + this.getVarName() + "'");
+        }
+
+        this.slots.set(visitor, this.slotIndex, value);
+        return value;
+    }
+}
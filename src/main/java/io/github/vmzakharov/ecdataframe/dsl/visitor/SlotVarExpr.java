@@ -0,0 +1,29 @@
+package io.github.vmzakharov.ecdataframe.dsl.visitor;
+
+import io.github.vmzakharov.ecdataframe.dsl.VarExpr;
+import io.github.vmzakharov.ecdataframe.dsl.value.Value;
+
+/**
+ * A reference to a variable stored in a slot. If the variable has not been assigned yet, it is looked up by name in
+ * the evaluation context, the same way an unresolved variable would be.
+ */
+final class SlotVarExpr
+extends VarExpr
+{
+    private final VariableSlots slots;
+    private final int slotIndex;
+
+    SlotVarExpr(VarExpr original, VariableSlots newSlots)
+    {
+        super(original.getVariableName(), original.isEscaped());
+        this.slots = newSlots;
+        this.slotIndex = newSlots.slotIndex(original.getVariableName());
+    }
+
+    @Override
+    public Value evaluate(ExpressionEvaluationVisitor visitor)
+    {
+        Value value = this.slots.get(visitor, this.slotIndex);
+        return value == null ? visitor.visitVarExpr(this) : value;
+    }
+}
@@ -0,0 +1,139 @@
+package io.github.vmzakharov.ecdataframe.dsl.visitor;
+
+import io.github.vmzakharov.ecdataframe.dsl.AliasExpr;
+import io.github.vmzakharov.ecdataframe.dsl.AnonymousScript;
+import io.github.vmzakharov.ecdataframe.dsl.AssingExpr;
+import io.github.vmzakharov.ecdataframe.dsl.BinaryExpr;
+import io.github.vmzakharov.ecdataframe.dsl.Expression;
+import io.github.vmzakharov.ecdataframe.dsl.FunctionCallExpr;
+import io.github.vmzakharov.ecdataframe.dsl.FunctionScript;
+import io.github.vmzakharov.ecdataframe.dsl.IfElseExpr;
+import io.github.vmzakharov.ecdataframe.dsl.IndexExpr;
+import io.github.vmzakharov.ecdataframe.dsl.ProjectionExpr;
+import io.github.vmzakharov.ecdataframe.dsl.PropertyPathExpr;
+import io.github.vmzakharov.ecdataframe.dsl.StatementSequenceScript;
+import io.github.vmzakharov.ecdataframe.dsl.UnaryExpr;
+import io.github.vmzakharov.ecdataframe.dsl.VarExpr;
+import io.github.vmzakharov.ecdataframe.dsl.VectorExpr;
+import io.github.vmzakharov.ecdataframe.dsl.value.Value;
+import org.eclipse.collections.api.set.MutableSet;
+import org.eclipse.collections.api.set.SetIterable;
+import org.eclipse.collections.impl.factory.Sets;
+
+/**
+ * Collects the names of the variables an expression refers to. Function declarations are not included as the variables
+ * in function bodies are local to the functions.
+ */
+public class VariableReferenceVisitor
+implements ExpressionVisitor
+{
+    private final MutableSet<String> variableNames = Sets.mutable.of();
+
+    static public SetIterable<String> referencedVariableNames(Expression expression)
+    {
+        VariableReferenceVisitor visitor = new VariableReferenceVisitor();
+        expression.accept(visitor);
+        return visitor.variableNames;
+    }
+
+    @Override
+    public void visitAliasExpr(AliasExpr expr)
+    {
+        expr.getExpression().accept(this);
+    }
+
+    @Override
+    public void visitAssignExpr(AssingExpr expr)
+    {
+        expr.getExpression().accept(this);
+    }
+
+    @Override
+    public void visitBinaryExpr(BinaryExpr expr)
+    {
+        expr.getOperand1().accept(this);
+        expr.getOperand2().accept(this);
+    }
+
+    @Override
+    public void visitUnaryExpr(UnaryExpr expr)
+    {
+        expr.getOperand().accept(this);
+    }
+
+    @Override
+    public void visitConstExpr(Value expr)
+    {
+        // no variable references
+    }
+
+    @Override
+    public void visitFunctionCallExpr(FunctionCallExpr expr)
+    {
+        expr.getParameters().forEach(parameter -> parameter.accept(this));
+    }
+
+    @Override
+    public void visitIfElseExpr(IfElseExpr expr)
+    {
+        expr.getCondition().accept(this);
+        expr.getIfScript().accept(this);
+        if (expr.hasElseSection())
+        {
+            expr.getElseScript().accept(this);
+        }
+    }
+
+    @Override
+    public void visitPropertyPathExpr(PropertyPathExpr expr)
+    {
+        // no variable references
+    }
+
+    @Override
+    public void visitAnonymousScriptExpr(AnonymousScript expr)
+    {
+        expr.getExpressions().forEach(statement -> statement.accept(this));
+    }
+
+    @Override
+    public void visitFunctionScriptExpr(FunctionScript expr)
+    {
+        // no variable references
+    }
+
+    @Override
+    public void visitStatementSequenceScript(StatementSequenceScript expr)
+    {
+        expr.getExpressions().forEach(statement -> statement.accept(this));
+    }
+
+    @Override
+    public void visitVarExpr(VarExpr expr)
+    {
+        this.variableNames.add(expr.getVariableName());
+    }
+
+    @Override
+    public void visitProjectionExpr(ProjectionExpr expr)
+    {
+        expr.getProjectionExpressions().forEach(projection -> projection.accept(this));
+        if (expr.getWhereClause() != null)
+        {
+            expr.getWhereClause().accept(this);
+        }
+    }
+
+    @Override
+    public void visitVectorExpr(VectorExpr expr)
+    {
+        expr.getElements().forEach(element -> element.accept(this));
+    }
+
+    @Override
+    public void visitIndexExpr(IndexExpr expr)
+    {
+        expr.getVectorExpr().accept(this);
+        expr.getIndexExpr().accept(this);
+    }
+}
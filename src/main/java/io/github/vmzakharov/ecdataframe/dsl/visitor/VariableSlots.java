@@ -0,0 +1,87 @@
+package io.github.vmzakharov.ecdataframe.dsl.visitor;
+
+import io.github.vmzakharov.ecdataframe.dsl.value.Value;
+import org.eclipse.collections.api.map.primitive.MutableObjectIntMap;
+import org.eclipse.collections.impl.factory.primitive.ObjectIntMaps;
+
+/**
+ * Storage for the values of variables assigned in a script or passed as parameters to a function. Each variable is
+ * given a slot when the script is prepared for evaluation, so reading or writing its value during evaluation is an
+ * array access rather than a lookup by name.
+ * <p>
+ * The slots only describe the layout, the values themselves are kept in a frame held by the evaluation visitor, so
+ * they are gone with the visitor once the evaluation is over. A function call evaluates its body with a new visitor
+ * holding a new frame, so calls evaluated concurrently, or nested within each other, do not see each other's values.
+ */
+final class VariableSlots
+{
+    private final MutableObjectIntMap<String> slotIndexesByName = ObjectIntMaps.mutable.empty();
+    private final boolean immutable;
+    private int slotCount = 0;
+
+    /**
+     * @param newImmutable if true, a variable can only be assigned once per frame (e.g., for function parameters and
+     *                     local variables), otherwise new values replace old ones (e.g., for variables of a script
+     *                     evaluated once per data frame row)
+     */
+    VariableSlots(boolean newImmutable)
+    {
+        this.immutable = newImmutable;
+    }
+
+    boolean isImmutable()
+    {
+        return this.immutable;
+    }
+
+    boolean hasSlot(String variableName)
+    {
+        return this.slotIndexesByName.containsKey(variableName);
+    }
+
+    int slotIndex(String variableName)
+    {
+        return this.slotIndexesByName.getIfAbsent(variableName, -1);
+    }
+
+    int addSlot(String variableName)
+    {
+        int index = this.slotIndexesByName.getIfAbsent(variableName, -1);
+        if (index == -1)
+        {
+            index = this.slotCount++;
+            this.slotIndexesByName.put(variableName, index);
+        }
+
+        return index;
+    }
+
+    /**
+     * @param visitor the visitor evaluating the expression, which holds the frame
+     * @param index the slot of the variable
+     * @return the value of the variable, {@code null} if it has not been assigned in the frame
+     */
+    Value get(ExpressionEvaluationVisitor visitor, int index)
+    {
+        return this.frameOf(visitor)[index];
+    }
+
+    void set(ExpressionEvaluationVisitor visitor, int index, Value value)
+    {
+        this.frameOf(visitor)[index] = value;
+    }
+
+    /**
+     * @return a new frame with no variables assigned
+     */
+    Value[] newFrame()
+    {
+        return new Value[this.slotCount];
+    }
+
+    private Value[] frameOf(ExpressionEvaluationVisitor visitor)
+    {
+        // the slots are only created when optimizing expressions for in memory evaluation
+        return ((InMemoryEvaluationVisitor) visitor).frame(this.slotCount);
+    }
+}
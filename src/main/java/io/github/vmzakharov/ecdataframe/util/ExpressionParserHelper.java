@@ -6,17 +6,44 @@ import io.github.vmzakharov.ecdataframe.grammar.ModelScriptLexer;
 import io.github.vmzakharov.ecdataframe.grammar.ModelScriptParser;
 import io.github.vmzakharov.ecdataframe.grammar.ModelScriptTreeBuilderVisitor;
 import org.antlr.v4.runtime.ANTLRErrorListener;
+import org.antlr.v4.runtime.BailErrorStrategy;
 import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.CharStreams;
 import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ConsoleErrorListener;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
 import org.antlr.v4.runtime.tree.ParseTree;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Converts strings to expressions and scripts.
+ * <p>
+ * Parsing first tries the faster SLL prediction mode of the parser and only falls back to the full LL mode if the
+ * SLL attempt fails, so the error listener only sees errors reported by the LL pass. Successfully parsed
+ * expressions and scripts are cached by their source text (up to {@code CACHE_SIZE} most recently used entries per
+ * parser rule), so parsing the same string again returns the same, previously parsed, instance. Since the parsed
+ * instances are shared, callers must not modify them: the functions declared in a cached script cannot be changed
+ * (see {@link AnonymousScript#makeFunctionsUnmodifiable()}), and the statements of a script must not be added to.
+ * The cache is thread safe.
+ */
 public class ExpressionParserHelper
 {
+    static public final int CACHE_SIZE = 1_024;
+
     static public final ExpressionParserHelper DEFAULT = new ExpressionParserHelper();
 
     private ANTLRErrorListener replacementErrorListener;
 
+    private final ParsedCache<Expression> expressionCache = new ParsedCache<>(CACHE_SIZE);
+    private final ParsedCache<Expression> projectionCache = new ParsedCache<>(CACHE_SIZE);
+    private final ParsedCache<AnonymousScript> scriptCache = new ParsedCache<>(CACHE_SIZE);
+
     public ExpressionParserHelper(ANTLRErrorListener newReplacementErrorListener)
     {
         this.replacementErrorListener = newReplacementErrorListener;
@@ -28,25 +55,51 @@ public class ExpressionParserHelper
 
     public Expression toExpression(String s)
     {
-        ModelScriptParser parser = this.stringToParser(s);
-        ParseTree tree = parser.statement();
+        return this.expressionCache.computeIfAbsent(s, this::parseExpression);
+    }
+
+    public Expression toProjection(String s)
+    {
+        return this.projectionCache.computeIfAbsent(s, this::parseProjection);
+    }
 
-        if (parser.getNumberOfSyntaxErrors() > 0)
+    public Expression toExpressionOrScript(String s)
+    {
+        AnonymousScript script = this.toScript(s);
+
+        if (script == null)
         {
             return null;
         }
 
-        ModelScriptTreeBuilderVisitor visitor = new ModelScriptTreeBuilderVisitor();
+        if (script.getExpressions().size() == 1 && script.getFunctions().size() == 0)
+        {
+            return script.getExpressions().get(0);
+        }
 
-        return visitor.visit(tree);
+        return script;
     }
 
-    public Expression toProjection(String s)
+    public AnonymousScript toScript(String s)
     {
-        ModelScriptParser parser = this.stringToParser(s);
-        ParseTree tree = parser.projectionStatement();
+        return this.scriptCache.computeIfAbsent(s, this::parseScript);
+    }
 
-        if (parser.getNumberOfSyntaxErrors() > 0)
+    /**
+     * removes all the previously parsed expressions and scripts from the cache
+     */
+    public void clearCache()
+    {
+        this.expressionCache.clear();
+        this.projectionCache.clear();
+        this.scriptCache.clear();
+    }
+
+    private Expression parseExpression(String s)
+    {
+        ParseTree tree = this.parse(s, ModelScriptParser::statement);
+
+        if (tree == null)
         {
             return null;
         }
@@ -56,29 +109,25 @@ public class ExpressionParserHelper
         return visitor.visit(tree);
     }
 
-    public Expression toExpressionOrScript(String s)
+    private Expression parseProjection(String s)
     {
-        AnonymousScript script = this.toScript(s);
+        ParseTree tree = this.parse(s, ModelScriptParser::projectionStatement);
 
-        if (script == null)
+        if (tree == null)
         {
             return null;
         }
 
-        if (script.getExpressions().size() == 1 && script.getFunctions().size() == 0)
-        {
-            return script.getExpressions().get(0);
-        }
+        ModelScriptTreeBuilderVisitor visitor = new ModelScriptTreeBuilderVisitor();
 
-        return script;
+        return visitor.visit(tree);
     }
 
-    public AnonymousScript toScript(String s)
+    private AnonymousScript parseScript(String s)
     {
-        ModelScriptParser parser = this.stringToParser(s);
-        ParseTree tree = parser.script();
+        ParseTree tree = this.parse(s, ModelScriptParser::script);
 
-        if (parser.getNumberOfSyntaxErrors() > 0)
+        if (tree == null)
         {
             return null;
         }
@@ -86,20 +135,104 @@ public class ExpressionParserHelper
         ModelScriptTreeBuilderVisitor visitor = new ModelScriptTreeBuilderVisitor();
         visitor.visit(tree);
 
-        return visitor.getAsAnonymousScript();
+        AnonymousScript script = visitor.getAsAnonymousScript();
+        script.makeFunctionsUnmodifiable();
+
+        return script;
     }
 
-    private ModelScriptParser stringToParser(String s)
+    /**
+     * parses the string using the SLL prediction mode bailing out on the first error, and if that fails or leaves
+     * some input unconsumed, parses it again in the LL mode with full error reporting
+     * @return the parse tree or null if the string has syntax errors
+     */
+    private ParseTree parse(String s, Function<ModelScriptParser, ParseTree> rule)
     {
         CharStream charStream = CharStreams.fromString(s);
         ModelScriptLexer lexer = new ModelScriptLexer(charStream);
         CommonTokenStream tokens = new CommonTokenStream(lexer);
         ModelScriptParser parser = new ModelScriptParser(tokens);
-        if (this.replacementErrorListener != null)
+
+        parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+        parser.removeErrorListeners();
+        parser.setErrorHandler(new BailErrorStrategy());
+
+        try
+        {
+            ParseTree tree = rule.apply(parser);
+            // the bailing strategy does not report unexpected trailing input, leave it to the full error handling
+            if (parser.getNumberOfSyntaxErrors() == 0 && tokens.LA(1) == Token.EOF)
+            {
+                return tree;
+            }
+        }
+        catch (ParseCancellationException e)
+        {
+            // fall through to the LL pass
+        }
+
+        tokens.seek(0);
+        parser.reset();
+
+        parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+        parser.setErrorHandler(new DefaultErrorStrategy());
+        parser.addErrorListener(this.replacementErrorListener == null ? ConsoleErrorListener.INSTANCE : this.replacementErrorListener);
+
+        ParseTree tree = rule.apply(parser);
+
+        return parser.getNumberOfSyntaxErrors() > 0 ? null : tree;
+    }
+
+    /**
+     * A bounded least recently used cache. Values are computed outside of the lock, so concurrent requests for the
+     * same missing key may parse it more than once, with the last one stored. Null values (parse failures) are not
+     * cached so that errors are reported every time.
+     */
+    static private final class ParsedCache<V>
+    {
+        private final LinkedHashMap<String, V> map;
+
+        private ParsedCache(int newMaxSize)
+        {
+            this.map = new LinkedHashMap<String, V>(16, 0.75f, true)
+            {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, V> eldest)
+                {
+                    return this.size() > newMaxSize;
+                }
+            };
+        }
+
+        public V computeIfAbsent(String key, Function<String, V> valueFunction)
+        {
+            V value;
+            synchronized (this.map)
+            {
+                value = this.map.get(key);
+            }
+
+            if (value == null)
+            {
+                value = valueFunction.apply(key);
+                if (value != null)
+                {
+                    synchronized (this.map)
+                    {
+                        this.map.put(key, value);
+                    }
+                }
+            }
+
+            return value;
+        }
+
+        public void clear()
         {
-            parser.removeErrorListeners();
-            parser.addErrorListener(this.replacementErrorListener);
+            synchronized (this.map)
+            {
+                this.map.clear();
+            }
         }
-        return parser;
     }
 }
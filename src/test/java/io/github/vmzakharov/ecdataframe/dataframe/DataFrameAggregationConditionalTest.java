@@ -0,0 +1,118 @@
+package io.github.vmzakharov.ecdataframe.dataframe;
+
+import org.eclipse.collections.impl.factory.Lists;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import static io.github.vmzakharov.ecdataframe.dataframe.AggregateFunction.avg;
+import static io.github.vmzakharov.ecdataframe.dataframe.AggregateFunction.count;
+import static io.github.vmzakharov.ecdataframe.dataframe.AggregateFunction.countDistinct;
+import static io.github.vmzakharov.ecdataframe.dataframe.AggregateFunction.max;
+import static io.github.vmzakharov.ecdataframe.dataframe.AggregateFunction.sum;
+
+public class DataFrameAggregationConditionalTest
+{
+    private DataFrame dataFrame;
+
+    @Before
+    public void initialiseDataFrame()
+    {
+        this.dataFrame = new DataFrame("FrameOfData")
+                .addStringColumn("Desk").addStringColumn("Side").addLongColumn("Qty").addDoubleColumn("Price")
+                .addRow("Rates",  "B", 100L, 10.0)
+                .addRow("Rates",  "S",  50L, 11.0)
+                .addRow("Rates",  "B", 300L, 12.0)
+                .addRow("Credit", "S",  20L, 99.0)
+                .addRow("FX",     "B",  10L,  1.5)
+                .addRow("FX",     "S",  30L,  1.7)
+                .seal();
+    }
+
+    @Test
+    public void pivotLikeMeasuresByGroup()
+    {
+        DataFrameUtil.assertEquals(
+                new DataFrame("expected")
+                        .addStringColumn("Desk").addLongColumn("Qty").addLongColumn("Bought").addLongColumn("Sold")
+                        .addLongColumn("Buys").addLongColumn("Max Buy").addDoubleColumn("Avg Buy Price")
+                        .addRow("Rates",  450L, 400L, 50L, 2L, 300L, 11.0)
+                        .addRow("Credit",  20L,   0L, 20L, 0L, null, null)
+                        .addRow("FX",      40L,  10L, 30L, 1L,  10L,  1.5),
+                this.dataFrame.aggregateBy(
+                        Lists.immutable.of(
+                                sum("Qty"),
+                                sum("Qty", "Bought").where("Side == 'B'"),
+                                sum("Qty", "Sold").where("Side == 'S'"),
+                                count("Qty", "Buys").where("Side == 'B'"),
+                                max("Qty", "Max Buy").where("Side == 'B'"),
+                                avg("Price", "Avg Buy Price").where("Side == 'B'")),
+                        Lists.immutable.of("Desk")));
+    }
+
+    @Test
+    public void conditionalAggregationWithGroupAccumulator()
+    {
+        DataFrameUtil.assertEquals(
+                new DataFrame("expected")
+                        .addStringColumn("Side").addLongColumn("Desks").addLongColumn("Large Trade Desks")
+                        .addRow("B", 2L, 1L)
+                        .addRow("S", 3L, 1L),
+                this.dataFrame.aggregateBy(
+                        Lists.immutable.of(
+                                countDistinct("Desk", "Desks"),
+                                countDistinct("Desk", "Large Trade Desks").where("Qty * Price > 1000")),
+                        Lists.immutable.of("Side")));
+    }
+
+    @Test
+    public void conditionalAggregationWithoutGrouping()
+    {
+        DataFrameUtil.assertEquals(
+                new DataFrame("expected")
+                        .addLongColumn("Qty").addLongColumn("Rates Qty").addDoubleColumn("Rates Avg Price")
+                        .addRow(510L, 450L, 11.0),
+                this.dataFrame.aggregate(
+                        Lists.immutable.of(
+                                sum("Qty"),
+                                sum("Qty", "Rates Qty").where("Desk == 'Rates'"),
+                                avg("Price", "Rates Avg Price").where("Desk == 'Rates'"))));
+    }
+
+    @Test
+    public void conditionalAggregationOfEmptyFrame()
+    {
+        DataFrameUtil.assertEquals(
+                new DataFrame("expected")
+                        .addLongColumn("Qty").addLongColumn("Count").addLongColumn("Max")
+                        .addRow(0L, 0L, null),
+                this.dataFrame.selectBy("Qty > 1000").aggregate(
+                        Lists.immutable.of(
+                                sum("Qty").where("Side == 'B'"),
+                                count("Qty", "Count").where("Side == 'B'"),
+                                max("Qty", "Max").where("Side == 'B'"))));
+    }
+
+    @Test
+    public void whereDoesNotModifyTheAggregateFunction()
+    {
+        AggregateFunction totalQty = sum("Qty", "Total");
+        AggregateFunction boughtQty = totalQty.where("Side == 'B'");
+        AggregateFunction soldQty = boughtQty.where("Side == 'S'");
+
+        Assert.assertNull(totalQty.getFilter());
+        Assert.assertEquals("Side == 'B'", boughtQty.getFilter());
+        Assert.assertEquals("Side == 'S'", soldQty.getFilter());
+        Assert.assertEquals("Total", soldQty.getTargetColumnName());
+
+        DataFrameUtil.assertEquals(
+                new DataFrame("expected")
+                        .addLongColumn("Total").addRow(510L),
+                this.dataFrame.aggregate(Lists.immutable.of(totalQty)));
+
+        DataFrameUtil.assertEquals(
+                new DataFrame("expected")
+                        .addLongColumn("Total").addRow(100L),
+                this.dataFrame.aggregate(Lists.immutable.of(soldQty)));
+    }
+}
@@ -0,0 +1,199 @@
+package io.github.vmzakharov.ecdataframe.dataframe;
+
+import org.eclipse.collections.impl.factory.Lists;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static io.github.vmzakharov.ecdataframe.dataframe.AggregateFunction.approxCountDistinct;
+import static io.github.vmzakharov.ecdataframe.dataframe.AggregateFunction.countDistinct;
+
+public class DataFrameAggregationDistinctTest
+{
+    private DataFrame dataFrame;
+
+    @Before
+    public void initialiseDataFrame()
+    {
+        this.dataFrame = new DataFrame("FrameOfData")
+                .addStringColumn("Desk").addStringColumn("Counterparty").addLongColumn("Qty").addDoubleColumn("Price")
+                .addRow("Rates",  "Acme",    100L, 10.0)
+                .addRow("Rates",  "Globex",  100L, 10.5)
+                .addRow("Rates",  "Acme",    200L, 10.0)
+                .addRow("Credit", "Initech", 300L, 99.0)
+                .addRow("Credit", "Initech", 300L, 99.0)
+                .addRow("FX",     "Acme",    400L,  1.5)
+                .addRow("FX",     "Globex",  500L,  1.6)
+                .addRow("FX",     "Hooli",   600L,  1.7)
+                .seal();
+    }
+
+    @Test
+    public void countDistinctByGroup()
+    {
+        DataFrameUtil.assertEquals(
+                new DataFrame("expected")
+                        .addStringColumn("Desk").addLongColumn("Counterparty").addLongColumn("Qty").addLongColumn("Price")
+                        .addRow("Rates",  2L, 2L, 2L)
+                        .addRow("Credit", 1L, 1L, 1L)
+                        .addRow("FX",     3L, 3L, 3L),
+                this.dataFrame.aggregateBy(
+                        Lists.immutable.of(countDistinct("Counterparty"), countDistinct("Qty"), countDistinct("Price")),
+                        Lists.immutable.of("Desk")));
+    }
+
+    @Test
+    public void countDistinctAll()
+    {
+        DataFrameUtil.assertEquals(
+                new DataFrame("expected")
+                        .addLongColumn("Counterparties").addLongColumn("Qty").addLongColumn("Price")
+                        .addRow(4L, 6L, 6L),
+                this.dataFrame.aggregate(
+                        Lists.immutable.of(countDistinct("Counterparty", "Counterparties"), countDistinct("Qty"), countDistinct("Price"))));
+    }
+
+    @Test
+    public void approxCountDistinctOfFewValuesIsExact()
+    {
+        DataFrameUtil.assertEquals(
+                new DataFrame("expected")
+                        .addStringColumn("Desk").addLongColumn("Counterparty").addLongColumn("Price")
+                        .addRow("Rates",  2L, 2L)
+                        .addRow("Credit", 1L, 1L)
+                        .addRow("FX",     3L, 3L),
+                this.dataFrame.aggregateBy(
+                        Lists.immutable.of(approxCountDistinct("Counterparty"), approxCountDistinct("Price", 10)),
+                        Lists.immutable.of("Desk")));
+    }
+
+    @Test
+    public void countDistinctWithNulls()
+    {
+        DataFrame withNulls = new DataFrame("FrameOfData")
+                .addStringColumn("Desk").addStringColumn("Counterparty").addLongColumn("Qty")
+                .addRow("Rates",  "Acme",   100L)
+                .addRow("Rates",  null,     200L)
+                .addRow("FX",     "Globex", null)
+                .addRow("FX",     "Hooli",  600L)
+                .seal();
+
+        DataFrameUtil.assertEquals(
+                new DataFrame("expected")
+                        .addStringColumn("Desk").addLongColumn("Counterparty").addLongColumn("Qty")
+                        .addRow("Rates", null, 2L)
+                        .addRow("FX",    2L,   null),
+                withNulls.aggregateBy(
+                        Lists.immutable.of(countDistinct("Counterparty"), approxCountDistinct("Qty")),
+                        Lists.immutable.of("Desk")));
+    }
+
+    @Test
+    public void approxCountDistinctOfManyValues()
+    {
+        DataFrame trades = new DataFrame("Trades").addStringColumn("Desk").addLongColumn("Counterparty").addStringColumn("Ticker");
+
+        for (int i = 0; i < 200_000; i++)
+        {
+            trades.addRow(i % 2 == 0 ? "Rates" : "FX", (i * 7L) % 50_000L, "T" + i % 30_000);
+        }
+        trades.seal();
+
+        DataFrame exact = trades.aggregateBy(
+                Lists.immutable.of(countDistinct("Counterparty"), countDistinct("Ticker")), Lists.immutable.of("Desk"));
+        DataFrame approximate = trades.aggregateBy(
+                Lists.immutable.of(approxCountDistinct("Counterparty"), approxCountDistinct("Ticker")), Lists.immutable.of("Desk"));
+
+        Assert.assertEquals(25_000L, exact.getLong("Counterparty", 0));
+        Assert.assertEquals(15_000L, exact.getLong("Ticker", 0));
+
+        for (int rowIndex = 0; rowIndex < exact.rowCount(); rowIndex++)
+        {
+            Assert.assertEquals(exact.getString("Desk", rowIndex), approximate.getString("Desk", rowIndex));
+            Assert.assertEquals(1.0, (double) approximate.getLong("Counterparty", rowIndex) / exact.getLong("Counterparty", rowIndex), 0.03);
+            Assert.assertEquals(1.0, (double) approximate.getLong("Ticker", rowIndex) / exact.getLong("Ticker", rowIndex), 0.03);
+        }
+    }
+
+    @Test
+    public void mergeGroupAccumulators()
+    {
+        GroupAccumulator exact = countDistinct("Qty").groupAccumulator();
+        GroupAccumulator otherExact = countDistinct("Qty").groupAccumulator();
+        GroupAccumulator approximate = approxCountDistinct("Qty").groupAccumulator();
+        GroupAccumulator otherApproximate = approxCountDistinct("Qty").groupAccumulator();
+
+        for (long value = 0; value < 30_000; value++)
+        {
+            exact.accumulateLong(0, value);
+            approximate.accumulateLong(0, value);
+            otherExact.accumulateLong(1, value + 20_000);
+            otherApproximate.accumulateLong(1, value + 20_000);
+        }
+
+        exact.merge(0, otherExact, 1);
+        approximate.merge(0, otherApproximate, 1);
+
+        Assert.assertEquals(50_000L, exact.getResult(0));
+        Assert.assertEquals(1.0, ((Long) approximate.getResult(0)) / 50_000.0, 0.03);
+    }
+
+    @Test
+    public void mergeSketches()
+    {
+        HyperLogLog sketch = new HyperLogLog(12);
+        HyperLogLog otherSketch = new HyperLogLog(12);
+
+        for (int i = 0; i < 100_000; i++)
+        {
+            sketch.addObject("Name" + i);
+            otherSketch.addObject("Name" + (i + 50_000));
+        }
+
+        sketch.merge(otherSketch);
+        Assert.assertEquals(1.0, sketch.estimate() / 150_000.0, 0.05);
+    }
+
+    @Test
+    public void smallSketchesCountExactlyUntilTheySwitchToRegisters()
+    {
+        HyperLogLog sketch = new HyperLogLog(14);
+        HyperLogLog otherSketch = new HyperLogLog(14);
+
+        for (int i = 0; i < 1_000; i++)
+        {
+            sketch.addObject(LocalDate.of(2000, 1, 1).plusDays(i % 500));
+            otherSketch.addObject(LocalDateTime.of(2000, 1, 1, 0, 0).plusNanos(i));
+        }
+
+        Assert.assertEquals(500L, sketch.estimate());
+        Assert.assertEquals(1_000L, otherSketch.estimate());
+
+        sketch.merge(otherSketch);
+        Assert.assertEquals(1_500L, sketch.estimate(), 25.0);
+
+        for (int i = 0; i < 100_000; i++)
+        {
+            otherSketch.addLong(i);
+        }
+        Assert.assertEquals(1.0, otherSketch.estimate() / 101_000.0, 0.03);
+
+        sketch.merge(otherSketch);
+        Assert.assertEquals(1.0, sketch.estimate() / 101_500.0, 0.03);
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void sketchPrecisionMustBeInRange()
+    {
+        this.dataFrame.aggregateBy(Lists.immutable.of(approxCountDistinct("Qty", 2)), Lists.immutable.of("Desk"));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void mergingSketchesOfDifferentPrecisionFails()
+    {
+        new HyperLogLog(10).merge(new HyperLogLog(12));
+    }
+}
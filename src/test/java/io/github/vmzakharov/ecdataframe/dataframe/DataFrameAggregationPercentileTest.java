@@ -0,0 +1,156 @@
+package io.github.vmzakharov.ecdataframe.dataframe;
+
+import org.eclipse.collections.impl.factory.Lists;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import static io.github.vmzakharov.ecdataframe.dataframe.AggregateFunction.approxMedian;
+import static io.github.vmzakharov.ecdataframe.dataframe.AggregateFunction.approxPercentile;
+import static io.github.vmzakharov.ecdataframe.dataframe.AggregateFunction.median;
+import static io.github.vmzakharov.ecdataframe.dataframe.AggregateFunction.percentile;
+
+public class DataFrameAggregationPercentileTest
+{
+    private static final double TOLERANCE = 0.00001;
+
+    private DataFrame dataFrame;
+
+    @Before
+    public void initialiseDataFrame()
+    {
+        this.dataFrame = new DataFrame("FrameOfData")
+                .addStringColumn("Venue").addLongColumn("Latency").addDoubleColumn("Price")
+                .addRow("A", 30L, 3.0)
+                .addRow("B",  5L, 0.5)
+                .addRow("A", 10L, 1.0)
+                .addRow("C",  7L, 9.9)
+                .addRow("B",  1L, 0.1)
+                .addRow("A", 40L, 4.0)
+                .addRow("B",  3L, 0.3)
+                .addRow("A", 20L, 2.0)
+                .seal();
+    }
+
+    @Test
+    public void medianByGroup()
+    {
+        DataFrame aggregated = this.dataFrame.aggregateBy(
+                Lists.immutable.of(median("Latency"), median("Price")),
+                Lists.immutable.of("Venue"));
+
+        Assert.assertEquals(3, aggregated.rowCount());
+
+        Assert.assertEquals(25L, aggregated.getLong("Latency", 0));
+        Assert.assertEquals(3L, aggregated.getLong("Latency", 1));
+        Assert.assertEquals(7L, aggregated.getLong("Latency", 2));
+
+        Assert.assertEquals(2.5, aggregated.getDouble("Price", 0), TOLERANCE);
+        Assert.assertEquals(0.3, aggregated.getDouble("Price", 1), TOLERANCE);
+        Assert.assertEquals(9.9, aggregated.getDouble("Price", 2), TOLERANCE);
+    }
+
+    @Test
+    public void percentileByGroup()
+    {
+        DataFrame aggregated = this.dataFrame.aggregateBy(
+                Lists.immutable.of(percentile("Latency", "P90 Latency", 90), percentile("Price", 90), percentile("Price", "Min", 0)),
+                Lists.immutable.of("Venue"));
+
+        Assert.assertEquals(37L, aggregated.getLong("P90 Latency", 0));
+        Assert.assertEquals(5L, aggregated.getLong("P90 Latency", 1));
+        Assert.assertEquals(7L, aggregated.getLong("P90 Latency", 2));
+
+        Assert.assertEquals(3.7, aggregated.getDouble("Price", 0), TOLERANCE);
+        Assert.assertEquals(0.46, aggregated.getDouble("Price", 1), TOLERANCE);
+        Assert.assertEquals(9.9, aggregated.getDouble("Price", 2), TOLERANCE);
+
+        Assert.assertEquals(1.0, aggregated.getDouble("Min", 0), TOLERANCE);
+        Assert.assertEquals(0.1, aggregated.getDouble("Min", 1), TOLERANCE);
+    }
+
+    @Test
+    public void percentileAll()
+    {
+        DataFrame aggregated = this.dataFrame.aggregate(
+                Lists.immutable.of(median("Latency"), percentile("Price", "P100", 100), approxMedian("Latency", "Approx")));
+
+        Assert.assertEquals(9L, aggregated.getLong("Latency", 0));
+        Assert.assertEquals(9.9, aggregated.getDouble("P100", 0), TOLERANCE);
+        Assert.assertEquals(9L, aggregated.getLong("Approx", 0));
+    }
+
+    @Test
+    public void percentileWithNulls()
+    {
+        DataFrame withNulls = new DataFrame("FrameOfData")
+                .addStringColumn("Venue").addLongColumn("Latency")
+                .addRow("A", 30L)
+                .addRow("A", null)
+                .addRow("B", 10L)
+                .seal();
+
+        DataFrameUtil.assertEquals(
+                new DataFrame("expected")
+                        .addStringColumn("Venue").addLongColumn("Latency")
+                        .addRow("A", null)
+                        .addRow("B", 10L),
+                withNulls.aggregateBy(Lists.immutable.of(median("Latency")), Lists.immutable.of("Venue")));
+    }
+
+    @Test
+    public void approxPercentileOfManyValues()
+    {
+        DataFrame latencies = new DataFrame("Latencies").addStringColumn("Venue").addDoubleColumn("Latency");
+
+        for (int i = 0; i < 100_000; i++)
+        {
+            latencies.addRow(i % 2 == 0 ? "X" : "Y", (double) ((i * 7919L) % 100_000L));
+        }
+        latencies.seal();
+
+        DataFrame exact = latencies.aggregateBy(
+                Lists.immutable.of(percentile("Latency", "P99", 99), median("Latency", "Median")), Lists.immutable.of("Venue"));
+        DataFrame approximate = latencies.aggregateBy(
+                Lists.immutable.of(approxPercentile("Latency", "P99", 99), approxMedian("Latency", "Median")), Lists.immutable.of("Venue"));
+
+        for (int rowIndex = 0; rowIndex < exact.rowCount(); rowIndex++)
+        {
+            Assert.assertEquals(exact.getDouble("P99", rowIndex), approximate.getDouble("P99", rowIndex), 100.0);
+            Assert.assertEquals(exact.getDouble("Median", rowIndex), approximate.getDouble("Median", rowIndex), 500.0);
+        }
+    }
+
+    @Test
+    public void mergeDigests()
+    {
+        TDigest digest = new TDigest();
+        TDigest otherDigest = new TDigest();
+
+        for (int i = 0; i < 50_000; i++)
+        {
+            digest.add((i * 7919L) % 50_000L);
+            otherDigest.add(50_000 + (i * 7919L) % 50_000L);
+        }
+
+        digest.merge(otherDigest);
+
+        Assert.assertEquals(100_000L, digest.size());
+        Assert.assertEquals(0.0, digest.quantile(0.0), 0.0);
+        Assert.assertEquals(99_999.0, digest.quantile(1.0), 0.0);
+        Assert.assertEquals(50_000.0, digest.quantile(0.5), 500.0);
+        Assert.assertEquals(99_000.0, digest.quantile(0.99), 100.0);
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void percentileMustBeInRange()
+    {
+        percentile("Latency", 101);
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void percentileOfEmptyFrameFails()
+    {
+        this.dataFrame.selectBy("Latency > 100").aggregate(Lists.immutable.of(median("Latency")));
+    }
+}
@@ -1,5 +1,6 @@
 package io.github.vmzakharov.ecdataframe.dataframe;
 
+import org.eclipse.collections.api.list.ListIterable;
 import org.eclipse.collections.impl.factory.Lists;
 import org.junit.Assert;
 import org.junit.Before;
@@ -126,6 +127,45 @@ public class DataFrameAggregationTest
                         sum("Baz", "BazSum1"), sum("Baz", "BazSum2"), min("Qux", "QuxMin"), max("Qux", "QuxMax"), avg("Qux", "QuxAvg"))));
     }
 
+    @Test
+    public void largeFrameSinglePassAggregation()
+    {
+        DataFrame df = new DataFrame("Large").addStringColumn("Name").addLongColumn("Long").addDoubleColumn("Double");
+        for (int i = 0; i < 60_000; i++)
+        {
+            df.addRow(i % 2 == 0 ? "Even" : "Odd", (i * 7919L) % 1000 - 500, (i % 113) * 0.1 - 2.5);
+        }
+        df.seal();
+
+        ListIterable<AggregateFunction> aggregators = Lists.immutable.of(
+                sum("Long", "LongSum"), min("Long", "LongMin"), max("Long", "LongMax"), avg("Long", "LongAvg"),
+                count("Long", "LongCount"), same("Long", "LongSame"),
+                sum("Double", "DoubleSum"), min("Double", "DoubleMin"), max("Double", "DoubleMax"),
+                avg("Double", "DoubleAvg"), same("Double", "DoubleSame"), same("Name", "NameSame"));
+
+        DataFrame aggregated = df.aggregate(aggregators);
+
+        // the same values as when applying aggregate functions to the columns one by one
+        DataFrame expected = new DataFrame("expected");
+        aggregated.getColumns().forEach(column -> expected.addColumn(column.getName(), column.getType()));
+        expected.addRow(aggregators.collect(each -> df.getColumnNamed(each.getColumnName()).aggregate(each)).toArray());
+
+        DataFrameUtil.assertEquals(expected, aggregated);
+        Assert.assertEquals(60_000L, aggregated.getLong("LongCount", 0));
+        Assert.assertNull(aggregated.getObject("NameSame", 0));
+    }
+
+    @Test
+    public void sameValueOfCalculatedColumn()
+    {
+        this.dataFrame.addStringColumn("Greeting", "'Hello'");
+
+        DataFrameUtil.assertEquals(
+                new DataFrame("same").addStringColumn("Greeting").addStringColumn("Name")
+                        .addRow("Hello", null),
+                this.dataFrame.aggregate(Lists.immutable.of(same("Greeting"), same("Name"))));
+    }
+
     @Test
     public void sumEmpty()
     {
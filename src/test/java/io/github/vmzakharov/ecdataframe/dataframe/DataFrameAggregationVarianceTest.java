@@ -0,0 +1,147 @@
+package io.github.vmzakharov.ecdataframe.dataframe;
+
+import org.eclipse.collections.impl.factory.Lists;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import static io.github.vmzakharov.ecdataframe.dataframe.AggregateFunction.correlation;
+import static io.github.vmzakharov.ecdataframe.dataframe.AggregateFunction.covariance;
+import static io.github.vmzakharov.ecdataframe.dataframe.AggregateFunction.stdDev;
+import static io.github.vmzakharov.ecdataframe.dataframe.AggregateFunction.variance;
+
+public class DataFrameAggregationVarianceTest
+{
+    private static final double TOLERANCE = 0.00001;
+
+    private DataFrame dataFrame;
+
+    @Before
+    public void initialiseDataFrame()
+    {
+        this.dataFrame = new DataFrame("FrameOfData")
+                .addStringColumn("Name").addLongColumn("X").addDoubleColumn("Y")
+                .addRow("A", 2L,  5.0)
+                .addRow("B", 1L,  3.0)
+                .addRow("A", 4L,  9.0)
+                .addRow("A", 4L,  9.0)
+                .addRow("B", 2L,  2.0)
+                .addRow("A", 4L,  9.0)
+                .addRow("A", 5L, 11.0)
+                .addRow("B", 3L,  1.0)
+                .addRow("A", 5L, 11.0)
+                .addRow("A", 7L, 15.0)
+                .addRow("A", 9L, 19.0)
+                .seal();
+    }
+
+    @Test
+    public void varianceAndStandardDeviationByGroup()
+    {
+        DataFrame aggregated = this.dataFrame.aggregateBy(
+                Lists.immutable.of(variance("X"), stdDev("X", "StdDevX"), variance("Y")),
+                Lists.immutable.of("Name"));
+
+        Assert.assertEquals(32.0 / 7.0, aggregated.getDouble("X", 0), TOLERANCE);
+        Assert.assertEquals(Math.sqrt(32.0 / 7.0), aggregated.getDouble("StdDevX", 0), TOLERANCE);
+        Assert.assertEquals(128.0 / 7.0, aggregated.getDouble("Y", 0), TOLERANCE);
+
+        Assert.assertEquals(1.0, aggregated.getDouble("X", 1), TOLERANCE);
+        Assert.assertEquals(1.0, aggregated.getDouble("StdDevX", 1), TOLERANCE);
+        Assert.assertEquals(1.0, aggregated.getDouble("Y", 1), TOLERANCE);
+    }
+
+    @Test
+    public void covarianceAndCorrelationByGroup()
+    {
+        DataFrame aggregated = this.dataFrame.aggregateBy(
+                Lists.immutable.of(covariance("X", "Y", "Cov"), correlation("X", "Y", "Corr")),
+                Lists.immutable.of("Name"));
+
+        Assert.assertEquals(64.0 / 7.0, aggregated.getDouble("Cov", 0), TOLERANCE);
+        Assert.assertEquals(1.0, aggregated.getDouble("Corr", 0), TOLERANCE);
+
+        Assert.assertEquals(-1.0, aggregated.getDouble("Cov", 1), TOLERANCE);
+        Assert.assertEquals(-1.0, aggregated.getDouble("Corr", 1), TOLERANCE);
+    }
+
+    @Test
+    public void varianceAll()
+    {
+        DataFrame aggregated = this.dataFrame.aggregate(
+                Lists.immutable.of(variance("X"), stdDev("Y", "StdDevY"), covariance("Y", "X", "Cov")));
+
+        // X: 2 4 4 4 5 5 7 9 1 2 3, mean 46/11
+        double meanX = 46.0 / 11.0;
+        double sumOfSquares = 0.0;
+        for (long x : new long[] {2, 4, 4, 4, 5, 5, 7, 9, 1, 2, 3})
+        {
+            sumOfSquares += (x - meanX) * (x - meanX);
+        }
+
+        Assert.assertEquals(sumOfSquares / 10.0, aggregated.getDouble("X", 0), TOLERANCE);
+        Assert.assertTrue(aggregated.getDouble("StdDevY", 0) > 0.0);
+        Assert.assertTrue(aggregated.getDouble("Cov", 0) > 0.0);
+    }
+
+    @Test
+    public void varianceIsNumericallyStable()
+    {
+        DataFrame large = new DataFrame("Large")
+                .addDoubleColumn("Value")
+                .addRow(1e9 + 4).addRow(1e9 + 7).addRow(1e9 + 13).addRow(1e9 + 16)
+                .seal();
+
+        Assert.assertEquals(30.0, large.aggregate(Lists.immutable.of(variance("Value"))).getDouble("Value", 0), TOLERANCE);
+    }
+
+    @Test
+    public void varianceWithNulls()
+    {
+        DataFrame withNulls = new DataFrame("FrameOfData")
+                .addStringColumn("Name").addLongColumn("X").addDoubleColumn("Y")
+                .addRow("A", 1L, 1.0)
+                .addRow("A", 2L, null)
+                .addRow("B", null, 1.0)
+                .addRow("B", 3L, 2.0)
+                .addRow("C", 1L, 3.0)
+                .addRow("C", 3L, 4.0)
+                .seal();
+
+        DataFrameUtil.assertEquals(
+                new DataFrame("expected")
+                        .addStringColumn("Name").addDoubleColumn("X").addDoubleColumn("Cov")
+                        .addRow("A", 0.5,  null)
+                        .addRow("B", null, null)
+                        .addRow("C", 2.0,  1.0),
+                withNulls.aggregateBy(
+                        Lists.immutable.of(variance("X"), covariance("X", "Y", "Cov")),
+                        Lists.immutable.of("Name")));
+    }
+
+    @Test
+    public void mergeGroupAccumulators()
+    {
+        GroupAccumulator all = variance("X").groupAccumulator();
+        GroupAccumulator firstHalf = variance("X").groupAccumulator();
+        GroupAccumulator secondHalf = variance("X").groupAccumulator();
+
+        for (int i = 0; i < 1_000; i++)
+        {
+            double value = 1e6 + (i * 37) % 101;
+            all.accumulateDouble(3, value);
+            if (i < 300)
+            {
+                firstHalf.accumulateDouble(0, value);
+            }
+            else
+            {
+                secondHalf.accumulateDouble(40, value);
+            }
+        }
+
+        firstHalf.merge(0, secondHalf, 40);
+
+        Assert.assertEquals((Double) all.getResult(3), (Double) firstHalf.getResult(0), TOLERANCE);
+    }
+}
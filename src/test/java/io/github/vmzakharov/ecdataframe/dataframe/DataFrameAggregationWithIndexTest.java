@@ -1,5 +1,6 @@
 package io.github.vmzakharov.ecdataframe.dataframe;
 
+import org.eclipse.collections.api.list.primitive.IntList;
 import org.eclipse.collections.impl.factory.Lists;
 import org.eclipse.collections.impl.factory.primitive.IntLists;
 import org.junit.Assert;
@@ -228,4 +229,50 @@ public class DataFrameAggregationWithIndexTest
 
         Assert.assertEquals(IntLists.immutable.of(0, 1, 2, 3), summed.getAggregateIndex(0));
     }
+
+    @Test
+    public void aggregateIndexIsAListView()
+    {
+        DataFrame dataFrame = new DataFrame("FrameOfData")
+                .addStringColumn("Name").addLongColumn("Bar")
+                .addRow("Alice", 1L)
+                .addRow("Bob",   2L)
+                .addRow("Carol", 3L)
+                .addRow("Bob",   4L)
+                .addRow("Alice", 5L)
+                .addRow("Bob",   6L)
+                ;
+
+        DataFrame summed = dataFrame.sumByWithIndex(Lists.immutable.of("Bar"), Lists.immutable.of("Name"));
+
+        IntList bobRows = summed.getAggregateIndex(1);
+
+        Assert.assertEquals(IntLists.mutable.of(1, 3, 5), bobRows);
+        Assert.assertEquals(bobRows, IntLists.mutable.of(1, 3, 5));
+        Assert.assertEquals(IntLists.mutable.of(1, 3, 5).hashCode(), bobRows.hashCode());
+        Assert.assertEquals("[1, 3, 5]", bobRows.toString());
+
+        Assert.assertEquals(3, bobRows.size());
+        Assert.assertEquals(9L, bobRows.sum());
+        Assert.assertEquals(5, bobRows.getLast());
+        Assert.assertEquals(1, bobRows.indexOf(3));
+        Assert.assertEquals(-2, bobRows.binarySearch(2));
+        Assert.assertEquals(IntLists.immutable.of(3, 5), bobRows.subList(1, 3));
+        Assert.assertEquals(IntLists.immutable.of(5, 3, 1), bobRows.toReversed());
+        Assert.assertEquals(Lists.immutable.of(2L, 4L, 6L), bobRows.collect(dataFrame.getLongColumn("Bar")::getLong));
+        Assert.assertEquals(IntLists.immutable.of(3, 5), bobRows.select(each -> each > 1));
+        Assert.assertEquals(IntLists.immutable.of(1), bobRows.reject(each -> each > 1));
+        Assert.assertEquals(bobRows, bobRows.distinct());
+
+        IntList lastBobRows = bobRows.subList(1, 3);
+        Assert.assertTrue(lastBobRows.contains(5));
+        Assert.assertFalse(lastBobRows.contains(1));
+        Assert.assertEquals(1, lastBobRows.lastIndexOf(5));
+        Assert.assertEquals(-2, lastBobRows.binarySearch(4));
+        Assert.assertEquals(3, lastBobRows.min());
+        Assert.assertEquals(1, lastBobRows.count(each -> each > 4));
+
+        Assert.assertEquals(IntLists.immutable.of(2), summed.getAggregateIndex(2));
+        Assert.assertThrows(IndexOutOfBoundsException.class, () -> bobRows.get(3));
+    }
 }
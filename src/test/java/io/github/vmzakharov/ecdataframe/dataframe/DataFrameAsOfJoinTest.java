@@ -0,0 +1,168 @@
+package io.github.vmzakharov.ecdataframe.dataframe;
+
+import org.eclipse.collections.impl.factory.Lists;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+public class DataFrameAsOfJoinTest
+{
+    private DataFrame trades;
+    private DataFrame quotes;
+
+    @Before
+    public void initialiseDataFrames()
+    {
+        this.trades = new DataFrame("Trades")
+                .addStringColumn("Ticker").addLongColumn("Time").addLongColumn("Qty")
+                .addRow("MSFT", 23L, 100L)
+                .addRow("GOOG", 23L, 200L)
+                .addRow("MSFT", 38L,  50L)
+                .addRow("AAPL", 48L,  10L)
+                .addRow("GOOG",  5L, 300L)
+                .addRow("MSFT", 48L,  25L)
+                .seal();
+
+        this.quotes = new DataFrame("Quotes")
+                .addStringColumn("Ticker").addLongColumn("Time").addDoubleColumn("Bid")
+                .addRow("GOOG", 23L, 720.5)
+                .addRow("MSFT", 30L,  51.9)
+                .addRow("MSFT", 23L,  51.5)
+                .addRow("GOOG", 24L, 720.8)
+                .addRow("MSFT", 41L,  51.9)
+                .addRow("GOOG", 10L, 720.0)
+                .seal();
+    }
+
+    @Test
+    public void latestQuoteAtOrBeforeTrade()
+    {
+        DataFrameUtil.assertEquals(
+                new DataFrame("expected")
+                        .addStringColumn("Ticker").addLongColumn("Time").addLongColumn("Qty")
+                        .addLongColumn("Time_B").addDoubleColumn("Bid")
+                        .addRow("MSFT", 23L, 100L, 23L,  51.5)
+                        .addRow("GOOG", 23L, 200L, 23L, 720.5)
+                        .addRow("MSFT", 38L,  50L, 30L,  51.9)
+                        .addRow("AAPL", 48L,  10L, null, null)
+                        .addRow("GOOG",  5L, 300L, null, null)
+                        .addRow("MSFT", 48L,  25L, 41L,  51.9),
+                this.trades.asOfJoin(this.quotes, Lists.immutable.of("Ticker"), "Time", "Time"));
+    }
+
+    @Test
+    public void toleranceLimitsMatches()
+    {
+        DataFrame joined = this.trades.asOfJoin(this.quotes, Lists.immutable.of("Ticker"), "Time", "Time", 5L);
+
+        Assert.assertEquals(6, joined.rowCount());
+        Assert.assertEquals(51.5, joined.getDouble("Bid", 0), 0.0);
+        Assert.assertTrue(joined.isNull("Bid", 2));
+        Assert.assertEquals(720.5, joined.getDouble("Bid", 1), 0.0);
+        Assert.assertTrue(joined.isNull("Bid", 5));
+    }
+
+    @Test
+    public void dateTimeWithDurationTolerance()
+    {
+        LocalDateTime nineAm = LocalDateTime.of(2024, 3, 1, 9, 0);
+
+        DataFrame fills = new DataFrame("Fills")
+                .addStringColumn("Ccy").addDateTimeColumn("At")
+                .addRow("EUR", nineAm.plusMinutes(1))
+                .addRow("EUR", nineAm.plusMinutes(20))
+                .addRow("JPY", nineAm)
+                .seal();
+
+        DataFrame rates = new DataFrame("Rates")
+                .addStringColumn("Ccy").addDateTimeColumn("AsOf").addDoubleColumn("Rate")
+                .addRow("EUR", nineAm, 1.08)
+                .addRow("JPY", nineAm.minusHours(2), 150.1)
+                .seal();
+
+        DataFrameUtil.assertEquals(
+                new DataFrame("expected")
+                        .addStringColumn("Ccy").addDateTimeColumn("At").addDateTimeColumn("AsOf").addDoubleColumn("Rate")
+                        .addRow("EUR", nineAm.plusMinutes(1), nineAm, 1.08)
+                        .addRow("EUR", nineAm.plusMinutes(20), null, null)
+                        .addRow("JPY", nineAm, null, null),
+                fills.asOfJoin(rates, Lists.immutable.of("Ccy"), "At", "AsOf", Duration.ofMinutes(15)));
+    }
+
+    @Test
+    public void farDatesWithDurationTolerance()
+    {
+        LocalDateTime endOfTime = LocalDateTime.of(9999, 12, 31, 23, 59, 59, 999_999_999);
+
+        DataFrame fills = new DataFrame("Fills")
+                .addStringColumn("Ccy").addDateTimeColumn("At").addDateColumn("Date")
+                .addRow("EUR", endOfTime, LocalDate.of(9999, 12, 31))
+                .addRow("USD", LocalDateTime.of(1, 1, 1, 0, 0), LocalDate.of(1, 1, 1))
+                .addRow("JPY", endOfTime, LocalDate.of(9999, 12, 31))
+                .seal();
+
+        DataFrame rates = new DataFrame("Rates")
+                .addStringColumn("Ccy").addDateTimeColumn("AsOf").addDateColumn("Date").addDoubleColumn("Rate")
+                .addRow("EUR", endOfTime.minusNanos(1), LocalDate.of(9999, 12, 30), 1.08)
+                .addRow("USD", LocalDateTime.of(1, 1, 1, 0, 0), LocalDate.of(1, 1, 1), 1.0)
+                .addRow("JPY", LocalDateTime.of(1970, 1, 1, 0, 0), LocalDate.of(1970, 1, 1), 150.1)
+                .seal();
+
+        DataFrame byTime = fills.asOfJoin(rates, Lists.immutable.of("Ccy"), "At", "AsOf", Duration.ofNanos(1));
+        Assert.assertEquals(1.08, byTime.getDouble("Rate", 0), 0.0);
+        Assert.assertEquals(1.0, byTime.getDouble("Rate", 1), 0.0);
+        Assert.assertTrue(byTime.isNull("Rate", 2));
+
+        DataFrame byDate = fills.asOfJoin(rates, Lists.immutable.of("Ccy"), "Date", "Date", Duration.ofHours(36));
+        Assert.assertEquals(1.08, byDate.getDouble("Rate", 0), 0.0);
+        Assert.assertEquals(1.0, byDate.getDouble("Rate", 1), 0.0);
+        Assert.assertTrue(byDate.isNull("Rate", 2));
+
+        Assert.assertTrue(
+                fills.asOfJoin(rates, Lists.immutable.of("Ccy"), "Date", "Date", Duration.ofHours(23)).isNull("Rate", 0));
+    }
+
+    @Test
+    public void noToleranceMatchesFarDates()
+    {
+        DataFrame fills = new DataFrame("Fills")
+                .addStringColumn("Ccy").addDateTimeColumn("At").addDateColumn("Date")
+                .addRow("EUR", LocalDateTime.of(9999, 12, 31, 0, 0), LocalDate.of(9999, 12, 31))
+                .addRow("USD", LocalDateTime.of(2024, 3, 1, 9, 0), LocalDate.of(2024, 3, 1))
+                .seal();
+
+        DataFrame rates = new DataFrame("Rates")
+                .addStringColumn("Ccy").addDateTimeColumn("AsOf").addDateColumn("Date").addDoubleColumn("Rate")
+                .addRow("EUR", LocalDateTime.of(1, 1, 1, 0, 0), LocalDate.of(1, 1, 1), 1.08)
+                .addRow("USD", LocalDateTime.of(1024, 3, 1, 9, 0), LocalDate.of(1024, 3, 1), 1.0)
+                .seal();
+
+        DataFrame byTime = fills.asOfJoin(rates, Lists.immutable.of("Ccy"), "At", "AsOf");
+        Assert.assertEquals(1.08, byTime.getDouble("Rate", 0), 0.0);
+        Assert.assertEquals(1.0, byTime.getDouble("Rate", 1), 0.0);
+
+        DataFrame byDate = fills.asOfJoin(rates, Lists.immutable.of("Ccy"), "Date", "Date");
+        Assert.assertEquals(1.08, byDate.getDouble("Rate", 0), 0.0);
+        Assert.assertEquals(1.0, byDate.getDouble("Rate", 1), 0.0);
+    }
+
+    @Test
+    public void sortOrderIsNotChanged()
+    {
+        this.quotes.sortBy(Lists.immutable.of("Bid"));
+        this.trades.asOfJoin(this.quotes, Lists.immutable.of("Ticker"), "Time", "Time");
+
+        Assert.assertEquals(720.8, this.quotes.getDouble("Bid", 5), 0.0);
+        Assert.assertEquals(51.5, this.quotes.getDouble("Bid", 0), 0.0);
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void durationToleranceRequiresDates()
+    {
+        this.trades.asOfJoin(this.quotes, Lists.immutable.of("Ticker"), "Time", "Time", Duration.ofMinutes(1));
+    }
+}
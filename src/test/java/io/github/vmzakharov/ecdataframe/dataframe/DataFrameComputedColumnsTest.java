@@ -2,8 +2,12 @@ package io.github.vmzakharov.ecdataframe.dataframe;
 
 import io.github.vmzakharov.ecdataframe.ExpressionTestUtil;
 import io.github.vmzakharov.ecdataframe.dsl.AnonymousScript;
+import io.github.vmzakharov.ecdataframe.dsl.EvalContext;
 import io.github.vmzakharov.ecdataframe.dsl.SimpleEvalContext;
+import io.github.vmzakharov.ecdataframe.dsl.function.BuiltInFunctions;
+import io.github.vmzakharov.ecdataframe.dsl.function.IntrinsicFunctionDescriptor;
 import io.github.vmzakharov.ecdataframe.dsl.value.LongValue;
+import io.github.vmzakharov.ecdataframe.dsl.value.Value;
 import io.github.vmzakharov.ecdataframe.util.ExpressionParserHelper;
 import org.eclipse.collections.api.factory.Lists;
 import org.eclipse.collections.impl.factory.primitive.DoubleLists;
@@ -13,6 +17,8 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.time.LocalDate;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
 
 public class DataFrameComputedColumnsTest
 {
@@ -196,6 +202,110 @@ public class DataFrameComputedColumnsTest
         Assert.assertEquals(DoubleLists.immutable.of(46.9, 24.68, 58.78, 9.89), this.df.getDoubleColumn("Complication").toDoubleList());
     }
 
+    @Test
+    public void usingScriptWithFunctionLocalVariables()
+    {
+        String script =
+                  "function scaled(value, factor)\n"
+                + "{\n"
+                + "   scale = factor * 2\n"
+                + "   value * scale\n"
+                + "}\n"
+                + "\n"
+                + "x = scaled(Count, 10)\n"
+                + "y = scaled(x, 0.5)\n"
+                + "x + y";
+
+        this.df.addDoubleColumn("Scaled", script);
+
+        Assert.assertEquals(DoubleLists.immutable.of(200.0, 400.0, 440.0, 0.0), this.df.getDoubleColumn("Scaled").toDoubleList());
+    }
+
+    @Test
+    public void functionParametersAreImmutable()
+    {
+        String script =
+                  "function reassign(value)\n"
+                + "{\n"
+                + "   value = 5\n"
+                + "   value\n"
+                + "}\n"
+                + "\n"
+                + "reassign(Count)";
+
+        this.df.addLongColumn("Reassigned", script);
+
+        Assert.assertThrows(RuntimeException.class, () -> this.df.getLongColumn("Reassigned").getLong(0));
+    }
+
+    @Test
+    public void concurrentCallsOfFunctionWithLocalVariables()
+    {
+        String script =
+                  "function scaled(value, factor)\n"
+                + "{\n"
+                + "   scale = factor * 2\n"
+                + "   value * scale\n"
+                + "}\n"
+                + "\n"
+                + "scaled(3, 4)";
+
+        this.df.addLongColumn("Scaled", script);
+        DfLongColumn scaled = this.df.getLongColumn("Scaled");
+
+        CompletableFuture<?>[] evaluations = IntStream.range(0, 8)
+                .mapToObj(i -> CompletableFuture.runAsync(() -> {
+                    for (int j = 0; j < 20_000; j++)
+                    {
+                        Assert.assertEquals(24L, scaled.getLong(0));
+                    }
+                }))
+                .toArray(CompletableFuture[]::new);
+
+        CompletableFuture.allOf(evaluations).join();
+    }
+
+    @Test
+    public void droppedAndReaddedColumnIsReferencedByName()
+    {
+        this.df.addLongColumn("Double Count", "Count * 2");
+
+        Assert.assertEquals(LongLists.immutable.of(10L, 20L, 22L, 0L), this.df.getLongColumn("Double Count").toLongList());
+
+        this.df.dropColumn("Count");
+        this.df.addLongColumn("Count", LongLists.immutable.of(1L, 2L, 3L, 4L));
+
+        Assert.assertEquals(LongLists.immutable.of(2L, 4L, 6L, 8L), this.df.getLongColumn("Double Count").toLongList());
+    }
+
+    @Test
+    public void columnAddedAfterComputedColumnIsReferenced()
+    {
+        this.df.addLongColumn("Total", "Count + Extra");
+        this.df.addLongColumn("Extra", LongLists.immutable.of(1L, 2L, 3L, 4L));
+
+        Assert.assertEquals(LongLists.immutable.of(6L, 12L, 14L, 4L), this.df.getLongColumn("Total").toLongList());
+
+        this.df.dropColumn("Extra");
+        this.df.addLongColumn("Extra", LongLists.immutable.of(10L, 20L, 30L, 40L));
+
+        Assert.assertEquals(LongLists.immutable.of(15L, 30L, 41L, 40L), this.df.getLongColumn("Total").toLongList());
+    }
+
+    @Test
+    public void usingFunctionsFromOutsideContextCallingEachOther()
+    {
+        this.df.getEvalContext().setNestedContext(this.contextWithFunctions("double(x)\n{\n  x * 2\n}\n"));
+
+        this.df.addLongColumn("Quadrupled", "quadruple(Count)");
+
+        Assert.assertEquals(LongLists.immutable.of(20, 40, 44, 0), this.df.getLongColumn("Quadrupled").toLongList());
+
+        this.df.getEvalContext().setNestedContext(this.contextWithFunctions("double(x)\n{\n  x + x + 1\n}\n"));
+
+        Assert.assertEquals(LongLists.immutable.of(23, 43, 47, 3), this.df.getLongColumn("Quadrupled").toLongList());
+    }
+
     @Test
     public void computedDateColumn()
     {
@@ -219,4 +329,294 @@ public class DataFrameComputedColumnsTest
                 , dataFrame
         );
     }
+
+    @Test
+    public void cachedComputedColumnsAreEvaluatedOnce()
+    {
+        int[] callCount = new int[1];
+
+        BuiltInFunctions.addFunctionDescriptor(new IntrinsicFunctionDescriptor("counted", Lists.immutable.of("value"))
+        {
+            @Override
+            public Value evaluate(EvalContext context)
+            {
+                callCount[0]++;
+                return context.getVariable("value");
+            }
+        });
+
+        try
+        {
+            this.df.seal().enableComputedColumnCaching();
+            this.df.addLongColumn("Twice", "counted(Count) * 2");
+            this.df.addDoubleColumn("Half", "Value / 2");
+            this.df.addStringColumn("Greeting", "\"Hi \" + Name");
+
+            Assert.assertEquals(LongLists.immutable.of(10, 20, 22, 0), this.df.getLongColumn("Twice").toLongList());
+            Assert.assertEquals(20L, this.df.getLongColumn("Twice").getLong(1));
+            Assert.assertEquals(4, callCount[0]);
+
+            Assert.assertEquals(28.39, this.df.getDoubleColumn("Half").getDouble(2), 0.000001);
+            Assert.assertEquals("Hi Carol", this.df.getStringColumn("Greeting").getValueAsString(2));
+
+            this.df.invalidateComputedColumnCaches();
+            Assert.assertEquals(22L, this.df.getLongColumn("Twice").getLong(2));
+            Assert.assertEquals(8, callCount[0]);
+        }
+        finally
+        {
+            BuiltInFunctions.resetFunctionList();
+        }
+    }
+
+    @Test
+    public void cachedComputedColumnsAreInvalidatedOnceForManyChanges()
+    {
+        int[] callCount = new int[1];
+
+        BuiltInFunctions.addFunctionDescriptor(new IntrinsicFunctionDescriptor("counted", Lists.immutable.of("value"))
+        {
+            @Override
+            public Value evaluate(EvalContext context)
+            {
+                callCount[0]++;
+                return context.getVariable("value");
+            }
+        });
+
+        try
+        {
+            this.df.seal().enableComputedColumnCaching();
+            this.df.addLongColumn("Twice", "counted(Count) * 2");
+
+            Assert.assertEquals(LongLists.immutable.of(10, 20, 22, 0), this.df.getLongColumn("Twice").toLongList());
+            Assert.assertEquals(4, callCount[0]);
+
+            DfDoubleColumnStored value = (DfDoubleColumnStored) this.df.getDoubleColumn("Value");
+            for (int i = 0; i < 4; i++)
+            {
+                value.setObject(i, 1.0);
+            }
+
+            Assert.assertEquals(22L, this.df.getLongColumn("Twice").getLong(2));
+            Assert.assertEquals(4, callCount[0]);
+
+            DfLongColumnStored count = (DfLongColumnStored) this.df.getLongColumn("Count");
+            for (int i = 0; i < 4; i++)
+            {
+                count.setLong(i, i);
+            }
+
+            Assert.assertEquals(LongLists.immutable.of(0, 2, 4, 6), this.df.getLongColumn("Twice").toLongList());
+            Assert.assertEquals(8, callCount[0]);
+        }
+        finally
+        {
+            BuiltInFunctions.resetFunctionList();
+        }
+    }
+
+    @Test
+    public void cachedComputedColumnsAreInvalidatedOnChange()
+    {
+        this.df.seal().enableComputedColumnCaching();
+        this.df.addLongColumn("Twice", "Count * 2");
+        this.df.addLongColumn("TwicePlusOne", "Twice + 1");
+        this.df.addDoubleColumn("Half", "Value / 2");
+
+        Assert.assertEquals(LongLists.immutable.of(11, 21, 23, 1), this.df.getLongColumn("TwicePlusOne").toLongList());
+        Assert.assertEquals(3.945, this.df.getDoubleColumn("Half").getDouble(3), 0.000001);
+
+        this.df.getLongColumn("Count").setObject(3, 7L);
+        this.df.getDoubleColumn("Value").setObject(3, null);
+
+        Assert.assertEquals(LongLists.immutable.of(11, 21, 23, 15), this.df.getLongColumn("TwicePlusOne").toLongList());
+        Assert.assertTrue(this.df.getDoubleColumn("Half").isNull(3));
+
+        this.df.addRow("Eve", 1, 2.0).seal();
+
+        Assert.assertEquals(LongLists.immutable.of(11, 21, 23, 15, 3), this.df.getLongColumn("TwicePlusOne").toLongList());
+        Assert.assertEquals(1.0, this.df.getDoubleColumn("Half").getDouble(4), 0.000001);
+    }
+
+    @Test
+    public void cachedComputedColumnsAreInvalidatedWhenRowsAreAdded()
+    {
+        this.df.seal().enableComputedColumnCaching();
+        this.df.addLongColumn("Twice", "Count * 2");
+        this.df.addDoubleColumn("Half", "Value / 2");
+
+        DfLongColumn twice = this.df.getLongColumn("Twice");
+        Assert.assertEquals(LongLists.immutable.of(10, 20, 22, 0), twice.toLongList());
+        Assert.assertEquals(20L, ((LongValue) twice.getValue(1)).longValue());
+
+        this.df.addRow("Eve", 1, 2.0);
+
+        Assert.assertEquals(2L, twice.getLong(4));
+        Assert.assertEquals(1.0, this.df.getDoubleColumn("Half").getDouble(4), 0.000001);
+
+        this.df.getLongColumn("Count").setObject(4, 3L);
+
+        Assert.assertEquals(6L, twice.getLong(4));
+    }
+
+    @Test
+    public void commonSubexpressionsAreEvaluatedOncePerRow()
+    {
+        int[] callCount = new int[1];
+
+        BuiltInFunctions.addFunctionDescriptor(new IntrinsicFunctionDescriptor("counted", Lists.immutable.of("value"))
+        {
+            @Override
+            public Value evaluate(EvalContext context)
+            {
+                callCount[0]++;
+                return context.getVariable("value");
+            }
+
+            @Override
+            public boolean isPure()
+            {
+                return true;
+            }
+        });
+
+        try
+        {
+            this.df.seal().enableComputedColumnCaching();
+            this.df.addDoubleColumn("Total", "counted(Count) * Value");
+            this.df.addDoubleColumn("TotalPlusOne", "counted(Count) * Value + 1");
+            this.df.addDoubleColumn("TotalHalved", "(counted(Count) * Value) / 2");
+            this.df.addLongColumn("Unrelated", "Count + 1");
+
+            Assert.assertEquals(118.25, this.df.getDoubleColumn("TotalPlusOne").getDouble(0), 0.000001);
+            Assert.assertEquals(58.625, this.df.getDoubleColumn("TotalHalved").getDouble(0), 0.000001);
+            Assert.assertEquals(117.25, this.df.getDoubleColumn("Total").getDouble(0), 0.000001);
+            Assert.assertEquals(4, callCount[0]);
+
+            DataFrame sum = this.df.sum(Lists.immutable.of("Total", "TotalPlusOne", "TotalHalved"));
+            Assert.assertEquals(4, callCount[0]);
+            Assert.assertEquals(865.23, sum.getDoubleColumn("Total").getDouble(0), 0.000001);
+            Assert.assertEquals(869.23, sum.getDoubleColumn("TotalPlusOne").getDouble(0), 0.000001);
+            Assert.assertEquals(432.615, sum.getDoubleColumn("TotalHalved").getDouble(0), 0.000001);
+
+            this.df.getLongColumn("Count").setObject(0, 2L);
+            Assert.assertEquals(47.9, this.df.getDoubleColumn("TotalPlusOne").getDouble(0), 0.000001);
+            Assert.assertEquals(46.9, this.df.getDoubleColumn("Total").getDouble(0), 0.000001);
+            Assert.assertEquals(8, callCount[0]);
+
+            this.df.dropColumn("TotalHalved");
+            Assert.assertEquals(1.0, this.df.getDoubleColumn("TotalPlusOne").getDouble(3), 0.000001);
+        }
+        finally
+        {
+            BuiltInFunctions.resetFunctionList();
+        }
+    }
+
+    @Test
+    public void commonSubexpressionsAreSharedWithoutCaching()
+    {
+        int[] callCount = new int[1];
+
+        BuiltInFunctions.addFunctionDescriptor(new IntrinsicFunctionDescriptor("counted", Lists.immutable.of("value"))
+        {
+            @Override
+            public Value evaluate(EvalContext context)
+            {
+                callCount[0]++;
+                return context.getVariable("value");
+            }
+
+            @Override
+            public boolean isPure()
+            {
+                return true;
+            }
+        });
+
+        try
+        {
+            this.df.seal();
+            this.df.addDoubleColumn("Total", "counted(Count) * Value");
+            this.df.addDoubleColumn("TotalPlusOne", "counted(Count) * Value + 1");
+
+            DataFrame sum = this.df.sum(Lists.immutable.of("Total", "TotalPlusOne"));
+            Assert.assertEquals(4, callCount[0]);
+            Assert.assertEquals(865.23, sum.getDoubleColumn("Total").getDouble(0), 0.000001);
+            Assert.assertEquals(869.23, sum.getDoubleColumn("TotalPlusOne").getDouble(0), 0.000001);
+
+            for (int i = 0; i < this.df.rowCount(); i++)
+            {
+                Assert.assertEquals(
+                        this.df.getDoubleColumn("Total").getDouble(i) + 1.0,
+                        this.df.getDoubleColumn("TotalPlusOne").getDouble(i),
+                        0.000001);
+            }
+            Assert.assertEquals(8, callCount[0]);
+
+            this.df.getLongColumn("Count").setObject(0, 2L);
+            Assert.assertEquals(47.9, this.df.getDoubleColumn("TotalPlusOne").getDouble(0), 0.000001);
+            Assert.assertEquals(46.9, this.df.getDoubleColumn("Total").getDouble(0), 0.000001);
+            Assert.assertEquals(9, callCount[0]);
+        }
+        finally
+        {
+            BuiltInFunctions.resetFunctionList();
+        }
+    }
+
+    @Test
+    public void subexpressionsReferringToContextVariablesAreNotShared()
+    {
+        SimpleEvalContext context = new SimpleEvalContext();
+        context.setVariable("Fx", new LongValue(2));
+
+        DataFrame orders = new DataFrame("Orders")
+                .addLongColumn("Qty").addDoubleColumn("Px")
+                .addRow(3, 5.0)
+                .addRow(4, 2.5)
+                .seal();
+
+        orders.setExternalEvalContext(context);
+
+        orders.addDoubleColumn("Rate", "Px * Fx");
+        orders.addDoubleColumn("A", "Qty * Rate");
+        orders.addDoubleColumn("B", "Qty * Rate + 1");
+
+        Assert.assertEquals(30.0, orders.getDoubleColumn("A").getDouble(0), 0.000001);
+        Assert.assertEquals(31.0, orders.getDoubleColumn("B").getDouble(0), 0.000001);
+
+        context.removeVariable("Fx");
+        context.setVariable("Fx", new LongValue(3));
+
+        Assert.assertEquals(45.0, orders.getDoubleColumn("A").getDouble(0), 0.000001);
+        Assert.assertEquals(46.0, orders.getDoubleColumn("B").getDouble(0), 0.000001);
+
+        orders.enableComputedColumnCaching();
+
+        Assert.assertEquals(46.0, orders.getDoubleColumn("B").getDouble(0), 0.000001);
+
+        SimpleEvalContext otherContext = new SimpleEvalContext();
+        otherContext.setVariable("Fx", new LongValue(4));
+        orders.setExternalEvalContext(otherContext);
+
+        Assert.assertEquals(60.0, orders.getDoubleColumn("A").getDouble(0), 0.000001);
+        Assert.assertEquals(61.0, orders.getDoubleColumn("B").getDouble(0), 0.000001);
+        Assert.assertEquals(41.0, orders.getDoubleColumn("B").getDouble(1), 0.000001);
+    }
+
+    private SimpleEvalContext contextWithFunctions(String doubleFunction)
+    {
+        AnonymousScript outerScript = ExpressionParserHelper.DEFAULT.toScript(
+                  "function " + doubleFunction
+                + "function quadruple(x)\n"
+                + "{\n"
+                + "  double(double(x))\n"
+                + "}\n");
+
+        SimpleEvalContext outerContext = new SimpleEvalContext();
+        outerContext.setDeclaredFunctions(outerScript.getFunctions());
+        return outerContext;
+    }
 }
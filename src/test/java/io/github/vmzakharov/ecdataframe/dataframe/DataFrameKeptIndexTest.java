@@ -0,0 +1,126 @@
+package io.github.vmzakharov.ecdataframe.dataframe;
+
+import org.eclipse.collections.impl.factory.Lists;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DataFrameKeptIndexTest
+{
+    private DataFrame instruments;
+
+    @Before
+    public void initialiseDataFrame()
+    {
+        this.instruments = new DataFrame("Instruments")
+                .addStringColumn("Ticker").addStringColumn("Exchange").addLongColumn("LotSize").addDoubleColumn("Tick")
+                .addRow("IBM",  "NYSE", 100L, 0.01)
+                .addRow("VOD",  "LSE",  500L, 0.25)
+                .addRow("IBM",  "LSE",  100L, 0.05)
+                .addRow("SONY", "TSE",  100L, 1.0)
+                .seal();
+    }
+
+    @Test
+    public void createdIndexIsKeptUntilDropped()
+    {
+        DfIndex index = this.instruments.createIndex(Lists.immutable.of("Ticker"));
+
+        Assert.assertSame(index, this.instruments.createIndex(Lists.mutable.of("Ticker")));
+        Assert.assertSame(index, this.instruments.getIndex(Lists.immutable.of("Ticker")));
+        Assert.assertEquals(3, index.keyCount());
+        Assert.assertTrue(this.instruments.estimatedIndexSizeInBytes() > 0L);
+
+        this.instruments.dropIndex(Lists.immutable.of("Ticker"));
+
+        Assert.assertFalse(this.instruments.hasIndex(Lists.immutable.of("Ticker")));
+        Assert.assertEquals(0L, this.instruments.estimatedIndexSizeInBytes());
+    }
+
+    @Test
+    public void lookupUsesKeptIndex()
+    {
+        this.instruments.createIndex(Lists.immutable.of("Ticker", "Exchange"));
+
+        DataFrame trades = new DataFrame("Trades")
+                .addStringColumn("Symbol").addStringColumn("Venue")
+                .addRow("IBM", "LSE")
+                .addRow("VOD", "NYSE")
+                .addRow("SONY", "TSE")
+                .seal();
+
+        trades.lookup(DfJoin.to(this.instruments)
+                .match(Lists.immutable.of("Symbol", "Venue"), Lists.immutable.of("Ticker", "Exchange"))
+                .select("Tick"));
+
+        DataFrameUtil.assertEquals(
+                new DataFrame("expected")
+                        .addStringColumn("Symbol").addStringColumn("Venue").addDoubleColumn("Tick")
+                        .addRow("IBM", "LSE", 0.05)
+                        .addRow("VOD", "NYSE", null)
+                        .addRow("SONY", "TSE", 1.0),
+                trades);
+
+        Assert.assertTrue(this.instruments.hasIndex(Lists.immutable.of("Ticker", "Exchange")));
+    }
+
+    @Test
+    public void equalityFilterUsesKeptIndex()
+    {
+        this.instruments.createIndex(Lists.immutable.of("Exchange", "LotSize"));
+
+        DataFrame expected = new DataFrame("expected")
+                .addStringColumn("Ticker").addStringColumn("Exchange").addLongColumn("LotSize").addDoubleColumn("Tick")
+                .addRow("IBM",  "LSE",  100L, 0.05);
+
+        DataFrameUtil.assertEquals(expected, this.instruments.selectBy("LotSize == 100 and Exchange == \"LSE\""));
+        DataFrameUtil.assertEquals(expected, this.instruments.selectBy("\"LSE\" == Exchange and 100 == LotSize"));
+
+        Assert.assertEquals(0, this.instruments.selectBy("LotSize == 100 and Exchange == \"ASX\"").rowCount());
+
+        // not an exact match to the indexed columns, evaluated row by row
+        Assert.assertEquals(3, this.instruments.selectBy("LotSize == 100").rowCount());
+    }
+
+    @Test
+    public void semiJoinUsesKeptIndex()
+    {
+        this.instruments.createIndex(Lists.immutable.of("Ticker"));
+
+        DataFrame orders = new DataFrame("Orders")
+                .addStringColumn("Ticker").addLongColumn("Qty")
+                .addRow("IBM", 1L)
+                .addRow("MSFT", 2L)
+                .addRow("SONY", 3L)
+                .seal();
+
+        Assert.assertEquals(2, orders.semiJoin(this.instruments, "Ticker", "Ticker").rowCount());
+        Assert.assertEquals(1, orders.antiJoin(this.instruments, "Ticker", "Ticker").rowCount());
+    }
+
+    @Test
+    public void indexIsDroppedWhenDataChanges()
+    {
+        this.instruments.createIndex(Lists.immutable.of("Ticker"));
+        this.instruments.createIndex(Lists.immutable.of("LotSize"));
+
+        this.instruments.getColumnNamed("LotSize").setObject(1, 200L);
+
+        Assert.assertTrue(this.instruments.hasIndex(Lists.immutable.of("Ticker")));
+        Assert.assertFalse(this.instruments.hasIndex(Lists.immutable.of("LotSize")));
+
+        this.instruments.addRow("MSFT", "NASDAQ", 100L, 0.01);
+
+        Assert.assertFalse(this.instruments.hasIndex(Lists.immutable.of("Ticker")));
+
+        this.instruments.seal().createIndex(Lists.immutable.of("Ticker"));
+        Assert.assertEquals(1, this.instruments.selectBy("Ticker == 'MSFT'").rowCount());
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void cannotIndexComputedColumns()
+    {
+        this.instruments.addDoubleColumn("LotValue", "LotSize * Tick");
+        this.instruments.createIndex(Lists.immutable.of("LotValue"));
+    }
+}
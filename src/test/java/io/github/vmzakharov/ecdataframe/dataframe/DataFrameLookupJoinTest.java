@@ -1,9 +1,12 @@
 package io.github.vmzakharov.ecdataframe.dataframe;
 
 import org.eclipse.collections.impl.factory.Lists;
+import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.time.LocalDate;
+
 public class DataFrameLookupJoinTest
 {
     static private DataFrame countries;
@@ -195,4 +198,53 @@ public class DataFrameLookupJoinTest
                 clients
         );
     }
+
+    @Test
+    public void lookupLargeDataFrame()
+    {
+        LocalDate startDate = LocalDate.of(2024, 1, 1);
+
+        DataFrame prices = new DataFrame("prices")
+                .addLongColumn("Id").addDoubleColumn("Price").addDateColumn("Date").addStringColumn("Name");
+        for (long i = 0; i < 1_000; i++)
+        {
+            prices.addRow(i * 2, i % 10 == 0 ? null : i * 0.5, startDate.plusDays(i), "name" + i);
+        }
+        prices.seal();
+
+        DataFrame orders = new DataFrame("orders").addLongColumn("Order").addLongColumn("Product Id");
+        for (long i = 0; i < 100_000; i++)
+        {
+            orders.addRow(i, i % 2_000);
+        }
+        orders.seal();
+
+        orders.lookup(DfJoin.to(prices)
+                .match("Product Id", "Id")
+                .select(Lists.immutable.of("Price", "Date", "Name")));
+
+        Assert.assertEquals(100_000, orders.rowCount());
+
+        for (int i = 0; i < orders.rowCount(); i += 997)
+        {
+            long productId = orders.getLong("Product Id", i);
+            if (productId % 2 == 1)
+            {
+                Assert.assertTrue(orders.isNull("Price", i));
+                Assert.assertTrue(orders.isNull("Date", i));
+                Assert.assertTrue(orders.isNull("Name", i));
+            }
+            else
+            {
+                long priceRow = productId / 2;
+                Assert.assertEquals(priceRow % 10 == 0, orders.isNull("Price", i));
+                if (priceRow % 10 != 0)
+                {
+                    Assert.assertEquals(priceRow * 0.5, orders.getDouble("Price", i), 0.0);
+                }
+                Assert.assertEquals(startDate.plusDays(priceRow), orders.getDate("Date", i));
+                Assert.assertEquals("name" + priceRow, orders.getString("Name", i));
+            }
+        }
+    }
 }
@@ -0,0 +1,115 @@
+package io.github.vmzakharov.ecdataframe.dataframe;
+
+import org.eclipse.collections.impl.factory.Lists;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDate;
+
+public class DataFrameRangeJoinTest
+{
+    private DataFrame events;
+    private DataFrame rates;
+
+    @Before
+    public void initialiseDataFrames()
+    {
+        this.events = new DataFrame("Events")
+                .addStringColumn("Ccy").addDateColumn("Date").addLongColumn("Amount")
+                .addRow("EUR", LocalDate.of(2024, 1, 15), 100L)
+                .addRow("USD", LocalDate.of(2024, 2, 1), 200L)
+                .addRow("EUR", LocalDate.of(2024, 3, 1), 300L)
+                .addRow("EUR", LocalDate.of(2023, 6, 1), 400L)
+                .addRow("GBP", LocalDate.of(2024, 1, 1), 500L)
+                .seal();
+
+        this.rates = new DataFrame("Rates")
+                .addStringColumn("Ccy").addDateColumn("ValidFrom").addDateColumn("ValidTo").addDoubleColumn("Rate")
+                .addRow("EUR", LocalDate.of(2024, 2, 1), null,                      1.10)
+                .addRow("EUR", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 2, 1), 1.05)
+                .addRow("USD", null,                      LocalDate.of(2024, 2, 1), 0.90)
+                .addRow("USD", LocalDate.of(2024, 2, 1), null,                      1.00)
+                .seal();
+    }
+
+    @Test
+    public void innerRangeJoinWithKeys()
+    {
+        DataFrameUtil.assertEquals(
+                new DataFrame("expected")
+                        .addStringColumn("Ccy").addDateColumn("Date").addLongColumn("Amount")
+                        .addDateColumn("ValidFrom").addDateColumn("ValidTo").addDoubleColumn("Rate")
+                        .addRow("EUR", LocalDate.of(2024, 1, 15), 100L, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 2, 1), 1.05)
+                        .addRow("USD", LocalDate.of(2024, 2, 1),  200L, LocalDate.of(2024, 2, 1), null, 1.00)
+                        .addRow("EUR", LocalDate.of(2024, 3, 1),  300L, LocalDate.of(2024, 2, 1), null, 1.10),
+                this.events.rangeJoin(
+                        this.rates, Lists.immutable.of("Ccy"), Lists.immutable.of("Ccy"), "Date", "ValidFrom", "ValidTo"));
+    }
+
+    @Test
+    public void leftRangeJoinKeepsUnmatchedRows()
+    {
+        DataFrame joined = this.events.leftRangeJoin(
+                this.rates, Lists.immutable.of("Ccy"), Lists.immutable.of("Ccy"), "Date", "ValidFrom", "ValidTo");
+
+        Assert.assertEquals(5, joined.rowCount());
+        Assert.assertEquals(Lists.immutable.of(100L, 200L, 300L, 400L, 500L),
+                Lists.immutable.of(0, 1, 2, 3, 4).collect(i -> joined.getLong("Amount", i)));
+        Assert.assertTrue(joined.isNull("Rate", 3));
+        Assert.assertTrue(joined.isNull("Rate", 4));
+        Assert.assertEquals(1.10, joined.getDouble("Rate", 2), 0.0);
+    }
+
+    @Test
+    public void overlappingBandsProduceMultipleRows()
+    {
+        DataFrame trades = new DataFrame("Trades")
+                .addStringColumn("Id").addLongColumn("Size")
+                .addRow("a", 5L)
+                .addRow("b", 50L)
+                .addRow("c", 500L)
+                .addRow("d", null)
+                .seal();
+
+        DataFrame bands = new DataFrame("Bands")
+                .addStringColumn("Band").addLongColumn("Low").addLongColumn("High")
+                .addRow("Small",   0L,  10L)
+                .addRow("Any",     0L, null)
+                .addRow("Medium", 10L, 100L)
+                .addRow("Mid",    40L, 60L)
+                .seal();
+
+        DataFrameUtil.assertEquals(
+                new DataFrame("expected")
+                        .addStringColumn("Id").addLongColumn("Size")
+                        .addStringColumn("Band").addLongColumn("Low").addLongColumn("High")
+                        .addRow("a",   5L, "Small",   0L,  10L)
+                        .addRow("a",   5L, "Any",     0L, null)
+                        .addRow("b",  50L, "Any",     0L, null)
+                        .addRow("b",  50L, "Medium", 10L, 100L)
+                        .addRow("b",  50L, "Mid",    40L,  60L)
+                        .addRow("c", 500L, "Any",     0L, null),
+                trades.rangeJoin(bands, "Size", "Low", "High"));
+    }
+
+    @Test
+    public void intervalEndIsExclusive()
+    {
+        DataFrame values = new DataFrame("Values").addLongColumn("V").addRow(10L).seal();
+        DataFrame bands = new DataFrame("Bands").addLongColumn("From").addLongColumn("To")
+                .addRow(0L, 10L)
+                .addRow(10L, 20L)
+                .seal();
+
+        DataFrameUtil.assertEquals(
+                new DataFrame("expected").addLongColumn("V").addLongColumn("From").addLongColumn("To").addRow(10L, 10L, 20L),
+                values.rangeJoin(bands, "V", "From", "To"));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void valueAndIntervalTypesMustMatch()
+    {
+        this.events.rangeJoin(this.rates, "Amount", "ValidFrom", "ValidTo");
+    }
+}
@@ -0,0 +1,121 @@
+package io.github.vmzakharov.ecdataframe.dataframe;
+
+import org.eclipse.collections.impl.factory.Lists;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DataFrameSemiJoinTest
+{
+    private DataFrame orders;
+    private DataFrame blocked;
+
+    @Before
+    public void initialiseDataFrames()
+    {
+        this.orders = new DataFrame("Orders")
+                .addStringColumn("Account").addStringColumn("Ccy").addLongColumn("Qty")
+                .addRow("A1", "USD", 10L)
+                .addRow("A2", "EUR", 20L)
+                .addRow("A1", "EUR", 30L)
+                .addRow("A3", "USD", 40L)
+                .addRow(null, "USD", 50L)
+                .seal();
+
+        this.blocked = new DataFrame("Blocked")
+                .addStringColumn("Acct").addStringColumn("Currency")
+                .addRow("A1", "EUR")
+                .addRow("A1", "USD")
+                .addRow("A1", "EUR")
+                .addRow("A9", "EUR")
+                .addRow(null, "USD")
+                .seal();
+    }
+
+    @Test
+    public void semiJoin()
+    {
+        DataFrameUtil.assertEquals(
+                new DataFrame("expected")
+                        .addStringColumn("Account").addStringColumn("Ccy").addLongColumn("Qty")
+                        .addRow("A1", "USD", 10L)
+                        .addRow("A1", "EUR", 30L)
+                        .addRow(null, "USD", 50L),
+                this.orders.semiJoin(this.blocked, "Account", "Acct"));
+    }
+
+    @Test
+    public void antiJoinByMultipleKeys()
+    {
+        DataFrameUtil.assertEquals(
+                new DataFrame("expected")
+                        .addStringColumn("Account").addStringColumn("Ccy").addLongColumn("Qty")
+                        .addRow("A2", "EUR", 20L)
+                        .addRow("A3", "USD", 40L),
+                this.orders.antiJoin(
+                        this.blocked, Lists.immutable.of("Account", "Ccy"), Lists.immutable.of("Acct", "Currency")));
+    }
+
+    @Test
+    public void flagRowsInPlaceRespectingSortOrder()
+    {
+        this.orders.sortBy(Lists.immutable.of("Qty"));
+        this.orders.flagRowsWithKeysIn(this.blocked, Lists.immutable.of("Account"), Lists.immutable.of("Acct"));
+
+        Assert.assertEquals(
+                Lists.immutable.of(true, false, true, false, true),
+                Lists.immutable.of(0, 1, 2, 3, 4).collect(this.orders::isFlagged));
+        Assert.assertEquals(5, this.orders.rowCount());
+    }
+
+    @Test
+    public void largeKeySet()
+    {
+        DataFrame large = new DataFrame("Large").addLongColumn("Id");
+        for (long i = 0; i < 200_000; i++)
+        {
+            large.addRow(i * 2);
+        }
+        large.seal();
+
+        DataFrame probes = new DataFrame("Probes").addLongColumn("Id");
+        for (long i = 0; i < 1_000; i++)
+        {
+            probes.addRow(i);
+        }
+        probes.seal();
+
+        DataFrame matched = probes.semiJoin(large, "Id", "Id");
+        DataFrame unmatched = probes.antiJoin(large, "Id", "Id");
+
+        Assert.assertEquals(500, matched.rowCount());
+        Assert.assertEquals(500, unmatched.rowCount());
+        for (int i = 0; i < matched.rowCount(); i++)
+        {
+            Assert.assertEquals(0L, matched.getLong("Id", i) % 2);
+            Assert.assertEquals(1L, unmatched.getLong("Id", i) % 2);
+        }
+    }
+
+    @Test
+    public void semiAndAntiJoinsDoNotChangeFlags()
+    {
+        this.orders.flagRowsWithKeysIn(this.blocked, Lists.immutable.of("Ccy"), Lists.immutable.of("Currency"));
+
+        Assert.assertEquals(3, this.orders.semiJoin(this.blocked, "Account", "Acct").rowCount());
+        Assert.assertEquals(2, this.orders.antiJoin(this.blocked, "Account", "Acct").rowCount());
+
+        Assert.assertEquals(
+                Lists.immutable.of(true, true, true, true, true),
+                Lists.immutable.of(0, 1, 2, 3, 4).collect(this.orders::isFlagged));
+
+        this.orders.flagRowsWithKeysIn(this.blocked, Lists.immutable.of("Account"), Lists.immutable.of("Acct"));
+        Assert.assertEquals(2, this.orders.selectNotFlagged().rowCount());
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void keyCountsMustMatch()
+    {
+        this.orders.semiJoin(this.blocked, Lists.immutable.of("Account", "Ccy"), Lists.immutable.of("Acct"));
+    }
+}
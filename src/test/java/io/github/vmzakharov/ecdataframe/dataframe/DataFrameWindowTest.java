@@ -0,0 +1,289 @@
+package io.github.vmzakharov.ecdataframe.dataframe;
+
+import org.eclipse.collections.impl.factory.Lists;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+
+import static io.github.vmzakharov.ecdataframe.dataframe.WindowFunction.denseRank;
+import static io.github.vmzakharov.ecdataframe.dataframe.WindowFunction.lag;
+import static io.github.vmzakharov.ecdataframe.dataframe.WindowFunction.lead;
+import static io.github.vmzakharov.ecdataframe.dataframe.WindowFunction.rangeSum;
+import static io.github.vmzakharov.ecdataframe.dataframe.WindowFunction.rank;
+import static io.github.vmzakharov.ecdataframe.dataframe.WindowFunction.rollingSum;
+import static io.github.vmzakharov.ecdataframe.dataframe.WindowFunction.rowNumber;
+import static io.github.vmzakharov.ecdataframe.dataframe.WindowFunction.runningMax;
+import static io.github.vmzakharov.ecdataframe.dataframe.WindowFunction.runningMin;
+import static io.github.vmzakharov.ecdataframe.dataframe.WindowFunction.runningSum;
+
+public class DataFrameWindowTest
+{
+    private DataFrame dataFrame;
+
+    @Before
+    public void initialiseDataFrame()
+    {
+        this.dataFrame = new DataFrame("FrameOfData")
+                .addStringColumn("Account").addLongColumn("Seq").addLongColumn("Qty").addDoubleColumn("Price")
+                .addRow("B", 2L, 20L, 2.5)
+                .addRow("A", 3L,  5L, 1.5)
+                .addRow("A", 1L, 10L, 1.0)
+                .addRow("B", 1L, 30L, 3.0)
+                .addRow("A", 2L, 15L, 2.0)
+                .addRow("A", 4L,  1L, 0.5)
+                .seal();
+    }
+
+    @Test
+    public void runningAggregates()
+    {
+        this.dataFrame.window(
+                Lists.immutable.of(runningSum("Qty", "Total"), runningMin("Price", "Low"), runningMax("Qty", "High")),
+                Lists.immutable.of("Account"),
+                Lists.immutable.of("Seq"));
+
+        DataFrameUtil.assertEquals(
+                new DataFrame("expected")
+                        .addStringColumn("Account").addLongColumn("Seq").addLongColumn("Qty").addDoubleColumn("Price")
+                        .addLongColumn("Total").addDoubleColumn("Low").addLongColumn("High")
+                        .addRow("B", 2L, 20L, 2.5, 50L, 2.5, 30L)
+                        .addRow("A", 3L,  5L, 1.5, 30L, 1.0, 15L)
+                        .addRow("A", 1L, 10L, 1.0, 10L, 1.0, 10L)
+                        .addRow("B", 1L, 30L, 3.0, 30L, 3.0, 30L)
+                        .addRow("A", 2L, 15L, 2.0, 25L, 1.0, 15L)
+                        .addRow("A", 4L,  1L, 0.5, 31L, 0.5, 15L),
+                this.dataFrame);
+    }
+
+    @Test
+    public void rollingSumAndOffsets()
+    {
+        this.dataFrame.window(
+                Lists.immutable.of(rollingSum("Qty", "Last2", 2), lag("Price", "Prev"), lead("Qty", "Next"), lag("Account", "Lag2", 2)),
+                Lists.immutable.of("Account"),
+                Lists.immutable.of("Seq"));
+
+        DataFrameUtil.assertEquals(
+                new DataFrame("expected")
+                        .addStringColumn("Account").addLongColumn("Seq").addLongColumn("Qty").addDoubleColumn("Price")
+                        .addLongColumn("Last2").addDoubleColumn("Prev").addLongColumn("Next").addStringColumn("Lag2")
+                        .addRow("B", 2L, 20L, 2.5, 50L, 3.0, null, null)
+                        .addRow("A", 3L,  5L, 1.5, 20L, 2.0,   1L,  "A")
+                        .addRow("A", 1L, 10L, 1.0, 10L, null,  15L, null)
+                        .addRow("B", 1L, 30L, 3.0, 30L, null,  20L, null)
+                        .addRow("A", 2L, 15L, 2.0, 25L, 1.0,    5L, null)
+                        .addRow("A", 4L,  1L, 0.5,  6L, 1.5,  null, "A"),
+                this.dataFrame);
+    }
+
+    @Test
+    public void rowNumberAndRanks()
+    {
+        DataFrame scores = new DataFrame("Scores")
+                .addStringColumn("Name").addLongColumn("Score")
+                .addRow("Alice", 90L)
+                .addRow("Bob",   80L)
+                .addRow("Carl",  90L)
+                .addRow("Dan",   70L)
+                .seal();
+
+        scores.window(
+                Lists.immutable.of(rowNumber("Row"), rank("Rank"), denseRank("Dense")),
+                Lists.immutable.empty(),
+                Lists.immutable.of("Score"));
+
+        DataFrameUtil.assertEquals(
+                new DataFrame("expected")
+                        .addStringColumn("Name").addLongColumn("Score").addLongColumn("Rank").addLongColumn("Dense")
+                        .addRow("Alice", 90L, 3L, 3L)
+                        .addRow("Bob",   80L, 2L, 2L)
+                        .addRow("Carl",  90L, 3L, 3L)
+                        .addRow("Dan",   70L, 1L, 1L),
+                scores.dropColumn("Row"));
+    }
+
+    @Test
+    public void rangeSumOverTime()
+    {
+        DataFrame trades = new DataFrame("Trades")
+                .addStringColumn("Desk").addLongColumn("Time").addDateColumn("Date").addLongColumn("Qty")
+                .addRow("X", 100L, LocalDate.of(2024, 1, 1), 1L)
+                .addRow("X", 105L, LocalDate.of(2024, 1, 2), 2L)
+                .addRow("X", 110L, LocalDate.of(2024, 1, 4), 4L)
+                .addRow("X", 110L, LocalDate.of(2024, 1, 4), 8L)
+                .addRow("X", 121L, LocalDate.of(2024, 1, 8), 16L)
+                .addRow("Y", 100L, LocalDate.of(2024, 1, 1), 32L)
+                .seal();
+
+        trades.window(
+                Lists.immutable.of(rangeSum("Qty", "Last10", "Time", 10L), rangeSum("Qty", "Last3Days", "Date", Duration.ofDays(3))),
+                Lists.immutable.of("Desk"),
+                Lists.immutable.of("Time"));
+
+        Assert.assertEquals(
+                Lists.immutable.of(1L, 3L, 14L, 14L, 16L, 32L),
+                Lists.immutable.of(0, 1, 2, 3, 4, 5).collect(i -> trades.getLong("Last10", i)));
+        Assert.assertEquals(
+                Lists.immutable.of(1L, 3L, 14L, 14L, 16L, 32L),
+                Lists.immutable.of(0, 1, 2, 3, 4, 5).collect(i -> trades.getLong("Last3Days", i)));
+    }
+
+    @Test
+    public void rangeSumOverFarDates()
+    {
+        DataFrame trades = new DataFrame("Trades")
+                .addDateColumn("Date").addLongColumn("Qty")
+                .addRow(LocalDate.of(1, 1, 1), 1L)
+                .addRow(LocalDate.of(1970, 1, 1), 2L)
+                .addRow(LocalDate.of(9999, 12, 29), 4L)
+                .addRow(LocalDate.of(9999, 12, 31), 8L)
+                .seal();
+
+        trades.window(
+                Lists.immutable.of(rangeSum("Qty", "Last3Days", "Date", Duration.ofDays(3))),
+                Lists.immutable.empty(),
+                Lists.immutable.of("Date"));
+
+        Assert.assertEquals(
+                Lists.immutable.of(1L, 2L, 4L, 12L),
+                Lists.immutable.of(0, 1, 2, 3).collect(i -> trades.getLong("Last3Days", i)));
+    }
+
+    @Test
+    public void nullsPropagate()
+    {
+        DataFrame withNulls = new DataFrame("FrameOfData")
+                .addLongColumn("Seq").addLongColumn("Qty")
+                .addRow(1L, 1L)
+                .addRow(2L, null)
+                .addRow(3L, 4L)
+                .addRow(4L, 8L)
+                .seal();
+
+        withNulls.window(
+                Lists.immutable.of(runningSum("Qty", "Total"), rollingSum("Qty", "Last2", 2)),
+                Lists.immutable.empty(),
+                Lists.immutable.of("Seq"));
+
+        DataFrameUtil.assertEquals(
+                new DataFrame("expected")
+                        .addLongColumn("Seq").addLongColumn("Qty").addLongColumn("Total").addLongColumn("Last2")
+                        .addRow(1L, 1L, 1L, 1L)
+                        .addRow(2L, null, null, null)
+                        .addRow(3L, 4L, null, null)
+                        .addRow(4L, 8L, null, 12L),
+                withNulls);
+    }
+
+    @Test
+    public void parallelPartitionsMatchSequential()
+    {
+        DataFrame large = new DataFrame("Large").addLongColumn("Key").addLongColumn("Seq").addLongColumn("Value");
+        for (int i = 0; i < 100_000; i++)
+        {
+            large.addRow((long) (i % 97), (long) ((i * 7919) % 100_000), (long) (i % 13));
+        }
+        large.seal();
+
+        large.window(
+                Lists.immutable.of(runningSum("Value", "Total"), rollingSum("Value", "Last5", 5), rank("Rank")),
+                Lists.immutable.of("Key"),
+                Lists.immutable.of("Seq"));
+
+        DataFrame sorted = large.sortBy(Lists.immutable.of("Key", "Seq"));
+
+        long total = 0L;
+        for (int i = 0; i < sorted.rowCount(); i++)
+        {
+            boolean newPartition = i == 0 || sorted.getLong("Key", i) != sorted.getLong("Key", i - 1);
+            total = newPartition ? sorted.getLong("Value", i) : total + sorted.getLong("Value", i);
+
+            Assert.assertEquals(total, sorted.getLong("Total", i));
+            if (newPartition)
+            {
+                Assert.assertEquals(1L, sorted.getLong("Rank", i));
+            }
+        }
+    }
+
+    @Test
+    public void rollingSumOfDoublesDoesNotAccumulateErrors()
+    {
+        DataFrame values = new DataFrame("Values")
+                .addLongColumn("Seq").addDoubleColumn("Value")
+                .addRow(1L, 1.0e16)
+                .addRow(2L, 1.0)
+                .addRow(3L, 1.0)
+                .addRow(4L, Double.POSITIVE_INFINITY)
+                .addRow(5L, 0.5)
+                .addRow(6L, Double.NEGATIVE_INFINITY)
+                .addRow(7L, 0.25)
+                .addRow(8L, 0.125)
+                .seal();
+
+        values.window(Lists.immutable.of(rollingSum("Value", "Last2", 2)), Lists.immutable.empty(), Lists.immutable.of("Seq"));
+
+        Assert.assertEquals(1.0e16, values.getDouble("Last2", 0), 0.0);
+        Assert.assertEquals(1.0e16, values.getDouble("Last2", 1), 0.0);
+        Assert.assertEquals(2.0, values.getDouble("Last2", 2), 0.0);
+        Assert.assertEquals(Double.POSITIVE_INFINITY, values.getDouble("Last2", 3), 0.0);
+        Assert.assertEquals(Double.POSITIVE_INFINITY, values.getDouble("Last2", 4), 0.0);
+        Assert.assertEquals(Double.NEGATIVE_INFINITY, values.getDouble("Last2", 5), 0.0);
+        Assert.assertEquals(Double.NEGATIVE_INFINITY, values.getDouble("Last2", 6), 0.0);
+        Assert.assertEquals(0.375, values.getDouble("Last2", 7), 0.0);
+    }
+
+    @Test
+    public void parallelRollingSumsOfDoublesMatchSequential()
+    {
+        DataFrame large = new DataFrame("Large").addLongColumn("Key").addLongColumn("Seq").addDoubleColumn("Value");
+        for (int i = 0; i < 100_000; i++)
+        {
+            double value = i % 1_000 == 0 ? Double.POSITIVE_INFINITY : (i % 2 == 0 ? 1.0e12 : 0.1) * (i % 13);
+            large.addRow((long) (i % 97), (long) ((i * 7919) % 100_000), value);
+        }
+        large.seal();
+
+        large.window(
+                Lists.immutable.of(rollingSum("Value", "Last5", 5)),
+                Lists.immutable.of("Key"),
+                Lists.immutable.of("Seq"));
+
+        DataFrame sorted = large.sortBy(Lists.immutable.of("Key", "Seq"));
+
+        int partitionStart = 0;
+        for (int i = 0; i < sorted.rowCount(); i++)
+        {
+            if (i > 0 && sorted.getLong("Key", i) != sorted.getLong("Key", i - 1))
+            {
+                partitionStart = i;
+            }
+
+            double expected = 0.0;
+            for (int j = Math.max(partitionStart, i - 4); j <= i; j++)
+            {
+                expected += sorted.getDouble("Value", j);
+            }
+
+            Assert.assertEquals(expected, sorted.getDouble("Last5", i), Double.isInfinite(expected) ? 0.0 : 1.0e-2);
+        }
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void rangeSumRequiresOrderedTime()
+    {
+        this.dataFrame.window(
+                Lists.immutable.of(rangeSum("Qty", "Sum", "Seq", 2L)),
+                Lists.immutable.of("Account"),
+                Lists.immutable.of("Price"));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void runningSumOfStringsFails()
+    {
+        this.dataFrame.window(Lists.immutable.of(runningSum("Account", "Sum")), Lists.immutable.empty(), Lists.immutable.empty());
+    }
+}
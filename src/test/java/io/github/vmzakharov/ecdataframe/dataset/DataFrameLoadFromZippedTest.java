@@ -90,6 +90,30 @@ public class DataFrameLoadFromZippedTest
         DataFrameUtil.assertEquals(expected, loaded);
     }
 
+    @Test
+    public void writeGZippedAndLoad()
+    throws IOException
+    {
+        Files.createDirectory(this.fileSystem.getPath("/foo"));
+        Path filePath = this.fileSystem.getPath("/foo").resolve("numbers.csv.gz");
+
+        DataFrame dataFrame = new DataFrame("Numbers")
+                .addStringColumn("Name").addLongColumn("Number").addDateColumn("Date");
+
+        int rowCount = 2 * CsvDataSet.WRITE_CHUNK_ROW_COUNT + 1;
+        for (int i = 0; i < rowCount; i++)
+        {
+            dataFrame.addRow("N" + i, i * 3L, LocalDate.of(2020, 1, 1).plusDays(i % 1_000));
+        }
+        dataFrame.seal();
+
+        new CsvDataSet(filePath, "Numbers").write(dataFrame);
+
+        DataFrame loaded = new CsvDataSet(filePath, "Numbers").loadAsDataFrame();
+
+        DataFrameUtil.assertEquals(dataFrame, loaded);
+    }
+
     private void writeTextToZippedFile(String root, String fileName, String fileText)
     throws IOException
     {
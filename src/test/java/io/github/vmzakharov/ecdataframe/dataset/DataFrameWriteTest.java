@@ -5,8 +5,13 @@ import io.github.vmzakharov.ecdataframe.dsl.value.ValueType;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.zip.GZIPInputStream;
 
 public class DataFrameWriteTest
 {
@@ -156,4 +161,96 @@ public class DataFrameWriteTest
 
         Assert.assertEquals(expected, dataSet.getWrittenData());
     }
+
+    @Test
+    public void writeLargeFrameInChunks()
+    {
+        DataFrame dataFrame = new DataFrame("source")
+                .addStringColumn("Name").addLongColumn("Number").addDoubleColumn("Value").addDateColumn("Date").addDateTimeColumn("Time");
+
+        StringBuilder expected = new StringBuilder("Name,Number,Value,Date,Time\n");
+
+        int rowCount = 3 * CsvDataSet.WRITE_CHUNK_ROW_COUNT + 17;
+        for (int i = 0; i < rowCount; i++)
+        {
+            String name = i % 7 == 0 ? null : "N" + i;
+            long number = i * 1_000_003L - 17;
+            double value = i / 8.0 - 1_000.0;
+            LocalDate date = i % 5 == 0 ? null : LocalDate.of(2000, 1, 1).plusDays(i);
+            LocalDateTime time = LocalDateTime.of(2021, 3, 4, 5, 6, 7).plusSeconds(i * 61L);
+
+            dataFrame.addRow(name, number, value, date, time);
+
+            expected.append(name == null ? "" : '"' + name + '"')
+                    .append(',').append(number)
+                    .append(',').append(value)
+                    .append(',').append(date == null ? "" : date.getYear() + "-" + date.getMonthValue() + "-" + date.getDayOfMonth())
+                    .append(',').append(time.getYear()).append('-').append(time.getMonthValue()).append('-').append(time.getDayOfMonth())
+                    .append('T').append(time.getHour()).append(':').append(time.getMinute()).append(':').append(time.getSecond())
+                    .append('\n');
+        }
+
+        dataFrame.seal();
+
+        StringBasedCsvDataSet dataSet = new StringBasedCsvDataSet("Foo", "Numbers", "");
+        dataSet.write(dataFrame);
+
+        Assert.assertEquals(expected.toString(), dataSet.getWrittenData());
+    }
+
+    @Test
+    public void gzipFileIsCompressedThroughCreateOutputStream()
+    throws IOException
+    {
+        DataFrame dataFrame = new DataFrame("source")
+                .addStringColumn("Name").addLongColumn("Number")
+                .addRow("Alice", 1)
+                .addRow("Bob", 2);
+
+        StringBasedCsvDataSet dataSet = new StringBasedCsvDataSet("Foo.csv.gz", "Numbers", "");
+        dataSet.write(dataFrame);
+
+        Assert.assertEquals("", dataSet.getWrittenData());
+        Assert.assertEquals("Name,Number\n\"Alice\",1\n\"Bob\",2\n", this.decompress(dataSet.getWrittenBytes()));
+    }
+
+    @Test
+    public void largeGzipFileIsCompressedInChunks()
+    throws IOException
+    {
+        DataFrame dataFrame = new DataFrame("source").addLongColumn("Number").addDoubleColumn("Value");
+
+        StringBuilder expected = new StringBuilder("Number,Value\n");
+
+        int rowCount = 3 * CsvDataSet.WRITE_CHUNK_ROW_COUNT + 17;
+        for (int i = 0; i < rowCount; i++)
+        {
+            dataFrame.addRow(i * 7L, i / 4.0);
+            expected.append(i * 7L).append(',').append(i / 4.0).append('\n');
+        }
+
+        dataFrame.seal();
+
+        StringBasedCsvDataSet dataSet = new StringBasedCsvDataSet("Foo.csv.gz", "Numbers", "");
+        dataSet.write(dataFrame);
+
+        Assert.assertEquals(expected.toString(), this.decompress(dataSet.getWrittenBytes()));
+    }
+
+    private String decompress(byte[] compressed)
+    throws IOException
+    {
+        StringBuilder decompressed = new StringBuilder();
+        try (Reader reader = new InputStreamReader(new GZIPInputStream(new ByteArrayInputStream(compressed))))
+        {
+            char[] buffer = new char[8_192];
+            int charCount;
+            while ((charCount = reader.read(buffer)) != -1)
+            {
+                decompressed.append(buffer, 0, charCount);
+            }
+        }
+
+        return decompressed.toString();
+    }
 }
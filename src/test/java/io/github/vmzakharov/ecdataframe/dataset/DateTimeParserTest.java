@@ -0,0 +1,215 @@
+package io.github.vmzakharov.ecdataframe.dataset;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+
+public class DateTimeParserTest
+{
+    @Test
+    public void parseDates()
+    {
+        DateTimeParser parser = new DateTimeParser("uuuu-M-d");
+
+        Assert.assertEquals(LocalDate.of(2020, 1, 1), parser.parseAsLocalDate("2020-01-01"));
+        Assert.assertEquals(LocalDate.of(2020, 12, 31), parser.parseAsLocalDate("2020-12-31"));
+        Assert.assertEquals(LocalDate.of(2021, 3, 7), parser.parseAsLocalDate("2021-3-7"));
+        Assert.assertEquals(LocalDate.of(2024, 2, 29), parser.parseAsLocalDate("  2024-02-29 ", 2, 12));
+
+        Assert.assertEquals(LocalDate.of(2020, 1, 1), new DateTimeParser("uuuuMMdd").parseAsLocalDate("20200101"));
+        Assert.assertEquals(LocalDate.of(2020, 11, 9), new DateTimeParser("M/d/uuuu").parseAsLocalDate("11/9/2020"));
+    }
+
+    @Test
+    public void parseDateTimes()
+    {
+        DateTimeParser parser = new DateTimeParser("uuuu-MM-dd'T'HH:mm:ss[.SSS]");
+
+        Assert.assertEquals(LocalDateTime.of(2020, 1, 1, 13, 45, 59), parser.parseAsLocalDateTime("2020-01-01T13:45:59"));
+        Assert.assertEquals(LocalDateTime.of(2020, 1, 1, 13, 45, 59, 120_000_000), parser.parseAsLocalDateTime("2020-01-01T13:45:59.120"));
+
+        Assert.assertEquals(
+                LocalDateTime.of(2021, 3, 7, 1, 2, 3),
+                new DateTimeParser("uuuu-M-d'T'H:m:s").parseAsLocalDateTime("2021-3-7T1:2:3"));
+    }
+
+    @Test
+    public void repeatedValuesAreCached()
+    {
+        DateTimeParser parser = new DateTimeParser("uuuu-M-d");
+
+        LocalDate first = parser.parseAsLocalDate("2020-01-01");
+        Assert.assertSame(first, parser.parseAsLocalDate(" 2020-01-01", 1, 11));
+        Assert.assertEquals(LocalDate.of(2020, 1, 2), parser.parseAsLocalDate("2020-01-02"));
+    }
+
+    @Test
+    public void datesMatchFormatter()
+    {
+        String[] patterns = {"uuuu-M-d", "uuuu-MM-dd", "uuuu/M/d", "M/d/uuuu", "uuuuMMdd", "yyyy-MM-dd", "dd-MMM-uuuu"};
+        String[] values = {
+                "2020-01-01", "2020-1-1", "2020-1-01", "2020-001-01", "2020-13-01", "2020-02-30", "2024-02-29",
+                "2023-02-29", "1900-02-29", "2000-02-29", "0000-1-1", "+20200-1-1", "20200-1-1", "2020-1-1x", "2020-1-",
+                "2020/1/1", "1/1/2020", "12/31/2020", "13/1/2020", "20200101", "202001011", "2020011", "01-Jan-2020",
+                "2020-1-1T10:00:00", "-2020-1-1", "2020--1-1", "", "2020"
+        };
+
+        for (String pattern : patterns)
+        {
+            for (String value : values)
+            {
+                this.assertDateMatchesFormatter(pattern, value);
+            }
+        }
+    }
+
+    @Test
+    public void dateTimesMatchFormatter()
+    {
+        String[] patterns = {
+                "uuuu-M-d'T'H:m:s", "uuuu-MM-dd'T'HH:mm:ss", "uuuu-MM-dd HH:mm:ss.SSS", "uuuu-MM-dd'T'HH:mm:ss[.SSS]",
+                "uuuuMMddHHmmss", "uuuu-M-d", "yyyy-MM-dd'T'HH:mm:ss"
+        };
+        String[] values = {
+                "2020-01-01T10:20:30", "2020-1-1T1:2:3", "2020-01-01T24:00:00", "2020-01-01T23:60:00", "2020-01-01T23:59:60",
+                "2020-01-01T10:20:30.123", "2020-01-01T10:20:30.12", "2020-01-01T10:20:30.", "2020-01-01 10:20:30.123",
+                "20200101102030", "2020-02-30T10:20:30", "2020-01-01T10:20", "2020-01-01", "+20200-01-01T10:20:30"
+        };
+
+        for (String pattern : patterns)
+        {
+            for (String value : values)
+            {
+                this.assertDateTimeMatchesFormatter(pattern, value);
+            }
+        }
+    }
+
+    @Test
+    public void formatMatchesFormatter()
+    {
+        String[] datePatterns = {"uuuu-M-d", "uuuu-MM-dd", "M/d/uuuu", "uuuuMMdd", "yyyy-MM-dd", "dd-MMM-uuuu"};
+        LocalDate[] dates = {
+                LocalDate.of(2020, 1, 1), LocalDate.of(1999, 12, 31), LocalDate.of(5, 6, 7), LocalDate.of(12_345, 1, 1),
+                LocalDate.of(-1, 1, 1)
+        };
+
+        for (String pattern : datePatterns)
+        {
+            DateTimeParser parser = new DateTimeParser(pattern);
+            DateTimeFormatter formatter = DateTimeFormatter.ofPattern(pattern);
+            for (LocalDate date : dates)
+            {
+                StringBuilder builder = new StringBuilder();
+                parser.appendFormatted(date, builder);
+                Assert.assertEquals(pattern, formatter.format(date), builder.toString());
+            }
+        }
+
+        String[] dateTimePatterns = {
+                "uuuu-M-d'T'H:m:s", "uuuu-MM-dd'T'HH:mm:ss", "uuuu-MM-dd HH:mm:ss.SSS", "uuuu-MM-dd'T'HH:mm:ss[.SSS]",
+                "uuuuMMddHHmmss", "uuuu-M-d"
+        };
+        LocalDateTime[] dateTimes = {
+                LocalDateTime.of(2020, 1, 1, 0, 0, 0), LocalDateTime.of(1999, 12, 31, 23, 59, 59, 999_999_999),
+                LocalDateTime.of(2021, 3, 7, 1, 2, 3, 4_000_000), LocalDateTime.of(10_000, 1, 1, 1, 1)
+        };
+
+        for (String pattern : dateTimePatterns)
+        {
+            DateTimeParser parser = new DateTimeParser(pattern);
+            DateTimeFormatter formatter = DateTimeFormatter.ofPattern(pattern);
+            for (LocalDateTime dateTime : dateTimes)
+            {
+                StringBuilder builder = new StringBuilder();
+                parser.appendFormatted(dateTime, builder);
+                Assert.assertEquals(pattern, formatter.format(dateTime), builder.toString());
+            }
+        }
+    }
+
+    @Test
+    public void formatDateTimesWithPartialTimeLayouts()
+    {
+        String[] dateTimePatterns = {"uuuu-MM-dd HH", "HH:mm", "uuuu-MM-dd'T'HH:mm", "d/M/uuuu H"};
+        LocalDateTime[] dateTimes = {
+                LocalDateTime.of(2020, 1, 1, 0, 0, 0), LocalDateTime.of(1999, 12, 31, 23, 59, 59, 999_999_999),
+                LocalDateTime.of(2021, 3, 7, 1, 2, 3, 4_000_000)
+        };
+
+        for (String pattern : dateTimePatterns)
+        {
+            DateTimeParser parser = new DateTimeParser(pattern);
+            DateTimeFormatter formatter = DateTimeFormatter.ofPattern(pattern);
+            for (LocalDateTime dateTime : dateTimes)
+            {
+                StringBuilder builder = new StringBuilder();
+                parser.appendFormatted(dateTime, builder);
+                Assert.assertEquals(pattern, formatter.format(dateTime), builder.toString());
+            }
+        }
+    }
+
+    private void assertDateMatchesFormatter(String pattern, String value)
+    {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern(pattern).withResolverStyle(ResolverStyle.STRICT);
+
+        LocalDate expected;
+        try
+        {
+            expected = LocalDate.parse(value, formatter);
+        }
+        catch (DateTimeParseException e)
+        {
+            expected = null;
+        }
+
+        DateTimeParser parser = new DateTimeParser(pattern);
+        String description = "'" + value + "' as '" + pattern + "'";
+
+        Assert.assertEquals(description, expected != null, parser.canParseAsLocalDate(value));
+
+        if (expected == null)
+        {
+            Assert.assertThrows(description, DateTimeParseException.class, () -> parser.parseAsLocalDate(value));
+        }
+        else
+        {
+            Assert.assertEquals(description, expected, parser.parseAsLocalDate(value));
+        }
+    }
+
+    private void assertDateTimeMatchesFormatter(String pattern, String value)
+    {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern(pattern).withResolverStyle(ResolverStyle.STRICT);
+
+        LocalDateTime expected;
+        try
+        {
+            expected = LocalDateTime.parse(value, formatter);
+        }
+        catch (DateTimeParseException e)
+        {
+            expected = null;
+        }
+
+        DateTimeParser parser = new DateTimeParser(pattern);
+        String description = "'" + value + "' as '" + pattern + "'";
+
+        Assert.assertEquals(description, expected != null, parser.canParseAsLocalDateTime(value));
+
+        if (expected == null)
+        {
+            Assert.assertThrows(description, DateTimeParseException.class, () -> parser.parseAsLocalDateTime(value));
+        }
+        else
+        {
+            Assert.assertEquals(description, expected, parser.parseAsLocalDateTime(value));
+        }
+    }
+}
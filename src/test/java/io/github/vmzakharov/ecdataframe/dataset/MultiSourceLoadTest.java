@@ -0,0 +1,108 @@
+package io.github.vmzakharov.ecdataframe.dataset;
+
+import com.google.common.jimfs.Configuration;
+import com.google.common.jimfs.Jimfs;
+import io.github.vmzakharov.ecdataframe.dataframe.DataFrame;
+import io.github.vmzakharov.ecdataframe.dataframe.DataFrameUtil;
+import io.github.vmzakharov.ecdataframe.dataframe.DfStringColumn;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static io.github.vmzakharov.ecdataframe.dsl.value.ValueType.DATE;
+import static io.github.vmzakharov.ecdataframe.dsl.value.ValueType.DOUBLE;
+import static io.github.vmzakharov.ecdataframe.dsl.value.ValueType.STRING;
+
+public class MultiSourceLoadTest
+{
+    private FileSystem fileSystem;
+    private Path directory;
+
+    @Before
+    public void configureFileSystem()
+    throws IOException
+    {
+        this.fileSystem = Jimfs.newFileSystem(Configuration.unix());
+        this.directory = Files.createDirectory(this.fileSystem.getPath("/foo"));
+    }
+
+    @Test
+    public void loadFilesMatchingGlob()
+    throws IOException
+    {
+        this.writeText("slice_02.csv", "Name,Date,Amount\n\"Carl\",2020-01-02,30.0\n\"Alice\",2020-01-02,40.0\n");
+        this.writeText("slice_01.csv", "Name,Date,Amount\n\"Alice\",2020-01-01,10.0\n\"Bob\",2020-01-01,20.0\n");
+        this.writeText("slice_03.csv", "Name,Date,Amount\n");
+        this.writeText("other.csv", "Name,Date,Amount\n\"Zed\",2020-01-01,99.0\n");
+
+        try (OutputStream outputStream = new GZIPOutputStream(Files.newOutputStream(this.directory.resolve("slice_04.csv.gz"))))
+        {
+            outputStream.write("Name,Date,Amount\n\"Diane\",2020-01-04,50.0\n".getBytes());
+        }
+
+        DataFrame loaded = new MultiSourceCsvDataSet(this.directory, "slice_*.csv*", "Slices").loadAsDataFrame();
+
+        DataFrameUtil.assertEquals(
+                new DataFrame("Expected")
+                        .addStringColumn("Name").addDateColumn("Date").addDoubleColumn("Amount")
+                        .addRow("Alice", LocalDate.of(2020, 1, 1), 10.0)
+                        .addRow("Bob",   LocalDate.of(2020, 1, 1), 20.0)
+                        .addRow("Carl",  LocalDate.of(2020, 1, 2), 30.0)
+                        .addRow("Alice", LocalDate.of(2020, 1, 2), 40.0)
+                        .addRow("Diane", LocalDate.of(2020, 1, 4), 50.0),
+                loaded);
+
+        DfStringColumn names = (DfStringColumn) loaded.getColumnNamed("Name");
+        Assert.assertSame(names.getTypedObject(0), names.getTypedObject(3));
+    }
+
+    @Test
+    public void loadAllZipEntries()
+    throws IOException
+    {
+        Path zipFile = this.directory.resolve("slices.zip");
+        try (ZipOutputStream zipOutputStream = new ZipOutputStream(Files.newOutputStream(zipFile)))
+        {
+            zipOutputStream.putNextEntry(new ZipEntry("b.csv"));
+            zipOutputStream.write("Name,Date,Amount\n\"Bob\",2020-1-2,_\n".getBytes());
+            zipOutputStream.putNextEntry(new ZipEntry("a.csv"));
+            zipOutputStream.write("Name,Date,Amount\n\"Alice\",2020-1-1,1.5\n".getBytes());
+        }
+
+        CsvSchema schema = new CsvSchema().nullMarker("_");
+        schema.addColumn("Name", STRING);
+        schema.addColumn("Date", DATE);
+        schema.addColumn("Amount", DOUBLE);
+
+        DataFrame loaded = new MultiSourceCsvDataSet(zipFile, "Slices", schema).loadAsDataFrame();
+
+        DataFrameUtil.assertEquals(
+                new DataFrame("Expected")
+                        .addStringColumn("Name").addDateColumn("Date").addDoubleColumn("Amount")
+                        .addRow("Alice", LocalDate.of(2020, 1, 1), 1.5)
+                        .addRow("Bob",   LocalDate.of(2020, 1, 2), null),
+                loaded);
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void noSourcesFound()
+    {
+        new MultiSourceCsvDataSet(this.directory, "*.csv", "Nothing").loadAsDataFrame();
+    }
+
+    private void writeText(String fileName, String text)
+    throws IOException
+    {
+        Files.write(this.directory.resolve(fileName), text.getBytes());
+    }
+}
@@ -0,0 +1,161 @@
+package io.github.vmzakharov.ecdataframe.dataset;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.text.DecimalFormat;
+import java.text.ParseException;
+import java.util.Random;
+
+public class NumberParsingTest
+{
+    private static final String[] DOUBLE_PATTERNS = {"", ".", ",", "\"$#,##0.0#\";\"($#)\"", "#,##0.00", "#.##", "0.###E0", "#%"};
+    private static final String[] LONG_PATTERNS = {"", "0", ",", ".", "\"#,###\";\"(#)\"", "#,##0", "#"};
+
+    private static final String[] INPUTS = {
+            "0", "-0", "+0", "1", "-1", "+1", "12345", "  12345 ", "1.5", "-1.5", ".5", "5.", ".", "-", "+", "",
+            "1e5", "1E-5", "-2.5e+3", "1e", "1e+", "1d", "1f", "0x1p3", "NaN", "Infinity", "-Infinity",
+            "0.1", "0.2", "0.30000000000000004", "123456789012345678", "9007199254740993", "1.7976931348623157E308",
+            "4.9E-324", "1e23", "1e-23", "0.000000000000000000000000001", "9223372036854775807",
+            "-9223372036854775808", "9223372036854775808", "00012", "1,234", "1,234.56", "1.234,56", "$1,100.15",
+            "\"$1,123.45\"", "\"($1,123.45)\"", "\"$0\"", "\"($0)\"", "\"$1,123\"", "\"(1,123)\"", "\"1,234\"",
+            "  $0,12", "$0101,01", "#123", " 001", "1,,2", "1,2,3", "1,", ",1", "1.2.3", "1,2.3,4", "12%", "1 2",
+            "abc", "-abc", "$", "1-2"
+    };
+
+    @Test
+    public void doublesMatchGeneralPurposeParsing()
+    {
+        for (String pattern : DOUBLE_PATTERNS)
+        {
+            DoubleFormatter formatter = new DoubleFormatter(pattern);
+            for (String input : INPUTS)
+            {
+                this.assertDoubleParsing(pattern, formatter, input);
+            }
+        }
+    }
+
+    @Test
+    public void longsMatchGeneralPurposeParsing()
+    {
+        for (String pattern : LONG_PATTERNS)
+        {
+            LongFormatter formatter = new LongFormatter(pattern);
+            for (String input : INPUTS)
+            {
+                this.assertLongParsing(pattern, formatter, input);
+            }
+        }
+    }
+
+    @Test
+    public void doublesRoundTrip()
+    {
+        DoubleFormatter formatter = new DoubleFormatter("");
+        Random random = new Random(42);
+
+        for (int i = 0; i < 100_000; i++)
+        {
+            double value = i % 2 == 0
+                    ? random.nextDouble() * Math.pow(10, random.nextInt(20) - 10)
+                    : Math.round(random.nextDouble() * 1_000_000) / 100.0;
+            String text = Double.toString(value);
+            Assert.assertEquals(text, Double.doubleToLongBits(value), Double.doubleToLongBits(formatter.parseAsDouble(text)));
+        }
+    }
+
+    @Test
+    public void nullsAndEmptyStringsAreZero()
+    {
+        Assert.assertEquals(0.0, new DoubleFormatter("").parseAsDouble(null), 0.0);
+        Assert.assertEquals(0.0, new DoubleFormatter("#,##0.00").parseAsDouble(""), 0.0);
+        Assert.assertEquals(0L, new LongFormatter("").parseAsLong(null));
+        Assert.assertEquals(0L, new LongFormatter("#,##0").parseAsLong(""));
+    }
+
+    private void assertDoubleParsing(String pattern, DoubleFormatter formatter, String input)
+    {
+        String description = "'" + input + "' with '" + pattern + "'";
+
+        Double expected = this.referenceDouble(pattern, input);
+        if (expected == null)
+        {
+            Assert.assertThrows(description, RuntimeException.class, () -> formatter.parseAsDouble(input));
+        }
+        else
+        {
+            Assert.assertEquals(description,
+                    Double.doubleToLongBits(expected), Double.doubleToLongBits(formatter.parseAsDouble(input)));
+        }
+    }
+
+    private void assertLongParsing(String pattern, LongFormatter formatter, String input)
+    {
+        String description = "'" + input + "' with '" + pattern + "'";
+
+        Long expected = this.referenceLong(pattern, input);
+        if (expected == null)
+        {
+            Assert.assertThrows(description, RuntimeException.class, () -> formatter.parseAsLong(input));
+        }
+        else
+        {
+            Assert.assertEquals(description, expected.longValue(), formatter.parseAsLong(input));
+        }
+    }
+
+    private Double referenceDouble(String pattern, String input)
+    {
+        if (input.isEmpty())
+        {
+            return 0.0;
+        }
+
+        try
+        {
+            if (pattern.isEmpty())
+            {
+                return Double.parseDouble(input);
+            }
+
+            if (pattern.length() == 1)
+            {
+                return Double.parseDouble(input.replaceAll("[^0-9" + pattern + "]", "").replace(pattern, "."));
+            }
+
+            return new DecimalFormat(pattern).parse(input.trim()).doubleValue();
+        }
+        catch (NumberFormatException | ParseException e)
+        {
+            return null;
+        }
+    }
+
+    private Long referenceLong(String pattern, String input)
+    {
+        if (input.isEmpty())
+        {
+            return 0L;
+        }
+
+        try
+        {
+            if (pattern.isEmpty())
+            {
+                return Long.parseLong(input);
+            }
+
+            if (pattern.length() == 1)
+            {
+                return Long.parseLong(input.replaceAll("[^0-9" + pattern + "]", ""));
+            }
+
+            return new DecimalFormat(pattern).parse(input.trim()).longValue();
+        }
+        catch (NumberFormatException | ParseException e)
+        {
+            return null;
+        }
+    }
+}
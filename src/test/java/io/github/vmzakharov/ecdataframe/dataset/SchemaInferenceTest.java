@@ -0,0 +1,124 @@
+package io.github.vmzakharov.ecdataframe.dataset;
+
+import com.google.common.jimfs.Configuration;
+import com.google.common.jimfs.Jimfs;
+import io.github.vmzakharov.ecdataframe.dataframe.DataFrame;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static io.github.vmzakharov.ecdataframe.dsl.value.ValueType.DOUBLE;
+import static io.github.vmzakharov.ecdataframe.dsl.value.ValueType.LONG;
+import static io.github.vmzakharov.ecdataframe.dsl.value.ValueType.STRING;
+
+public class SchemaInferenceTest
+{
+    private Path dataFile;
+
+    @Before
+    public void createDataFile()
+    throws IOException
+    {
+        Path directory = Files.createDirectory(Jimfs.newFileSystem(Configuration.unix()).getPath("/foo"));
+        this.dataFile = directory.resolve("values.csv");
+
+        StringBuilder text = new StringBuilder("Name,Value\n");
+        for (int i = 0; i < 5_000; i++)
+        {
+            text.append("\"N").append(i).append("\",").append(i < 2_500 ? String.valueOf(i) : i + ".5").append('\n');
+        }
+
+        Files.write(this.dataFile, text.toString().getBytes());
+    }
+
+    @Test
+    public void inferFromBeginningOfFile()
+    {
+        CsvSchema schema = new CsvDataSet(this.dataFile, "Values").inferSchema();
+
+        Assert.assertEquals(LONG, schema.columnAt(1).getType());
+    }
+
+    @Test
+    public void inferFromSampleAcrossFile()
+    {
+        CsvDataSet dataSet = new CsvDataSet(this.dataFile, "Values");
+        dataSet.inferSchemaFromSampleAcrossFile();
+
+        CsvSchema schema = dataSet.inferSchema();
+        Assert.assertEquals(STRING, schema.columnAt(0).getType());
+        Assert.assertEquals(DOUBLE, schema.columnAt(1).getType());
+
+        CsvDataSet loadingDataSet = new CsvDataSet(this.dataFile, "Values");
+        loadingDataSet.inferSchemaFromSampleAcrossFile();
+
+        DataFrame loaded = loadingDataSet.loadAsDataFrame();
+        Assert.assertEquals(5_000, loaded.rowCount());
+        Assert.assertEquals(4_999.5, loaded.getDouble("Value", 4_999), 0.0);
+    }
+
+    @Test
+    public void cachedSchemaIsReused()
+    throws IOException
+    {
+        CsvDataSet dataSet = new CsvDataSet(this.dataFile, "Values");
+        dataSet.inferSchemaFromSampleAcrossFile();
+        dataSet.cacheInferredSchema();
+        dataSet.loadAsDataFrame();
+
+        Path schemaFile = this.dataFile.resolveSibling("values.csv.schema");
+        Assert.assertTrue(Files.exists(schemaFile));
+
+        // tamper with the stored schema to see that it is used instead of inferring the schema again
+        String storedSchema = new String(Files.readAllBytes(schemaFile)).replace("DOUBLE", "STRING");
+        Files.write(schemaFile, storedSchema.getBytes());
+        Files.setLastModifiedTime(this.dataFile, Files.getLastModifiedTime(this.dataFile));
+
+        CsvDataSet cachingDataSet = new CsvDataSet(this.dataFile, "Values");
+        cachingDataSet.cacheInferredSchema();
+        DataFrame loaded = cachingDataSet.loadAsDataFrame();
+
+        Assert.assertEquals(STRING, cachingDataSet.getSchema().columnAt(1).getType());
+        Assert.assertEquals("4999.5", loaded.getObject("Value", 4_999));
+    }
+
+    @Test
+    public void staleCachedSchemaIsIgnored()
+    throws IOException
+    {
+        CsvDataSet dataSet = new CsvDataSet(this.dataFile, "Values");
+        dataSet.cacheInferredSchema();
+        dataSet.inferSchema();
+
+        Assert.assertEquals(LONG, dataSet.getSchema().columnAt(1).getType());
+
+        Files.write(this.dataFile, "Name,Value\n\"A\",1.25\n".getBytes());
+
+        CsvDataSet cachingDataSet = new CsvDataSet(this.dataFile, "Values");
+        cachingDataSet.cacheInferredSchema();
+        DataFrame loaded = cachingDataSet.loadAsDataFrame();
+
+        Assert.assertEquals(DOUBLE, cachingDataSet.getSchema().columnAt(1).getType());
+        Assert.assertEquals(1.25, loaded.getDouble("Value", 0), 0.0);
+    }
+
+    @Test
+    public void failureToStoreSchemaIsIgnored()
+    throws IOException
+    {
+        // a directory in place of the schema file makes writing the schema fail
+        Files.createDirectory(this.dataFile.resolveSibling("values.csv.schema"));
+
+        CsvDataSet dataSet = new CsvDataSet(this.dataFile, "Values");
+        dataSet.inferSchemaFromSampleAcrossFile();
+        dataSet.cacheInferredSchema();
+        DataFrame loaded = dataSet.loadAsDataFrame();
+
+        Assert.assertEquals(5_000, loaded.rowCount());
+        Assert.assertEquals(4_999.5, loaded.getDouble("Value", 4_999), 0.0);
+    }
+}
@@ -1,5 +1,7 @@
 package io.github.vmzakharov.ecdataframe.dataset;
 
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
 import java.io.Reader;
 import java.io.StringReader;
 import java.io.StringWriter;
@@ -10,6 +12,7 @@ extends CsvDataSet
 {
     private final String data;
     private final StringWriter writer = new StringWriter();
+    private final ByteArrayOutputStream stream = new ByteArrayOutputStream();
 
     public StringBasedCsvDataSet(String dataFileName, String newName, String newData)
     {
@@ -36,8 +39,20 @@ extends CsvDataSet
         return this.writer;
     }
 
+    @Override
+    protected OutputStream createOutputStream()
+    {
+        this.stream.reset(); // to mimic the behavior of the superclass
+        return this.stream;
+    }
+
     public String getWrittenData()
     {
         return this.writer.toString();
     }
+
+    public byte[] getWrittenBytes()
+    {
+        return this.stream.toByteArray();
+    }
 }
@@ -0,0 +1,196 @@
+package io.github.vmzakharov.ecdataframe.dsl;
+
+import io.github.vmzakharov.ecdataframe.ExpressionTestUtil;
+import io.github.vmzakharov.ecdataframe.dataframe.DataFrame;
+import io.github.vmzakharov.ecdataframe.dataframe.DataFrameUtil;
+import io.github.vmzakharov.ecdataframe.dsl.function.BuiltInFunctions;
+import io.github.vmzakharov.ecdataframe.dsl.function.IntrinsicFunctionDescriptor;
+import io.github.vmzakharov.ecdataframe.dsl.value.DateValue;
+import io.github.vmzakharov.ecdataframe.dsl.value.DoubleValue;
+import io.github.vmzakharov.ecdataframe.dsl.value.LongValue;
+import io.github.vmzakharov.ecdataframe.dsl.value.Value;
+import io.github.vmzakharov.ecdataframe.dsl.visitor.InMemoryEvaluationVisitor;
+import io.github.vmzakharov.ecdataframe.dsl.visitor.OptimizingVisitor;
+import io.github.vmzakharov.ecdataframe.dsl.visitor.PrettyPrintVisitor;
+import org.eclipse.collections.impl.factory.Lists;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.LocalDate;
+
+public class ExpressionOptimizationTest
+{
+    @After
+    public void resetFunctions()
+    {
+        BuiltInFunctions.resetFunctionList();
+    }
+
+    @Test
+    public void foldConstants()
+    {
+        Expression folded = OptimizingVisitor.optimize(ExpressionTestUtil.toExpression("2 * 3.5"));
+        Assert.assertTrue(folded instanceof DoubleValue);
+        Assert.assertEquals(7.0, ((DoubleValue) folded).doubleValue(), 0.0);
+
+        Expression date = OptimizingVisitor.optimize(ExpressionTestUtil.toExpression("toDate(2020, 1, 1)"));
+        Assert.assertTrue(date instanceof DateValue);
+        Assert.assertEquals(LocalDate.of(2020, 1, 1), ((DateValue) date).dateValue());
+
+        Assert.assertEquals("(x + 6)", this.optimizedToString("x + 2 * 3"));
+        Assert.assertEquals("(x in (\"a\", \"b\"))", this.optimizedToString("x in (\"a\", \"b\")"));
+    }
+
+    @Test
+    public void simplifyBooleanExpressions()
+    {
+        Assert.assertEquals("(x > 1)", this.optimizedToString("x > 1 and 1 == 1"));
+        Assert.assertEquals("(x > 1)", this.optimizedToString("1 == 1 and x > 1"));
+        Assert.assertEquals("FALSE", this.optimizedToString("1 > 2 and x > 1"));
+        Assert.assertEquals("(x > 1)", this.optimizedToString("x > 1 or 1 != 1"));
+        Assert.assertEquals("TRUE", this.optimizedToString("1 < 2 or x > 1"));
+        Assert.assertEquals("(x > 1)", this.optimizedToString("not not (x > 1)"));
+        Assert.assertEquals("(x + 1)", this.optimizedToString("1 > 0 ? x + 1 : x - 1"));
+    }
+
+    @Test
+    public void impureAndFailingExpressionsAreNotFolded()
+    {
+        Assert.assertEquals("println(\"hello\")", this.optimizedToString("println(\"hello\")"));
+        Assert.assertEquals("toLong(\"abc\")", this.optimizedToString("toLong(\"abc\")"));
+    }
+
+    @Test
+    public void declaredFunctionsAreNotFolded()
+    {
+        AnonymousScript script = ExpressionTestUtil.toScript(
+                  "function abs(x)\n"
+                + "{\n"
+                + "  x * 10\n"
+                + "}\n"
+                + "abs(-2)");
+
+        Value value = ((AnonymousScript) OptimizingVisitor.optimize(script)).evaluate();
+        Assert.assertEquals(-20L, ((LongValue) value).longValue());
+    }
+
+    @Test
+    public void rowInvariantSubexpressionsAreEvaluatedOnce()
+    {
+        int[] callCount = new int[1];
+
+        BuiltInFunctions.addFunctionDescriptor(new IntrinsicFunctionDescriptor("counted", Lists.immutable.of("value"))
+        {
+            @Override
+            public Value evaluate(EvalContext context)
+            {
+                callCount[0]++;
+                return context.getVariable("value");
+            }
+
+            @Override
+            public boolean isPure()
+            {
+                return true;
+            }
+        });
+
+        DataFrame dataFrame = new DataFrame("df")
+                .addStringColumn("Name").addLongColumn("Count")
+                .addRow("Alice", 5)
+                .addRow("Carl", 15)
+                .addRow("Bob", 10)
+                .seal();
+
+        SimpleEvalContext externalContext = new SimpleEvalContext();
+        externalContext.setVariable("threshold", new LongValue(100));
+        dataFrame.setExternalEvalContext(externalContext);
+
+        dataFrame.sortByExpression("counted(threshold) - Count");
+
+        DataFrameUtil.assertEquals(
+                new DataFrame("expected")
+                        .addStringColumn("Name").addLongColumn("Count")
+                        .addRow("Carl", 15)
+                        .addRow("Bob", 10)
+                        .addRow("Alice", 5),
+                dataFrame);
+
+        Assert.assertEquals(1, callCount[0]);
+    }
+
+    @Test
+    public void filtersWorkWithOptimization()
+    {
+        DataFrame dataFrame = new DataFrame("df")
+                .addStringColumn("Name").addLongColumn("Count")
+                .addRow("Alice", 5)
+                .addRow("Bob", 10)
+                .addRow("Carl", 15)
+                .seal();
+
+        DataFrameUtil.assertEquals(
+                new DataFrame("expected")
+                        .addStringColumn("Name").addLongColumn("Count")
+                        .addRow("Bob", 10),
+                dataFrame.selectBy("Count > 2 * 3 and 1 == 1 and Name in (\"B\" + \"ob\", \"Dave\")"));
+    }
+
+    @Test
+    public void smallFunctionsAreInlined()
+    {
+        AnonymousScript script = ExpressionTestUtil.toScript(
+                  "function twice(x)\n"
+                + "{\n"
+                + "  x * 2\n"
+                + "}\n"
+                + "function square(x)\n"
+                + "{\n"
+                + "  x * x\n"
+                + "}\n"
+                + "twice(3) + twice(y) + square(y) + square(y + 1)");
+
+        AnonymousScript optimized = (AnonymousScript) OptimizingVisitor.optimize(script);
+
+        Assert.assertEquals(
+                "(((6 + (y * 2)) + (y * y)) + square((y + 1)))",
+                PrettyPrintVisitor.exprToString(optimized.getExpressions().getLast()));
+
+        SimpleEvalContext context = new SimpleEvalContext();
+        context.setVariable("y", new LongValue(5));
+        Assert.assertEquals(77L, ((LongValue) optimized.evaluate(new InMemoryEvaluationVisitor(context))).longValue());
+    }
+
+    @Test
+    public void functionsWithSideEffectsOrFreeVariablesAreNotInlined()
+    {
+        AnonymousScript script = ExpressionTestUtil.toScript(
+                  "function shout(x)\n"
+                + "{\n"
+                + "  println(x)\n"
+                + "}\n"
+                + "function offset(x)\n"
+                + "{\n"
+                + "  x + y\n"
+                + "}\n"
+                + "function twice(x)\n"
+                + "{\n"
+                + "  x * 2\n"
+                + "}\n"
+                + "shout(1)\n"
+                + "offset(1)\n"
+                + "twice(shout(2))");
+
+        AnonymousScript optimized = (AnonymousScript) OptimizingVisitor.optimize(script);
+
+        Assert.assertEquals("shout(1)", PrettyPrintVisitor.exprToString(optimized.getExpressions().get(0)));
+        Assert.assertEquals("offset(1)", PrettyPrintVisitor.exprToString(optimized.getExpressions().get(1)));
+        Assert.assertEquals("twice(shout(2))", PrettyPrintVisitor.exprToString(optimized.getExpressions().get(2)));
+    }
+
+    private String optimizedToString(String expressionString)
+    {
+        return PrettyPrintVisitor.exprToString(OptimizingVisitor.optimize(ExpressionTestUtil.toExpression(expressionString)));
+    }
+}
@@ -0,0 +1,108 @@
+package io.github.vmzakharov.ecdataframe.dsl;
+
+import io.github.vmzakharov.ecdataframe.ExpressionTestUtil;
+import io.github.vmzakharov.ecdataframe.dataframe.DataFrame;
+import io.github.vmzakharov.ecdataframe.dataframe.DataFrameUtil;
+import io.github.vmzakharov.ecdataframe.dsl.value.DateValue;
+import io.github.vmzakharov.ecdataframe.dsl.value.DoubleValue;
+import io.github.vmzakharov.ecdataframe.dsl.value.LongValue;
+import io.github.vmzakharov.ecdataframe.dsl.value.StringValue;
+import io.github.vmzakharov.ecdataframe.dsl.value.Value;
+import io.github.vmzakharov.ecdataframe.dsl.value.VectorValue;
+import io.github.vmzakharov.ecdataframe.dsl.visitor.OptimizingVisitor;
+import org.eclipse.collections.impl.factory.Lists;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.LocalDate;
+
+public class VectorMembershipOpTest
+{
+    @Test
+    public void sameResultAsGenericOperation()
+    {
+        VectorValue[] vectors = {
+                this.vectorOf(new LongValue(1), new LongValue(2), new LongValue(3)),
+                this.vectorOf(new LongValue(1), Value.VOID, new LongValue(-5)),
+                this.vectorOf(new DoubleValue(1.0), new DoubleValue(-0.0), new DoubleValue(Double.NaN), new DoubleValue(2.5)),
+                this.vectorOf(new StringValue("A1"), new StringValue("B2"), Value.VOID),
+                this.vectorOf(new DateValue(LocalDate.of(2020, 1, 1)), new DateValue(LocalDate.of(2021, 2, 3)))
+        };
+
+        Value[] values = {
+                new LongValue(1), new LongValue(4), new LongValue(-5), new DoubleValue(1.0), new DoubleValue(0.0),
+                new DoubleValue(Double.NaN), new DoubleValue(2.5), new LongValue(0), new StringValue("A1"),
+                new StringValue("C3"), new DateValue(LocalDate.of(2021, 2, 3)), new DateValue(LocalDate.of(2021, 2, 4)),
+                Value.VOID
+        };
+
+        for (ContainsOp op : Lists.immutable.of(ContainsOp.IN, ContainsOp.NOT_IN))
+        {
+            for (VectorValue vector : vectors)
+            {
+                ContainsOp setOp = VectorMembershipOp.forConstantVector(op, vector);
+                Assert.assertTrue(setOp instanceof VectorMembershipOp);
+
+                for (Value value : values)
+                {
+                    String description = value.asStringLiteral() + " " + op.asString() + " " + vector.asStringLiteral();
+
+                    boolean expected;
+                    try
+                    {
+                        expected = ExpressionTestUtil.evaluate(op, value, vector);
+                    }
+                    catch (RuntimeException e)
+                    {
+                        Assert.assertThrows(description, RuntimeException.class, () -> ExpressionTestUtil.evaluate(setOp, value, vector));
+                        continue;
+                    }
+
+                    Assert.assertEquals(description, expected, ExpressionTestUtil.evaluate(setOp, value, vector));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void mixedVectorsUseGenericOperation()
+    {
+        VectorValue mixed = this.vectorOf(new LongValue(1), new DoubleValue(2.0));
+        Assert.assertSame(ContainsOp.IN, VectorMembershipOp.forConstantVector(ContainsOp.IN, mixed));
+    }
+
+    @Test
+    public void optimizedFilter()
+    {
+        BinaryExpr optimized = (BinaryExpr) OptimizingVisitor.optimize(
+                ExpressionTestUtil.toExpression("Account not in (\"A1\", \"A\" + \"2\", \"A3\")"));
+        Assert.assertTrue(optimized.getOperation() instanceof VectorMembershipOp);
+
+        DataFrame dataFrame = new DataFrame("df")
+                .addStringColumn("Account").addLongColumn("Quantity")
+                .addRow("A1", 10)
+                .addRow("A4", 20)
+                .addRow("A2", 30)
+                .addRow("A5", 40)
+                .seal();
+
+        DataFrameUtil.assertEquals(
+                new DataFrame("expected")
+                        .addStringColumn("Account").addLongColumn("Quantity")
+                        .addRow("A1", 10)
+                        .addRow("A2", 30),
+                dataFrame.selectBy("Account in (\"A1\", \"A2\", \"A3\") and Quantity in (10, 30)"));
+
+        DataFrameUtil.assertEquals(
+                new DataFrame("expected")
+                        .addStringColumn("Account").addLongColumn("Quantity")
+                        .addRow("A4", 20)
+                        .addRow("A5", 40),
+                dataFrame.selectBy("Account not in (\"A1\", \"A\" + \"2\", \"A3\")"));
+    }
+
+    private VectorValue vectorOf(Value... values)
+    {
+        return new VectorValue(Lists.immutable.of(values));
+    }
+}
@@ -2,7 +2,11 @@ package io.github.vmzakharov.ecdataframe.dsl.function;
 
 import io.github.vmzakharov.ecdataframe.dsl.Script;
 import io.github.vmzakharov.ecdataframe.dsl.SimpleEvalContext;
+import io.github.vmzakharov.ecdataframe.dsl.value.DoubleValue;
+import io.github.vmzakharov.ecdataframe.dsl.value.LongValue;
+import io.github.vmzakharov.ecdataframe.dsl.value.StringValue;
 import io.github.vmzakharov.ecdataframe.dsl.value.Value;
+import io.github.vmzakharov.ecdataframe.dsl.value.VectorValue;
 import io.github.vmzakharov.ecdataframe.dsl.visitor.InMemoryEvaluationVisitor;
 import io.github.vmzakharov.ecdataframe.util.CollectingPrinter;
 import io.github.vmzakharov.ecdataframe.util.PrinterFactory;
@@ -185,6 +189,39 @@ public class BuiltInFunctionTest
         Assert.assertEquals(-456.789, evaluateToDouble("toDouble('-456.789')"), TOLERANCE);
     }
 
+    @Test
+    public void positionalAndNamedInvocation()
+    {
+        IntrinsicFunctionDescriptor substr = BuiltInFunctions.getFunctionDescriptor("SUBSTR");
+        Assert.assertEquals("ell", substr.call(new StringValue("Hello"), new LongValue(1), new LongValue(4)).stringValue());
+        Assert.assertEquals("llo", substr.evaluate(new VectorValue(Lists.immutable.of(new StringValue("Hello"), new LongValue(2)))).stringValue());
+
+        IntrinsicFunctionDescriptor abs = BuiltInFunctions.getFunctionDescriptor("ABS");
+        Assert.assertEquals(5L, ((LongValue) abs.call(new LongValue(-5))).longValue());
+
+        SimpleEvalContext context = new SimpleEvalContext();
+        context.setVariable("number", new DoubleValue(-2.5));
+        Assert.assertEquals(2.5, ((DoubleValue) abs.evaluate(context)).doubleValue(), 0.0);
+    }
+
+    @Test
+    public void invalidParameterCount()
+    {
+        Assert.assertThrows(RuntimeException.class, () -> evaluateToString("substr('Hello')"));
+        Assert.assertThrows(RuntimeException.class, () -> evaluateToLong("abs()"));
+        Assert.assertThrows(RuntimeException.class, () -> evaluateToDate("toDate(2021, 11)"));
+        Assert.assertThrows(RuntimeException.class, () -> evaluateToDateTime("toDateTime(2021, 11, 21, 10)"));
+    }
+
+    @Test
+    public void extraParametersToFunctionsWithDeclaredParametersAreIgnored()
+    {
+        Assert.assertEquals(1L, evaluateToLong("abs(-1, 2)"));
+        Assert.assertEquals("HELLO", evaluateToString("toUpper('hello', 'world', 1)"));
+        Assert.assertTrue(evaluateToBoolean("startsWith('Hello', 'He', 'x', 'y')"));
+        Assert.assertEquals(5L, evaluateToLong("toLong('5', 1, 2, 3, 4)"));
+    }
+
     @Test
     public void listAllFunctions()
     {
@@ -1,11 +1,13 @@
 package io.github.vmzakharov.ecdataframe.dsl.function;
 
 import io.github.vmzakharov.ecdataframe.ExpressionTestUtil;
+import io.github.vmzakharov.ecdataframe.dsl.EvalContext;
 import io.github.vmzakharov.ecdataframe.dsl.value.LongValue;
 import io.github.vmzakharov.ecdataframe.dsl.value.Value;
 import io.github.vmzakharov.ecdataframe.dsl.value.ValueType;
 import io.github.vmzakharov.ecdataframe.dsl.value.VectorValue;
 import org.eclipse.collections.api.list.ListIterable;
+import org.eclipse.collections.impl.factory.Lists;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -33,4 +35,42 @@ public class RuntimeAddedFuntionTest
         Assert.assertEquals(5, ExpressionTestUtil.evaluateToLong("plusTwo(3)"));
         Assert.assertEquals(4, ExpressionTestUtil.evaluateToLong("abs(plusTwo(-6))"));
     }
+
+    @Test
+    public void positional()
+    {
+        BuiltInFunctions.addFunctionDescriptor(new IntrinsicFunctionDescriptor("timesTen", Lists.immutable.of("number"))
+        {
+            @Override
+            public Value call(Value parameter)
+            {
+                return new LongValue(((LongValue) parameter).longValue() * 10);
+            }
+
+            @Override
+            public ValueType returnType(ListIterable<ValueType> parameterTypes)
+            {
+                return ValueType.LONG;
+            }
+        });
+
+        Assert.assertEquals(30, ExpressionTestUtil.evaluateToLong("timesTen(3)"));
+        Assert.assertEquals(50, ExpressionTestUtil.evaluateToLong("timesTen(abs(-5))"));
+    }
+
+    @Test
+    public void namedParameters()
+    {
+        BuiltInFunctions.addFunctionDescriptor(new IntrinsicFunctionDescriptor("minus", Lists.immutable.of("a", "b"))
+        {
+            @Override
+            public Value evaluate(EvalContext context)
+            {
+                return new LongValue(
+                        ((LongValue) context.getVariable("a")).longValue() - ((LongValue) context.getVariable("b")).longValue());
+            }
+        });
+
+        Assert.assertEquals(7, ExpressionTestUtil.evaluateToLong("minus(10, 3)"));
+    }
 }
@@ -0,0 +1,80 @@
+package io.github.vmzakharov.ecdataframe.util;
+
+import io.github.vmzakharov.ecdataframe.dsl.AnonymousScript;
+import io.github.vmzakharov.ecdataframe.dsl.Expression;
+import io.github.vmzakharov.ecdataframe.dsl.FunctionScript;
+import io.github.vmzakharov.ecdataframe.dsl.value.LongValue;
+import io.github.vmzakharov.ecdataframe.grammar.CollectingErrorListener;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+public class ExpressionParserHelperTest
+{
+    @Test
+    public void parsedExpressionsAreCached()
+    {
+        ExpressionParserHelper parserHelper = new ExpressionParserHelper();
+
+        Expression expression = parserHelper.toExpression("x > 5 and y in ('a', 'b')");
+        Assert.assertSame(expression, parserHelper.toExpression("x > 5 and y in ('a', 'b')"));
+        Assert.assertNotSame(expression, parserHelper.toExpression("x > 6 and y in ('a', 'b')"));
+
+        AnonymousScript script = parserHelper.toScript("a = 1\nb = a + 2");
+        Assert.assertSame(script, parserHelper.toScript("a = 1\nb = a + 2"));
+        Assert.assertEquals(3L, ((LongValue) script.evaluate()).longValue());
+
+        parserHelper.clearCache();
+        Assert.assertNotSame(expression, parserHelper.toExpression("x > 5 and y in ('a', 'b')"));
+    }
+
+    @Test
+    public void functionsOfCachedScriptsCannotBeChanged()
+    {
+        ExpressionParserHelper parserHelper = new ExpressionParserHelper();
+
+        String scriptText = "function twice(x)\n{\n  x * 2\n}\ntwice(21)";
+        AnonymousScript script = parserHelper.toScript(scriptText);
+        FunctionScript twice = script.getFunctions().get("twice");
+
+        Assert.assertThrows(RuntimeException.class, () -> script.addFunctionScript(twice));
+        Assert.assertThrows(UnsupportedOperationException.class, () -> script.getFunctions().remove("twice"));
+
+        Assert.assertEquals(1, parserHelper.toScript(scriptText).getFunctions().size());
+        Assert.assertEquals(42L, ((LongValue) parserHelper.toScript(scriptText).evaluate()).longValue());
+    }
+
+    @Test
+    public void errorsAreReportedOnEveryParse()
+    {
+        CollectingErrorListener errorListener = new CollectingErrorListener();
+        ExpressionParserHelper parserHelper = new ExpressionParserHelper(errorListener);
+
+        Assert.assertNull(parserHelper.toExpression("5 + "));
+        Assert.assertNull(parserHelper.toExpression("5 + "));
+
+        Assert.assertEquals(2, errorListener.getErrors().size());
+    }
+
+    @Test
+    public void concurrentParsing()
+    {
+        ExpressionParserHelper parserHelper = new ExpressionParserHelper();
+
+        CompletableFuture<?>[] parsing = IntStream.range(0, 64)
+                .mapToObj(i -> CompletableFuture.runAsync(() -> {
+                    for (int j = 0; j < 100; j++)
+                    {
+                        String source = "x * " + j % 10 + " + " + i % 4;
+                        Assert.assertNotNull(source, parserHelper.toExpression(source));
+                    }
+                }))
+                .toArray(CompletableFuture[]::new);
+
+        CompletableFuture.allOf(parsing).join();
+
+        Assert.assertSame(parserHelper.toExpression("x * 1 + 2"), parserHelper.toExpression("x * 1 + 2"));
+    }
+}